@@ -0,0 +1,246 @@
+package org.brongus.shapefile.bcross;
+
+import org.brongus.shapefile.files.shp.shapeTypes.ShpPolygon;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Spatial index over the rings (parts) of a list of polygon shapes.
+ * <p/>
+ * Rings are registered in the cells of a uniform grid covering their bounding box.
+ * A point is inside a shape if a ray from the point crosses the rings of the shape
+ * an odd number of times (even-odd rule), so that multiple outer rings and holes are
+ * handled. Only rings whose bounding box contains the point need to be tested, since
+ * a ray from a point outside of a closed ring crosses it an even number of times.
+ * Rings with many vertices also keep an index of their edges by X band.
+ * <p/>
+ * Coordinates are in shapefile order: X (longitude), Y (latitude).
+ * Instances are immutable and may be shared between threads.
+ */
+public class PolygonIndex {
+
+    private static final int MAX_GRID_CELLS_PER_AXIS = 256;
+    private static final int EDGE_INDEX_MIN_EDGES = 32;
+    private static final int EDGES_PER_BAND = 4;
+    private static final int MAX_BAND_COUNT = 4096;
+
+    /**
+     * A single closed ring of a shape
+     */
+    private static class Ring {
+        final int shape;
+        final double[] x;
+        final double[] y;
+        final double minX, maxX, minY, maxY;
+        final double bandWidth;
+        final int[][] bandEdges; // null if not indexed; edge 'e' is (e-1, e), wrapping at 0
+
+        Ring(int shape, double[] x, double[] y) {
+            this.shape = shape;
+            this.x = x;
+            this.y = y;
+            double nx = Double.MAX_VALUE, xx = -Double.MAX_VALUE, ny = Double.MAX_VALUE, xy = -Double.MAX_VALUE;
+            for (int i = 0; i < x.length; i++) {
+                nx = Math.min(nx, x[i]); xx = Math.max(xx, x[i]);
+                ny = Math.min(ny, y[i]); xy = Math.max(xy, y[i]);
+            }
+            this.minX = nx; this.maxX = xx; this.minY = ny; this.maxY = xy;
+
+            int edges = x.length;
+            if (edges >= EDGE_INDEX_MIN_EDGES && maxX > minX) {
+                int bands = Math.min(Math.max(edges / EDGES_PER_BAND, 1), MAX_BAND_COUNT);
+                this.bandWidth = (maxX - minX) / bands;
+                int[] count = new int[bands];
+                for (int e = 0; e < edges; e++) {
+                    int p = (e == 0) ? edges - 1 : e - 1;
+                    int b0 = band(Math.min(x[p], x[e]), bands), b1 = band(Math.max(x[p], x[e]), bands);
+                    for (int b = b0; b <= b1; b++) count[b]++;
+                }
+                this.bandEdges = new int[bands][];
+                for (int b = 0; b < bands; b++) {
+                    bandEdges[b] = new int[count[b]];
+                    count[b] = 0;
+                }
+                for (int e = 0; e < edges; e++) {
+                    int p = (e == 0) ? edges - 1 : e - 1;
+                    int b0 = band(Math.min(x[p], x[e]), bands), b1 = band(Math.max(x[p], x[e]), bands);
+                    for (int b = b0; b <= b1; b++) bandEdges[b][count[b]++] = e;
+                }
+            } else {
+                this.bandWidth = 0.0;
+                this.bandEdges = null;
+            }
+        }
+
+        private int band(double px, int bands) {
+            int b = (int) Math.floor((px - minX) / bandWidth);
+            return (b < 0) ? 0 : (b >= bands) ? (bands - 1) : b;
+        }
+
+        boolean boundsContain(double px, double py) {
+            return px >= minX && px <= maxX && py >= minY && py <= maxY;
+        }
+
+        /**
+         * @return true if a ray from the point toward +Y crosses this ring an odd number of times
+         */
+        boolean oddCrossings(double px, double py) {
+            boolean odd = false;
+            if (bandEdges != null) {
+                int[] edges = bandEdges[band(px, bandEdges.length)];
+                for (int k = 0; k < edges.length; k++) {
+                    int i = edges[k];
+                    int j = (i == 0) ? x.length - 1 : i - 1;
+                    if (crosses(i, j, px, py)) odd = !odd;
+                }
+            } else {
+                for (int i = 0, j = x.length - 1; i < x.length; j = i++) {
+                    if (crosses(i, j, px, py)) odd = !odd;
+                }
+            }
+            return odd;
+        }
+
+        private boolean crosses(int i, int j, double px, double py) {
+            return ((x[i] > px) != (x[j] > px)) &&
+                    (py < (y[j] - y[i]) * (px - x[i]) / (x[j] - x[i]) + y[i]);
+        }
+    }
+
+    private final int shapeCount;
+    private final Ring[] rings;
+    private final double gridMinX, gridMinY, cellWidth, cellHeight;
+    private final int cols, rows;
+    private final int[][] cells; // ring indices (ascending), null if empty
+
+    /**
+     * Build the index
+     *
+     * @param shapes polygon shapes (the shape index is the position in this list)
+     */
+    public PolygonIndex(List<ShpPolygon> shapes) {
+        this.shapeCount = shapes.size();
+
+        /* rings */
+        List<Ring> ringList = new ArrayList<Ring>();
+        for (int s = 0; s < shapes.size(); s++) {
+            ShpPolygon shape = shapes.get(s);
+            if (shape == null || shape.getNumberOfPoints() == 0) {
+                continue;
+            }
+            double[][][] parts = shape.getPointsAs3DArray();
+            for (int p = 0; p < parts.length; p++) {
+                int n = parts[p].length;
+                if (n < 3) {
+                    continue;
+                }
+                double[] x = new double[n];
+                double[] y = new double[n];
+                for (int v = 0; v < n; v++) {
+                    x[v] = parts[p][v][0];
+                    y[v] = parts[p][v][1];
+                }
+                ringList.add(new Ring(s, x, y));
+            }
+        }
+        this.rings = ringList.toArray(new Ring[ringList.size()]);
+
+        /* grid */
+        double nx = Double.MAX_VALUE, xx = -Double.MAX_VALUE, ny = Double.MAX_VALUE, xy = -Double.MAX_VALUE;
+        for (Ring r : rings) {
+            nx = Math.min(nx, r.minX); xx = Math.max(xx, r.maxX);
+            ny = Math.min(ny, r.minY); xy = Math.max(xy, r.maxY);
+        }
+        if (rings.length == 0) {
+            nx = xx = ny = xy = 0.0;
+        }
+        this.gridMinX = nx;
+        this.gridMinY = ny;
+        this.cols = Math.max(1, Math.min(MAX_GRID_CELLS_PER_AXIS, (int) Math.ceil(xx - nx)));
+        this.rows = Math.max(1, Math.min(MAX_GRID_CELLS_PER_AXIS, (int) Math.ceil(xy - ny)));
+        this.cellWidth = (xx > nx) ? (xx - nx) / cols : 1.0;
+        this.cellHeight = (xy > ny) ? (xy - ny) / rows : 1.0;
+
+        int[] count = new int[cols * rows];
+        for (Ring r : rings) {
+            for (int c = col(r.minX); c <= col(r.maxX); c++) {
+                for (int w = row(r.minY); w <= row(r.maxY); w++) {
+                    count[(w * cols) + c]++;
+                }
+            }
+        }
+        this.cells = new int[cols * rows][];
+        for (int k = 0; k < cells.length; k++) {
+            cells[k] = (count[k] > 0) ? new int[count[k]] : null;
+            count[k] = 0;
+        }
+        for (int i = 0; i < rings.length; i++) {
+            Ring r = rings[i];
+            for (int c = col(r.minX); c <= col(r.maxX); c++) {
+                for (int w = row(r.minY); w <= row(r.maxY); w++) {
+                    int k = (w * cols) + c;
+                    cells[k][count[k]++] = i;
+                }
+            }
+        }
+    }
+
+    private int col(double px) {
+        int c = (int) Math.floor((px - gridMinX) / cellWidth);
+        return (c < 0) ? 0 : (c >= cols) ? (cols - 1) : c;
+    }
+
+    private int row(double py) {
+        int r = (int) Math.floor((py - gridMinY) / cellHeight);
+        return (r < 0) ? 0 : (r >= rows) ? (rows - 1) : r;
+    }
+
+    /**
+     * @return the number of indexed shapes
+     */
+    public int getShapeCount() {
+        return shapeCount;
+    }
+
+    /**
+     * @return the number of indexed rings (parts)
+     */
+    public int getRingCount() {
+        return rings.length;
+    }
+
+    /**
+     * Find the shape containing the specified point
+     *
+     * @param px X coordinate (longitude)
+     * @param py Y coordinate (latitude)
+     * @return the index of the first shape containing the point, or -1 if none
+     */
+    public int findShape(double px, double py) {
+        if (rings.length == 0 || Double.isNaN(px) || Double.isNaN(py)) {
+            return -1;
+        }
+        int[] cell = cells[(row(py) * cols) + col(px)];
+        if (cell == null) {
+            return -1;
+        }
+        // rings are ordered by shape, accumulate the crossing parity per shape
+        int shape = -1;
+        boolean odd = false;
+        for (int k = 0; k < cell.length; k++) {
+            Ring r = rings[cell[k]];
+            if (r.shape != shape) {
+                if (odd) {
+                    return shape;
+                }
+                shape = r.shape;
+                odd = false;
+            }
+            if (r.boundsContain(px, py) && r.oddCrossings(px, py)) {
+                odd = !odd;
+            }
+        }
+        return odd ? shape : -1;
+    }
+}
@@ -1,6 +1,7 @@
 package org.brongus.shapefile.bcross;
 
 import org.brongus.shapefile.ShapeFile;
+import org.brongus.shapefile.files.dbf.DBF_Field;
 import org.brongus.shapefile.files.shp.shapeTypes.ShpPolygon;
 import org.brongus.shapefile.files.shp.shapeTypes.ShpShape;
 
@@ -8,6 +9,14 @@ import java.util.ArrayList;
 
 /**
  * Created by lazar on 3/22/14.
+ *
+ * State lookup by point. The state shapes are indexed by a {@link PolygonIndex}
+ * (all rings of each shape are tested), and one immutable {@link StateInfo} is
+ * created per state when the shapefile is loaded.
+ * <p/>
+ * Points are specified in shapefile coordinate order (X, Y), as in
+ * <code>getStateInfoForPoint(-88.99, 40.40)</code> for Illinois.
+ * Instances may be shared between threads once constructed.
  */
 public class State {
 
@@ -16,7 +25,8 @@ public class State {
     private ShapeFile shapeFile;
 
     private ArrayList<ShpPolygon> stateShapes;
-    private ArrayList<String[]> stateInfos;
+    private StateInfo[] stateInfos;
+    private PolygonIndex stateIndex;
 
 
     public State() throws Exception {
@@ -24,7 +34,6 @@ public class State {
         shapeFile.READ();
 
         stateShapes = new ArrayList<ShpPolygon>();
-        stateInfos = new ArrayList<String[]>();
         initStateShapes();
     }
 
@@ -39,84 +48,74 @@ public class State {
             }
 
             number_of_shapes = shapeFile.getSHP_shapeCount();
+            DBF_Field[] dbf_fields = shapeFile.getDBF_field();
 
+            stateInfos = new StateInfo[number_of_shapes];
             for (int i = 0; i < number_of_shapes; i++) {
                 stateShapes.add(i, (ShpPolygon) shapeFile.getSHP_shape(i));
-                stateInfos.add(i, shapeFile.getDBF_record(i));
+                stateInfos[i] = new StateInfo(dbf_fields, shapeFile.getDBF_record(i));
             }
+
+            stateIndex = new PolygonIndex(stateShapes);
         }
 
     }
 
+    /**
+     * Get the state containing the point
+     *
+     * @param pointLatitude X coordinate of the point (see class description)
+     * @param pointLongitude Y coordinate of the point
+     * @return the (shared) state info, or {@link StateInfo#UNKNOWN} if the point is not within a state
+     */
     public StateInfo getStateInfoForPoint(double pointLatitude, double pointLongitude) {
-        return getPointStateInfo(pointLatitude, pointLongitude);
+        int stateIndex = this.stateIndex.findShape(pointLatitude, pointLongitude);
+        return (stateIndex >= 0) ? stateInfos[stateIndex] : StateInfo.UNKNOWN;
     }
 
-    private StateInfo getPointStateInfo(double pointLatitude, double pointLongitude) {
-
-        StateInfo stateInfo = new StateInfo(shapeFile.getDBF_field());
-
-        for (int i = 0; i < stateShapes.size(); i++) {
-            if (pointBelongsToState(pointLatitude, pointLongitude, stateShapes.get(i)))
-            {
-                stateInfo.hydrateFromDbfRecord(stateInfos.get(i));
-                break;
-            }
-        }
-        
-        return stateInfo;
+    /**
+     * Get the states containing each of the points
+     *
+     * @param pointLatitudes X coordinates of the points (same order as {@link #getStateInfoForPoint})
+     * @param pointLongitudes Y coordinates of the points
+     * @return the state info of each point ({@link StateInfo#UNKNOWN} if the point is not within a state)
+     */
+    public StateInfo[] getStateInfoForPoints(double[] pointLatitudes, double[] pointLongitudes) {
+        StateInfo[] result = new StateInfo[pointLatitudes.length];
+        getStateInfoForPoints(pointLatitudes, pointLongitudes, 0, pointLatitudes.length, result);
+        return result;
     }
 
-    private boolean pointBelongsToState(double pointLatitude, double pointLongitude, ShpPolygon stateShape) {
-
-        double[][] bbox;
-        double minLat, maxLat, minLong, maxLong;
-
-
-        bbox = stateShape.getBoundingBox();
-        minLat = bbox[0][0];
-        maxLat = bbox[0][1];
-        minLong = bbox[1][0];
-        maxLong = bbox[1][1];
-
-
-        /*
-         * State boundary box check
-         */
-        if (pointLatitude < minLat || pointLatitude > maxLat ||
-            pointLongitude < minLong || pointLongitude > maxLong)
-        {
-            return false;
+    /**
+     * Get the states containing a range of the points
+     *
+     * @param pointLatitudes X coordinates of the points (same order as {@link #getStateInfoForPoint})
+     * @param pointLongitudes Y coordinates of the points
+     * @param offset index of the first point
+     * @param count number of points
+     * @param result receives the state info of point 'offset + i' at 'result[i]'
+     */
+    public void getStateInfoForPoints(double[] pointLatitudes, double[] pointLongitudes, int offset, int count, StateInfo[] result) {
+        if (pointLongitudes.length != pointLatitudes.length) {
+            throw new IllegalArgumentException("Coordinate arrays differ in length");
         }
+        for (int i = 0; i < count; i++) {
+            result[i] = getStateInfoForPoint(pointLatitudes[offset + i], pointLongitudes[offset + i]);
+        }
+    }
 
-        return pointIsWithinStateBoundaries(pointLatitude, pointLongitude, stateShape);
+    /**
+     * @return the number of states
+     */
+    public int getStateCount() {
+        return stateInfos.length;
     }
 
     /**
-     * State boundaries check
-     *
-     * @param pointLatitude Latitude of point
-     * @param pointLongitude Longitude of point
-     * @param stateShape State shape data
-     * @return
+     * @param index state index
+     * @return the state info of the state at the specified index
      */
-    private boolean pointIsWithinStateBoundaries(double pointLatitude, double pointLongitude, ShpPolygon stateShape) {
-        double[][] vertexes;
-        int vertexes_count;
-        final int latitude_index = 0;
-        final int longitude_index = 1;
-
-        vertexes_count = stateShape.getNumberOfPoints();
-        vertexes = stateShape.getPoints();
-
-        int i, j;
-        boolean state_boundary_check_result = false;
-
-        for (i = 0, j = vertexes_count-1; i < vertexes_count; j = i++) {
-            if ( ((vertexes[i][latitude_index]>pointLatitude) != (vertexes[j][latitude_index]>pointLatitude)) &&
-                    (pointLongitude < (vertexes[j][longitude_index]-vertexes[i][longitude_index]) * (pointLatitude-vertexes[i][latitude_index]) / (vertexes[j][latitude_index]-vertexes[i][latitude_index]) + vertexes[i][longitude_index]) )
-                state_boundary_check_result = !state_boundary_check_result;
-        }
-        return state_boundary_check_result;
+    public StateInfo getStateInfo(int index) {
+        return stateInfos[index];
     }
 }
@@ -6,6 +6,8 @@ import java.util.HashMap;
 
 /**
  * Created by lazar on 3/22/14.
+ *
+ * Immutable state attributes, created once per state shape by {@link State}.
  */
 public class StateInfo {
     public static final String UNKNOWN_INFO_STR = "N/A";
@@ -15,24 +17,56 @@ public class StateInfo {
     private static final String STATE_ABBR_FIELD_DBF_ID = "STATE_ABBR";
     private static final String STATE_SUB_REGION_FIELD_DBF_ID = "SUB_REGION";
 
-    HashMap<String, Integer> dbfMap;
+    /**
+     * Returned for points which are not within any state
+     */
+    public static final StateInfo UNKNOWN = new StateInfo(UNKNOWN_INFO_STR, UNKNOWN_INFO_STR, UNKNOWN_INFO_STR);
 
+    public final String stateName;
+    public final String stateAbbreviation;
+    public final String stateSubRegion;
 
-    public String stateName = new String(UNKNOWN_INFO_STR);
-    public String stateAbbreviation = new String(UNKNOWN_INFO_STR);
-    public String stateSubRegion = new String(UNKNOWN_INFO_STR);
+    public StateInfo(String stateName, String stateAbbreviation, String stateSubRegion) {
+        this.stateName = stateName;
+        this.stateAbbreviation = stateAbbreviation;
+        this.stateSubRegion = stateSubRegion;
+    }
 
-    public StateInfo(DBF_Field[] dbf_fields) {
+    /**
+     * Create state info from a dbf record
+     *
+     * @param dbf_fields dbf fields
+     * @param stateInfo dbf record of the state
+     */
+    public StateInfo(DBF_Field[] dbf_fields, String[] stateInfo) {
+        HashMap<String, Integer> dbfMap = createDbfMap(dbf_fields);
+        this.stateName = getDbfValue(dbfMap, stateInfo, STATE_NAME_FIELD_DBF_ID);
+        this.stateAbbreviation = getDbfValue(dbfMap, stateInfo, STATE_ABBR_FIELD_DBF_ID);
+        this.stateSubRegion = getDbfValue(dbfMap, stateInfo, STATE_SUB_REGION_FIELD_DBF_ID);
+    }
 
-        dbfMap = new HashMap<String, Integer>();
+    private static HashMap<String, Integer> createDbfMap(DBF_Field[] dbf_fields) {
+        HashMap<String, Integer> dbfMap = new HashMap<String, Integer>();
         for(int i = 0; i < dbf_fields.length; i++) {
             dbfMap.put(dbf_fields[i].getName(), i);
         }
+        return dbfMap;
+    }
+
+    private static String getDbfValue(HashMap<String, Integer> dbfMap, String[] stateInfo, String fieldId) {
+        Integer index = dbfMap.get(fieldId);
+        if (index == null || stateInfo == null || index >= stateInfo.length || stateInfo[index] == null) {
+            return UNKNOWN_INFO_STR;
+        }
+        return stateInfo[index].trim();
+    }
+
+    public boolean isUnknown() {
+        return this == UNKNOWN;
     }
 
-    public void hydrateFromDbfRecord(String[] stateInfo) {
-        stateName = stateInfo[dbfMap.get(STATE_NAME_FIELD_DBF_ID)].trim();
-        stateAbbreviation = stateInfo[dbfMap.get(STATE_ABBR_FIELD_DBF_ID)].trim();
-        stateSubRegion = stateInfo[dbfMap.get(STATE_SUB_REGION_FIELD_DBF_ID)].trim();
+    @Override
+    public String toString() {
+        return stateName + " (" + stateAbbreviation + ", " + stateSubRegion + ")";
     }
 }
@@ -29,11 +29,11 @@ package org.brongus.shapefile.files;
 
 import org.brongus.shapefile.ShapeFile;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 
 
 /**
@@ -65,14 +65,23 @@ public abstract class ShapeFileReader {
   
   
   
+  /**
+   * map the file read-only into memory.<br>
+   * the whole file is mapped (not limited by what the stream reports as
+   * available), and the mapping stays valid after the channel is closed.
+   * 
+   * @param file file to map
+   * @return read-only buffer of the file content
+   * @throws IOException
+   */
   public static ByteBuffer loadFile(File file) throws IOException{
-    FileInputStream is = new FileInputStream(file);
-    BufferedInputStream bis = new BufferedInputStream(is);
-    byte data[] = new byte[bis.available()];
-    bis.read(data);
-    bis.close();
-    is.close();
-    return ByteBuffer.wrap(data);
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel fc = raf.getChannel();
+      return fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+    } finally {
+      raf.close();
+    }
   }
   
   public ShapeFile getShapeFile(){
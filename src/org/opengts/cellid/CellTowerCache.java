@@ -0,0 +1,904 @@
+// ----------------------------------------------------------------------------
+// Copyright 2007-2014, GeoTelematic Solutions, Inc.
+// All rights reserved
+// ----------------------------------------------------------------------------
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ----------------------------------------------------------------------------
+// Description:
+//  Persistent cache of Cell Tower locations, keyed by MCC/MNC/LAC/CID
+// ----------------------------------------------------------------------------
+package org.opengts.cellid;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import java.util.zip.*;
+import java.io.*;
+
+import org.opengts.util.*;
+
+/**
+*** <code>CellTowerCache</code> is a thread-safe, size bounded cache of Cell Tower locations,
+*** keyed by the MCC/MNC/LAC/CID of the serving Cell Tower.<br>
+*** Cell Towers for which the provider reported no known location are cached as negative
+*** entries, with a separate (typically shorter) maximum age (failed lookups are not
+*** cached).  The cache may be saved to, and reloaded from, a local file so that it
+*** remains populated across restarts.  In addition, a read-only table of Cell Tower
+*** locations may be preloaded from an OpenCellID CSV dump, allowing lookups to be
+*** served without querying the MobileLocationProvider.
+**/
+
+public class CellTowerCache
+{
+
+    // ------------------------------------------------------------------------
+
+    private static final long   DEFAULT_MAX_AGE_SEC         = DateTime.DaySeconds(30);
+    private static final long   DEFAULT_NEGATIVE_AGE_SEC    = DateTime.HourSeconds(1);
+    private static final long   DEFAULT_SAVE_INTERVAL_SEC   = DateTime.MinuteSeconds(5);
+    private static final int    DEFAULT_MAX_SIZE            = 10000;
+    private static final int    MINIMUM_MAX_SIZE            = 100;
+
+    // cell key bit layout: MCC(10) | MNC(10) | LAC(16) | CID(28)
+    private static final int    MCC_BITS                    = 10;
+    private static final int    MNC_BITS                    = 10;
+    private static final int    LAC_BITS                    = 16;
+    private static final int    CID_BITS                    = 28;
+
+    private static final double NO_LOCATION                 = 999.0;
+
+    private static final String FILE_HEADER                 = "# mcc,mnc,lac,cid,expireSec,latitude,longitude,accuracyM";
+
+    // periodic saves are run in the background, so that the inserting thread is not delayed
+    private static ThreadPool   ThreadPool_CellTowerCacheSave = new ThreadPool("CellTowerCacheSave", 1);
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Returns true if the specified values can be represented by a cell key
+    **/
+    private static boolean _isCacheable(int mcc, int mnc, int lac, int cid)
+    {
+        if ((mcc < 0) || (mcc >= (1 << MCC_BITS))) {
+            return false;
+        } else
+        if ((mnc < 0) || (mnc >= (1 << MNC_BITS))) {
+            return false;
+        } else
+        if ((lac < 0) || (lac >= (1 << LAC_BITS))) {
+            return false;
+        } else
+        if ((cid < 0) || (cid >= (1 << CID_BITS))) {
+            return false;
+        } else {
+            return true;
+        }
+    }
+
+    /**
+    *** Returns true if the specified CellTower has the MCC/MNC/LAC/CID attributes
+    *** required for caching
+    *** @param ct  The CellTower
+    *** @return True if the CellTower can be cached
+    **/
+    public static boolean isCacheable(CellTower ct)
+    {
+        if (ct == null) {
+            return false;
+        } else {
+            return _isCacheable(ct.getMobileCountryCode(), ct.getMobileNetworkCode(),
+                ct.getLocationAreaCode(), ct.getCellTowerID());
+        }
+    }
+
+    /**
+    *** Returns the cell key for the specified MCC/MNC/LAC/CID values.  The
+    *** values must be cacheable.
+    **/
+    private static long _getCellKey(int mcc, int mnc, int lac, int cid)
+    {
+        long k = (long)mcc;
+        k = (k << MNC_BITS) | (long)mnc;
+        k = (k << LAC_BITS) | (long)lac;
+        k = (k << CID_BITS) | (long)cid;
+        return k;
+    }
+
+    /**
+    *** Returns the cell key for the specified CellTower.  The CellTower
+    *** must be cacheable (see "isCacheable").
+    *** @param ct  The CellTower
+    *** @return The cell key
+    **/
+    public static long getCellKey(CellTower ct)
+    {
+        return _getCellKey(ct.getMobileCountryCode(), ct.getMobileNetworkCode(),
+            ct.getLocationAreaCode(), ct.getCellTowerID());
+    }
+
+    /* returns a "mcc,mnc,lac,cid" String for the specified cell key */
+    private static String _getCellKeyString(long k)
+    {
+        int cid = (int)(k & ((1L << CID_BITS) - 1L)); k >>>= CID_BITS;
+        int lac = (int)(k & ((1L << LAC_BITS) - 1L)); k >>>= LAC_BITS;
+        int mnc = (int)(k & ((1L << MNC_BITS) - 1L)); k >>>= MNC_BITS;
+        int mcc = (int)(k & ((1L << MCC_BITS) - 1L));
+        return mcc + "," + mnc + "," + lac + "," + cid;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Cached Cell Tower location (or negative entry)
+    **/
+    public static class CTItem
+    {
+        private long    expireSec = 0L;
+        private double  latitude  = NO_LOCATION;
+        private double  longitude = NO_LOCATION;
+        private double  accuracyM = 0.0;
+        public CTItem(double lat, double lon, double accM, long expireSec) {
+            this.latitude  = lat;
+            this.longitude = lon;
+            this.accuracyM = accM;
+            this.expireSec = expireSec;
+        }
+        public long getExpireTime() {
+            return this.expireSec;
+        }
+        public boolean isExpired(long nowSec) {
+            return (this.expireSec <= nowSec);
+        }
+        /* true if this item indicates that no location was found */
+        public boolean isNegative() {
+            return !GeoPoint.isValid(this.latitude, this.longitude);
+        }
+        /* returns a new MobileLocation, or null for a negative entry */
+        public MobileLocation getMobileLocation() {
+            if (this.isNegative()) {
+                return null;
+            } else {
+                return new MobileLocation(this.latitude, this.longitude, this.accuracyM);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Read-only table of preloaded Cell Tower locations, sorted by cell key
+    **/
+    private static class PreloadTable
+    {
+        private long    keys[]  = null;
+        private float   lat[]   = null;
+        private float   lon[]   = null;
+        private float   acc[]   = null;
+        private int     size    = 0;
+        public PreloadTable(int initCap) {
+            int cap = (initCap > 16)? initCap : 16;
+            this.keys = new long[cap];
+            this.lat  = new float[cap];
+            this.lon  = new float[cap];
+            this.acc  = new float[cap];
+        }
+        public int size() {
+            return this.size;
+        }
+        public void add(long key, double latitude, double longitude, double accuracyM) {
+            if (this.size >= this.keys.length) {
+                int cap = this.keys.length * 2;
+                this.keys = Arrays.copyOf(this.keys, cap);
+                this.lat  = Arrays.copyOf(this.lat , cap);
+                this.lon  = Arrays.copyOf(this.lon , cap);
+                this.acc  = Arrays.copyOf(this.acc , cap);
+            }
+            this.keys[this.size] = key;
+            this.lat[this.size]  = (float)latitude;
+            this.lon[this.size]  = (float)longitude;
+            this.acc[this.size]  = (float)accuracyM;
+            this.size++;
+        }
+        public void sort() {
+            if (this.size > 1) {
+                this._sort(0, this.size - 1);
+            }
+        }
+        private void _sort(int lo, int hi) {
+            while (lo < hi) {
+                long pivot = this.keys[(lo + hi) >>> 1];
+                int i = lo, j = hi;
+                while (i <= j) {
+                    while (this.keys[i] < pivot) { i++; }
+                    while (this.keys[j] > pivot) { j--; }
+                    if (i <= j) {
+                        this._swap(i++, j--);
+                    }
+                }
+                // recurse into the smaller partition
+                if ((j - lo) < (hi - i)) {
+                    this._sort(lo, j);
+                    lo = i;
+                } else {
+                    this._sort(i, hi);
+                    hi = j;
+                }
+            }
+        }
+        private void _swap(int a, int b) {
+            long  k = this.keys[a]; this.keys[a] = this.keys[b]; this.keys[b] = k;
+            float t;
+            t = this.lat[a]; this.lat[a] = this.lat[b]; this.lat[b] = t;
+            t = this.lon[a]; this.lon[a] = this.lon[b]; this.lon[b] = t;
+            t = this.acc[a]; this.acc[a] = this.acc[b]; this.acc[b] = t;
+        }
+        public CTItem get(long key) {
+            int p = Arrays.binarySearch(this.keys, 0, this.size, key);
+            if (p < 0) {
+                return null;
+            } else {
+                return new CTItem(this.lat[p], this.lon[p], this.acc[p], Long.MAX_VALUE);
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    private SegmentedLRUMap<Long,CTItem>     cacheMap         = null;
+    private volatile long                    maxAgeSec        = DEFAULT_MAX_AGE_SEC;
+    private volatile long                    negAgeSec        = DEFAULT_NEGATIVE_AGE_SEC;
+
+    private volatile PreloadTable            preload          = null;
+
+    private File                             cacheFile        = null;
+    private volatile long                    saveIntervalSec  = DEFAULT_SAVE_INTERVAL_SEC;
+    private AtomicLong                       lastSaveSec      = new AtomicLong(0L);
+    private AtomicLong                       changeCount      = new AtomicLong(0L);
+    private Object                           saveLock         = new Object();
+
+    private AtomicLong                       hitCount         = new AtomicLong(0L);
+    private AtomicLong                       negHitCount      = new AtomicLong(0L);
+    private AtomicLong                       preloadHitCount  = new AtomicLong(0L);
+    private AtomicLong                       missCount        = new AtomicLong(0L);
+    private AtomicLong                       expireCount      = new AtomicLong(0L);
+
+    public CellTowerCache()
+    {
+        this(DEFAULT_MAX_SIZE, DEFAULT_MAX_AGE_SEC, DEFAULT_NEGATIVE_AGE_SEC);
+    }
+
+    public CellTowerCache(int maxSize, long maxAge, long negAge)
+    {
+        super();
+        this.cacheMap = new SegmentedLRUMap<Long,CTItem>(DEFAULT_MAX_SIZE);
+        this.setMaxSize(maxSize);
+        this.setMaxAgeSec(maxAge);
+        this.setNegativeAgeSec(negAge);
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Sets the maximum number of cached entries (not including preloaded entries).<br>
+    *** (if reduced, the cache is trimmed on subsequent inserts)
+    *** @param maxSize  The maximum number of cached entries
+    **/
+    public void setMaxSize(int maxSize)
+    {
+        if (maxSize <= 0) {
+            this.cacheMap.setMaximumSize(DEFAULT_MAX_SIZE);
+        } else {
+            this.cacheMap.setMaximumSize((maxSize < MINIMUM_MAX_SIZE)? MINIMUM_MAX_SIZE : maxSize);
+        }
+    }
+
+    public int getMaxSize()
+    {
+        return this.cacheMap.getMaximumSize();
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Sets the maximum age of cached locations
+    **/
+    public void setMaxAgeSec(long maxAge)
+    {
+        this.maxAgeSec = (maxAge > 0L)? maxAge : DEFAULT_MAX_AGE_SEC;
+    }
+
+    public long getMaxAgeSec()
+    {
+        return this.maxAgeSec;
+    }
+
+    /**
+    *** Sets the maximum age of negative entries (lookups which did not return a location).
+    *** Negative entries are not cached if the specified age is '0'.
+    **/
+    public void setNegativeAgeSec(long negAge)
+    {
+        this.negAgeSec = (negAge > 0L)? negAge : 0L;
+    }
+
+    public long getNegativeAgeSec()
+    {
+        return this.negAgeSec;
+    }
+
+    // ------------------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Gets the cached item for the specified CellTower
+    *** @param ct  The serving CellTower
+    *** @return The cached item, or null if not cached, or expired.  The returned
+    ***     item will be a negative entry if the location of the CellTower is known
+    ***     to be unavailable.
+    **/
+    public CTItem getCellTowerItem(CellTower ct)
+    {
+        if (!CellTowerCache.isCacheable(ct)) {
+            return null;
+        }
+        Long cellKey = new Long(getCellKey(ct));
+        long nowSec  = DateTime.getCurrentTimeSec();
+
+        /* cached entries */
+        CTItem cti = this.cacheMap.get(cellKey);
+        if (cti == null) {
+            // not cached
+        } else
+        if (cti.isExpired(nowSec)) {
+            if (this.cacheMap.remove(cellKey, cti)) {
+                this.expireCount.incrementAndGet();
+            }
+        } else {
+            if (cti.isNegative()) {
+                this.negHitCount.incrementAndGet();
+            } else {
+                this.hitCount.incrementAndGet();
+            }
+            return cti;
+        }
+
+        /* preloaded entries */
+        PreloadTable pt = this.preload;
+        CTItem pti = (pt != null)? pt.get(cellKey.longValue()) : null;
+        if (pti != null) {
+            this.preloadHitCount.incrementAndGet();
+            return pti;
+        }
+
+        /* not found */
+        this.missCount.incrementAndGet();
+        return null;
+
+    }
+
+    /**
+    *** Adds the location for the specified CellTower to this cache.<br>
+    *** If the MobileLocation is null, or invalid, a negative entry is added.
+    *** The least-recently-used entry of the segment is evicted if the segment is full.
+    *** @param ct  The serving CellTower
+    *** @param ml  The MobileLocation (may be null)
+    *** @return True if the location was added
+    **/
+    public boolean addMobileLocation(CellTower ct, MobileLocation ml)
+    {
+        if (!CellTowerCache.isCacheable(ct)) {
+            return false;
+        }
+        long nowSec = DateTime.getCurrentTimeSec();
+        CTItem cti;
+        if ((ml != null) && ml.isValid()) {
+            GeoPoint gp = ml.getGeoPoint();
+            cti = new CTItem(gp.getLatitude(), gp.getLongitude(), ml.getAccuracy(), nowSec + this.maxAgeSec);
+        } else
+        if (this.negAgeSec > 0L) {
+            cti = new CTItem(NO_LOCATION, NO_LOCATION, 0.0, nowSec + this.negAgeSec);
+        } else {
+            return false;
+        }
+        this.cacheMap.put(new Long(getCellKey(ct)), cti);
+        this.changeCount.incrementAndGet();
+        this._checkSave(nowSec);
+        return true;
+    }
+
+    /**
+    *** Removes all expired entries
+    *** @return The number of removed entries
+    **/
+    public int removeExpired()
+    {
+        final long nowSec = DateTime.getCurrentTimeSec();
+        int count = this.cacheMap.removeMatching(new CacheMap.Matcher<Long,CTItem>() {
+            public boolean matches(Long key, CTItem cti) {
+                return cti.isExpired(nowSec);
+            }
+        });
+        this.expireCount.addAndGet(count);
+        return count;
+    }
+
+    /**
+    *** Removes all entries (preloaded entries are retained)
+    **/
+    public void clear()
+    {
+        this.cacheMap.clear();
+        this.changeCount.incrementAndGet();
+    }
+
+    /**
+    *** Gets the number of cached entries (may include expired entries, does not
+    *** include preloaded entries)
+    *** @return The number of cached entries
+    **/
+    public int size()
+    {
+        return this.cacheMap.size();
+    }
+
+    /**
+    *** Gets the number of preloaded entries
+    *** @return The number of preloaded entries
+    **/
+    public int getPreloadSize()
+    {
+        PreloadTable pt = this.preload;
+        return (pt != null)? pt.size() : 0;
+    }
+
+    // ------------------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Sets the file to which this cache is saved, and loads any unexpired entries
+    *** currently contained in the file.  The cache is saved in the background when
+    *** modified (at most once per save interval), and when the JVM exits.
+    *** @param file         The cache file (null to disable persistence)
+    *** @param intervalSec  The minimum interval between saves
+    **/
+    public void setCacheFile(File file, long intervalSec)
+    {
+        boolean addHook = (this.cacheFile == null) && (file != null);
+        this.cacheFile       = file;
+        this.saveIntervalSec = (intervalSec > 0L)? intervalSec : DEFAULT_SAVE_INTERVAL_SEC;
+        this.lastSaveSec.set(DateTime.getCurrentTimeSec());
+        if (file != null) {
+            this.load();
+        }
+        if (addHook) {
+            final CellTowerCache ctc = this;
+            Runtime.getRuntime().addShutdownHook(new Thread("CellTowerCacheSave") {
+                public void run() {
+                    ctc.save();
+                }
+            });
+        }
+    }
+
+    public File getCacheFile()
+    {
+        return this.cacheFile;
+    }
+
+    /* queue a background save of the cache, if the save interval has elapsed */
+    private void _checkSave(long nowSec)
+    {
+        if (this.cacheFile != null) {
+            long lastSec = this.lastSaveSec.get();
+            if (((nowSec - lastSec) >= this.saveIntervalSec) &&
+                this.lastSaveSec.compareAndSet(lastSec, nowSec)) {
+                final CellTowerCache ctc = this;
+                ThreadPool_CellTowerCacheSave.run(new Runnable() {
+                    public void run() {
+                        ctc.save();
+                    }
+                });
+            }
+        }
+    }
+
+    /* return the backup file used while replacing the cache file (see "_replaceFile") */
+    private static File _getBackupFile(File file)
+    {
+        return new File(file.getPath() + ".bak");
+    }
+
+    /**
+    *** Replaces the specified file with the specified temporary file.  The rename replaces
+    *** the existing file atomically where supported by the platform.  Otherwise the existing
+    *** file is first renamed to a backup file (used by "load" if the cache file is missing),
+    *** which is deleted once the temporary file has been renamed.
+    **/
+    private static boolean _replaceFile(File tmpFile, File file)
+    {
+        if (tmpFile.renameTo(file)) {
+            return true; // replaced (atomically), or did not exist
+        } else
+        if (!file.exists()) {
+            return false; // cannot rename
+        }
+        File bakFile = _getBackupFile(file);
+        if (bakFile.exists() && !bakFile.delete()) {
+            return false;
+        } else
+        if (!file.renameTo(bakFile)) {
+            return false;
+        } else
+        if (!tmpFile.renameTo(file)) {
+            bakFile.renameTo(file); // restore
+            return false;
+        }
+        bakFile.delete();
+        return true;
+    }
+
+    /**
+    *** Loads the unexpired entries from the cache file
+    *** @return The number of loaded entries, or -1 if the file could not be read
+    **/
+    public int load()
+    {
+        File file = this.cacheFile;
+        if ((file != null) && !file.exists() && _getBackupFile(file).isFile()) {
+            // interrupted while replacing the cache file
+            file = _getBackupFile(file);
+        }
+        if ((file == null) || !file.isFile()) {
+            return 0;
+        }
+        int count = 0;
+        long nowSec = DateTime.getCurrentTimeSec();
+        BufferedReader br = null;
+        try {
+            br = new BufferedReader(new InputStreamReader(new FileInputStream(file), StringTools.CharEncoding_UTF_8));
+            FieldTokenizer ft = new FieldTokenizer();
+            for (;;) {
+                String line = br.readLine();
+                if (line == null) {
+                    break;
+                } else
+                if (line.startsWith("#") || StringTools.isBlank(line)) {
+                    continue;
+                }
+                ft.reset(line, ',');
+                int  mcc    = ft.getInt(0, -1);
+                int  mnc    = ft.getInt(1, -1);
+                int  lac    = ft.getInt(2, -1);
+                int  cid    = ft.getInt(3, -1);
+                long expSec = ft.getLong(4, 0L);
+                if (!_isCacheable(mcc,mnc,lac,cid) || (expSec <= nowSec)) {
+                    continue;
+                }
+                double lat = ft.getDouble(5, NO_LOCATION);
+                double lon = ft.getDouble(6, NO_LOCATION);
+                double acc = ft.getDouble(7, 0.0);
+                this.cacheMap.put(new Long(_getCellKey(mcc,mnc,lac,cid)), new CTItem(lat,lon,acc,expSec));
+                count++;
+            }
+            Print.logInfo("Loaded " + count + " CellTower locations from " + file);
+            return count;
+        } catch (IOException ioe) {
+            Print.logError("Unable to load CellTower cache file: " + file + " [" + ioe + "]");
+            return -1;
+        } finally {
+            if (br != null) { try { br.close(); } catch (Throwable th) {/*ignore*/} }
+        }
+    }
+
+    /**
+    *** Saves the unexpired entries to the cache file, if the cache has been modified
+    *** since the last save.
+    *** @return True if the cache was saved (or did not need to be saved)
+    **/
+    public boolean save()
+    {
+        File file = this.cacheFile;
+        if (file == null) {
+            return false;
+        }
+        synchronized (this.saveLock) {
+            long changes = this.changeCount.get();
+            if (changes == 0L) {
+                return true; // no changes since last save
+            }
+
+            /* snapshot */
+            final long nowSec = DateTime.getCurrentTimeSec();
+            Map<Long,CTItem> items = new HashMap<Long,CTItem>();
+            this.cacheMap.copyEntries(items, new CacheMap.Matcher<Long,CTItem>() {
+                public boolean matches(Long key, CTItem cti) {
+                    return !cti.isExpired(nowSec);
+                }
+            });
+
+            /* write to a temporary file, then replace the cache file */
+            File tmpFile = new File(file.getPath() + ".tmp");
+            PrintWriter pw = null;
+            try {
+                pw = new PrintWriter(new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(tmpFile), StringTools.CharEncoding_UTF_8)));
+                pw.println(FILE_HEADER);
+                for (Map.Entry<Long,CTItem> e : items.entrySet()) {
+                    CTItem cti = e.getValue();
+                    pw.print(_getCellKeyString(e.getKey().longValue()));
+                    pw.print(',');
+                    pw.print(cti.getExpireTime());
+                    if (!cti.isNegative()) {
+                        pw.print(',');
+                        pw.print(cti.latitude);
+                        pw.print(',');
+                        pw.print(cti.longitude);
+                        pw.print(',');
+                        pw.print(Math.round(cti.accuracyM));
+                    }
+                    pw.println();
+                }
+                if (pw.checkError()) { // flushes
+                    Print.logError("Error writing CellTower cache file: " + tmpFile);
+                    return false;
+                }
+            } catch (IOException ioe) {
+                Print.logError("Unable to save CellTower cache file: " + tmpFile + " [" + ioe + "]");
+                return false;
+            } finally {
+                if (pw != null) { pw.close(); }
+            }
+            if (!CellTowerCache._replaceFile(tmpFile, file)) {
+                Print.logError("Unable to replace CellTower cache file: " + file);
+                return false;
+            }
+            this.changeCount.addAndGet(-changes);
+            this.lastSaveSec.set(nowSec);
+            Print.logDebug("Saved " + items.size() + " CellTower locations to " + file);
+            return true;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /* find the index of the first matching column name */
+    private static int _indexOfColumn(String cols[], String names[], int dft)
+    {
+        for (int n = 0; n < names.length; n++) {
+            for (int c = 0; c < cols.length; c++) {
+                if (cols[c].trim().equalsIgnoreCase(names[n])) {
+                    return c;
+                }
+            }
+        }
+        return dft;
+    }
+
+    /**
+    *** Preloads Cell Tower locations from an OpenCellID CSV dump (optionally gzipped).
+    *** The column layout is obtained from the header line, if present, otherwise the
+    *** current OpenCellID layout is assumed:<br>
+    ***   radio,mcc,net,area,cell,unit,lon,lat,range,samples,changeable,created,updated,averageSignal<br>
+    *** Preloaded entries do not expire, and replace any previously preloaded entries.
+    *** @param csvFile  The OpenCellID CSV file
+    *** @param mccList  If non-empty, only towers with these Mobile Country Codes are loaded
+    *** @return The number of preloaded entries, or -1 if the file could not be read
+    **/
+    public int preloadOpenCellID(File csvFile, int mccList[])
+    {
+        if ((csvFile == null) || !csvFile.isFile()) {
+            Print.logError("OpenCellID file not found: " + csvFile);
+            return -1;
+        }
+        boolean filterMCC = !ListTools.isEmpty(mccList);
+        long startMS = System.currentTimeMillis();
+        BufferedReader br = null;
+        try {
+            InputStream in = new FileInputStream(csvFile);
+            if (csvFile.getName().toLowerCase().endsWith(".gz")) {
+                in = new GZIPInputStream(in, 65536);
+            }
+            br = new BufferedReader(new InputStreamReader(in, StringTools.CharEncoding_UTF_8), 65536);
+
+            /* column layout (default: current OpenCellID layout) */
+            int colMCC = 1, colMNC = 2, colLAC = 3, colCID = 4, colLon = 6, colLat = 7, colRng = 8;
+            int colMax = 8;
+
+            /* parse */
+            PreloadTable pt = new PreloadTable(filterMCC? 65536 : 1048576);
+            FieldTokenizer ft = new FieldTokenizer();
+            int skipped = 0;
+            for (boolean first = true;; first = false) {
+                String line = br.readLine();
+                if (line == null) {
+                    break;
+                } else
+                if (first && !line.isEmpty() && !Character.isDigit(line.charAt(0)) &&
+                    (line.toLowerCase().indexOf("mcc") >= 0)) {
+                    // header
+                    String cols[] = StringTools.split(line, ',');
+                    colMCC = _indexOfColumn(cols, new String[] { "mcc" }, -1);
+                    colMNC = _indexOfColumn(cols, new String[] { "mnc", "net" }, -1);
+                    colLAC = _indexOfColumn(cols, new String[] { "lac", "area" }, -1);
+                    colCID = _indexOfColumn(cols, new String[] { "cellid", "cell" }, -1);
+                    colLat = _indexOfColumn(cols, new String[] { "lat" }, -1);
+                    colLon = _indexOfColumn(cols, new String[] { "lon" }, -1);
+                    colRng = _indexOfColumn(cols, new String[] { "range" }, -1);
+                    if ((colMCC < 0) || (colMNC < 0) || (colLAC < 0) || (colCID < 0) || (colLat < 0) || (colLon < 0)) {
+                        Print.logError("Unrecognized OpenCellID header: " + line);
+                        return -1;
+                    }
+                    colMax = Math.max(Math.max(Math.max(colMCC,colMNC),Math.max(colLAC,colCID)),Math.max(colLat,colLon));
+                    continue;
+                }
+                ft.reset(line, ',');
+                if (ft.getFieldCount() <= colMax) {
+                    skipped++;
+                    continue;
+                }
+                int mcc = ft.getInt(colMCC, -1);
+                if (filterMCC && !ListTools.contains(mccList, mcc)) {
+                    continue;
+                }
+                int mnc = ft.getInt(colMNC, -1);
+                int lac = ft.getInt(colLAC, -1);
+                int cid = ft.getInt(colCID, -1);
+                double lat = ft.getDouble(colLat, NO_LOCATION);
+                double lon = ft.getDouble(colLon, NO_LOCATION);
+                if (!_isCacheable(mcc,mnc,lac,cid) || !GeoPoint.isValid(lat,lon)) {
+                    skipped++;
+                    continue;
+                }
+                double rng = (colRng >= 0)? ft.getDouble(colRng, 0.0) : 0.0;
+                pt.add(_getCellKey(mcc,mnc,lac,cid), lat, lon, rng);
+            }
+            pt.sort();
+            this.preload = pt;
+            long deltaMS = System.currentTimeMillis() - startMS;
+            Print.logInfo("Preloaded " + pt.size() + " CellTower locations from " + csvFile +
+                " [skipped " + skipped + ", " + deltaMS + " ms]");
+            return pt.size();
+        } catch (IOException ioe) {
+            Print.logError("Unable to read OpenCellID file: " + csvFile + " [" + ioe + "]");
+            return -1;
+        } finally {
+            if (br != null) { try { br.close(); } catch (Throwable th) {/*ignore*/} }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Gets the number of cache hits (not including negative or preloaded hits)
+    **/
+    public long getHitCount()
+    {
+        return this.hitCount.get();
+    }
+
+    /**
+    *** Gets the number of negative cache hits
+    **/
+    public long getNegativeHitCount()
+    {
+        return this.negHitCount.get();
+    }
+
+    /**
+    *** Gets the number of preloaded table hits
+    **/
+    public long getPreloadHitCount()
+    {
+        return this.preloadHitCount.get();
+    }
+
+    /**
+    *** Gets the number of cache misses (includes expired entries)
+    **/
+    public long getMissCount()
+    {
+        return this.missCount.get();
+    }
+
+    /**
+    *** Gets the number of entries evicted due to the maximum size limit
+    **/
+    public long getEvictionCount()
+    {
+        return this.cacheMap.getEvictionCount();
+    }
+
+    /**
+    *** Gets the number of entries removed due to expiration
+    **/
+    public long getExpiredCount()
+    {
+        return this.expireCount.get();
+    }
+
+    /**
+    *** Returns a String representation of the cache statistics
+    *** @return A String representation of the cache statistics
+    **/
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append("size=").append(this.size());
+        sb.append(", preload=").append(this.getPreloadSize());
+        sb.append(", hits=").append(this.getHitCount());
+        sb.append(", negHits=").append(this.getNegativeHitCount());
+        sb.append(", preloadHits=").append(this.getPreloadHitCount());
+        sb.append(", misses=").append(this.getMissCount());
+        sb.append(", evicted=").append(this.getEvictionCount());
+        sb.append(", expired=").append(this.getExpiredCount());
+        return sb.toString();
+    }
+
+    // ------------------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    private static final String ARG_FILE[]      = new String[] { "file"     , "cache"   };
+    private static final String ARG_PRELOAD[]   = new String[] { "preload"  , "csv"     };
+    private static final String ARG_MCC[]       = new String[] { "mcc"                  };
+    private static final String ARG_COUNT[]     = new String[] { "count"                };
+
+    /**
+    *** Main entry point for testing.  Preloads the specified OpenCellID CSV file and/or
+    *** loads the specified cache file, then performs random cache lookups.
+    **/
+    public static void main(String argv[])
+    {
+        RTConfig.setCommandLineArgs(argv);
+
+        CellTowerCache ctc = new CellTowerCache();
+
+        /* preload */
+        String csvPath = RTConfig.getString(ARG_PRELOAD, "");
+        if (!StringTools.isBlank(csvPath)) {
+            int mccList[] = RTConfig.getIntArray(ARG_MCC, null);
+            ctc.preloadOpenCellID(new File(csvPath), mccList);
+        }
+
+        /* cache file */
+        String cachePath = RTConfig.getString(ARG_FILE, "");
+        if (!StringTools.isBlank(cachePath)) {
+            ctc.setCacheFile(new File(cachePath), DEFAULT_SAVE_INTERVAL_SEC);
+        }
+
+        /* random lookups (a few thousand towers, as reported by a fleet of devices) */
+        Random rand = new Random(1L);
+        int count = RTConfig.getInt(ARG_COUNT, 1000000);
+        long startMS = System.currentTimeMillis();
+        for (int n = 0; n < count; n++) {
+            CellTower ct = new CellTower();
+            ct.setMobileCountryCode(240);
+            ct.setMobileNetworkCode(8);
+            ct.setLocationAreaCode(318);
+            ct.setCellTowerID(565110 + rand.nextInt(4000));
+            CTItem cti = ctc.getCellTowerItem(ct);
+            if (cti == null) {
+                MobileLocation ml = ((n % 5) != 0)?
+                    new MobileLocation(59.3 + rand.nextDouble(), 18.0 + rand.nextDouble(), 1000.0) :
+                    null; // negative
+                ctc.addMobileLocation(ct, ml);
+            }
+        }
+        long deltaMS = System.currentTimeMillis() - startMS;
+        Print.sysPrintln("Lookups: " + count + " in " + deltaMS + " ms");
+        Print.sysPrintln("Cache  : " + ctc);
+
+    }
+
+}
@@ -22,6 +22,9 @@
 // ----------------------------------------------------------------------------
 package org.opengts.cellid;
 
+import java.util.*;
+import java.io.*;
+
 import org.opengts.util.*;
 
 import org.opengts.dbtools.*;
@@ -39,13 +42,37 @@ public abstract class MobileLocationProviderAdapter
     public static final String PROP_MobileLocationProvider_ = "MobileLocationProvider.";
     public static final String _PROP_isEnabled              = ".isEnabled";
 
+    // ------------------------------------------------------------------------
+    // CellTowerCache properties (specified in the MobileLocationProvider properties)
+
+    public static final String PROP_cacheMaximumSize        = "cacheMaximumSize";       // 0 disables cache
+    public static final String PROP_cacheMaximumAgeSec      = "cacheMaximumAgeSec";
+    public static final String PROP_cacheNegativeAgeSec     = "cacheNegativeAgeSec";    // 0 disables negative entries
+    public static final String PROP_cacheFile               = "cacheFile";              // persistent cache file
+    public static final String PROP_cacheSaveIntervalSec    = "cacheSaveIntervalSec";
+    public static final String PROP_cachePreloadFile        = "cachePreloadFile";       // OpenCellID CSV dump
+    public static final String PROP_cachePreloadMCC         = "cachePreloadMCC";        // MCC filter for preload
+    public static final String PROP_cacheOnly               = "cacheOnly";              // offline: no provider lookups
+
+    private static final int   DEFAULT_CACHE_MAXIMUM_SIZE   = 10000;
+    private static final long  DEFAULT_CACHE_MAXIMUM_AGE    = DateTime.DaySeconds(30);
+    private static final long  DEFAULT_CACHE_NEGATIVE_AGE   = DateTime.HourSeconds(1);
+    private static final long  DEFAULT_CACHE_SAVE_INTERVAL  = DateTime.MinuteSeconds(5);
+
+    /* caches shared by all providers which specify the same cache file */
+    private static Map<String,CellTowerCache> CellTowerFileCacheMap = new HashMap<String,CellTowerCache>();
+
     // ------------------------------------------------------------------------
 
-    private String       name           = null;
-    private TriState     isEnabled      = TriState.UNKNOWN;
+    private String          name            = null;
+    private TriState        isEnabled       = TriState.UNKNOWN;
     
-    private String       accessKey      = null;
-    private RTProperties properties     = null;
+    private String          accessKey       = null;
+    private RTProperties    properties      = null;
+
+    private CellTowerCache  ctCache         = null;
+    private boolean         ctCacheInit     = false;
+    private Object          ctCacheLock     = new Object();
 
     /**
     *** Constructor
@@ -176,6 +203,163 @@ public abstract class MobileLocationProviderAdapter
     **/
     public abstract MobileLocation getMobileLocation(CellTower servCT, CellTower nborCT[]);
 
+    // ------------------------------------------------------------------------
+
+    /* resolve a cache file path relative to the config directory */
+    private static File _getCacheFile(String path)
+    {
+        File file = new File(path);
+        if (!file.isAbsolute()) {
+            File cfgDir = RTConfig.getLoadedConfigDir();
+            if (cfgDir != null) {
+                file = new File(cfgDir, path);
+            }
+        }
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException ioe) {
+            return file.getAbsoluteFile();
+        }
+    }
+
+    /**
+    *** Gets the CellTowerCache for this MobileLocationProvider.  Providers which
+    *** specify the same "cacheFile" share the same CellTowerCache.
+    *** @return The CellTowerCache, or null if caching is disabled for this provider
+    **/
+    public CellTowerCache getCellTowerCache()
+    {
+        synchronized (this.ctCacheLock) {
+            if (!this.ctCacheInit) {
+                this.ctCacheInit = true;
+                RTProperties rtp = this.getProperties();
+                int maxSize = rtp.getInt(PROP_cacheMaximumSize, DEFAULT_CACHE_MAXIMUM_SIZE);
+                if (maxSize > 0) {
+                    long   maxAge   = rtp.getLong(PROP_cacheMaximumAgeSec , DEFAULT_CACHE_MAXIMUM_AGE);
+                    long   negAge   = rtp.getLong(PROP_cacheNegativeAgeSec, DEFAULT_CACHE_NEGATIVE_AGE);
+                    String filePath = rtp.getString(PROP_cacheFile, null);
+                    String csvPath  = rtp.getString(PROP_cachePreloadFile, null);
+                    if (!StringTools.isBlank(filePath)) {
+                        File file = _getCacheFile(filePath);
+                        synchronized (CellTowerFileCacheMap) {
+                            CellTowerCache ctc = CellTowerFileCacheMap.get(file.getPath());
+                            if (ctc == null) {
+                                ctc = new CellTowerCache(maxSize, maxAge, negAge);
+                                if (!StringTools.isBlank(csvPath)) {
+                                    int mccList[] = rtp.getIntArray(PROP_cachePreloadMCC, null);
+                                    ctc.preloadOpenCellID(_getCacheFile(csvPath), mccList);
+                                }
+                                long saveSec = rtp.getLong(PROP_cacheSaveIntervalSec, DEFAULT_CACHE_SAVE_INTERVAL);
+                                ctc.setCacheFile(file, saveSec);
+                                CellTowerFileCacheMap.put(file.getPath(), ctc);
+                            }
+                            this.ctCache = ctc;
+                        }
+                    } else {
+                        CellTowerCache ctc = new CellTowerCache(maxSize, maxAge, negAge);
+                        if (!StringTools.isBlank(csvPath)) {
+                            int mccList[] = rtp.getIntArray(PROP_cachePreloadMCC, null);
+                            ctc.preloadOpenCellID(_getCacheFile(csvPath), mccList);
+                        }
+                        this.ctCache = ctc;
+                    }
+                }
+            }
+            return this.ctCache;
+        }
+    }
+
+    /**
+    *** Returns true if only the CellTowerCache should be used to obtain Cell Tower
+    *** locations (ie. the provider service is not queried on a cache miss)
+    *** @return True if only the CellTowerCache should be used
+    **/
+    public boolean isCacheOnly()
+    {
+        return this.getProperties().getBoolean(PROP_cacheOnly, false);
+    }
+
+    /**
+    *** Returns the location of the Cell Tower, distinguishing a failed lookup from a
+    *** Cell Tower for which the provider has no location.  Used to populate the 
+    *** CellTowerCache, which caches a null return value as a negative entry.<br>
+    *** The default implementation cannot make this distinction, and throws an 
+    *** IOException if "getMobileLocation" returns null (thus negative entries are not
+    *** cached).  Providers which can make this distinction should override this method.
+    *** @param servCT  The serving Cell Tower information
+    *** @param nborCT  Neightbor Cell Tower information
+    *** @return The Mobile location of the Cell Tower, or null if the provider reports
+    ***     that the location of the Cell Tower is not known.
+    *** @throws IOException if the lookup failed (service error, timeout, etc)
+    **/
+    protected MobileLocation lookupMobileLocation(CellTower servCT, CellTower nborCT[])
+        throws IOException
+    {
+        MobileLocation ml = this.getMobileLocation(servCT, nborCT);
+        if (ml == null) {
+            throw new IOException("No location returned by " + this.getName());
+        }
+        return ml;
+    }
+
+    /**
+    *** Returns the location of the serving Cell Tower, from the CellTowerCache if
+    *** available, otherwise from "lookupMobileLocation" (the result, or a reported 
+    *** absence of a result, is then cached, failed lookups are not cached).  The cache
+    *** is keyed by the serving Cell Tower only.
+    *** @param servCT  The serving Cell Tower information
+    *** @param nborCT  Neightbor Cell Tower information
+    *** @return The Mobile location of the Cell Tower, or null if no
+    ***     location could be determined.
+    **/
+    public MobileLocation getCachedMobileLocation(CellTower servCT, CellTower nborCT[])
+    {
+        CellTowerCache ctc = this.getCellTowerCache();
+        if ((ctc == null) || !CellTowerCache.isCacheable(servCT)) {
+            return this.getMobileLocation(servCT, nborCT);
+        }
+        CellTowerCache.CTItem cti = ctc.getCellTowerItem(servCT);
+        if (cti != null) {
+            return cti.getMobileLocation(); // null if negative entry
+        } else
+        if (this.isCacheOnly()) {
+            return null;
+        } else {
+            MobileLocation ml;
+            try {
+                ml = this.lookupMobileLocation(servCT, nborCT);
+            } catch (IOException ioe) {
+                // lookup failed, do not cache
+                Print.logWarn("CellTower location lookup failed: " + ioe.getMessage());
+                return null;
+            }
+            ctc.addMobileLocation(servCT, ml); // negative entry if null (not found)
+            return ml;
+        }
+    }
+
+    /**
+    *** Returns the location of the serving Cell Tower, using the CellTowerCache
+    *** of the specified MobileLocationProvider, if available.
+    *** @param mlp     The MobileLocationProvider
+    *** @param servCT  The serving Cell Tower information
+    *** @param nborCT  Neightbor Cell Tower information
+    *** @return The Mobile location of the Cell Tower, or null if no
+    ***     location could be determined.
+    **/
+    public static MobileLocation getCachedMobileLocation(MobileLocationProvider mlp, 
+        CellTower servCT, CellTower nborCT[])
+    {
+        if (mlp == null) {
+            return null;
+        } else
+        if (mlp instanceof MobileLocationProviderAdapter) {
+            return ((MobileLocationProviderAdapter)mlp).getCachedMobileLocation(servCT, nborCT);
+        } else {
+            return mlp.getMobileLocation(servCT, nborCT);
+        }
+    }
+
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
@@ -268,7 +452,7 @@ public abstract class MobileLocationProviderAdapter
         }
 
         /* get location */
-        MobileLocation ml = mlp.getMobileLocation(ct, null/*CellTower[]*/);
+        MobileLocation ml = MobileLocationProviderAdapter.getCachedMobileLocation(mlp, ct, null/*CellTower[]*/);
         Print.logInfo("Mobile Location: " + ml);
 
 
@@ -63,6 +63,7 @@ public class OpenCellID
 
     private static final String  TAG_rsp                        = "rsp";
     private static final String  TAG_cell                       = "cell";
+    private static final String  TAG_err                        = "err";
 
     private static final String  ATTR_stat                      = "stat";
     private static final String  ATTR_nbSamples                 = "nbSamples";
@@ -73,11 +74,13 @@ public class OpenCellID
     private static final String  ATTR_lat                       = "lat";
     private static final String  ATTR_lon                       = "lon";
     private static final String  ATTR_range                     = "range";
+    private static final String  ATTR_info                      = "info";
 
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
     private static Document _getMobileLocateXML(String url, long timeoutMS)
+        throws IOException
     {
         // Success Resonse:
         //   <rsp stat="ok">
@@ -93,17 +96,13 @@ public class OpenCellID
             inSrc.setEncoding(StringTools.CharEncoding_UTF_8);
             return db.parse(inSrc);
         } catch (ParserConfigurationException pce) {
-            Print.logError("Parse error: " + pce);
-            return null;
+            throw new IOException("Parse error: " + pce);
         } catch (SAXException se) {
-            Print.logError("Parse error: " + se);
-            return null;
+            throw new IOException("Parse error: " + se);
         } catch (UnknownHostException uhe) {
-            Print.logError("Unable to resolve host: " + uhe);
-            return null;
+            throw new IOException("Unable to resolve host: " + uhe);
         } catch (IOException ioe) {
-            Print.logError("IO error: " + ioe);
-            return null;
+            throw new IOException("IO error: " + ioe);
         }
     }
     
@@ -138,24 +137,30 @@ public class OpenCellID
 
     }
 
+    /**
+    *** Returns the location of the specified Cell Tower, or null if OpenCellID reports
+    *** that the location of the Cell Tower is not known.  An IOException is thrown if 
+    *** the lookup failed (invalid request, service error, timeout, etc).
+    **/
     private static MobileLocation _getMobileLocation(
         CellTower servCT, CellTower nborCT[], 
         String key, long timeoutMS)
+        throws IOException
     {
 
         /* URL */
         String url = OpenCellID._getCellLocationURL(servCT, nborCT, key);
         if (StringTools.isBlank(url)) {
             // messages already displayed
-            return null;
+            throw new IOException("Invalid CellTower location request");
         }
 
         /* get HTTP result */
         Print.logDebug("CellTower loc URL: " + url);
         Document xmlDoc = OpenCellID._getMobileLocateXML(url, timeoutMS);
         if (xmlDoc == null) {
-            // errors already displayed
-            return null;
+            // unlikely
+            throw new IOException("No CellTower location response");
         }
 
         /* parse "position" */
@@ -186,10 +191,24 @@ public class OpenCellID
                     }
                 }
             } else {
-                Print.logWarn("Tag '"+TAG_rsp+"' specified unexpected response: " + stat);
+                //   <rsp stat="fail">
+                //      <err info="cell not found" code="1"/>
+                //   </rsp>
+                String info = "";
+                NodeList errList = XMLTools.getChildElements(rsp, TAG_err);
+                if (errList.getLength() > 0) {
+                    info = StringTools.trim(XMLTools.getAttribute((Element)errList.item(0),ATTR_info,"",false));
+                }
+                if (info.toLowerCase().indexOf("not found") >= 0) {
+                    // cell tower location is not known
+                    Print.logInfo("CellTower location not found: " + info);
+                } else {
+                    // service error (ie. invalid key, etc)
+                    throw new IOException("Tag '"+TAG_rsp+"' specified unexpected response: " + stat + " " + info);
+                }
             }
         } else {
-            Print.logWarn("Expected tag '"+TAG_rsp+"' not found");
+            throw new IOException("Expected tag '"+TAG_rsp+"' not found");
         }
 
         /* valid GeoPoint? */
@@ -211,6 +230,18 @@ public class OpenCellID
     }
 
     public MobileLocation getMobileLocation(CellTower servCT, CellTower nborCT[]) 
+    {
+        try {
+            return this.lookupMobileLocation(servCT, nborCT);
+        } catch (IOException ioe) {
+            Print.logError(ioe.getMessage());
+            return null;
+        }
+    }
+
+    /* distinguishes lookup failures (IOException) from an unknown cell tower (null) */
+    protected MobileLocation lookupMobileLocation(CellTower servCT, CellTower nborCT[])
+        throws IOException
     {
         long tmoMS = this.getProperties().getLong(PROP_timeoutMS, DefaultServiceTimeout);
         return OpenCellID._getMobileLocation(servCT, nborCT, this.getAuthorization(), tmoMS);
@@ -423,6 +423,13 @@ public class DBConfig
     **/
     public static final String PROP_Device_logMissingColumns            = "Device.logMissingColumns";
 
+    /**
+    *** Runtime Configuration Property<br>
+    *** True to hold Device field values in compact primitive arrays (defaults to 'true')<br>
+    *** Type: Boolean
+    **/
+    public static final String PROP_Device_compactFieldValues           = "Device.compactFieldValues";
+
     /**
     *** Runtime Configuration Property<br>
     *** True to check <code>Account.getAllowNotify()</code> when checking for allowing
@@ -478,6 +485,13 @@ public class DBConfig
     **/
     public static final String PROP_EventData_logMissingColumns         = "EventData.logMissingColumns";
 
+    /**
+    *** Runtime Configuration Property<br>
+    *** True to hold EventData field values in compact primitive arrays (defaults to 'true')<br>
+    *** Type: Boolean
+    **/
+    public static final String PROP_EventData_compactFieldValues        = "EventData.compactFieldValues";
+
     /**
     *** Runtime Configuration Property<br>
     *** Odometer offset type<br>
@@ -486,6 +500,35 @@ public class DBConfig
     **/
     public static final String PROP_EventData_odometerOffsetType        = "EventData.odometerOffsetType";
 
+    /**
+    *** Runtime Configuration Property<br>
+    *** Maximum number of EventData records deleted per statement when purging old events
+    *** (0 to delete all old events for a device in a single statement)<br>
+    *** Type: Long
+    **/
+    public static final String PROP_EventData_retentionChunkSize        = "EventData.retention.chunkSize";
+
+    /**
+    *** Runtime Configuration Property<br>
+    *** Pause (in milliseconds) between delete statements when purging old events<br>
+    *** Type: Long
+    **/
+    public static final String PROP_EventData_retentionChunkPauseMS     = "EventData.retention.chunkPauseMS";
+
+    /**
+    *** Runtime Configuration Property<br>
+    *** Maximum number of devices purged concurrently (each uses one DB connection)<br>
+    *** Type: Integer
+    **/
+    public static final String PROP_EventData_retentionMaxConnections   = "EventData.retention.maxConnections";
+
+    /**
+    *** Runtime Configuration Property<br>
+    *** Interval (in seconds) between purge progress log messages<br>
+    *** Type: Long
+    **/
+    public static final String PROP_EventData_retentionProgressSec      = "EventData.retention.progressIntervalSec";
+
     // -------
 
     /**
@@ -509,6 +552,86 @@ public class DBConfig
     **/
     public static final String PROP_Geozone_dftRadius_sweptPointRadius  = "Geozone.dftRadius.sweptPointRadius";
 
+    /**
+    *** Runtime Configuration Property<br>
+    *** Maximum age (in seconds) of the in-memory Geozone spatial index (0 to disable)<br>
+    *** Type: Long
+    **/
+    public static final String PROP_Geozone_spatialIndex_maxAgeSec      = "Geozone.spatialIndex.maxAgeSec";
+
+    // -------
+
+    /**
+    *** Runtime Configuration Property<br>
+    *** Maximum number of cached Unique-ID/Transport-ID Device lookups (0 to disable)<br>
+    *** Type: Integer
+    **/
+    public static final String PROP_DeviceLookupCache_maxSize           = "DeviceLookupCache.maxSize";
+
+    /**
+    *** Runtime Configuration Property<br>
+    *** Timeout (in seconds) of cached Device lookups<br>
+    *** Type: Long
+    **/
+    public static final String PROP_DeviceLookupCache_timeoutSec        = "DeviceLookupCache.timeoutSec";
+
+    /**
+    *** Runtime Configuration Property<br>
+    *** Timeout (in seconds) of cached "not found" Device lookups<br>
+    *** Type: Long
+    **/
+    public static final String PROP_DeviceLookupCache_notFoundTimeoutSec = "DeviceLookupCache.notFoundTimeoutSec";
+
+    /**
+    *** Runtime Configuration Property<br>
+    *** Maximum number of Devices in the last-event snapshot used by fleet maps (0 to disable)<br>
+    *** Type: Integer
+    **/
+    public static final String PROP_LastEventSnapshot_maxSize           = "LastEventSnapshot.maxSize";
+
+    /**
+    *** Runtime Configuration Property<br>
+    *** True to update the last-event snapshot with each inserted EventData record (defaults
+    *** to true only within the servlet context, which serves the fleet maps)<br>
+    *** Type: Boolean
+    **/
+    public static final String PROP_LastEventSnapshot_updateOnInsert    = "LastEventSnapshot.updateOnInsert";
+
+    /**
+    *** Runtime Configuration Property<br>
+    *** Number of reverse-geocode queue worker threads (0 to disable the queue)<br>
+    *** Type: Integer
+    **/
+    public static final String PROP_ReverseGeocodeQueue_threads         = "ReverseGeocodeQueue.threads";
+
+    /**
+    *** Runtime Configuration Property<br>
+    *** Maximum number of pending (coalesced) reverse-geocode requests<br>
+    *** Type: Integer
+    **/
+    public static final String PROP_ReverseGeocodeQueue_maxQueueSize    = "ReverseGeocodeQueue.maxQueueSize";
+
+    /**
+    *** Runtime Configuration Property<br>
+    *** Maximum number of pending EventData records, including those coalesced into pending requests<br>
+    *** Type: Integer
+    **/
+    public static final String PROP_ReverseGeocodeQueue_maxPendingEvents = "ReverseGeocodeQueue.maxPendingEvents";
+
+    /**
+    *** Runtime Configuration Property<br>
+    *** Maximum number of reverse-geocode requests per second, per ReverseGeocodeProvider (0 for no limit)<br>
+    *** Type: Double
+    **/
+    public static final String PROP_ReverseGeocodeQueue_maxPerSecond    = "ReverseGeocodeQueue.maxPerSecond";
+
+    /**
+    *** Runtime Configuration Property<br>
+    *** Maximum number of EventData records updated in a single batch<br>
+    *** Type: Integer
+    **/
+    public static final String PROP_ReverseGeocodeQueue_updateBatchSize = "ReverseGeocodeQueue.updateBatchSize";
+
     // -------
     
     /**
@@ -758,9 +881,26 @@ public class DBConfig
         new RTKey.Entry(PROP_Device_maximumOdometerKM               , 1000000.0                     , "Maximum Odometer value"),
         new RTKey.Entry(PROP_Device_maximumRuntimeHours             , 24.0 * 365.0 * 30.0           , "Maximum Runtime hours value"),
         new RTKey.Entry(PROP_EventData_keyedCreationTime            , false                         , "Keyed 'EventData.creationTime'"),
+        new RTKey.Entry(PROP_EventData_compactFieldValues           , true                          , "Compact EventData field values"),
+        new RTKey.Entry(PROP_EventData_retentionChunkSize           , 5000L                         , "EventData purge chunk size"),
+        new RTKey.Entry(PROP_EventData_retentionChunkPauseMS        , 250L                          , "EventData purge chunk pause"),
+        new RTKey.Entry(PROP_EventData_retentionMaxConnections      , 2                             , "EventData purge max connections"),
+        new RTKey.Entry(PROP_EventData_retentionProgressSec         , 30L                           , "EventData purge progress interval"),
+        new RTKey.Entry(PROP_Device_compactFieldValues              , true                          , "Compact Device field values"),
         new RTKey.Entry(PROP_Geozone_dftRadius_pointRadius          , 3000                          , "Default Point Radius"),
         new RTKey.Entry(PROP_Geozone_dftRadius_polygon              , 500                           , "Default Polygon Radius"),
         new RTKey.Entry(PROP_Geozone_dftRadius_sweptPointRadius     , 1000                          , "Default SweptPoint Radius"),
+        new RTKey.Entry(PROP_Geozone_spatialIndex_maxAgeSec         , 60L                           , "Geozone spatial index max age"),
+        new RTKey.Entry(PROP_DeviceLookupCache_maxSize              , 10000                         , "Device lookup cache size"),
+        new RTKey.Entry(PROP_DeviceLookupCache_timeoutSec           , 300L                          , "Device lookup cache timeout"),
+        new RTKey.Entry(PROP_DeviceLookupCache_notFoundTimeoutSec   , 60L                           , "Device lookup cache 'not found' timeout"),
+        new RTKey.Entry(PROP_LastEventSnapshot_maxSize              , 10000                         , "Last event snapshot size"),
+        new RTKey.Entry(PROP_LastEventSnapshot_updateOnInsert       , false                         , "Update last event snapshot on insert (servlet default true)"),
+        new RTKey.Entry(PROP_ReverseGeocodeQueue_threads            , 4                             , "Reverse-geocode queue threads"),
+        new RTKey.Entry(PROP_ReverseGeocodeQueue_maxQueueSize       , 10000                         , "Reverse-geocode queue size"),
+        new RTKey.Entry(PROP_ReverseGeocodeQueue_maxPendingEvents   , 50000                         , "Reverse-geocode queue pending events"),
+        new RTKey.Entry(PROP_ReverseGeocodeQueue_maxPerSecond       , 10.0                          , "Reverse-geocode requests per second"),
+        new RTKey.Entry(PROP_ReverseGeocodeQueue_updateBatchSize    , 50                            , "Reverse-geocode update batch size"),
         new RTKey.Entry(PROP_RuleList_includeGroupRules             , false                         , "Include DeviceGroup rules"),
         new RTKey.Entry(PROP_FuelRegister_installFuelManager        , false                         , "Install FuelRegister/FuelManager"),
         new RTKey.Entry(PROP_FuelRegister_ignoreNegativeFuelLevels  , true                          , "Ignore Negative Fuel Levels"),
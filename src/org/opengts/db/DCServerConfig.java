@@ -2021,6 +2021,16 @@ public class DCServerConfig
 
     // ------------------------------------------------------------------------
 
+    /**
+    *** Gets the number of TCP NIO selector threads (&lt;=0 for one thread per session)
+    *** @param dft  The default selector count
+    *** @return The TCP NIO selector count
+    **/
+    public int getTcpNioSelectors(int dft)
+    {
+        return this.getIntProperty(DCServerFactory.CONFIG_tcpNioSelectors(this.getName()), dft);
+    }
+
     /**
     *** Gets the "TCP idle timeout" 
     *** @param dft  The default timeout value
@@ -452,6 +452,7 @@ public class DCServerFactory
     private static final String ATTR_remoteLogging      = "remoteLogging";
     public  static final String ATTR_bindAddress        = "bindAddress";
     private static final String ATTR_backlog            = "backlog";
+    private static final String ATTR_tcpNioSelectors    = "tcpNioSelectors";
   //private static final String ATTR_portOffset         = "portOffset";
     private static final String ATTR_name               = "name";
     private static final String ATTR_save               = "save";
@@ -663,6 +664,8 @@ public class DCServerFactory
             BIND_ADDRESS   = XMLTools.getAttribute(   dcsDef, ATTR_bindAddress, BIND_ADDRESS  , true);
             BIND_ADDRESS   = StringTools.blankDefault(RTConfig.getString(ATTR_bindAddress,null),BIND_ADDRESS);
             LISTEN_BACKLOG = XMLTools.getAttributeInt(dcsDef, ATTR_backlog    , LISTEN_BACKLOG, true);
+            NIO_SELECTORS  = XMLTools.getAttributeInt(dcsDef, ATTR_tcpNioSelectors, NIO_SELECTORS, true);
+            NIO_SELECTORS  = RTConfig.getInt(ATTR_tcpNioSelectors, NIO_SELECTORS);
           //PORT_OFFSET    = XMLTools.getAttributeInt(dcsDef, ATTR_portOffset , PORT_OFFSET   , true);
             INCLUDE_DIR    = XMLTools.getAttribute(   dcsDef, ATTR_includeDir , INCLUDE_DIR   , true);
         }
@@ -1344,6 +1347,10 @@ public class DCServerFactory
     // (how many pending connections are allowed before they start being rejected)
     public static       int     LISTEN_BACKLOG              = -1; // use default (50)
 
+    // TCP NIO selector threads
+    // (>0 to service TCP sessions with non-blocking selectors rather than one thread per session)
+    public static       int     NIO_SELECTORS               = -1; // use default (thread per session)
+
     // port offset (used by 'getPort' only)
     // (used to change to general location of all server ports as a group)
     public static       int     PORT_OFFSET                 = 0;
@@ -1451,6 +1458,19 @@ public class DCServerFactory
             ServerSocketThread.setListenBacklog(LISTEN_BACKLOG);
         }
 
+        /* ServerSocketThread TCP NIO selectors */
+        int nioSelectors = NIO_SELECTORS;
+        if (DCServerFactory.HasSpecificDCServerName()) {
+            DCServerConfig dcs = DCServerFactory.getServerConfig(DCServerFactory.GetSpecificDCServerName());
+            if (dcs != null) {
+                nioSelectors = dcs.getTcpNioSelectors(nioSelectors);
+            }
+        }
+        if (nioSelectors > 0) {
+            Print.logDebug("ServerSocketThread TCP NIO Selectors: " + nioSelectors);
+            ServerSocketThread.setDefaultNioSelectorCount(nioSelectors);
+        }
+
     }
 
     // ------------------------------------------------------------------------
@@ -2447,13 +2467,13 @@ public class DCServerFactory
             if (ListTools.isEmpty(prefix)) {
                 uniqueID = modemID;
                 //Print.logDebug("Looking for UniqueID: " + uniqueID);
-                device = Transport.loadDeviceByUniqueID(uniqueID);
+                device = DeviceLookupCache.loadDeviceByUniqueID(uniqueID);
             } else {
                 uniqueID = prefix[0] + modemID;
                 for (int u = 0; u < prefix.length; u++) {
                     String pfxid = prefix[u] + modemID;
                     //Print.logDebug("Looking for UniqueID: " + pfxid);
-                    device = Transport.loadDeviceByUniqueID(pfxid);
+                    device = DeviceLookupCache.loadDeviceByUniqueID(pfxid);
                     if (device != null) {
                         uniqueID = pfxid;
                         break;
@@ -2506,7 +2526,7 @@ public class DCServerFactory
                 try {
                     //Print.logInfo("Checking: " + uid);
                     uidTried.add(uid);
-                    Device device = Transport.loadDeviceByUniqueID(uid);
+                    Device device = DeviceLookupCache.loadDeviceByUniqueID(uid);
                     if (device != null) {
                         devList.add(device);
                     }
@@ -2605,6 +2625,7 @@ public class DCServerFactory
     public static final String  CFG_tcpIdleTimeoutMS            = ".tcpIdleTimeoutMS";           // long
     public static final String  CFG_tcpPacketTimeoutMS          = ".tcpPacketTimeoutMS";         // long
     public static final String  CFG_tcpSessionTimeoutMS         = ".tcpSessionTimeoutMS";        // long
+    public static final String  CFG_tcpNioSelectors             = ".tcpNioSelectors";            // int
     public static final String  CFG_udpIdleTimeoutMS            = ".udpIdleTimeoutMS";           // long
     public static final String  CFG_udpPacketTimeoutMS          = ".udpPacketTimeoutMS";         // long
     public static final String  CFG_udpSessionTimeoutMS         = ".udpSessionTimeoutMS";        // long
@@ -2794,6 +2815,19 @@ public class DCServerFactory
 
     // --------------------------------
 
+    /**
+    *** Return an array of "TCP NIO selector count" property names
+    *** @param name  The server name
+    *** @return An array of "TCP NIO selector count" property names
+    **/
+    public static String[] CONFIG_tcpNioSelectors(String name)
+    {
+        return new String[] { 
+            PROP_DCServer_ + name + CFG_tcpNioSelectors,
+            name + CFG_tcpNioSelectors 
+        };  // int
+    }
+
     /**
     *** Return an array of "TCP idle timeout" property names
     *** @param name  The server name
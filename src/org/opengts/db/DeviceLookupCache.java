@@ -0,0 +1,392 @@
+// ----------------------------------------------------------------------------
+// Copyright 2007-2014, GeoTelematic Solutions, Inc.
+// All rights reserved
+// ----------------------------------------------------------------------------
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ----------------------------------------------------------------------------
+// Description:
+//  Caches the resolution of Unique-IDs (and Account/Transport-IDs) to the
+//  Account/Device/Transport keys of the matching Device, including negative
+//  entries for unknown IDs.  The Account/Transport records are cached (and evicted
+//  when changed), the Device record itself is always reloaded, so each session
+//  receives its own current Device instance.
+// ----------------------------------------------------------------------------
+package org.opengts.db;
+
+import java.lang.*;
+import java.util.*;
+
+import org.opengts.util.*;
+import org.opengts.dbtools.*;
+
+import org.opengts.db.tables.*;
+
+/**
+*** <code>DeviceLookupCache</code> caches the Device keys resolved from Unique-IDs
+*** and Account/Transport-IDs by the device communication servers.
+**/
+
+public class DeviceLookupCache
+{
+
+    // ------------------------------------------------------------------------
+
+    private static final int  DEFAULT_MAX_SIZE           = 10000;
+    private static final long DEFAULT_TIMEOUT_SEC        = 300L;
+    private static final long DEFAULT_NOTFOUND_TIMEOUT_SEC = 60L;
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Resolved Device key (with the Account/Transport records of the Device)
+    **/
+    private static class Resolved
+    {
+        private String    accountID   = null; // null if not found
+        private String    deviceID    = null;
+        private String    transportID = null; // null/blank if not via Transport
+        private Account   account     = null; // shared, copied for each Device
+        private Transport transport   = null; // shared, copied for each Device
+        public Resolved() {
+            // not found
+        }
+        public Resolved(Device dev) throws DBException {
+            Account   acct  = dev.getAccount();
+            Transport xport = dev.getTransport();
+            this.accountID   = dev.getAccountID();
+            this.deviceID    = dev.getDeviceID();
+            this.transportID = dev.getTransportID();
+            this.account     = (acct  != null)? DeviceLookupCache._copyRecord(new Account.Key()  , acct ) : null;
+            this.transport   = (xport != null)? DeviceLookupCache._copyRecord(new Transport.Key(), xport) : null;
+        }
+        public boolean isFound() {
+            return (this.accountID != null);
+        }
+        public boolean isTransport(String acctID, String xportID) {
+            return this.isFound() && this.accountID.equals(acctID) &&
+                !StringTools.isBlank(this.transportID) && this.transportID.equals(xportID);
+        }
+        public boolean isAccount(String acctID) {
+            return this.isFound() && this.accountID.equals(acctID);
+        }
+        /* reload the resolved Device (returns null if no longer present) */
+        // Only the Device is reloaded.  The cached Account/Transport records are current,
+        // since entries are removed when the Account/Transport is changed.
+        public Device loadDevice() throws DBException {
+            if ((this.account == null) || 
+                (!StringTools.isBlank(this.transportID) && (this.transport == null))) {
+                return null;
+            }
+            Device device = (new Device.Key(this.accountID,this.deviceID)).getDBRecord().reload();
+            if (device == null) {
+                return null;
+            }
+            device.setAccount(DeviceLookupCache._copyRecord(new Account.Key(), this.account));
+            if (this.transport != null) {
+                device.setTransport(DeviceLookupCache._copyRecord(new Transport.Key(), this.transport));
+            }
+            return device;
+        }
+    }
+
+    /* return a copy of the specified record (cached records are shared between threads) */
+    private static <T extends DBRecord<T>> T _copyRecord(DBRecordKey<T> key, T rcd)
+        throws DBException
+    {
+        key.getFieldValues().setFieldValues(rcd.getRecordKey().getFieldValues(), true/*setPrimaryKey*/, false/*requireAll*/);
+        return key.getDBRecord();
+    }
+
+    // ------------------------------------------------------------------------
+
+    private static boolean                     didInit        = false;
+    private static CacheMap<String,Resolved>   uniqueIDCache  = null;
+    private static CacheMap<String,Resolved>   xportIDCache   = null;
+    private static long                        notFoundTTLMS  = 0L;
+
+    /**
+    *** Initializes the caches, and registers the Account/Device/Transport listeners
+    *** used to invalidate entries.
+    **/
+    private static void _init()
+    {
+        if (!didInit) {
+            synchronized (DeviceLookupCache.class) {
+                if (!didInit) {
+                    int  maxSize = RTConfig.getInt( DBConfig.PROP_DeviceLookupCache_maxSize        , DEFAULT_MAX_SIZE);
+                    long tmoSec  = RTConfig.getLong(DBConfig.PROP_DeviceLookupCache_timeoutSec     , DEFAULT_TIMEOUT_SEC);
+                    long nfSec   = RTConfig.getLong(DBConfig.PROP_DeviceLookupCache_notFoundTimeoutSec, DEFAULT_NOTFOUND_TIMEOUT_SEC);
+                    if ((maxSize > 0) && (tmoSec > 0L)) {
+                        notFoundTTLMS = Math.min(nfSec, tmoSec) * 1000L;
+                        uniqueIDCache = new CacheMap<String,Resolved>(maxSize, tmoSec * 1000L);
+                        xportIDCache  = new CacheMap<String,Resolved>(maxSize, tmoSec * 1000L);
+                        Account.getFactory().setRecordListener(  new AccountListener(  Account.getFactory().getRecordListener()));
+                        Device.getFactory().setRecordListener(   new DeviceListener(   Device.getFactory().getRecordListener()));
+                        Transport.getFactory().setRecordListener(new TransportListener(Transport.getFactory().getRecordListener()));
+                        Print.logDebug("DeviceLookupCache enabled [maxSize="+maxSize+", timeout="+tmoSec+"s]");
+                    }
+                    didInit = true;
+                }
+            }
+        }
+    }
+
+    /**
+    *** Returns true if the Device lookup cache is enabled
+    **/
+    public static boolean IsEnabled()
+    {
+        DeviceLookupCache._init();
+        return (uniqueIDCache != null);
+    }
+
+    /**
+    *** Returns a String representation of the cache statistics
+    **/
+    public static String getStatistics()
+    {
+        if (DeviceLookupCache.IsEnabled()) {
+            return "UniqueID[" + uniqueIDCache + "] TransportID[" + xportIDCache + "]";
+        } else {
+            return "disabled";
+        }
+    }
+
+    /**
+    *** Clears all cached entries
+    **/
+    public static void clear()
+    {
+        if (DeviceLookupCache.IsEnabled()) {
+            uniqueIDCache.clear();
+            xportIDCache.clear();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Loads the Device for the specified Unique-ID (see "Transport.loadDeviceByUniqueID")
+    *** @param uniqueID  The Unique-ID (including any prefix)
+    *** @return The Device, or null if not found
+    *** @throws DBException if a database error occurs
+    **/
+    public static Device loadDeviceByUniqueID(String uniqueID)
+        throws DBException
+    {
+
+        /* cache disabled? */
+        if (!DeviceLookupCache.IsEnabled() || StringTools.isBlank(uniqueID)) {
+            return Transport.loadDeviceByUniqueID(uniqueID);
+        }
+
+        /* check cache */
+        Resolved r = uniqueIDCache.get(uniqueID);
+        if (r != null) {
+            if (!r.isFound()) {
+                return null; // known not to exist
+            }
+            Device dev = r.loadDevice();
+            if ((dev != null) && (!StringTools.isBlank(r.transportID) || uniqueID.equals(dev.getUniqueID()))) {
+                return dev;
+            }
+            uniqueIDCache.remove(uniqueID); // stale (removed, or unique-id changed), lookup again
+        }
+
+        /* lookup */
+        Device dev = Transport.loadDeviceByUniqueID(uniqueID);
+        if (dev != null) {
+            uniqueIDCache.put(uniqueID, new Resolved(dev));
+        } else {
+            uniqueIDCache.put(uniqueID, new Resolved(), notFoundTTLMS);
+        }
+        return dev;
+
+    }
+
+    /**
+    *** Loads the Device for the specified Account/Transport-ID (see "Transport.loadDeviceByTransportID")
+    *** @param account  The Account
+    *** @param xportID  The Transport-ID (or Device-ID)
+    *** @return The Device, or null if not found
+    *** @throws DBException if a database error occurs
+    **/
+    public static Device loadDeviceByTransportID(Account account, String xportID)
+        throws DBException
+    {
+
+        /* cache disabled? */
+        if (!DeviceLookupCache.IsEnabled() || (account == null) || (xportID == null)) {
+            return Transport.loadDeviceByTransportID(account, xportID);
+        }
+        String key = account.getAccountID() + "/" + xportID;
+
+        /* check cache */
+        Resolved r = xportIDCache.get(key);
+        if (r != null) {
+            if (!r.isFound()) {
+                return null; // known not to exist
+            }
+            Device dev = r.loadDevice();
+            if (dev != null) {
+                dev.setAccount(account);
+                return dev;
+            }
+            xportIDCache.remove(key); // stale, lookup again
+        }
+
+        /* lookup */
+        Device dev = Transport.loadDeviceByTransportID(account, xportID);
+        if (dev != null) {
+            xportIDCache.put(key, new Resolved(dev));
+        } else {
+            xportIDCache.put(key, new Resolved(), notFoundTTLMS);
+        }
+        return dev;
+
+    }
+
+    // ------------------------------------------------------------------------
+
+    /* remove entries for the specified account */
+    private static void _removeAccount(final String acctID)
+    {
+        CacheMap.Matcher<String,Resolved> m = new CacheMap.Matcher<String,Resolved>() {
+            public boolean matches(String key, Resolved r) {
+                return (acctID == null) || r.isAccount(acctID) || (!r.isFound() && key.startsWith(acctID + "/"));
+            }
+        };
+        uniqueIDCache.removeMatching(m);
+        xportIDCache.removeMatching(m);
+    }
+
+    /* remove negative entries which may be resolved by a new/changed Device */
+    private static void _removeDeviceNotFound(String acctID, String devID, String uniqueID)
+    {
+        // Device records are updated with each received event, so this must not scan the
+        // cache.  Entries keyed by a previous unique-id are detected when they are next used.
+        if (!StringTools.isBlank(uniqueID)) {
+            Resolved r = uniqueIDCache.get(uniqueID);
+            if ((r != null) && !r.isFound()) {
+                uniqueIDCache.remove(uniqueID);
+            }
+        }
+        String key = acctID + "/" + devID;
+        Resolved r = xportIDCache.get(key);
+        if ((r != null) && !r.isFound()) {
+            xportIDCache.remove(key);
+        }
+    }
+
+    /* remove entries which reference the specified Transport */
+    private static void _removeTransport(final String acctID, final String xportID, final String uniqueID)
+    {
+        CacheMap.Matcher<String,Resolved> m = new CacheMap.Matcher<String,Resolved>() {
+            public boolean matches(String key, Resolved r) {
+                return r.isTransport(acctID,xportID) || key.equals(uniqueID) || key.equals(acctID + "/" + xportID);
+            }
+        };
+        uniqueIDCache.removeMatching(m);
+        xportIDCache.removeMatching(m);
+    }
+
+    // ------------------------------------------------------------------------
+
+    /* Account listener */
+    private static class AccountListener
+        implements DBRecordListener<Account>
+    {
+        private DBRecordListener<Account> chain = null;
+        public AccountListener(DBRecordListener<Account> chain) {
+            this.chain = chain;
+        }
+        public void recordWillInsert(Account rcd) {
+            if (this.chain != null) { this.chain.recordWillInsert(rcd); }
+        }
+        public void recordDidInsert(Account rcd) {
+            DeviceLookupCache._removeAccount(rcd.getAccountID());
+            if (this.chain != null) { this.chain.recordDidInsert(rcd); }
+        }
+        public void recordWillUpdate(Account rcd) {
+            if (this.chain != null) { this.chain.recordWillUpdate(rcd); }
+        }
+        public void recordDidUpdate(Account rcd) {
+            DeviceLookupCache._removeAccount(rcd.getAccountID());
+            if (this.chain != null) { this.chain.recordDidUpdate(rcd); }
+        }
+        public void recordsDidDelete(DBRecordKey<Account> key) {
+            DeviceLookupCache._removeAccount(null);
+            if (this.chain != null) { this.chain.recordsDidDelete(key); }
+        }
+    }
+
+    /* Device listener */
+    private static class DeviceListener
+        implements DBRecordListener<Device>
+    {
+        private DBRecordListener<Device> chain = null;
+        public DeviceListener(DBRecordListener<Device> chain) {
+            this.chain = chain;
+        }
+        public void recordWillInsert(Device rcd) {
+            if (this.chain != null) { this.chain.recordWillInsert(rcd); }
+        }
+        public void recordDidInsert(Device rcd) {
+            DeviceLookupCache._removeDeviceNotFound(rcd.getAccountID(), rcd.getDeviceID(), rcd.getUniqueID());
+            if (this.chain != null) { this.chain.recordDidInsert(rcd); }
+        }
+        public void recordWillUpdate(Device rcd) {
+            if (this.chain != null) { this.chain.recordWillUpdate(rcd); }
+        }
+        public void recordDidUpdate(Device rcd) {
+            DeviceLookupCache._removeDeviceNotFound(rcd.getAccountID(), rcd.getDeviceID(), rcd.getUniqueID());
+            if (this.chain != null) { this.chain.recordDidUpdate(rcd); }
+        }
+        public void recordsDidDelete(DBRecordKey<Device> key) {
+            // may be a partial key (ie. Account deletion)
+            DeviceLookupCache.clear();
+            if (this.chain != null) { this.chain.recordsDidDelete(key); }
+        }
+    }
+
+    /* Transport listener */
+    private static class TransportListener
+        implements DBRecordListener<Transport>
+    {
+        private DBRecordListener<Transport> chain = null;
+        public TransportListener(DBRecordListener<Transport> chain) {
+            this.chain = chain;
+        }
+        public void recordWillInsert(Transport rcd) {
+            if (this.chain != null) { this.chain.recordWillInsert(rcd); }
+        }
+        public void recordDidInsert(Transport rcd) {
+            DeviceLookupCache._removeTransport(rcd.getAccountID(), rcd.getTransportID(), rcd.getUniqueID());
+            if (this.chain != null) { this.chain.recordDidInsert(rcd); }
+        }
+        public void recordWillUpdate(Transport rcd) {
+            if (this.chain != null) { this.chain.recordWillUpdate(rcd); }
+        }
+        public void recordDidUpdate(Transport rcd) {
+            DeviceLookupCache._removeTransport(rcd.getAccountID(), rcd.getTransportID(), rcd.getUniqueID());
+            if (this.chain != null) { this.chain.recordDidUpdate(rcd); }
+        }
+        public void recordsDidDelete(DBRecordKey<Transport> key) {
+            DeviceLookupCache.clear();
+            if (this.chain != null) { this.chain.recordsDidDelete(key); }
+        }
+    }
+
+}
@@ -0,0 +1,390 @@
+// ----------------------------------------------------------------------------
+// Copyright 2007-2014, GeoTelematic Solutions, Inc.
+// All rights reserved
+// ----------------------------------------------------------------------------
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ----------------------------------------------------------------------------
+// Description:
+//  Purges old EventData records for all devices of one or more Accounts.
+//  Devices are purged concurrently (limited to a maximum number of DB
+//  connections), and each device is purged in bounded chunks (see
+//  "EventData.deleteOldEvents").
+// ----------------------------------------------------------------------------
+package org.opengts.db;
+
+import java.lang.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+import org.opengts.util.*;
+import org.opengts.dbtools.*;
+
+import org.opengts.db.tables.*;
+
+/**
+*** <code>EventRetention</code> deletes EventData records older than a specified time
+*** for all devices within one or more Accounts.<br>
+*** The Account "retainedEventAge" is honored, and the last event of each device is
+*** always retained (see <code>EventData.deleteOldEvents</code>).
+**/
+
+public class EventRetention
+{
+
+    // ------------------------------------------------------------------------
+
+    private static final long    DEFAULT_CHUNK_SIZE         = 5000L;
+    private static final long    DEFAULT_CHUNK_PAUSE_MS     = 250L;
+    private static final int     DEFAULT_MAX_CONNECTIONS    = 2;
+    private static final long    DEFAULT_PROGRESS_SEC       = 30L;
+
+    // ------------------------------------------------------------------------
+
+    private long            chunkSize           = DEFAULT_CHUNK_SIZE;
+    private long            chunkPauseMS        = DEFAULT_CHUNK_PAUSE_MS;
+    private int             maxConnections      = DEFAULT_MAX_CONNECTIONS;
+    private long            progressIntervalMS  = DEFAULT_PROGRESS_SEC * 1000L;
+    private boolean         logDevices          = false;
+
+    private AtomicLong      deletedCount        = new AtomicLong(0L);
+    private AtomicLong      submittedDevices    = new AtomicLong(0L);
+    private AtomicLong      completedDevices    = new AtomicLong(0L);
+    private AtomicLong      errorCount          = new AtomicLong(0L);
+    private AtomicLong      lastProgressMS      = new AtomicLong(0L);
+    private long            startMS             = 0L;
+
+    /**
+    *** Constructor.  The chunk size, pause, and connection limit are initialized
+    *** from the runtime configuration.
+    **/
+    public EventRetention()
+    {
+        this.setChunkSize(RTConfig.getLong(DBConfig.PROP_EventData_retentionChunkSize, DEFAULT_CHUNK_SIZE));
+        this.setChunkPauseMS(RTConfig.getLong(DBConfig.PROP_EventData_retentionChunkPauseMS, DEFAULT_CHUNK_PAUSE_MS));
+        this.setMaxConnections(RTConfig.getInt(DBConfig.PROP_EventData_retentionMaxConnections, DEFAULT_MAX_CONNECTIONS));
+        this.setProgressIntervalSec(RTConfig.getLong(DBConfig.PROP_EventData_retentionProgressSec, DEFAULT_PROGRESS_SEC));
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Sets the maximum number of events deleted per statement
+    *** @param chunkSize  The chunk size (0 to delete all events for a device in one statement)
+    **/
+    public void setChunkSize(long chunkSize)
+    {
+        this.chunkSize = (chunkSize > 0L)? chunkSize : 0L;
+    }
+
+    /**
+    *** Gets the maximum number of events deleted per statement
+    *** @return The chunk size
+    **/
+    public long getChunkSize()
+    {
+        return this.chunkSize;
+    }
+
+    /**
+    *** Sets the pause between delete statements
+    *** @param pauseMS  The pause in milliseconds
+    **/
+    public void setChunkPauseMS(long pauseMS)
+    {
+        this.chunkPauseMS = (pauseMS > 0L)? pauseMS : 0L;
+    }
+
+    /**
+    *** Gets the pause between delete statements
+    *** @return The pause in milliseconds
+    **/
+    public long getChunkPauseMS()
+    {
+        return this.chunkPauseMS;
+    }
+
+    /**
+    *** Sets the maximum number of devices purged concurrently.  Each concurrently
+    *** purged device uses one DB connection.
+    *** @param maxConn  The maximum number of DB connections
+    **/
+    public void setMaxConnections(int maxConn)
+    {
+        this.maxConnections = (maxConn > 0)? maxConn : 1;
+    }
+
+    /**
+    *** Gets the maximum number of devices purged concurrently
+    *** @return The maximum number of DB connections
+    **/
+    public int getMaxConnections()
+    {
+        return this.maxConnections;
+    }
+
+    /**
+    *** Sets the interval between progress log messages
+    *** @param intervalSec  The interval in seconds (0 to disable)
+    **/
+    public void setProgressIntervalSec(long intervalSec)
+    {
+        this.progressIntervalMS = (intervalSec > 0L)? (intervalSec * 1000L) : 0L;
+    }
+
+    /**
+    *** Sets whether the result of each device purge is displayed
+    *** @param log  True to display each device result
+    **/
+    public void setLogDevices(boolean log)
+    {
+        this.logDevices = log;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Gets the number of events deleted
+    *** @return The number of events deleted
+    **/
+    public long getDeletedCount()
+    {
+        return this.deletedCount.get();
+    }
+
+    /**
+    *** Gets the number of devices which have been purged
+    *** @return The number of devices purged
+    **/
+    public long getDeviceCount()
+    {
+        return this.completedDevices.get();
+    }
+
+    /**
+    *** Gets the number of devices for which the purge failed
+    *** @return The number of errors
+    **/
+    public long getErrorCount()
+    {
+        return this.errorCount.get();
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Deletes events prior to the specified time for all devices in the specified Account
+    *** @param account     The Account
+    *** @param oldTimeSec  The time before which events will be deleted
+    *** @return The number of events deleted
+    **/
+    public long deleteOldEvents(Account account, long oldTimeSec)
+        throws DBException
+    {
+        if (account == null) {
+            return 0L;
+        }
+        java.util.List<Account> acctList = new Vector<Account>();
+        acctList.add(account);
+        return this._deleteOldEvents(null, acctList, oldTimeSec);
+    }
+
+    /**
+    *** Deletes events prior to the specified time for all devices in the specified Accounts
+    *** @param acctIDs     The list of Account IDs
+    *** @param oldTimeSec  The time before which events will be deleted
+    *** @return The number of events deleted
+    **/
+    public long deleteOldEvents(Collection<String> acctIDs, long oldTimeSec)
+        throws DBException
+    {
+        if (ListTools.isEmpty(acctIDs)) {
+            return 0L;
+        }
+        return this._deleteOldEvents(acctIDs, null, oldTimeSec);
+    }
+
+    /**
+    *** Deletes old events for the specified Account IDs, or Accounts
+    **/
+    private long _deleteOldEvents(Collection<String> acctIDs, Collection<Account> accounts, long oldTimeSec)
+        throws DBException
+    {
+        final long deletedStart = this.deletedCount.get();
+        this.startMS = DateTime.getCurrentTimeMillis();
+        this.lastProgressMS.set(this.startMS);
+
+        /* worker threads (one DB connection each) */
+        ExecutorService workers = Executors.newFixedThreadPool(this.maxConnections, new ThreadFactory() {
+            private int threadNdx = 0;
+            public synchronized Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "EventRetention_" + (++this.threadNdx));
+                t.setDaemon(true);
+                return t;
+            }
+        });
+
+        /* submit devices */
+        try {
+            if (accounts != null) {
+                for (Account account : accounts) {
+                    this._submitAccount(workers, account, oldTimeSec);
+                }
+            } else {
+                for (String acctID : acctIDs) {
+                    if (StringTools.isBlank(acctID)) {
+                        continue;
+                    }
+                    Account account = Account.getAccount(acctID); // may throw DBException
+                    if (account != null) {
+                        this._submitAccount(workers, account, oldTimeSec);
+                    } else {
+                        Print.logWarn("Skipping non-existent Account: " + acctID);
+                    }
+                }
+            }
+        } finally {
+            workers.shutdown();
+            try {
+                while (!workers.awaitTermination(60L, TimeUnit.SECONDS)) {
+                    // still deleting
+                }
+            } catch (InterruptedException ie) {
+                Print.logWarn("Interrupted, stopping EventRetention workers");
+                workers.shutdownNow();
+            }
+        }
+
+        /* final status */
+        this._logProgress(true);
+        return this.deletedCount.get() - deletedStart;
+
+    }
+
+    /**
+    *** Submits all devices of the specified Account to the workers
+    **/
+    private void _submitAccount(ExecutorService workers, final Account account, final long oldTimeSec)
+        throws DBException
+    {
+        String acctID = account.getAccountID();
+        OrderedSet<String> devList = DeviceGroup.getDeviceIDsForGroup(acctID, DeviceGroup.DEVICE_GROUP_ALL, null, true/*inclInactv*/, -1L);
+        if (ListTools.isEmpty(devList)) {
+            if (this.logDevices) {
+                Print.sysPrintln("  No Devices Found: " + acctID);
+            }
+            return;
+        }
+        for (final String devID : devList) {
+            this.submittedDevices.incrementAndGet();
+            workers.execute(new Runnable() {
+                public void run() {
+                    EventRetention.this._deleteDeviceEvents(account, devID, oldTimeSec);
+                }
+            });
+        }
+    }
+
+    /**
+    *** Deletes old events for the specified device
+    **/
+    private void _deleteDeviceEvents(Account account, String devID, long oldTimeSec)
+    {
+        String acctID = account.getAccountID();
+        try {
+
+            /* get Device */
+            Device device = Device.getDevice(account, devID);
+            if (device == null) {
+                return; // deleted since device list was read
+            }
+
+            /* delete old events */
+            StringBuffer msg = new StringBuffer();
+            long startMS = DateTime.getCurrentTimeMillis();
+            long count   = EventData.deleteOldEvents(device, oldTimeSec, this.chunkSize, this.chunkPauseMS, msg);
+            long deltaMS = DateTime.getCurrentTimeMillis() - startMS;
+            this.deletedCount.addAndGet(count);
+
+            /* logging */
+            if (this.logDevices) {
+                StringBuffer sb = new StringBuffer();
+                sb.append("  Device: ").append(StringTools.leftAlign(acctID+"/"+devID,25));
+                sb.append(" - deleted ").append(StringTools.rightAlign(String.valueOf(count),5));
+                sb.append(" [").append(deltaMS).append("ms]");
+                if (msg.length() > 0) {
+                    sb.append("  ").append(msg);
+                }
+                Print.sysPrintln(sb.toString());
+            }
+
+        } catch (Throwable th) {
+            // DBException, etc.
+            this.errorCount.incrementAndGet();
+            Print.logException("Unable to delete old events: " + acctID + "/" + devID, th);
+        } finally {
+            this.completedDevices.incrementAndGet();
+            this._logProgress(false);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Logs the current purge progress, if the progress interval has elapsed
+    **/
+    private void _logProgress(boolean force)
+    {
+        long nowMS = DateTime.getCurrentTimeMillis();
+        if (!force) {
+            long lastMS = this.lastProgressMS.get();
+            if ((this.progressIntervalMS <= 0L) || ((nowMS - lastMS) < this.progressIntervalMS)) {
+                return;
+            } else
+            if (!this.lastProgressMS.compareAndSet(lastMS, nowMS)) {
+                return; // another thread is logging
+            }
+        }
+        Print.logInfo(this.toString(nowMS));
+    }
+
+    /**
+    *** Returns the current purge progress as a String
+    **/
+    private String toString(long nowMS)
+    {
+        long   deleted = this.deletedCount.get();
+        double elapSec = (double)Math.max(nowMS - this.startMS, 1L) / 1000.0;
+        StringBuffer sb = new StringBuffer();
+        sb.append("EventRetention: ");
+        sb.append(this.completedDevices.get()).append("/").append(this.submittedDevices.get()).append(" devices, ");
+        sb.append(deleted).append(" events deleted, ");
+        sb.append(StringTools.format((double)deleted / elapSec, "0.0")).append(" events/sec");
+        long errors = this.errorCount.get();
+        if (errors > 0L) {
+            sb.append(", ").append(errors).append(" errors");
+        }
+        return sb.toString();
+    }
+
+    /**
+    *** Returns the current purge progress as a String
+    **/
+    public String toString()
+    {
+        return this.toString(DateTime.getCurrentTimeMillis());
+    }
+
+}
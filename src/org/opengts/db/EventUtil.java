@@ -162,6 +162,171 @@ public class EventUtil
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
+    /**
+    *** DeviceEventSource interface.<br>
+    *** Provides the events written for each device by "writeEvents".  If no source is
+    *** specified, the events saved in each Device (see "Device.setSavedRangeEvents") are
+    *** written.
+    **/
+    public interface DeviceEventSource
+    {
+        public Iterator<EventData> getDeviceEvents(Device dev) throws IOException;
+    }
+
+    /**
+    *** <code>RangeEventStream</code> reads the events for each device as they are written,
+    *** using a single <code>DBRecordStream</code>, so that only the event currently being
+    *** written is held in memory, regardless of the number of events in the range.<br>
+    *** A "LAST" limited selection (no start time) must be reordered, and is read into memory
+    *** (bounded by the limit).  <code>close()</code> must be called when done.<br>
+    *** An interrupted export may be resumed with a cursor consisting of the device being written
+    *** when the export was interrupted, and the timestamp/statusCode (or autoIndex) of the last
+    *** event received for that device.  Devices preceding the resume device are skipped, the
+    *** cursor is applied to the resume device only, and the remaining devices are written in full.
+    *** Exports which may be resumed by autoIndex should be started with a resume index of '0', 
+    *** so that all devices are written in autoIndex order.
+    **/
+    public static class RangeEventStream
+        implements DeviceEventSource
+    {
+        private DBRecordStream<EventData>   rcdIter     = new DBRecordStream<EventData>();
+        private long                        timeStart   = -1L;
+        private long                        timeEnd     = -1L;
+        private boolean                     validGPS    = true;
+        private long                        limit       = -1L;
+        private String                      resumeDevID = null;
+        private long                        resumeTime  = -1L;
+        private int                         resumeCode  = -1;
+        private long                        resumeIndex = -1L;
+        private boolean                     resumeDone  = false;
+        private long                        eventCount  = 0L;
+        private DBException                 lastError   = null;
+        public RangeEventStream(long timeStart, long timeEnd, boolean validGPS, long limit) {
+            this.timeStart = timeStart;
+            this.timeEnd   = timeEnd;
+            this.validGPS  = validGPS;
+            this.limit     = limit;
+        }
+        /* resume with the specified device (null to apply the resume cursor to the first device) */
+        public void setResumeDevice(String devID) {
+            this.resumeDevID = !StringTools.isBlank(devID)? devID : null;
+        }
+        /* resume following the specified event timestamp/statusCode (events are written in timestamp/statusCode order) */
+        // If the statusCode is not specified (<0), all events at the resume timestamp are written again.
+        public void setResumeTime(long resumeTime, int resumeCode) {
+            this.resumeTime = (resumeTime > 0L)? resumeTime : -1L;
+            this.resumeCode = (resumeCode >= 0)? resumeCode : -1;
+        }
+        /* resume following the specified event autoIndex (exclusive, events are written in autoIndex order) */
+        public void setResumeIndex(long resumeIndex) {
+            this.resumeIndex = (resumeIndex >= 0L)? resumeIndex : -1L;
+        }
+        /* true if a resume cursor has been specified */
+        public boolean hasResumeCursor() {
+            return (this.resumeDevID != null) || (this.resumeTime > 0L) || (this.resumeIndex >= 0L);
+        }
+        public long getEventCount() {
+            return this.eventCount;
+        }
+        public DBException getLastError() {
+            return (this.lastError != null)? this.lastError : this.rcdIter.getLastError();
+        }
+        public Iterator<EventData> getDeviceEvents(final Device dev) throws IOException {
+            if (this.getLastError() != null) {
+                // a previous device selection failed, do not continue with a partial export
+                throw new IOException("EventData selection failed: " + this.getLastError().getMessage());
+            }
+
+            /* resume cursor (applied to the resume device only) */
+            long    tStart     = this.timeStart;
+            long    rTime      = -1L;
+            long    rIndex     = -1L;
+            boolean orderIndex = (this.resumeIndex >= 0L);
+            if (!this.resumeDone && this.hasResumeCursor()) {
+                if ((this.resumeDevID != null) && !this.resumeDevID.equals(dev.getDeviceID())) {
+                    // precedes the resume device: previously written
+                    return ListTools.toIterator((EventData[])null);
+                }
+                this.resumeDone = true;
+                if (this.resumeIndex >= 0L) {
+                    rIndex = this.resumeIndex;
+                } else
+                if ((this.resumeTime > 0L) && (this.resumeTime >= tStart)) {
+                    rTime  = this.resumeTime;
+                    tStart = rTime;
+                }
+            }
+            if ((this.timeEnd > 0L) && (tStart > this.timeEnd)) {
+                // resumed past the end of the range
+                return ListTools.toIterator((EventData[])null);
+            }
+
+            try {
+                if ((this.limit > 0L) && (tStart <= 0L) && !orderIndex) {
+                    // latest events: must be reordered (bounded by limit)
+                    EventData ed[] = dev.getRangeEvents(tStart, this.timeEnd, this.validGPS,
+                        EventData.LimitType.LAST, this.limit);
+                    this.eventCount += (ed != null)? ed.length : 0;
+                    return ListTools.toIterator(ed);
+                }
+                String andSelect = null;
+                if (rIndex >= 0L) {
+                    DBWhere dwh = new DBWhere(EventData.getFactory());
+                    andSelect = dwh.GT(EventData.FLD_autoIndex, rIndex);
+                } else
+                if ((rTime > 0L) && (this.resumeCode >= 0)) {
+                    // timestamp >= rTime (see tStart), and following statusCode at rTime
+                    DBWhere dwh = new DBWhere(EventData.getFactory());
+                    andSelect = dwh.OR(
+                        dwh.GT(EventData.FLD_timestamp , rTime),
+                        dwh.GT(EventData.FLD_statusCode, this.resumeCode));
+                }
+                DBSelect<EventData> dsel = new DBSelect<EventData>(EventData.getFactory());
+                dsel.setWhere(EventData.getWhereClause(
+                    dev.getAccountID(), dev.getDeviceID(),
+                    tStart, this.timeEnd,
+                    null/*statusCodes*/,
+                    this.validGPS,
+                    andSelect));
+                if (orderIndex) {
+                    dsel.setOrderByFields(EventData.FLD_autoIndex);
+                } else {
+                    dsel.setOrderByFields(EventData.FLD_timestamp, EventData.FLD_statusCode);
+                }
+                dsel.setOrderAscending(true);
+                dsel.setLimit(this.limit);
+                this.rcdIter.select(dsel, new DBRecordHandler<EventData>() {
+                    public int handleDBRecord(EventData rcd) throws DBException {
+                        rcd.setDevice(dev);
+                        RangeEventStream.this.eventCount++;
+                        return DBRH_SAVE;
+                    }
+                });
+                return this.rcdIter;
+            } catch (DBException dbe) {
+                this.lastError = dbe;
+                throw new IOException("EventData selection failed: " + dbe.getMessage());
+            }
+        }
+        public void close() {
+            this.rcdIter.close();
+        }
+    }
+
+    /* return the events to write for the specified device */
+    private Iterator<EventData> getDeviceEvents(DeviceEventSource evSrc, Device dev)
+        throws IOException
+    {
+        if (evSrc != null) {
+            return evSrc.getDeviceEvents(dev);
+        } else {
+            return ListTools.toIterator(dev.getSavedRangeEvents());
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
     public  static final int    FORMAT_UNKNOWN      =  0;
     public  static final int    FORMAT_CSV          =  1;
     public  static final int    FORMAT_KML          =  2;
@@ -320,7 +485,7 @@ public class EventUtil
     */
 
     private boolean writeEvents_CSV(PrintWriter pwout, 
-        Account account, Collection<Device> devList, 
+        Account account, Collection<Device> devList, DeviceEventSource evSrc,
         boolean allTags, TimeZone dispTmz, 
         char csvSep, boolean inclHeader, BasicPrivateLabel privLabel)
         throws IOException
@@ -373,14 +538,14 @@ public class EventUtil
 
         /* write events */
         return this.writeEvents_CSV_fields(pwout, 
-            account, devList, evFields, 
+            account, devList, evSrc, evFields, 
             dispTmz, 
             csvSep, inclHeader, privLabel);
 
     }
 
     private boolean writeEvents_CSV_fields(PrintWriter pwout, 
-        Account account, Collection<Device> devList, String evFields[], 
+        Account account, Collection<Device> devList, DeviceEventSource evSrc, String evFields[], 
         TimeZone dispTmz, 
         char csvSep, boolean inclHeader, BasicPrivateLabel privLabel)
         throws IOException
@@ -422,14 +587,11 @@ public class EventUtil
                 }
 
                 /* Device events */
-                EventData evList[] = dev.getSavedRangeEvents();
-                if (ListTools.isEmpty(evList)) {
-                    // no events for this device
-                    continue;
-                }
+                Iterator<EventData> evIter = this.getDeviceEvents(evSrc, dev);
 
                 /* write events */
-                for (EventData ev : evList) {
+                while (evIter.hasNext()) {
+                    EventData ev = evIter.next();
 
                     /* same account? */
                     if (!ev.getAccountID().equals(accountID)) {
@@ -439,9 +601,9 @@ public class EventUtil
                     ev.setAccount(account); // likely redundant
 
                     /* write event */
-                    String rcd = this.formatEventData_CSV(ev, evFields, 
-                        dispTmz, dateFmt, timeFmt, csvSep) + "\n";
-                    this.write(pwout, rcd);
+                    this.write(pwout, this.formatEventData_CSV(ev, evFields, 
+                        dispTmz, dateFmt, timeFmt, csvSep));
+                    this.write(pwout, "\n");
 
                 }
 
@@ -2823,7 +2985,7 @@ public class EventUtil
     }
 
     private boolean writeEvents_XML(PrintWriter pwout, 
-        Account account, Collection<Device> devList, 
+        Account account, Collection<Device> devList, DeviceEventSource evSrc,
         boolean allTags, TimeZone dispTmz,
         BasicPrivateLabel privLabel, boolean oldFormat)
         throws IOException
@@ -2858,8 +3020,8 @@ public class EventUtil
                 }
 
                 /* device events */
-                EventData evList[] = dev.getSavedRangeEvents();
-                if (ListTools.isEmpty(evList)) {
+                Iterator<EventData> evIter = this.getDeviceEvents(evSrc, dev);
+                if (!evIter.hasNext()) {
                     // no events for this device
                     continue;
                 }
@@ -2880,8 +3042,8 @@ public class EventUtil
                 }
 
                 /* Device events */
-                for (int i = 0; i < evList.length; i++) {
-                    EventData ev = evList[i];
+                while (evIter.hasNext()) {
+                    EventData ev = evIter.next();
     
                     /* same account? */
                     if (!ev.getAccountID().equals(accountID)) {
@@ -2944,7 +3106,7 @@ public class EventUtil
     // </gpx>
 
     private boolean writeEvents_GPX(PrintWriter pwout, 
-        Account account, Collection<Device> devList, 
+        Account account, Collection<Device> devList, DeviceEventSource evSrc,
         BasicPrivateLabel privLabel)
         throws IOException
     {
@@ -2983,14 +3145,13 @@ public class EventUtil
                 this.write(pwout, "  <trkseg>\n");
 
                 /* events */
-                EventData evList[] = dev.getSavedRangeEvents();
-                if (!ListTools.isEmpty(evList)) {
-                    for (EventData ev : evList) {
-                        this.write(pwout, "    <trkpt lat=\"" + ev.getLatitude() + "\" lon=\"" + ev.getLongitude() + "\">\n");
-                        this.write(pwout, "      <time>" + (new DateTime(ev.getTimestamp(),tz)).format(dateFmt) + "</time>\n");
-                        this.write(pwout, "      <ele>"+ev.getAltitude()+"</ele>\n"); // meters
-                        this.write(pwout, "    </trkpt>\n");
-                    }
+                Iterator<EventData> evIter = this.getDeviceEvents(evSrc, dev);
+                while (evIter.hasNext()) {
+                    EventData ev = evIter.next();
+                    this.write(pwout, "    <trkpt lat=\"" + ev.getLatitude() + "\" lon=\"" + ev.getLongitude() + "\">\n");
+                    this.write(pwout, "      <time>" + (new DateTime(ev.getTimestamp(),tz)).format(dateFmt) + "</time>\n");
+                    this.write(pwout, "      <ele>"+ev.getAltitude()+"</ele>\n"); // meters
+                    this.write(pwout, "    </trkpt>\n");
                 }
         
                 /* Device end tag */
@@ -3066,13 +3227,44 @@ public class EventUtil
     // }
 
     private static String JSON_INDENT = "   ";
-    
+    private static String JSON_INDENT_CACHE[] = new String[8];
+    static {
+        for (int i = 0; i < JSON_INDENT_CACHE.length; i++) {
+            JSON_INDENT_CACHE[i] = StringTools.replicateString(JSON_INDENT,i);
+        }
+    }
+
+    /* return the indent prefix for the specified JSON nesting level */
+    private static String indent_JSON(int indent)
+    {
+        if (indent <= 0) {
+            return "";
+        } else
+        if (indent < JSON_INDENT_CACHE.length) {
+            return JSON_INDENT_CACHE[indent];
+        } else {
+            return StringTools.replicateString(JSON_INDENT,indent);
+        }
+    }
+
     public boolean writeEvents_JSON(PrintWriter pwout, 
         Account account, Collection<Device> devList, 
         boolean allTags, TimeZone dispTmz,
         BasicPrivateLabel privLabel)
         throws IOException
     {
+        return this.writeEvents_JSON(pwout, 
+            account, devList, null/*evSrc*/,
+            allTags, dispTmz,
+            privLabel);
+    }
+
+    public boolean writeEvents_JSON(PrintWriter pwout, 
+        Account account, Collection<Device> devList, DeviceEventSource evSrc,
+        boolean allTags, TimeZone dispTmz,
+        BasicPrivateLabel privLabel)
+        throws IOException
+    {
 
         /* account required */
         if (account == null) {
@@ -3086,10 +3278,10 @@ public class EventUtil
         }
 
         /* header */
-        String PFX0 = "";
-        String PFX1 = StringTools.replicateString(JSON_INDENT,1);
-        String PFX2 = StringTools.replicateString(JSON_INDENT,2);
-        String PFX3 = StringTools.replicateString(JSON_INDENT,3);
+        String PFX0 = EventUtil.indent_JSON(0);
+        String PFX1 = EventUtil.indent_JSON(1);
+        String PFX2 = EventUtil.indent_JSON(2);
+        String PFX3 = EventUtil.indent_JSON(3);
         this.writeKeyValue_JSON(pwout,PFX0,"{"           , null, true);
         this.writeKeyValue_JSON(pwout,PFX1,"Account"     , accountID, false);
         this.writeKeyValue_JSON(pwout,PFX1,"Account_desc", acctDesc, false);
@@ -3114,14 +3306,14 @@ public class EventUtil
                 this.writeKeyValue_JSON(pwout,PFX3,"Device", deviceID, false);
 
                 /* event data */
-                EventData evList[] = dev.getSavedRangeEvents();
-                if (evList != null) {
+                Iterator<EventData> evIter = ((evSrc != null) || (dev.getSavedRangeEvents() != null))?
+                    this.getDeviceEvents(evSrc, dev) : null;
+                if (evIter != null) {
                     this.writeKeyValue_JSON(pwout,PFX3,"Device_desc", deviceDesc, false);
                     this.writeKeyValue_JSON(pwout,PFX3,"EventData", "[", true);
-                    int lastEventNdx = evList.length - 1;
-                    for (int e = 0; e <= lastEventNdx; e++) {
-                        EventData ev = evList[e];
-                        boolean isLastEvent = (e == lastEventNdx);
+                    for (int e = 0; evIter.hasNext(); e++) {
+                        EventData ev = evIter.next();
+                        boolean isLastEvent = !evIter.hasNext(); // reads ahead one event
         
                         /* same account? */
                         if (!ev.getAccountID().equals(accountID)) {
@@ -3162,8 +3354,8 @@ public class EventUtil
         Account account = ev.getAccount();
         Device  device  = ev.getDevice();
         Locale  locale  = privLabel.getLocale(); // should be "reqState.getLocale();"
-        String  PFX1    = StringTools.replicateString(JSON_INDENT,indent);
-        String  PFX2    = StringTools.replicateString(JSON_INDENT,indent + 1);
+        String  PFX1    = EventUtil.indent_JSON(indent);
+        String  PFX2    = EventUtil.indent_JSON(indent + 1);
 
         /* Event tag start */
         this.writeKeyValue_JSON(pwout,PFX1,"{",null,true);
@@ -3390,28 +3582,34 @@ public class EventUtil
     private void _writeKeyValue_JSON(PrintWriter pwout, String pfx, String key, String value, boolean isLast)
         throws IOException
     {
+        this.write(pwout, pfx);
         if ("{".equals(key)) {
             // start of object (ignore value, isLast)
-            this.write(pwout, pfx + "{\n");
+            this.write(pwout, "{\n");
         } else
         if ("}".equals(key)) {
             // end of object (ignore value)
             if (isLast) {
-                this.write(pwout, pfx + "}\n");
+                this.write(pwout, "}\n");
             } else {
-                this.write(pwout, pfx + "},\n");
+                this.write(pwout, "},\n");
             }
         } else
         if ("[".equals(value)) {
             // start of array (ignore value, isLast)
-            this.write(pwout, pfx + "\"" + key + "\": [\n");
+            this.write(pwout, "\"");
+            this.write(pwout, key);
+            this.write(pwout, "\": [\n");
         } else
         if ("]".equals(key)) {
             // end of array (ignore value, isLast)
-            this.write(pwout, pfx + "]\n");
+            this.write(pwout, "]\n");
         } else {
             // property definition
-            this.write(pwout, pfx + "\"" + key + "\": " + value);
+            this.write(pwout, "\"");
+            this.write(pwout, key);
+            this.write(pwout, "\": ");
+            this.write(pwout, value);
             if (isLast) {
                 this.write(pwout, "\n");
             } else {
@@ -3423,7 +3621,7 @@ public class EventUtil
     // ------------------------------------------------------------------------
 
     private boolean writeEvents_BML(PrintWriter pwout, 
-        Account account, Collection<Device> devList, 
+        Account account, Collection<Device> devList, DeviceEventSource evSrc,
         BasicPrivateLabel privLabel)
         throws IOException
     {
@@ -3449,25 +3647,24 @@ public class EventUtil
                 }
 
                 /* events */
-                EventData evList[] = dev.getSavedRangeEvents();
-                if (!ListTools.isEmpty(evList)) {
-                    for (EventData ev : evList) {
-        
-                        /* same account? */
-                        if (!ev.getAccountID().equals(accountID)) {
-                            // mismatched AccountID
-                            continue;
-                        }
-                        ev.setAccount(account); // redundant
-
-                        /* event */
-                        pwout.write("<location lon=\""+ev.getLongitude()+"\" lat=\""+ev.getLatitude()+"\"");
-                        pwout.write(" label=\""+ev.getDeviceID()+"\"");
-                        pwout.write(" description=\""+ev.getAddress()+"\"");
-                        // other options available as well
-                        pwout.write("/>\n");
-                        
+                Iterator<EventData> evIter = this.getDeviceEvents(evSrc, dev);
+                while (evIter.hasNext()) {
+                    EventData ev = evIter.next();
+    
+                    /* same account? */
+                    if (!ev.getAccountID().equals(accountID)) {
+                        // mismatched AccountID
+                        continue;
                     }
+                    ev.setAccount(account); // redundant
+
+                    /* event */
+                    pwout.write("<location lon=\""+ev.getLongitude()+"\" lat=\""+ev.getLatitude()+"\"");
+                    pwout.write(" label=\""+ev.getDeviceID()+"\"");
+                    pwout.write(" description=\""+ev.getAddress()+"\"");
+                    // other options available as well
+                    pwout.write("/>\n");
+                    
                 }
                 
             }
@@ -3531,13 +3728,31 @@ public class EventUtil
         int formatEnum, boolean allTags, TimeZone dispTmz, 
         BasicPrivateLabel privLabel)
         throws IOException
+    {
+        return this.writeEvents(pwout, 
+            account, devList, null/*evSrc*/,
+            formatEnum, allTags, dispTmz,
+            privLabel);
+    }
+
+    /**
+    *** Writes the events for the specified devices in the specified format.<br>
+    *** The events for each device are obtained from the specified DeviceEventSource, as 
+    *** each device is written.  If the DeviceEventSource is null, the events saved in
+    *** each Device are written.  (KML output always writes the saved events)
+    **/
+    public boolean writeEvents(PrintWriter pwout, 
+        Account account, Collection<Device> devList, DeviceEventSource evSrc,
+        int formatEnum, boolean allTags, TimeZone dispTmz, 
+        BasicPrivateLabel privLabel)
+        throws IOException
     {
         if (devList != null) {
             switch (formatEnum) {
                 case FORMAT_TXT:
                 case FORMAT_CSV:
                     return this.writeEvents_CSV(pwout, 
-                        account, devList, 
+                        account, devList, evSrc,
                         allTags, dispTmz, 
                         ',', true/*inclHeader*/, privLabel);
                 case FORMAT_KML:
@@ -3547,22 +3762,22 @@ public class EventUtil
                 case FORMAT_XML:
                 case FORMAT_XMLOLD:
                     return this.writeEvents_XML(pwout, 
-                        account, devList, 
+                        account, devList, evSrc,
                         allTags, dispTmz,
                         privLabel, (formatEnum == FORMAT_XMLOLD));
                 case FORMAT_GPX:
                     return this.writeEvents_GPX(pwout, 
-                        account, devList, 
+                        account, devList, evSrc,
                         privLabel);
                 case FORMAT_JSON:
                 case FORMAT_JSONX:
                     return this.writeEvents_JSON(pwout, 
-                        account, devList, 
+                        account, devList, evSrc,
                         allTags, dispTmz,
                         privLabel);
                 case FORMAT_BML:
                     return this.writeEvents_BML(pwout, 
-                        account, devList, 
+                        account, devList, evSrc,
                         privLabel);
                 case FORMAT_AEMP:
                     return this.writeEvents_AEMP(pwout, 
@@ -0,0 +1,212 @@
+// ----------------------------------------------------------------------------
+// Copyright 2007-2014, GeoTelematic Solutions, Inc.
+// All rights reserved
+// ----------------------------------------------------------------------------
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ----------------------------------------------------------------------------
+// Description:
+//  Snapshot of the last valid-GPS EventData record for each Device, used to
+//  serve fleet map updates without selecting the last event of every device.
+// ----------------------------------------------------------------------------
+package org.opengts.db;
+
+import java.lang.*;
+import java.util.*;
+
+import org.opengts.util.*;
+import org.opengts.dbtools.*;
+
+import org.opengts.db.tables.*;
+
+/**
+*** <code>LastEventSnapshot</code> maintains the last valid-GPS EventData record for
+*** each Device.<br>
+*** Entries are updated when read from the EventData table, and when an event is inserted
+*** (or its address updated) by this JVM, if "LastEventSnapshot.updateOnInsert" is true
+*** (by default, only within the servlet context which serves the fleet map).  Since events may also be inserted by other
+*** processes, an entry is only used while it is at least as recent as the Device
+*** "lastEventTimestamp", which is available from the Device record the caller has
+*** already loaded.
+**/
+
+public class LastEventSnapshot
+{
+
+    // ------------------------------------------------------------------------
+
+    private static final int DEFAULT_MAX_SIZE = 10000;
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Snapshot entry
+    **/
+    private static class Snapshot
+    {
+        private EventData event      = null; // null if the device has no valid-GPS events
+        private long      validUntil = 0L;   // Device "lastEventTimestamp" covered by this entry
+        public Snapshot(EventData event, long validUntil) {
+            this.event      = event;
+            this.validUntil = validUntil;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    private static boolean                     didInit      = false;
+    private static CacheMap<String,Snapshot>   snapshotMap  = null;
+    private static boolean                     updOnInsert  = false;
+
+    /* initialize snapshot cache */
+    private static CacheMap<String,Snapshot> _getSnapshotMap()
+    {
+        if (!didInit) {
+            synchronized (LastEventSnapshot.class) {
+                if (!didInit) {
+                    int maxSize = RTConfig.getInt(DBConfig.PROP_LastEventSnapshot_maxSize, DEFAULT_MAX_SIZE);
+                    if (maxSize > 0) {
+                        snapshotMap = new CacheMap<String,Snapshot>(maxSize, 0L/*no expiration*/);
+                    }
+                    // DCS processes do not read the snapshot, so copying each inserted event is wasted
+                    updOnInsert = RTConfig.getBoolean(DBConfig.PROP_LastEventSnapshot_updateOnInsert, RTConfig.isWebApp());
+                    didInit = true;
+                }
+            }
+        }
+        return snapshotMap;
+    }
+
+    /**
+    *** Returns true if the last event snapshot is enabled
+    **/
+    public static boolean IsEnabled()
+    {
+        return (LastEventSnapshot._getSnapshotMap() != null);
+    }
+
+    /**
+    *** Returns true if inserted events update the last event snapshot
+    **/
+    public static boolean IsUpdateOnInsert()
+    {
+        return (LastEventSnapshot._getSnapshotMap() != null) && updOnInsert;
+    }
+
+    /**
+    *** Returns a String representation of the snapshot cache statistics
+    **/
+    public static String getStatistics()
+    {
+        CacheMap<String,Snapshot> map = LastEventSnapshot._getSnapshotMap();
+        return (map != null)? map.toString() : "disabled";
+    }
+
+    /* snapshot key */
+    private static String _key(String acctID, String devID)
+    {
+        return acctID + "/" + devID;
+    }
+
+    /* return a copy of the specified event (snapshot events are shared between threads) */
+    private static EventData _copyEvent(EventData ev)
+    {
+        if (ev == null) {
+            return null;
+        }
+        try {
+            EventData.Key evKey = new EventData.Key();
+            evKey.getFieldValues().setFieldValues(ev.getRecordKey().getFieldValues(), true/*setPrimaryKey*/, false/*requireAll*/);
+            return evKey.getDBRecord();
+        } catch (DBException dbe) {
+            Print.logException("Unable to copy EventData", dbe);
+            return null;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Updates the snapshot with a newly inserted event (called by "Device.insertEventData").
+    *** Ignored unless "LastEventSnapshot.updateOnInsert" is true.
+    *** @param device  The Device which inserted the event
+    *** @param ev      The inserted EventData record
+    **/
+    public static void update(Device device, EventData ev)
+    {
+        if (!LastEventSnapshot.IsUpdateOnInsert()) {
+            return;
+        }
+        CacheMap<String,Snapshot> map = LastEventSnapshot._getSnapshotMap();
+        if ((device == null) || (ev == null) || !ev.isValidGeoPoint()) {
+            return;
+        }
+        String key = LastEventSnapshot._key(device.getAccountID(), device.getDeviceID());
+        Snapshot ss = map.get(key);
+        if ((ss == null) || (ss.event == null) || (ev.getTimestamp() >= ss.event.getTimestamp())) {
+            EventData copy = LastEventSnapshot._copyEvent(ev);
+            if (copy != null) {
+                map.put(key, new Snapshot(copy, ev.getTimestamp()));
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Gets the last valid-GPS EventData record for the specified Device.<br>
+    *** The snapshot is used if it is current with respect to the Device "lastEventTimestamp",
+    *** otherwise the last event is selected from the EventData table and the snapshot updated.
+    *** @param device  The Device
+    *** @return The last valid-GPS EventData record (a copy owned by the caller, referencing
+    ***         the specified Device), or null if the Device has no valid-GPS events
+    *** @throws DBException if a database error occurs
+    **/
+    public static EventData getLastEvent(Device device)
+        throws DBException
+    {
+        if (device == null) {
+            return null;
+        }
+
+        /* snapshot disabled? */
+        CacheMap<String,Snapshot> map = LastEventSnapshot._getSnapshotMap();
+        if (map == null) {
+            return device.getLastEvent(true/*validGPS*/);
+        }
+
+        /* check snapshot */
+        String key = LastEventSnapshot._key(device.getAccountID(), device.getDeviceID());
+        long lastEventTS = device.getLastEventTimestamp();
+        Snapshot ss = map.get(key);
+        if ((ss != null) && (ss.validUntil >= lastEventTS)) {
+            EventData ev = LastEventSnapshot._copyEvent(ss.event);
+            if (ev != null) {
+                ev.setDevice(device);
+            }
+            return ev;
+        }
+
+        /* select last event */
+        EventData ev = device.getLastEvent(true/*validGPS*/); // 'ev' already points to 'device'
+        long validUntil = lastEventTS;
+        if ((ev != null) && (ev.getTimestamp() > validUntil)) {
+            validUntil = ev.getTimestamp();
+        }
+        map.put(key, new Snapshot(LastEventSnapshot._copyEvent(ev), validUntil));
+        return ev;
+
+    }
+
+}
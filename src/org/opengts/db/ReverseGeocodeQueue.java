@@ -0,0 +1,398 @@
+// ----------------------------------------------------------------------------
+// Copyright 2007-2014, GeoTelematic Solutions, Inc.
+// All rights reserved
+// ----------------------------------------------------------------------------
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ----------------------------------------------------------------------------
+// Description:
+//  Background reverse-geocoding of inserted EventData records.
+//  Pending events are coalesced by ReverseGeocodeProvider/locale/grid-cell, so
+//  that a burst of events from an idling vehicle results in a single provider
+//  request.  Requests are rate-limited per ReverseGeocodeProvider, and the
+//  resulting address updates are written using a JDBC batch.
+// ----------------------------------------------------------------------------
+package org.opengts.db;
+
+import java.lang.*;
+import java.util.*;
+
+import org.opengts.util.*;
+import org.opengts.dbtools.*;
+import org.opengts.geocoder.*;
+
+import org.opengts.db.tables.*;
+
+/**
+*** <code>ReverseGeocodeQueue</code> performs deferred ("slow") reverse-geocoding of
+*** inserted EventData records.<br>
+*** Events queued for the same ReverseGeocodeProvider, locale, and grid-cell (see
+*** <code>ReverseGeocodeCache.getCellKey</code>) are coalesced into a single request.
+*** The first event of a request is reverse-geocoded by the provider, and the remaining
+*** events are then resolved from the provider ReverseGeocodeCache.
+**/
+
+public class ReverseGeocodeQueue
+    implements Runnable
+{
+
+    // ------------------------------------------------------------------------
+
+    private static final int     DEFAULT_THREADS            = 4;
+    private static final int     DEFAULT_MAX_QUEUE_SIZE     = 10000;
+    private static final int     DEFAULT_MAX_PENDING_EVENTS = 50000;
+    private static final double  DEFAULT_MAX_PER_SECOND     = 10.0;
+    private static final int     DEFAULT_UPDATE_BATCH_SIZE  = 50;
+
+    // ------------------------------------------------------------------------
+
+    private static ReverseGeocodeQueue rgQueue = null;
+
+    /**
+    *** Gets the global ReverseGeocodeQueue instance
+    *** @return The global ReverseGeocodeQueue instance, or null if disabled
+    **/
+    public static ReverseGeocodeQueue getInstance()
+    {
+        if (rgQueue == null) {
+            synchronized (ReverseGeocodeQueue.class) {
+                if (rgQueue == null) {
+                    int threads = RTConfig.getInt(DBConfig.PROP_ReverseGeocodeQueue_threads, DEFAULT_THREADS);
+                    if (threads > 0) {
+                        rgQueue = new ReverseGeocodeQueue(threads);
+                    }
+                }
+            }
+        }
+        return rgQueue;
+    }
+
+    /**
+    *** Queues the specified EventData record for reverse-geocoding
+    *** @param ev  The EventData record (already inserted)
+    *** @return True if the event was queued, false if the queue is disabled or full
+    ***         (the caller is then responsible for updating the address)
+    **/
+    public static boolean enqueue(EventData ev)
+    {
+        ReverseGeocodeQueue rgq = ReverseGeocodeQueue.getInstance();
+        return (rgq != null)? rgq.add(ev) : false;
+    }
+
+    /**
+    *** Returns a String representation of the queue statistics
+    **/
+    public static String getStatistics()
+    {
+        ReverseGeocodeQueue rgq = ReverseGeocodeQueue.getInstance();
+        return (rgq != null)? rgq.toString() : "disabled";
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Coalesced reverse-geocode request
+    **/
+    private static class Request
+    {
+        private String                      providerName = null;
+        private long                        queueTimeMS  = 0L;
+        private java.util.List<EventData>   events       = new Vector<EventData>();
+        public Request(String providerName) {
+            this.providerName = providerName;
+            this.queueTimeMS  = DateTime.getCurrentTimeMillis();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    private Object                  queueLock       = new Object();
+    private Map<String,Request>     pending         = new LinkedHashMap<String,Request>();
+    private int                     pendingEvents   = 0;
+    private int                     activeRequests  = 0;
+    private Map<String,Long>        nextRequestMS   = new HashMap<String,Long>();
+
+    private long                    queuedCount     = 0L;
+    private long                    coalescedCount  = 0L;
+    private long                    requestCount    = 0L;
+    private long                    updateCount     = 0L;
+    private long                    rejectCount     = 0L;
+    private long                    totalLatencyMS  = 0L;
+    private long                    maxLatencyMS    = 0L;
+
+    /**
+    *** Constructor
+    *** @param threads  The number of worker threads
+    **/
+    private ReverseGeocodeQueue(int threads)
+    {
+        super();
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(this, "ReverseGeocodeQueue_" + (i + 1));
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Queues the specified EventData record for reverse-geocoding
+    *** @param ev  The EventData record (already inserted)
+    *** @return True if the event was queued, false if the queue is full (either the
+    ***         number of pending requests, or the number of pending events)
+    **/
+    public boolean add(EventData ev)
+    {
+        if (ev == null) {
+            return false;
+        }
+
+        /* GeoPoint (same selection as "EventData.updateAddress") */
+        GeoPoint gp = ev.getGeoPoint();
+        if (!GeoPoint.isValid(gp)) {
+            gp = new GeoPoint(ev.getCellLatitude(), ev.getCellLongitude());
+            if (!GeoPoint.isValid(gp)) {
+                return false;
+            }
+        }
+
+        /* ReverseGeocodeProvider/locale */
+        Account           acct      = ev.getAccount();
+        BasicPrivateLabel privLabel = (acct != null)? acct.getPrivateLabel() : null;
+        ReverseGeocodeProvider rgp  = (privLabel != null)? privLabel.getReverseGeocodeProvider() : null;
+        String rgpName = (rgp != null)? rgp.getName() : "";
+        String locale  = (privLabel != null)? privLabel.getLocaleString() : "";
+        String key     = rgpName + "/" + locale + "/" + ReverseGeocodeCache.getCellKey(gp);
+
+        /* queue */
+        int maxSize   = RTConfig.getInt(DBConfig.PROP_ReverseGeocodeQueue_maxQueueSize    , DEFAULT_MAX_QUEUE_SIZE);
+        int maxEvents = RTConfig.getInt(DBConfig.PROP_ReverseGeocodeQueue_maxPendingEvents, DEFAULT_MAX_PENDING_EVENTS);
+        synchronized (this.queueLock) {
+            Request req = this.pending.get(key);
+            if ((maxEvents > 0) && (this.pendingEvents >= maxEvents)) {
+                // coalesced events are also held until their request is processed
+                this.rejectCount++;
+                return false;
+            } else
+            if (req != null) {
+                this.coalescedCount++;
+            } else
+            if ((maxSize > 0) && (this.pending.size() >= maxSize)) {
+                this.rejectCount++;
+                return false;
+            } else {
+                req = new Request(rgpName);
+                this.pending.put(key, req);
+                this.queueLock.notify();
+            }
+            req.events.add(ev);
+            this.pendingEvents++;
+            this.queuedCount++;
+        }
+        return true;
+
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Gets the number of pending (coalesced) requests
+    **/
+    public int getQueueDepth()
+    {
+        synchronized (this.queueLock) {
+            return this.pending.size();
+        }
+    }
+
+    /**
+    *** Gets the number of pending EventData records
+    **/
+    public int getPendingEventCount()
+    {
+        synchronized (this.queueLock) {
+            return this.pendingEvents;
+        }
+    }
+
+    /**
+    *** Returns true if there are no pending or active requests
+    **/
+    public boolean isIdle()
+    {
+        synchronized (this.queueLock) {
+            return this.pending.isEmpty() && (this.activeRequests == 0);
+        }
+    }
+
+    /**
+    *** Gets the average time (in milliseconds) from queueing an event until its
+    *** address has been updated
+    **/
+    public long getAverageLatencyMS()
+    {
+        synchronized (this.queueLock) {
+            return (this.updateCount > 0L)? (this.totalLatencyMS / this.updateCount) : 0L;
+        }
+    }
+
+    /**
+    *** Gets the maximum time (in milliseconds) from queueing an event until its
+    *** address has been updated
+    **/
+    public long getMaximumLatencyMS()
+    {
+        synchronized (this.queueLock) {
+            return this.maxLatencyMS;
+        }
+    }
+
+    /**
+    *** Returns a String representation of the queue statistics
+    **/
+    public String toString()
+    {
+        synchronized (this.queueLock) {
+            StringBuffer sb = new StringBuffer();
+            sb.append("depth=").append(this.pending.size());
+            sb.append(", pendingEvents=").append(this.pendingEvents);
+            sb.append(", queued=").append(this.queuedCount);
+            sb.append(", coalesced=").append(this.coalescedCount);
+            sb.append(", requests=").append(this.requestCount);
+            sb.append(", updated=").append(this.updateCount);
+            sb.append(", rejected=").append(this.rejectCount);
+            sb.append(", avgLatencyMS=").append((this.updateCount > 0L)? (this.totalLatencyMS / this.updateCount) : 0L);
+            sb.append(", maxLatencyMS=").append(this.maxLatencyMS);
+            return sb.toString();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Reserves the next request time slot for the specified provider
+    *** @return The number of milliseconds to wait before sending the request
+    **/
+    private long _reserveRequestSlot(String providerName)
+    {
+        double maxPerSec = RTConfig.getDouble(DBConfig.PROP_ReverseGeocodeQueue_maxPerSecond, DEFAULT_MAX_PER_SECOND);
+        if (maxPerSec <= 0.0) {
+            return 0L;
+        }
+        long intervalMS = Math.round(1000.0 / maxPerSec);
+        long nowMS      = DateTime.getCurrentTimeMillis();
+        synchronized (this.nextRequestMS) {
+            Long nextMS = this.nextRequestMS.get(providerName);
+            long slotMS = ((nextMS != null) && (nextMS.longValue() > nowMS))? nextMS.longValue() : nowMS;
+            this.nextRequestMS.put(providerName, new Long(slotMS + intervalMS));
+            return slotMS - nowMS;
+        }
+    }
+
+    /**
+    *** Worker thread
+    **/
+    public void run()
+    {
+        for (;;) {
+
+            /* wait for the next request */
+            Request req = null;
+            synchronized (this.queueLock) {
+                while (this.pending.isEmpty()) {
+                    try { this.queueLock.wait(); } catch (InterruptedException ie) { /* ignore */ }
+                }
+                Iterator<Request> i = this.pending.values().iterator();
+                req = i.next();
+                i.remove(); // events added after this point start a new request
+                this.pendingEvents -= req.events.size();
+                this.activeRequests++;
+            }
+
+            /* process */
+            try {
+                long waitMS = this._reserveRequestSlot(req.providerName);
+                if (waitMS > 0L) {
+                    try { Thread.sleep(waitMS); } catch (InterruptedException ie) { /* ignore */ }
+                }
+                this._processRequest(req);
+            } catch (Throwable th) {
+                Print.logException("Reverse-geocode queue error", th);
+            } finally {
+                synchronized (this.queueLock) {
+                    this.activeRequests--;
+                    this.requestCount++;
+                }
+            }
+
+        }
+    }
+
+    /**
+    *** Reverse-geocodes the events of the specified request, and updates the changed events
+    **/
+    private void _processRequest(Request req)
+    {
+
+        /* reverse-geocode */
+        // only the first event should require a ReverseGeocodeProvider request, the
+        // remaining events are in the same grid-cell, and will be found in the cache.
+        java.util.List<EventData> updEvents = new Vector<EventData>();
+        Set<String> updFields = new HashSet<String>();
+        for (EventData ev : req.events) {
+            try {
+                Set<String> updf = ev.updateAddress(false/*!fastOnly*/);
+                if (!ListTools.isEmpty(updf)) {
+                    updEvents.add(ev);
+                    updFields.addAll(updf);
+                }
+            } catch (SlowOperationException soe) {
+                // this will not occur ('fastOnly' is false)
+            } catch (Throwable th) {
+                Print.logException("Address update error", th);
+            }
+        }
+
+        /* update */
+        int batchSize = RTConfig.getInt(DBConfig.PROP_ReverseGeocodeQueue_updateBatchSize, DEFAULT_UPDATE_BATCH_SIZE);
+        if (batchSize <= 0) { batchSize = 1; }
+        for (int s = 0; s < updEvents.size(); s += batchSize) {
+            java.util.List<EventData> batch = updEvents.subList(s, Math.min(s + batchSize, updEvents.size()));
+            try {
+                EventData.updateRecords(batch, new HashSet<String>(updFields));
+                for (EventData ev : batch) {
+                    Print.logInfo("EventData address: [%s/%s] %s: %s",
+                        ev.getAccountID(), ev.getDeviceID(),
+                        ev.getGeoPoint().toString(), ev.getAddress());
+                    LastEventSnapshot.update(ev.getDevice(), ev);
+                }
+            } catch (DBException dbe) {
+                Print.logError("EventData update error: " + dbe);
+            }
+        }
+
+        /* latency */
+        long latencyMS = DateTime.getCurrentTimeMillis() - req.queueTimeMS;
+        synchronized (this.queueLock) {
+            this.updateCount    += updEvents.size();
+            this.totalLatencyMS += latencyMS * updEvents.size();
+            if (latencyMS > this.maxLatencyMS) {
+                this.maxLatencyMS = latencyMS;
+            }
+        }
+
+    }
+
+}
@@ -24,6 +24,8 @@ package org.opengts.db;
 
 import java.lang.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 import org.opengts.util.*;
 import org.opengts.dbtools.*;
@@ -90,6 +92,407 @@ public abstract class RuleFactoryAdapter
         return null;
     }
 
+    // ------------------------------------------------------------------------
+    // ------------------------------------------------------------------------
+    // Compiled selectors
+    // Subclasses which override "compileSelector" allow selectors to be parsed
+    // once and then evaluated directly against each EventData record.
+
+    /**
+    *** Interface for a pre-parsed rule selector
+    **/
+    public static interface CompiledSelector
+    {
+
+        /**
+        *** Returns the selector text from which this instance was compiled
+        *** @return The selector text
+        **/
+        public String getSelector();
+
+        /**
+        *** Returns the status codes which this selector could possibly match.
+        *** A null return value indicates that any status code may match, and an 
+        *** empty array indicates that this selector can never match.
+        *** @return The candidate status codes, or null for all status codes
+        **/
+        public int[] getStatusCodes();
+
+        /**
+        *** Returns true if this selector matches the specified event
+        *** @param event  The EventData record
+        *** @return True if this selector matches
+        **/
+        public boolean isMatch(EventData event);
+
+        /**
+        *** Returns the result of evaluating this selector against the specified event
+        *** @param event  The EventData record
+        *** @return The evaluated result
+        **/
+        public Object evaluate(EventData event);
+
+    }
+
+    /**
+    *** Returns true if the specified status code is contained in the list of 
+    *** candidate status codes (a null list matches all status codes)
+    *** @param codes       The candidate status code list
+    *** @param statusCode  The status code to test
+    *** @return True if the status code is a candidate
+    **/
+    public static boolean IsStatusCodeCandidate(int codes[], int statusCode)
+    {
+        if (codes == null) {
+            return true;
+        } else {
+            for (int i = 0; i < codes.length; i++) {
+                if (codes[i] == statusCode) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+    *** Returns true if the specified compiled selector matches the specified event.
+    *** The selector status-code prefilter is checked before the selector is evaluated.
+    *** @param cs     The compiled selector
+    *** @param event  The EventData record
+    *** @return True if the compiled selector matches
+    **/
+    public static boolean IsCompiledSelectorMatch(CompiledSelector cs, EventData event)
+    {
+        if ((cs == null) || (event == null)) {
+            return false;
+        } else
+        if (!IsStatusCodeCandidate(cs.getStatusCodes(),event.getStatusCode())) {
+            return false;
+        } else {
+            return cs.isMatch(event);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** A set of compiled rules, indexed by candidate status code
+    **/
+    public static class CompiledRuleSet
+    {
+
+        private static final int    EMPTY_INDEX[] = new int[0];
+
+        private long                stamp       = 0L;
+        private String              ruleIDs[]   = null;
+        private CompiledSelector    selectors[] = null;
+        private Map<Integer,int[]>  codeIndex   = null;
+        private int                 anyIndex[]  = null;
+
+        /**
+        *** Constructor
+        *** @param stamp      The rule definition stamp at the time this rule set was compiled
+        *** @param ruleIDs    The list of rule-ids
+        *** @param selectors  The compiled selectors (parallel to the list of rule-ids)
+        **/
+        public CompiledRuleSet(long stamp, String ruleIDs[], CompiledSelector selectors[])
+        {
+            int size = Math.min(ListTools.size(ruleIDs), ListTools.size(selectors));
+            this.stamp     = stamp;
+            this.ruleIDs   = new String[size];
+            this.selectors = new CompiledSelector[size];
+            Map<Integer,java.util.List<Integer>> codeList = new HashMap<Integer,java.util.List<Integer>>();
+            java.util.List<Integer> anyList = new Vector<Integer>();
+            for (int i = 0; i < size; i++) {
+                this.ruleIDs[i]   = ruleIDs[i];
+                this.selectors[i] = selectors[i];
+                int codes[] = (selectors[i] != null)? selectors[i].getStatusCodes() : EMPTY_INDEX;
+                if (codes == null) {
+                    anyList.add(new Integer(i));
+                } else {
+                    for (int c = 0; c < codes.length; c++) {
+                        Integer sc = new Integer(codes[c]);
+                        java.util.List<Integer> ndxList = codeList.get(sc);
+                        if (ndxList == null) {
+                            ndxList = new Vector<Integer>();
+                            codeList.put(sc, ndxList);
+                        }
+                        if (ndxList.isEmpty() || (ndxList.get(ndxList.size() - 1).intValue() != i)) {
+                            ndxList.add(new Integer(i));
+                        }
+                    }
+                }
+            }
+            this.codeIndex = new HashMap<Integer,int[]>();
+            for (Integer sc : codeList.keySet()) {
+                this.codeIndex.put(sc, CompiledRuleSet._toIntArray(codeList.get(sc)));
+            }
+            this.anyIndex = CompiledRuleSet._toIntArray(anyList);
+        }
+
+        private static int[] _toIntArray(java.util.List<Integer> list)
+        {
+            int a[] = new int[list.size()];
+            for (int i = 0; i < a.length; i++) {
+                a[i] = list.get(i).intValue();
+            }
+            return a;
+        }
+
+        /**
+        *** Gets the rule definition stamp at the time this rule set was compiled
+        *** @return The rule definition stamp
+        **/
+        public long getStamp()
+        {
+            return this.stamp;
+        }
+
+        /**
+        *** Gets the number of rules in this set
+        *** @return The number of rules
+        **/
+        public int size()
+        {
+            return this.ruleIDs.length;
+        }
+
+        /**
+        *** Gets the number of rules which must be evaluated for the specified status code
+        *** @param statusCode  The status code
+        *** @return The number of candidate rules
+        **/
+        public int getCandidateCount(int statusCode)
+        {
+            int codeNdx[] = this.codeIndex.get(new Integer(statusCode));
+            return this.anyIndex.length + ((codeNdx != null)? codeNdx.length : 0);
+        }
+
+        /**
+        *** Returns the list of rule-ids which match the specified event, in rule order.
+        *** Only those rules which are candidates for the event status code are evaluated.
+        *** @param event  The EventData record
+        *** @return The list of matching rule-ids (never null)
+        **/
+        public java.util.List<String> getMatchingRuleIDs(EventData event)
+        {
+            java.util.List<String> match = new Vector<String>();
+            if (event != null) {
+                int codeNdx[] = this.codeIndex.get(new Integer(event.getStatusCode()));
+                if (codeNdx == null) { codeNdx = EMPTY_INDEX; }
+                int anyNdx[]  = this.anyIndex;
+                // merge both candidate lists, preserving rule order
+                int c = 0, a = 0;
+                while ((c < codeNdx.length) || (a < anyNdx.length)) {
+                    int r;
+                    if (a >= anyNdx.length) {
+                        r = codeNdx[c++];
+                    } else
+                    if ((c >= codeNdx.length) || (anyNdx[a] < codeNdx[c])) {
+                        r = anyNdx[a++];
+                    } else {
+                        r = codeNdx[c++];
+                    }
+                    if (this.selectors[r].isMatch(event)) {
+                        match.add(this.ruleIDs[r]);
+                    }
+                }
+            }
+            return match;
+        }
+
+    }
+
+    // ------------------------------------------------------------------------
+
+    /* compiled selector cache for a single account */
+    private static class AccountSelectors
+    {
+        private long                                    configVers = 0L;
+        private ConcurrentHashMap<String,CompiledSelector> selMap  = null;
+        private volatile CompiledRuleSet                ruleSet    = null;
+        public AccountSelectors(long configVers) {
+            this.configVers = configVers;
+            this.selMap     = new ConcurrentHashMap<String,CompiledSelector>();
+        }
+        public long getConfigVersion() {
+            return this.configVers;
+        }
+    }
+
+    /* maximum number of compiled selectors cached per account */
+    private static final int    MAX_COMPILED_SELECTORS      = 16384;
+
+    /* key used for selectors which are not associated with an account */
+    private static final String NO_ACCOUNT_KEY              = "";
+
+    private ConcurrentHashMap<String,AccountSelectors> compiledSelMap = 
+        new ConcurrentHashMap<String,AccountSelectors>();
+
+    /* returns the compiled selector cache for the specified account */
+    private AccountSelectors _getAccountSelectors(String accountID)
+    {
+        String key = (accountID != null)? accountID : NO_ACCOUNT_KEY;
+        long   cfgVers = RTConfig.getConfigVersion();
+        AccountSelectors as = this.compiledSelMap.get(key);
+        if ((as == null) || (as.getConfigVersion() != cfgVers)) {
+            // the runtime configuration may affect how selectors are compiled
+            AccountSelectors newAS = new AccountSelectors(cfgVers);
+            if (as == null) {
+                AccountSelectors prevAS = this.compiledSelMap.putIfAbsent(key, newAS);
+                as = (prevAS != null)? prevAS : newAS;
+            } else {
+                this.compiledSelMap.put(key, newAS);
+                as = newAS;
+            }
+        }
+        return as;
+    }
+
+    /**
+    *** Compiles the specified selector.  Subclasses which support compiled
+    *** selectors should override this method.
+    *** @param selector  The selector to compile
+    *** @return The compiled selector, or null if compiled selectors are not 
+    ***    supported by this RuleFactory, or the selector is blank.
+    **/
+    protected CompiledSelector compileSelector(String selector)
+    {
+        return null;
+    }
+
+    /**
+    *** Returns the compiled selector for the specified selector text, compiling
+    *** and caching the selector for the specified account if necessary.
+    *** @param accountID  The account which owns the selector (may be null)
+    *** @param selector   The selector to compile
+    *** @return The compiled selector, or null if compiled selectors are not 
+    ***    supported by this RuleFactory, or the selector is blank.
+    **/
+    public CompiledSelector getCompiledSelector(String accountID, String selector)
+    {
+        if (StringTools.isBlank(selector)) {
+            return null;
+        }
+        AccountSelectors as = this._getAccountSelectors(accountID);
+        CompiledSelector cs = as.selMap.get(selector);
+        if (cs == null) {
+            cs = this.compileSelector(selector);
+            if (cs != null) {
+                if (as.selMap.size() >= MAX_COMPILED_SELECTORS) {
+                    // unlikely, but don't let the cache grow unbounded
+                    as.selMap.clear();
+                }
+                as.selMap.put(selector, cs);
+            }
+        }
+        return cs;
+    }
+
+    /**
+    *** Returns true if the specified selector matches the specified event.
+    *** The compiled form of the selector is used if supported by this RuleFactory,
+    *** otherwise the selector text is evaluated with "isSelectorMatch".
+    *** @param selector  The selector
+    *** @param event     The EventData record
+    *** @return True if the selector matches
+    **/
+    public boolean isCompiledSelectorMatch(String selector, EventData event)
+    {
+        if ((event == null) || StringTools.isBlank(selector)) {
+            return false;
+        }
+        CompiledSelector cs = this.getCompiledSelector(event.getAccountID(), selector);
+        if (cs != null) {
+            return RuleFactoryAdapter.IsCompiledSelectorMatch(cs, event);
+        } else {
+            return this.isSelectorMatch(selector, event);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Returns a stamp which changes whenever the rule definitions for the
+    *** specified Account change.  Subclasses which store rule definitions should 
+    *** override this method (alternatively, "invalidateCompiledRules" may be called
+    *** when a rule definition changes).
+    *** @param account  The Account
+    *** @return The rule definition stamp
+    **/
+    protected long getRuleDefinitionStamp(Account account)
+    {
+        return 0L;
+    }
+
+    /**
+    *** Invalidates the compiled selectors and rules for the specified account
+    *** @param accountID  The account-id, or null to invalidate all accounts
+    **/
+    public void invalidateCompiledRules(String accountID)
+    {
+        if (accountID == null) {
+            this.compiledSelMap.clear();
+        } else {
+            this.compiledSelMap.remove(accountID);
+        }
+    }
+
+    /**
+    *** Compiles the specified list of rule selectors into a CompiledRuleSet.
+    *** Rules with selectors which cannot be compiled are omitted.
+    *** @param accountID  The account which owns the rules
+    *** @param stamp      The rule definition stamp
+    *** @param ruleIDs    The list of rule-ids
+    *** @param selectors  The list of rule selectors (parallel to the list of rule-ids)
+    *** @return The compiled rule set
+    **/
+    public CompiledRuleSet compileRuleSet(String accountID, long stamp, String ruleIDs[], String selectors[])
+    {
+        int size = Math.min(ListTools.size(ruleIDs), ListTools.size(selectors));
+        java.util.List<String>           idList = new Vector<String>();
+        java.util.List<CompiledSelector> csList = new Vector<CompiledSelector>();
+        for (int i = 0; i < size; i++) {
+            CompiledSelector cs = this.getCompiledSelector(accountID, selectors[i]);
+            if (cs != null) {
+                idList.add(ruleIDs[i]);
+                csList.add(cs);
+            }
+        }
+        return new CompiledRuleSet(stamp, 
+            idList.toArray(new String[idList.size()]), 
+            csList.toArray(new CompiledSelector[csList.size()]));
+    }
+
+    /**
+    *** Returns the compiled rule set for the specified Account.  The rule set is
+    *** compiled from "getRuleIDs"/"getRuleSelector", and is cached until the rule 
+    *** definition stamp changes, or the rules are invalidated.
+    *** @param account  The Account
+    *** @return The compiled rule set, or null if the Account is null
+    **/
+    public CompiledRuleSet getCompiledRules(Account account)
+    {
+        if (account == null) {
+            return null;
+        }
+        String accountID = account.getAccountID();
+        long   stamp     = this.getRuleDefinitionStamp(account);
+        AccountSelectors as = this._getAccountSelectors(accountID);
+        CompiledRuleSet rs = as.ruleSet;
+        if ((rs == null) || (rs.getStamp() != stamp)) {
+            String ruleIDs[] = this.getRuleIDs(account);
+            String ruleSel[] = new String[ListTools.size(ruleIDs)];
+            for (int i = 0; i < ruleSel.length; i++) {
+                ruleSel[i] = this.getRuleSelector(account, ruleIDs[i]);
+            }
+            rs = this.compileRuleSet(accountID, stamp, ruleIDs, ruleSel);
+            as.ruleSet = rs;
+        }
+        return rs;
+    }
+
     // ------------------------------------------------------------------------
 
     /**
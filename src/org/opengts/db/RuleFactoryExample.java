@@ -158,23 +158,52 @@ public class RuleFactoryExample
         public String usage();
         public String description();
     }
+
+    /* interface for a rule evaluation function with a pre-parsed argument */
+    private static interface CompiledFunction
+    {
+        public Object evaluate(EventData ev);
+    }
+
+    /* rule evaluation function which may also be compiled */
+    private static abstract class CompilableRuleFunction
+        implements RuleFunction
+    {
+        // override to pre-parse the argument
+        public CompiledFunction compile(final String arg) {
+            final RuleFunction ftn = this;
+            return new CompiledFunction() {
+                public Object evaluate(EventData ev) {
+                    return ftn.evaluate(ev, arg);
+                }
+            };
+        }
+        // override to specify the status codes which this function may match
+        // (null indicates that any status code may match)
+        public int[] getStatusCodes(String arg) {
+            return null;
+        }
+    }
     
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
-    private Map<String,RuleFunction> ftnMap  = null;
+    private Map<String,CompilableRuleFunction> ftnMap  = null;
 
     /* instance of RuleFactory */
     public RuleFactoryExample() 
     {
         super();
-        this.ftnMap = new HashMap<String,RuleFunction>();
+        this.ftnMap = new HashMap<String,CompilableRuleFunction>();
 
         /* panic */
-        this.ftnMap.put(SEL_PANIC, new RuleFunction() {
+        this.ftnMap.put(SEL_PANIC, new CompilableRuleFunction() {
             public Object evaluate(EventData ev, String arg) {
                 return (ev.getStatusCode() == StatusCodes.STATUS_PANIC_ON);
             }
+            public int[] getStatusCodes(String arg) {
+                return new int[] { StatusCodes.STATUS_PANIC_ON };
+            }
             public String usage() {
                 return SEL_PANIC;
             }
@@ -184,11 +213,22 @@ public class RuleFactoryExample
         });
 
         /* status code */
-        this.ftnMap.put(SEL_CODE, new RuleFunction() {
+        this.ftnMap.put(SEL_CODE, new CompilableRuleFunction() {
             public Object evaluate(EventData ev, String arg) {
                 int code = StringTools.parseInt(arg,StatusCodes.STATUS_NONE);
                 return (ev.getStatusCode() == code);
             }
+            public CompiledFunction compile(String arg) {
+                final int code = StringTools.parseInt(arg,StatusCodes.STATUS_NONE);
+                return new CompiledFunction() {
+                    public Object evaluate(EventData ev) {
+                        return (ev.getStatusCode() == code)? Boolean.TRUE : Boolean.FALSE;
+                    }
+                };
+            }
+            public int[] getStatusCodes(String arg) {
+                return new int[] { StringTools.parseInt(arg,StatusCodes.STATUS_NONE) };
+            }
             public String usage() {
                 return SEL_CODE;
             }
@@ -198,7 +238,7 @@ public class RuleFactoryExample
         });
 
         /* vehicle speeds over 100 kph */
-        this.ftnMap.put(SEL_OVER_100_KPH, new RuleFunction() {
+        this.ftnMap.put(SEL_OVER_100_KPH, new CompilableRuleFunction() {
             public Object evaluate(EventData ev, String arg) {
                 return new Boolean(ev.getSpeedKPH() > 100.0);
             }
@@ -211,7 +251,7 @@ public class RuleFactoryExample
         });
 
         /* vehicle stopped */
-        this.ftnMap.put(SEL_IS_STOPPED, new RuleFunction() {
+        this.ftnMap.put(SEL_IS_STOPPED, new CompilableRuleFunction() {
             public Object evaluate(EventData ev, String arg) {
                 return new Boolean(ev.getSpeedKPH() <= 0.0);
             }
@@ -224,11 +264,19 @@ public class RuleFactoryExample
         });
 
         /* vehicle overspeed (with argument) */
-        this.ftnMap.put(SEL_OVER_SPEED, new RuleFunction() {
+        this.ftnMap.put(SEL_OVER_SPEED, new CompilableRuleFunction() {
             public Object evaluate(EventData ev, String arg) {
                 double maxSpeed = StringTools.parseDouble(arg,99999.9);
                 return new Boolean(ev.getSpeedKPH() > maxSpeed);
             }
+            public CompiledFunction compile(String arg) {
+                final double maxSpeed = StringTools.parseDouble(arg,99999.9);
+                return new CompiledFunction() {
+                    public Object evaluate(EventData ev) {
+                        return (ev.getSpeedKPH() > maxSpeed)? Boolean.TRUE : Boolean.FALSE;
+                    }
+                };
+            }
             public String usage() {
                 return SEL_OVER_SPEED;
             }
@@ -302,7 +350,7 @@ public class RuleFactoryExample
     // ------------------------------------------------------------------------
 
     /* return RuleFunction for specified selector */
-    private RuleFunction getFunction(String selector)
+    private CompilableRuleFunction getFunction(String selector)
     {
         if (StringTools.isBlank(selector)) {
             return null;
@@ -310,7 +358,7 @@ public class RuleFactoryExample
             int p = indexOfArgSeparator(selector);
             String sel = (p >= 0)? selector.substring(0,p) : selector;
             String arg = (p >= 0)? selector.substring(p+1) : null; // <-- ignored here
-            RuleFunction ftn = this.ftnMap.get(sel); // case sensitive
+            CompilableRuleFunction ftn = this.ftnMap.get(sel); // case sensitive
             if (ftn == null) {
                 Print.logWarn("Function for selector not found: " + selector);
             }
@@ -399,6 +447,115 @@ public class RuleFactoryExample
 
     // ------------------------------------------------------------------------
 
+    /* returns true if the specified evaluated result represents a 'match' */
+    private static boolean _isTrue(Object eval)
+    {
+        if (eval == null) {
+            // no valid result, return false
+            return false;
+        } else
+        if (eval instanceof Boolean) {
+            // return Boolean value
+            return ((Boolean)eval).booleanValue();
+        } else
+        if (eval instanceof Number) {
+            // return true if Number is non-zero
+            return (((Number)eval).longValue() != 0L);
+        } else {
+            // return true for everything else
+            return true;
+        }
+    }
+
+    /* compiled selector: a comma-separated list of functions, any of which may match */
+    private static class ExampleSelector
+        implements CompiledSelector
+    {
+        private String           selector    = null;
+        private CompiledFunction terms[]     = null; // null entries for unknown functions
+        private int              statCodes[] = null;
+        public ExampleSelector(String selector, CompiledFunction terms[], int statCodes[]) {
+            this.selector  = selector;
+            this.terms     = terms;
+            this.statCodes = statCodes;
+        }
+        public String getSelector() {
+            return this.selector;
+        }
+        public int[] getStatusCodes() {
+            return this.statCodes;
+        }
+        public boolean isMatch(EventData event) {
+            if (event != null) {
+                for (int i = 0; i < this.terms.length; i++) {
+                    if ((this.terms[i] != null) && _isTrue(this.terms[i].evaluate(event))) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+        public Object evaluate(EventData event) {
+            Object eval = null;
+            for (int i = 0; i < this.terms.length; i++) {
+                eval = (this.terms[i] != null)? this.terms[i].evaluate(event) : null;
+                if ((eval instanceof Boolean) && ((Boolean)eval).booleanValue()) {
+                    // return Boolean value
+                    return eval;
+                } else
+                if ((eval instanceof Number) && (((Number)eval).longValue() != 0L)) {
+                    // return Number value
+                    return eval;
+                }
+            }
+            return eval; // return last value
+        }
+        public String toString() {
+            return this.selector;
+        }
+    }
+
+    /* parse the specified selector into a compiled selector */
+    protected CompiledSelector compileSelector(String selector)
+    {
+        if (StringTools.isBlank(selector)) {
+            return null;
+        }
+        String selList[] = StringTools.split(selector,',');
+        CompiledFunction terms[] = new CompiledFunction[selList.length];
+        Set<Integer> codeSet = new OrderedSet<Integer>();
+        boolean anyCode = false;
+        for (int i = 0; i < selList.length; i++) {
+            CompilableRuleFunction ftn = this.getFunction(selList[i]);
+            if (ftn == null) {
+                // no function, never matches
+                terms[i] = null;
+                continue;
+            }
+            String arg = this.getArgument(selList[i]);
+            terms[i] = ftn.compile(arg);
+            int codes[] = ftn.getStatusCodes(arg);
+            if (codes == null) {
+                anyCode = true;
+            } else {
+                for (int c = 0; c < codes.length; c++) {
+                    codeSet.add(new Integer(codes[c]));
+                }
+            }
+        }
+        int statCodes[] = null;
+        if (!anyCode) {
+            statCodes = new int[codeSet.size()];
+            int c = 0;
+            for (Integer sc : codeSet) {
+                statCodes[c++] = sc.intValue();
+            }
+        }
+        return new ExampleSelector(selector, terms, statCodes);
+    }
+
+    // ------------------------------------------------------------------------
+
     /* return true if the specified selector matches the specified event record */
     public boolean isSelectorMatch(String selector, Account account) 
     {
@@ -409,6 +566,17 @@ public class RuleFactoryExample
 
     /* return true if the specified selector matches the specified event record */
     public boolean isSelectorMatch(String selector, EventData event) 
+    {
+        if ((event != null) && !StringTools.isBlank(selector)) {
+            CompiledSelector cs = this.getCompiledSelector(event.getAccountID(), selector);
+            return RuleFactoryAdapter.IsCompiledSelectorMatch(cs, event);
+        }
+        return false;
+    }
+
+    /* return true if the specified selector matches the specified event record */
+    // (parses the selector on each call, used for comparison with the compiled selector)
+    private boolean _isSelectorMatchText(String selector, EventData event) 
     {
         if ((event != null) && !StringTools.isBlank(selector)) {
             String selList[] = StringTools.split(selector,',');
@@ -440,23 +608,7 @@ public class RuleFactoryExample
         /* evaluate function */
         String arg = this.getArgument(selector);
         Object eval = ftn.evaluate(event,arg);
-        if (eval == null) {
-            // no valid result, return false
-            return false;
-        }
-        
-        /* return boolean results */
-        if (eval instanceof Boolean) {
-            // return Boolean value
-            return ((Boolean)eval).booleanValue();
-        } else
-        if (eval instanceof Number) {
-            // return true if Number is non-zero
-            return (((Number)eval).longValue() != 0L);
-        } else {
-            // return true for everything else
-            return true;
-        }
+        return RuleFactoryExample._isTrue(eval);
 
     }
 
@@ -473,37 +625,9 @@ public class RuleFactoryExample
     /* return the result of the specified selector */
     public Object evaluateSelector(String selector, EventData event) 
     {
-        String selList[] = StringTools.split(selector,',');
-        Object eval = null;
-        for (int i = 0; i < selList.length; i++) {
-            eval = this._evaluateSelector(selList[i],event);
-            if ((eval instanceof Boolean) && ((Boolean)eval).booleanValue()) {
-                // return Boolean value
-                return eval;
-            } else
-            if ((eval instanceof Number) && (((Number)eval).longValue() != 0L)) {
-                // return Number value
-                return eval;
-            }
-        }
-        return eval; // return last value
-    }
-
-    /* return the result of the specified selector */
-    private Object _evaluateSelector(String selector, EventData event) 
-    {
-
-        /* get function */
-        RuleFunction ftn = this.getFunction(selector);
-        if (ftn == null) {
-            // no function
-            return null;
-        }
-        
-        /* evaluate and return */
-        String arg = this.getArgument(selector);
-        return ftn.evaluate(event,arg);
-
+        String accountID = (event != null)? event.getAccountID() : null;
+        CompiledSelector cs = this.getCompiledSelector(accountID, selector);
+        return (cs != null)? cs.evaluate(event) : null;
     }
 
     // ------------------------------------------------------------------------
@@ -548,9 +672,20 @@ public class RuleFactoryExample
             RuleFactoryExample._sendNotification(event, actionMask);
             return actionMask;
         }
-            
-        // other rules/selectors can be evaluated here
-        // IE. loop through other selectors: this.executeSelector(ruleSel[i], event);
+
+        /* Account rules */
+        // Only those rules which are candidates for the event status code are evaluated.
+        // (this example does not define any Account rules, see "getRuleIDs")
+        CompiledRuleSet ruleSet = this.getCompiledRules(event.getAccount());
+        if ((ruleSet != null) && (ruleSet.size() > 0)) {
+            java.util.List<String> ruleIDs = ruleSet.getMatchingRuleIDs(event);
+            if (!ListTools.isEmpty(ruleIDs)) {
+                Print.logInfo("Rules matched: " + StringTools.join(ruleIDs,','));
+                int actionMask = RuleFactory.ACTION_DEFAULT;
+                RuleFactoryExample._sendNotification(event, actionMask);
+                return actionMask;
+            }
+        }
 
         /* no triggered rules */
         return -1;
@@ -773,7 +908,82 @@ public class RuleFactoryExample
         Print.logInfo("Match: " + sel + " ==> " + ruleFact.isSelectorMatch(sel, event));
     }
     
+    /* compare parsed and compiled rule evaluation */
+    private static void benchmarkRules(RuleFactoryExample ruleFact, int ruleCount, int eventCount)
+    {
+        String accountID = "bench";
+
+        /* rules */
+        int    codes[]   = new int[] {
+            StatusCodes.STATUS_LOCATION,
+            StatusCodes.STATUS_MOTION_IN_MOTION,
+            StatusCodes.STATUS_MOTION_STOP,
+            StatusCodes.STATUS_IGNITION_ON,
+            StatusCodes.STATUS_PANIC_ON,
+        };
+        String ruleIDs[] = new String[ruleCount];
+        String ruleSel[] = new String[ruleCount];
+        for (int r = 0; r < ruleCount; r++) {
+            ruleIDs[r] = "rule" + r;
+            switch (r % 5) {
+                case 0 : ruleSel[r] = SEL_CODE + ":" + (codes[r % codes.length] + (r % 64)); break;
+                case 1 : ruleSel[r] = SEL_PANIC; break;
+                case 2 : ruleSel[r] = SEL_OVER_SPEED + "(" + (50 + (r % 100)) + ")"; break;
+                case 3 : ruleSel[r] = SEL_CODE + ":" + codes[r % codes.length] + "," + SEL_PANIC; break;
+                default: ruleSel[r] = SEL_IS_STOPPED + "," + SEL_OVER_100_KPH; break;
+            }
+        }
+
+        /* events */
+        EventData events[] = new EventData[64];
+        for (int e = 0; e < events.length; e++) {
+            int code = codes[e % codes.length];
+            EventData.Key evKey = new EventData.Key(accountID,"bench",DateTime.getCurrentTimeSec() + e,code);
+            events[e] = evKey.getDBRecord();
+            events[e].setSpeedKPH((double)((e * 7) % 140));
+        }
+
+        /* compile */
+        long compStartNS = System.nanoTime();
+        CompiledRuleSet ruleSet = ruleFact.compileRuleSet(accountID, 0L, ruleIDs, ruleSel);
+        long compNS = System.nanoTime() - compStartNS;
+        Print.sysPrintln("Compiled " + ruleSet.size() + " rules in " + (compNS / 1000L) + " us");
+
+        /* parsed */
+        long parsedMatch = 0L;
+        long parsedStartNS = System.nanoTime();
+        for (int n = 0; n < eventCount; n++) {
+            EventData ev = events[n % events.length];
+            for (int r = 0; r < ruleSel.length; r++) {
+                if (ruleFact._isSelectorMatchText(ruleSel[r], ev)) {
+                    parsedMatch++;
+                }
+            }
+        }
+        long parsedNS = System.nanoTime() - parsedStartNS;
+
+        /* compiled */
+        long compMatch = 0L;
+        long compStartNS2 = System.nanoTime();
+        for (int n = 0; n < eventCount; n++) {
+            EventData ev = events[n % events.length];
+            compMatch += ruleSet.getMatchingRuleIDs(ev).size();
+        }
+        long compiledNS = System.nanoTime() - compStartNS2;
+
+        /* results */
+        Print.sysPrintln("Parsed  : " + (parsedNS   / eventCount) + " ns/event (matches=" + parsedMatch + ")");
+        Print.sysPrintln("Compiled: " + (compiledNS / eventCount) + " ns/event (matches=" + compMatch   + ")");
+        if (parsedMatch != compMatch) {
+            Print.sysPrintln("ERROR: parsed/compiled match counts differ!");
+        }
+
+    }
+
     /* test example RuleFactory */
+    // Options:
+    //   -bench=<rules>     Compare parsed/compiled evaluation for the specified number of rules
+    //   -events=<count>    Number of events evaluated in the benchmark [default 2000]
     public static void main(String argv[])
     {
         DBConfig.cmdLineInit(argv,true);
@@ -797,6 +1007,13 @@ public class RuleFactoryExample
         printMatch(ruleFact, evRcd, SEL_OVER_SPEED + ":" + 99.0);
         printMatch(ruleFact, evRcd, SEL_OVER_SPEED + ":" + 106.0);
 
+        /* benchmark */
+        int benchRules = RTConfig.getInt("bench", 0);
+        if (benchRules > 0) {
+            int events = RTConfig.getInt("events", 2000);
+            RuleFactoryExample.benchmarkRules((RuleFactoryExample)ruleFact, benchRules, events);
+        }
+
     }
     
 }
@@ -3767,9 +3767,10 @@ public class Account
         throws DBException
     {
         String acctID  = this.getAccountID();
-        String groupID = DeviceGroup.DEVICE_GROUP_ALL;
         if (log) Print.sysPrintln("Deleting old events for account "+acctID+" prior to "+(new DateTime(oldTimeSec)));
-        return DeviceGroup.deleteOldEvents(this, groupID, oldTimeSec, log);
+        EventRetention retention = new EventRetention();
+        retention.setLogDevices(log);
+        return retention.deleteOldEvents(this, oldTimeSec);
     }
 
     // ------------------------------------------------------------------------
@@ -4738,16 +4739,10 @@ public class Account
                         Print.sysPrintln("ERROR: Missing '-"+ARG_CONFIRM_DEL[0]+"', aborting delete ...");
                         System.exit(1);
                     }
-                    for (String A : acctList) {
-                        if (!StringTools.isBlank(A)) {
-                            Account account = Account.getAccount(A);
-                            if (account != null) {
-                                account.deleteOldEvents(oldTimeSec, true);
-                            } else {
-                                Print.sysPrintln("WARN: Skipping non-existent Account: " + A);
-                            }
-                        }
-                    }
+                    // devices of all listed accounts are purged concurrently
+                    EventRetention retention = new EventRetention();
+                    retention.setLogDevices(true);
+                    retention.deleteOldEvents(acctList, oldTimeSec);
                 } else {
                     Print.sysPrintln("Counting events prior to: " + (new DateTime(oldTimeSec)));
                     for (String A : acctList) {
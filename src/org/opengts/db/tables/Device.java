@@ -1626,6 +1626,8 @@ public class Device // Asset
             // FLD_lastFaultCode max length
             DBField lastFCFld = factory.getField(FLD_lastFaultCode);
             Device.LastFaultCodeColumnLength = (lastFCFld != null)? lastFCFld.getStringLength() : 0;
+            // compact field value storage
+            factory.setCompactFieldValues(RTConfig.getBoolean(DBConfig.PROP_Device_compactFieldValues,true));
         }
         return factory;
     }
@@ -8664,6 +8666,9 @@ public class Device // Asset
             return false;
         }
 
+        /* update last event snapshot (fleet map) */
+        LastEventSnapshot.update(this, evdb);
+
         /* status code */
         int sc = evdb.getStatusCode();
 
@@ -9194,7 +9199,7 @@ public class Device // Asset
 
         /* save EventData record */
         try {
-            evdb.save(); // insert();
+            evdb.batchSave(); // insert(); (batched if "db.batchInsert.size" > 1)
             // may be re-saved below after deferred reverse-geocode
         } catch (DBException dbe) {
             // save failed
@@ -9203,6 +9208,10 @@ public class Device // Asset
         }
 
         /* background processes */
+        if ((extUpdate == EXT_UPDATE_ADDRESS) && ReverseGeocodeQueue.enqueue(evdb)) {
+            // address only, queued for coalesced reverse-geocoding
+            Print.logDebug("Address update queued for reverse-geocode queue");
+        } else
         if (extUpdate != EXT_UPDATE_NONE) {
             // queue for background processing
             final int extUpd = extUpdate;
@@ -10653,6 +10662,15 @@ public class Device // Asset
         this.transport = xport;
     }
 
+    /**
+    *** Gets the Transport for this Device (if any)
+    *** @return The Transport instance, or null if not defined
+    **/
+    public Transport getTransport()
+    {
+        return this.transport;
+    }
+
     /**
     *** Gets the Transport-ID for this Device (if any)
     *** @return The Transport-ID for this Device, or an empty string is not defined
@@ -10914,6 +10932,52 @@ public class Device // Asset
         }
     }
 
+    /**
+    *** Gets the specified Device records (in a single selection)
+    *** @param account  The Account
+    *** @param devIDs   The Device IDs
+    *** @return A map of Device-ID to Device record, in the order of the specified Device IDs
+    ***         (Device IDs which do not exist are omitted)
+    **/
+    public static Map<String,Device> getDevices(Account account, Collection<String> devIDs)
+        throws DBException
+    {
+        Map<String,Device> devMap = new LinkedHashMap<String,Device>();
+        if ((account == null) || ListTools.isEmpty(devIDs)) {
+            return devMap;
+        }
+        String acctID = account.getAccountID();
+
+        /* select */
+        // DBSelect: SELECT * FROM Device WHERE (accountID='acct') AND ((deviceID='dev1') OR (deviceID='dev2') ...)
+        DBSelect<Device> dsel = new DBSelect<Device>(Device.getFactory());
+        DBWhere dwh = dsel.createDBWhere();
+        dsel.setWhere(dwh.WHERE_(
+            dwh.AND(
+                dwh.EQ(Device.FLD_accountID,acctID),
+                dwh.INLIST(Device.FLD_deviceID,devIDs)
+            )
+        ));
+        Device devs[] = DBRecord.select(dsel); // select:DBSelect
+
+        /* order by requested device-id */
+        Map<String,Device> selMap = new HashMap<String,Device>();
+        if (devs != null) {
+            for (Device dev : devs) {
+                dev.setAccount(account);
+                selMap.put(dev.getDeviceID(), dev);
+            }
+        }
+        for (String devID : devIDs) {
+            Device dev = selMap.get(devID);
+            if (dev != null) {
+                devMap.put(devID, dev);
+            }
+        }
+        return devMap;
+
+    }
+
     /**
     *** Gets or Creates a Device record
     *** @param account The Account
@@ -12030,6 +12094,11 @@ public class Device // Asset
                         try { Thread.sleep(3000L); } catch (Throwable t) {}
                     } while (ThreadPool_DeviceEventUpdate.getPoolSize() > 0);
                 }
+                ReverseGeocodeQueue rgq = ReverseGeocodeQueue.getInstance();
+                while ((rgq != null) && !rgq.isIdle()) {
+                    Print.sysPrintln("Waiting for reverse-geocode queue to complete ...");
+                    try { Thread.sleep(3000L); } catch (Throwable t) {}
+                }
                 Print.sysPrintln("... done");
                 System.exit(0);
             }
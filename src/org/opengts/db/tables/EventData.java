@@ -865,6 +865,8 @@ public class EventData
             EventData.PostalColumnLength  = (postalFld != null)? postalFld.getStringLength() : 0;
             // "COUNT(*)" not allowed if InnoDB
             factory.setAllowInnoDBCOUNT(false);
+            // compact field value storage (reports may hold many EventData records)
+            factory.setCompactFieldValues(RTConfig.getBoolean(DBConfig.PROP_EventData_compactFieldValues,true));
         }
         return factory;
     }
@@ -2548,21 +2550,20 @@ public class EventData
             return null;
         }
 
-        /* fast operations only? */
-        if (fastOnly && !rgp.isFastOperation()) {
-            // We've requested a fast operation only, and this operation is slow.
-            // It's up to the caller to see that this operation is queued in a background thread.
-            throw new SlowOperationException("'fast' requested, and this operation is 'slow'");
-        }
-
         /* finally, get the address for this point */
+        // If only fast operations are requested, a cached address is still returned inline.
+        // Otherwise, if the operation is slow, a SlowOperationException is thrown and it is 
+        // up to the caller to see that this operation is queued in a background thread.
         ReverseGeocode rg = null;
         try {
             // make sure the Domain properties are available to RTConfig
             privLabel.pushRTProperties();   // stack properties (may be redundant in servlet environment)
             privLabel.getLocaleString();    // ??? redundent?
             boolean cache = (this.getSpeedKPH() <= 0.0)? true : false; // cache if not moving
-            rg = rgp.getReverseGeocode(addrGP, privLabel.getLocaleString(), cache); // get the reverse-geocode
+            rg = ReverseGeocodeProviderAdapter.getCachedReverseGeocode(rgp, addrGP, privLabel.getLocaleString(), cache, fastOnly); // get the reverse-geocode
+        } catch (SlowOperationException soe) {
+            // 'fast' requested, not cached, and this operation is 'slow'
+            throw soe;
         } catch (Throwable th) {
             // ignore
         } finally {
@@ -3293,7 +3294,7 @@ public class EventData
         CellTower servCT   = this.getServingCellTower();
         CellTower nborCT[] = this.getNeighborCellTowers();
         Print.logInfo("Getting CellTower location: " + mlp.getName());
-        MobileLocation ml = mlp.getMobileLocation(servCT, nborCT); // may return null
+        MobileLocation ml = MobileLocationProviderAdapter.getCachedMobileLocation(mlp, servCT, nborCT); // may return null
         if ((ml != null) && ml.hasGeoPoint()) {
             GeoPoint gp = ml.getGeoPoint();
             this.setCellLatitude( gp.getLatitude());
@@ -6404,6 +6405,16 @@ public class EventData
         }
     }
 
+    /**
+    *** Clears the previous EventData record references (allows the previously
+    *** chained EventData records to be garbage collected)
+    **/
+    public void clearPreviousEventData()
+    {
+        this.previousEventData          = null;
+        this.previousEventData_validGPS = null;
+    }
+
     /**
     *** Gets the previous EventData record
     *** @param validGPS  True to check for previous events with a valid GPS location only
@@ -6885,6 +6896,46 @@ public class EventData
         
     }
 
+    /* get range of EventData records as a lazily read DBRecordStream selection */
+    // Returns false if the requested range cannot be read in the requested order
+    // (ie. a LAST limit selection, which is selected in descending order and must be
+    // reordered), in which case 'getRangeEvents' should be used instead.
+    public static boolean selectRangeEvents(
+        DBRecordStream<EventData> rcdIter,
+        String acctId, String devId,
+        long timeStart, long timeEnd,
+        int statCode[],
+        boolean validGPS,
+        EventData.LimitType limitType, long limit, boolean ascending,
+        String addtnlSelect,
+        DBRecordHandler<EventData> rcdHandler)
+        throws DBException
+    {
+
+        /* get record selector */
+        DBSelect<EventData> dsel = EventData._createRangeEventSelector(
+            acctId, devId, 
+            timeStart, timeEnd,
+            statCode,
+            validGPS, 
+            limitType, limit, ascending,
+            addtnlSelect);
+
+        /* invalid arguments? */
+        if (dsel == null) {
+            return true; // nothing to select
+        } else
+        if (dsel.isOrderAscending() != ascending) {
+            return false; // requires reordering
+        }
+
+        /* start selection */
+        // (tables are not locked, records are read as the iterator is consumed)
+        rcdIter.select(dsel, rcdHandler);
+        return true;
+
+    }
+
     /* get a specific EventData record */
     public static EventData getEventData(
         String acctId, String devId,
@@ -7247,6 +7298,27 @@ public class EventData
         StringBuffer msg)
         throws DBException
     {
+        long chunkSize    = RTConfig.getLong(DBConfig.PROP_EventData_retentionChunkSize, 5000L);
+        long chunkPauseMS = RTConfig.getLong(DBConfig.PROP_EventData_retentionChunkPauseMS, 250L);
+        return EventData.deleteOldEvents(device, oldTimeSec, chunkSize, chunkPauseMS, msg);
+    }
+
+    /**
+    *** Delete old events, in chunks of at most 'chunkSize' records (in primary key order)
+    *** @param device       The Device for which old events will be deleted
+    *** @param oldTimeSec   The time in the past before which (exclusive) events will be deleted.  
+    *** @param chunkSize    The maximum number of events deleted per statement (0 for no limit)
+    *** @param chunkPauseMS The number of milliseconds to pause between delete statements
+    *** @param msg          Returned status messages (may be null)
+    *** @return The number of events deleted.
+    **/
+    public static long deleteOldEvents(
+        Device device,
+        long oldTimeSec, 
+        long chunkSize, long chunkPauseMS,
+        StringBuffer msg)
+        throws DBException
+    {
 
         /* valid Device */
         if (device == null) {
@@ -7305,48 +7377,121 @@ public class EventData
             }
         }
 
-        /* count events in range */
-        long count = EventData.getRecordCount(acctID,devID,-1L,(oldTimeSec - 1L));
-        if (count <= 0L) {
-            // already empty range
-            if (msg != null) {
-                if (msg.length() > 0) { msg.append(", "); }
-                if (savingLastEvent) {
-                    // an empty-range is normal/expected if savingLastEvent is true.
-                    msg.append("Nothing to delete");
-                } else {
-                    msg.append("Empty range");
+        /* delete events in range */
+        // (the number of deleted records is returned by the delete statements, a
+        // separate 'COUNT(*)' is not required)
+        // (chunked deletes require "LIMIT/OFFSET", which is rendered for MySQL/PostgreSQL only)
+        int     dbProvID = DBProvider.getProvider().getID();
+        boolean chunked  = (chunkSize > 0L) && 
+            ((dbProvID == DBProvider.DB_MYSQL) || (dbProvID == DBProvider.DB_POSTGRESQL));
+        long count = 0L;
+        for (;;) {
+
+            /* find the last timestamp of the next chunk */
+            long chunkEndTime = chunked? 
+                EventData._getOldEventsChunkEndTime(acctID, devID, oldTimeSec, chunkSize) : -1L;
+
+            /* SQL statement */
+            // DBDelete: DELETE FROM EventData WHERE ((accountID='acct) AND (deviceID='dev') AND (timestamp<oldTimeSec))
+            // DBDelete: DELETE FROM EventData WHERE ((accountID='acct) AND (deviceID='dev') AND (timestamp<=chunkEndTime))
+            DBDelete ddel = new DBDelete(EventData.getFactory());
+            DBWhere dwh = ddel.createDBWhere();
+            ddel.setWhere(dwh.WHERE_(
+                dwh.AND(
+                    dwh.EQ(EventData.FLD_accountID,acctID),
+                    dwh.EQ(EventData.FLD_deviceID ,devID),
+                    (chunkEndTime >= 0L)?
+                        dwh.LE(EventData.FLD_timestamp,chunkEndTime) : // inclusive, (chunkEndTime < oldTimeSec)
+                        dwh.LT(EventData.FLD_timestamp,oldTimeSec)     // non-inclusive
+                )
+            ));
+
+            /* delete */
+            DBConnection dbc = null;
+            try {
+                dbc = DBConnection.getDefaultConnection();
+                long delCount = dbc.executeUpdateCount(ddel.toString());
+                if (delCount > 0L) {
+                    count += delCount;
                 }
+            } catch (SQLException sqe) {
+                throw new DBException("Deleting old EventData records", sqe);
+            } finally {
+                DBConnection.release(dbc);
             }
-            return 0L;
+
+            /* last chunk? */
+            if (chunkEndTime < 0L) {
+                break;
+            }
+
+            /* pause before deleting the next chunk */
+            if (chunkPauseMS > 0L) {
+                try { Thread.sleep(chunkPauseMS); } catch (Throwable th) {/*ignore*/}
+            }
+
         }
 
-        /* SQL statement */
-        // DBDelete: DELETE FROM EventData WHERE ((accountID='acct) AND (deviceID='dev') AND (timestamp<oldTimeSec))
-        DBDelete ddel = new DBDelete(EventData.getFactory());
-        DBWhere dwh = ddel.createDBWhere();
-        ddel.setWhere(dwh.WHERE_(
+        /* empty range? */
+        if ((count <= 0L) && (msg != null)) {
+            if (msg.length() > 0) { msg.append(", "); }
+            if (savingLastEvent) {
+                // an empty-range is normal/expected if savingLastEvent is true.
+                msg.append("Nothing to delete");
+            } else {
+                msg.append("Empty range");
+            }
+        }
+
+        /* return count */
+        return count;
+
+    }
+
+    /**
+    *** Returns the timestamp of the 'chunkSize'th oldest event prior to the specified time,
+    *** or -1 if there are fewer than 'chunkSize' events prior to the specified time.
+    **/
+    private static long _getOldEventsChunkEndTime(
+        String acctID, String devID,
+        long oldTimeSec, long chunkSize)
+        throws DBException
+    {
+
+        /* select */
+        // DBSelect: SELECT timestamp FROM EventData WHERE ((accountID='acct') AND (deviceID='dev') AND (timestamp<oldTimeSec)) ORDER BY timestamp LIMIT 1 OFFSET chunkSize-1
+        DBSelect<EventData> dsel = new DBSelect<EventData>(EventData.getFactory());
+        DBWhere dwh = dsel.createDBWhere();
+        dsel.setWhere(dwh.WHERE_(
             dwh.AND(
                 dwh.EQ(EventData.FLD_accountID,acctID),
                 dwh.EQ(EventData.FLD_deviceID ,devID),
-                dwh.LT(EventData.FLD_timestamp,oldTimeSec) // non-inclusive
+                dwh.LT(EventData.FLD_timestamp,oldTimeSec)
             )
         ));
+        dsel.setSelectedFields(EventData.FLD_timestamp);
+        dsel.setOrderByFields(EventData.FLD_timestamp);
+        dsel.setOrderAscending(true);
+        dsel.setLimit(1L);
+        dsel.setOffset(chunkSize - 1L);
 
-        /* delete */
-        DBConnection dbc = null;
+        /* get timestamp */
+        DBConnection dbc  = null;
+        Statement    stmt = null;
+        ResultSet    rs   = null;
         try {
-            dbc = DBConnection.getDefaultConnection();
-            dbc.executeUpdate(ddel.toString());
+            dbc  = DBConnection.getDefaultConnection();
+            stmt = dbc.execute(dsel.toString());
+            rs   = stmt.getResultSet();
+            return rs.next()? rs.getLong(1) : -1L;
         } catch (SQLException sqe) {
-            throw new DBException("Deleting old EventData records", sqe);
+            throw new DBException("Selecting old EventData chunk", sqe);
         } finally {
+            if (rs   != null) { try { rs.close();   } catch (Throwable t) {} }
+            if (stmt != null) { try { stmt.close(); } catch (Throwable t) {} }
             DBConnection.release(dbc);
         }
 
-        /* return count */
-        return count;
-
     }
 
     // ------------------------------------------------------------------------
@@ -338,6 +338,7 @@ public class Geozone
                 Geozone.Key.class,
                 true/*editable*/, true/*viewable*/);
             factory.addParentTable(Account.TABLE_NAME());
+            factory.setRecordListener(new ZoneIndexListener());
             Geozone._initZoneTypes();
         }
         return factory;
@@ -1900,14 +1901,15 @@ public class Geozone
         };
         sb.append(",Rectangle");
         
-        /* GeozoneType.SWEPT_POINT_RADIUS: optional swept point radius */
+        /* GeozoneType.SWEPT_POINT_RADIUS: swept point radius (corridor) */
         try {
             MethodAction ma = new MethodAction(DBConfig.PACKAGE_RULE_UTIL_ + "GeoSegment", "getGeozoneChecker");
             geozoneSweptPointRadius = (GeozoneChecker)ma.invoke();
-            sb.append(",SweptPointRadius");
         } catch (Throwable th) {
-            geozoneSweptPointRadius = null;
+            // "GeoSegment" not installed, use built-in corridor checker
+            geozoneSweptPointRadius = GeoCorridor.getGeozoneChecker();
         }
+        sb.append(",SweptPointRadius");
         
         /* display supported Geozone types */
         //Print.logDebug("Supported Geozone types: " + sb);
@@ -1932,6 +1934,184 @@ public class Geozone
 
     // ------------------------------------------------------------------------
 
+    /**
+    *** <code>PreparedGeometry</code> is the immutable geometry of a Geozone, derived once from
+    *** the Geozone fields and reused for each containment test (discarded when any field of
+    *** the Geozone changes).<br>
+    *** Vertices are held as primitive latitude/longitude arrays.  Point-radius tests first
+    *** reject circles by latitude/longitude extent (a lower bound on the great-circle distance)
+    *** before calculating the Haversine distance, bounded rectangle tests use the precomputed
+    *** N/S/E/W extents, and polygons are tested with a <code>GeoPolygon.PreparedPolygon</code>.
+    **/
+    private static class PreparedGeometry
+    {
+
+        private static final double PREFILTER_MARGIN_DEG = 1.0E-6; // larger than GeoPoint.EPSILON
+
+        private GeozoneType     zoneType    = null;
+        private GeoPoint        points[]    = null;
+        private double          lat[]       = null;
+        private double          lon[]       = null;
+
+        /* point-radius */
+        private double          radiusKM    = 0.0;
+        private double          maxDeltaLat = 0.0;  // degrees
+        private double          maxDeltaLon[] = null; // degrees, per point (valid to 90 degrees)
+
+        /* bounded rectangle */
+        private double          latN        =  -90.0;
+        private double          latS        =   90.0;
+        private double          lonW        =  180.0;
+        private double          lonE        = -180.0;
+
+        /* polygon */
+        private GeoPolygon.PreparedPolygon polygon = null;
+
+        /* swept point radius (corridor) */
+        private GeoCorridor     corridor    = null;
+
+        public PreparedGeometry(Geozone zone)
+        {
+            this.zoneType = Geozone.getGeozoneType(zone);
+            this.points   = zone.getGeoPoints();
+            this.lat      = new double[this.points.length];
+            this.lon      = new double[this.points.length];
+            for (int i = 0; i < this.points.length; i++) {
+                this.lat[i] = this.points[i].getLatitude();
+                this.lon[i] = this.points[i].getLongitude();
+            }
+            switch (this.zoneType) {
+                case POINT_RADIUS:
+                case SWEPT_POINT_RADIUS: {
+                    this.radiusKM = zone.getRadiusKilometers();
+                    if (zone.isClientUpload()) {
+                        // we make the radius slightly bigger if this was used for a client detected geozone
+                        this.radiusKM += CLIENT_RADIUS_DELTA_METERS / 1000.0;
+                    }
+                    // distance to a point is at least the distance along the meridian for the
+                    // latitude delta, and at least the distance to the meridian of the point
+                    double radRad = Math.max(this.radiusKM, 0.0) / GeoPoint.EARTH_MEAN_RADIUS_KM;
+                    double sinRad = Math.sin(radRad);
+                    this.maxDeltaLat = (radRad / GeoPoint.RADIANS) + PREFILTER_MARGIN_DEG;
+                    this.maxDeltaLon = new double[this.points.length];
+                    for (int i = 0; i < this.points.length; i++) {
+                        double cosLat = Math.cos(this.lat[i] * GeoPoint.RADIANS);
+                        if ((radRad < (Math.PI / 2.0)) && (sinRad < cosLat)) {
+                            this.maxDeltaLon[i] = (Math.asin(sinRad / cosLat) / GeoPoint.RADIANS) + PREFILTER_MARGIN_DEG;
+                        } else {
+                            this.maxDeltaLon[i] = 360.0; // no longitude prefilter
+                        }
+                    }
+                    if (this.zoneType.equals(GeozoneType.SWEPT_POINT_RADIUS)) {
+                        this.corridor = new GeoCorridor(this.points, this.radiusKM);
+                    }
+                } break;
+                case BOUNDED_RECT: {
+                    for (int i = 0; i < this.points.length; i++) {
+                        if (this.lat[i] > this.latN) { this.latN = this.lat[i]; }
+                        if (this.lat[i] < this.latS) { this.latS = this.lat[i]; }
+                        if (this.lon[i] > this.lonE) { this.lonE = this.lon[i]; }
+                        if (this.lon[i] < this.lonW) { this.lonW = this.lon[i]; }
+                    }
+                } break;
+                case POLYGON: {
+                    this.polygon = new GeoPolygon.PreparedPolygon(this.points);
+                } break;
+            }
+        }
+
+        public GeozoneType getGeozoneType()
+        {
+            return this.zoneType;
+        }
+
+        public GeoPoint[] getGeoPoints()
+        {
+            return this.points;
+        }
+
+        public double getRadiusKM()
+        {
+            return this.radiusKM;
+        }
+
+        public GeoCorridor getCorridor()
+        {
+            return this.corridor; // null if not a corridor
+        }
+
+        /* same as "GeoCorridor.getGeozoneChecker()" */
+        public boolean corridorContainsPoint(GeoPoint gp)
+        {
+            return this.corridor.containsPoint(gp);
+        }
+
+        /* same as "GeoPoint.getGeozoneChecker()" */
+        public boolean radiusContainsPoint(GeoPoint gp)
+        {
+            double gpLat = gp.getLatitude();
+            double gpLon = gp.getLongitude();
+            for (int i = 0; i < this.points.length; i++) {
+                if (Math.abs(gpLat - this.lat[i]) > this.maxDeltaLat) {
+                    continue;
+                }
+                double dLon = Math.abs(gpLon - this.lon[i]);
+                if (dLon > 180.0) { dLon = 360.0 - dLon; }
+                if ((dLon <= 90.0) && (dLon > this.maxDeltaLon[i])) {
+                    continue;
+                }
+                if (this.points[i].kilometersToPoint(gp) <= this.radiusKM) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /* same as the former bounded rectangle GeozoneChecker */
+        public boolean rectangleContainsPoint(GeoPoint gp)
+        {
+            if (this.points.length < 2) { return false; }
+            double gpLat = gp.getLatitude();
+            double gpLon = gp.getLongitude();
+            if (gpLat > (this.latN + CLIENT_GEOPOINT_DELTA)) { return false; } // North/Top
+            if (gpLat < (this.latS - CLIENT_GEOPOINT_DELTA)) { return false; } // South/Bottom
+            if (gpLon < (this.lonW - CLIENT_GEOPOINT_DELTA)) { return false; } // West/Left  (fails if zone spans +/-180 deg)
+            if (gpLon > (this.lonE + CLIENT_GEOPOINT_DELTA)) { return false; } // East/Right (fails if zone spans +/-180 deg)
+            return true; // success
+        }
+
+        /* same as "GeoPolygon.getGeozoneChecker()" */
+        public boolean polygonContainsPoint(GeoPoint gp)
+        {
+            return this.polygon.containsPoint(gp);
+        }
+
+    }
+
+    private volatile PreparedGeometry preparedGeometry = null;
+
+    /**
+    *** Sets the 'changed' state of this record.<br>
+    *** (overridden to discard the prepared geometry of this Geozone)
+    *** @param fieldName  The changed field
+    **/
+    public void setChanged(String fieldName)
+    {
+        this.preparedGeometry = null;
+        super.setChanged(fieldName);
+    }
+
+    /* return the prepared geometry of this Geozone */
+    private PreparedGeometry getPreparedGeometry()
+    {
+        PreparedGeometry pg = this.preparedGeometry;
+        if (pg == null) {
+            pg = new PreparedGeometry(this);
+            this.preparedGeometry = pg;
+        }
+        return pg;
+    }
+
     /* return true if this geozone contains the specified point */
     public boolean containsPoint(GeoPoint gp)
     {
@@ -1942,45 +2122,35 @@ public class Geozone
         }
 
         /* determine inclusion in Geozone based on zone type */
-        GeoPoint gzPts[] = this.getGeoPoints();
-        switch (Geozone.getGeozoneType(this)) {
+        PreparedGeometry pg = this.getPreparedGeometry();
+        switch (pg.getGeozoneType()) {
             case POINT_RADIUS: {
-                double radiusKM  = this.getRadiusKilometers();
-                if (this.isClientUpload()) {
-                    radiusKM += CLIENT_RADIUS_DELTA_METERS / 1000.0;
-                }
                 if (geozoneMultiPointRadius != null) {
-                    return geozoneMultiPointRadius.containsPoint(gp,gzPts,radiusKM);
+                    return pg.radiusContainsPoint(gp);
                 } else {
                     return false;
                 }
             }
             case BOUNDED_RECT: {
                 if (geozoneBoundedRectangle != null) {
-                    return geozoneBoundedRectangle.containsPoint(gp,gzPts,0.0);
+                    return pg.rectangleContainsPoint(gp);
                 } else {
                     return false;
                 }
             }
             case POLYGON: {
                 if (geozonePolygon != null) {
-                    return geozonePolygon.containsPoint(gp,gzPts,0.0);
+                    return pg.polygonContainsPoint(gp);
                 } else {
                     return false;
                 }
             }
             case SWEPT_POINT_RADIUS:  {
-                double radiusKM  = this.getRadiusKilometers();
-                if (this.isClientUpload()) {
-                    // we make the radius slightly bigger if this was used for a client detected geozone
-                    radiusKM += CLIENT_RADIUS_DELTA_METERS / 1000.0;
-                }
+                if (geozoneSweptPointRadius == GeoCorridor.getGeozoneChecker()) {
+                    return pg.corridorContainsPoint(gp);
+                } else
                 if (geozoneSweptPointRadius != null) {
-                    return geozoneSweptPointRadius.containsPoint(gp,gzPts,radiusKM);
-                } else 
-                if (geozoneMultiPointRadius != null) {
-                    Print.logWarn("GeoSegment not installed, testing with PointRadius ...");
-                    return geozoneMultiPointRadius.containsPoint(gp,gzPts,radiusKM);
+                    return geozoneSweptPointRadius.containsPoint(gp,pg.getGeoPoints(),pg.getRadiusKM());
                 } else {
                     return false;
                 }
@@ -2401,6 +2571,343 @@ public class Geozone
         return (gz != null)? gz.getDescription() : null;
     }
 
+    // ------------------------------------------------------------------------
+    // In-memory Geozone spatial index
+    // Each account's Geozones are loaded once, and indexed on a lat/lon grid by
+    // their bounding box (corridors by the cells along their segments).  Point lookups ("getGeozone", "getGeozones") then run
+    // without database access.  The index is invalidated when a Geozone is
+    // inserted/updated/deleted within this JVM, and is reloaded after
+    // "Geozone.spatialIndex.maxAgeSec" to pick up changes made by other processes.
+
+    private static class ZoneIndex
+    {
+        private static final double CELL_DEGREES   = 0.05;  // ~5.5km
+        private static final int    LON_CELLS      = (int)Math.ceil(360.0 / CELL_DEGREES);
+        private static final int    MAX_ZONE_CELLS = 256;   // larger zones are always tested
+        private static final int    MAX_CORRIDOR_CELLS = 4096; // corridors are indexed along their path
+        private static int CellKey(int latNdx, int lonNdx) {
+            return (latNdx * LON_CELLS) + lonNdx;
+        }
+        private static int LatIndex(double lat) {
+            return (int)Math.floor((lat +  90.0) / CELL_DEGREES);
+        }
+        private static int LonIndex(double lon) {
+            int ndx = (int)Math.floor((lon + 180.0) / CELL_DEGREES);
+            return (ndx < LON_CELLS)? ndx : (LON_CELLS - 1);
+        }
+        // --------------------------------
+        private long                loadTimeMS  = 0L;
+        private Geozone             zones[]     = null; // priority/sortID order
+        private double              bounds[][]  = null; // [minLat,maxLat,minLon,maxLon]
+        private Map<Integer,int[]>  cells       = new HashMap<Integer,int[]>();
+        private int                 largeZones[]= null;
+        public ZoneIndex(Geozone gz[]) {
+            this.loadTimeMS = DateTime.getCurrentTimeMillis();
+            this.zones      = (gz != null)? gz : new Geozone[0];
+            this.bounds     = new double[this.zones.length][];
+            Map<Integer,java.util.List<Integer>> cellMap = new HashMap<Integer,java.util.List<Integer>>();
+            java.util.List<Integer> large = new Vector<Integer>();
+            String lastDesc   = "";
+            String lastZoneId = null;
+            for (int z = 0; z < this.zones.length; z++) {
+                Geozone zone = this.zones[z];
+                // fill blank descriptions from the previous sortID of the same zone
+                String zoneId = zone.getGeozoneID();
+                if ((lastZoneId == null) || !lastZoneId.equals(zoneId)) {
+                    lastZoneId = zoneId;
+                    lastDesc   = "";
+                }
+                String thisDesc = zone.getDescription();
+                if (thisDesc.equals("") && !lastDesc.equals("")) {
+                    zone.setDescription(lastDesc);
+                } else
+                if (!thisDesc.equals("")) {
+                    lastDesc = thisDesc;
+                }
+                // bounding box
+                GeoBounds gb = null;
+                if (zone.hasBoundingBox()) {
+                    gb = new GeoBounds();
+                    gb.setMinLatitude( zone.getMinLatitude());
+                    gb.setMaxLatitude( zone.getMaxLatitude());
+                    gb.setMinLongitude(zone.getMinLongitude());
+                    gb.setMaxLongitude(zone.getMaxLongitude());
+                } else {
+                    gb = zone.getBoundingBox();
+                }
+                if ((gb == null) || !gb.isValid()) {
+                    large.add(new Integer(z)); // no usable bounds, always tested
+                    continue;
+                }
+                this.bounds[z] = new double[] {
+                    gb.getMinLatitude(), gb.getMaxLatitude(), gb.getMinLongitude(), gb.getMaxLongitude() 
+                };
+                // corridors are indexed by the cells along their segments, other zones by bounds
+                Set<Integer> zoneCells = null;
+                if (zone.getPreparedGeometry().getCorridor() != null) {
+                    zoneCells = ZoneIndex._getCorridorCells(zone.getPreparedGeometry().getCorridor());
+                }
+                if (zoneCells == null) {
+                    zoneCells = ZoneIndex._getBoundsCells(gb, MAX_ZONE_CELLS);
+                }
+                if (zoneCells == null) {
+                    large.add(new Integer(z));
+                    continue;
+                }
+                for (Integer key : zoneCells) {
+                    java.util.List<Integer> cl = cellMap.get(key);
+                    if (cl == null) {
+                        cl = new Vector<Integer>();
+                        cellMap.put(key, cl);
+                    }
+                    cl.add(new Integer(z));
+                }
+            }
+            for (Integer key : cellMap.keySet()) {
+                this.cells.put(key, ZoneIndex._toIntArray(cellMap.get(key)));
+            }
+            this.largeZones = ZoneIndex._toIntArray(large);
+        }
+        /* return the cells covered by the bounds (null if more than 'maxCells') */
+        private static Set<Integer> _getBoundsCells(GeoBounds gb, int maxCells) {
+            int minLatNdx = LatIndex(gb.getMinLatitude()),  maxLatNdx = LatIndex(gb.getMaxLatitude());
+            int minLonNdx = LonIndex(gb.getMinLongitude()), maxLonNdx = LonIndex(gb.getMaxLongitude());
+            long cellCnt  = (long)(maxLatNdx - minLatNdx + 1) * (long)(maxLonNdx - minLonNdx + 1);
+            if ((cellCnt <= 0L) || (cellCnt > maxCells)) {
+                return null;
+            }
+            Set<Integer> cells = new HashSet<Integer>();
+            for (int a = minLatNdx; a <= maxLatNdx; a++) {
+                for (int o = minLonNdx; o <= maxLonNdx; o++) {
+                    cells.add(new Integer(CellKey(a,o)));
+                }
+            }
+            return cells;
+        }
+        /* return the cells along the corridor path (null if unable to index the corridor) */
+        private static Set<Integer> _getCorridorCells(GeoCorridor gc) {
+            java.util.List<GeoBounds> pieces = gc.getSegmentBounds(CELL_DEGREES / 2.0);
+            if (pieces == null) {
+                return null;
+            }
+            Set<Integer> cells = new HashSet<Integer>();
+            for (GeoBounds gb : pieces) {
+                Set<Integer> pc = ZoneIndex._getBoundsCells(gb, MAX_CORRIDOR_CELLS);
+                if (pc == null) {
+                    return null;
+                }
+                cells.addAll(pc);
+                if (cells.size() > MAX_CORRIDOR_CELLS) {
+                    return null;
+                }
+            }
+            return cells;
+        }
+        private static int[] _toIntArray(java.util.List<Integer> list) {
+            int a[] = new int[list.size()];
+            for (int i = 0; i < a.length; i++) { a[i] = list.get(i).intValue(); }
+            return a;
+        }
+        public boolean isExpired(long maxAgeMS) {
+            return ((DateTime.getCurrentTimeMillis() - this.loadTimeMS) > maxAgeMS);
+        }
+        private boolean _boundsContains(int z, double lat, double lon) {
+            double b[] = this.bounds[z];
+            if (b == null) {
+                return true; // unbounded
+            }
+            return (lat >= b[0]) && (lat <= b[1]) && (lon >= b[2]) && (lon <= b[3]);
+        }
+        /* return the Geozones whose bounds contain the point (in priority/sortID order) */
+        public Geozone[] getCandidates(String zoneID, GeoPoint gp, boolean reverseGeocodeOnly) {
+            double lat  = gp.getLatitude();
+            double lon  = gp.getLongitude();
+            int    cell[] = this.cells.get(new Integer(CellKey(LatIndex(lat),LonIndex(lon))));
+            if (cell == null) { cell = new int[0]; }
+            int    large[] = this.largeZones;
+            java.util.List<Geozone> list = new Vector<Geozone>();
+            // merge the (ascending) cell and large-zone index lists to retain the zone order
+            for (int c = 0, g = 0; (c < cell.length) || (g < large.length);) {
+                int z;
+                if ((g >= large.length) || ((c < cell.length) && (cell[c] < large[g]))) {
+                    z = cell[c++];
+                } else {
+                    z = large[g++];
+                }
+                if (!this._boundsContains(z, lat, lon)) {
+                    continue;
+                }
+                Geozone zone = this.zones[z];
+                if (!StringTools.isBlank(zoneID) && !zoneID.equalsIgnoreCase(zone.getGeozoneID())) {
+                    continue;
+                }
+                if (reverseGeocodeOnly && !zone.getReverseGeocode()) {
+                    continue;
+                }
+                list.add(zone);
+            }
+            return list.isEmpty()? null : list.toArray(new Geozone[list.size()]);
+        }
+    }
+
+    private static Map<String,ZoneIndex> ZoneIndexMap        = new HashMap<String,ZoneIndex>();
+    private static long                  ZoneIndexGeneration = 0L;
+
+    /**
+    *** Gets the maximum age of the in-memory Geozone index (in milliseconds).
+    *** Returns '0' if the index is disabled.
+    **/
+    private static long _getZoneIndexMaxAgeMS()
+    {
+        long maxAgeSec = RTConfig.getLong(DBConfig.PROP_Geozone_spatialIndex_maxAgeSec, 60L);
+        return (maxAgeSec > 0L)? (maxAgeSec * 1000L) : 0L;
+    }
+
+    /**
+    *** Clears the in-memory Geozone index for the specified account 
+    *** @param acctID  The account ID, or null to clear all accounts
+    **/
+    public static void clearZoneIndex(String acctID)
+    {
+        synchronized (ZoneIndexMap) {
+            ZoneIndexGeneration++;
+            if (acctID == null) {
+                ZoneIndexMap.clear();
+            } else {
+                ZoneIndexMap.remove(acctID);
+            }
+        }
+    }
+
+    /**
+    *** Gets the in-memory Geozone index for the specified account, loading it if necessary.
+    *** Returns null if the index is disabled.
+    **/
+    private static ZoneIndex _getZoneIndex(String acctID)
+        throws DBException
+    {
+        long maxAgeMS = Geozone._getZoneIndexMaxAgeMS();
+        if (maxAgeMS <= 0L) {
+            return null;
+        }
+
+        /* cached index */
+        long gen;
+        synchronized (ZoneIndexMap) {
+            ZoneIndex zi = ZoneIndexMap.get(acctID);
+            if ((zi != null) && !zi.isExpired(maxAgeMS)) {
+                return zi;
+            }
+            gen = ZoneIndexGeneration;
+        }
+
+        /* load all account Geozones */
+        DBSelect<Geozone> dsel = new DBSelect<Geozone>(Geozone.getFactory());
+        dsel.setWhere(Geozone.getWhereClause(
+            acctID,                     // accountID
+            null,                       // geozoneID
+            -1,                         // sortID
+            null, null,                 // GeoBounds/GeoPoint
+            false,                      // clientUpload
+            false                       // reverseGeocode
+            ));
+        if (Geozone.supportsPriority()) {
+            dsel.setOrderByFields(FLD_priority, FLD_sortID);
+        } else {
+            dsel.setOrderByFields(FLD_sortID);
+        }
+        Geozone gz[] = null;
+        try {
+            DBProvider.lockTables(new String[] { TABLE_NAME() }, null);
+            gz = DBRecord.select(dsel); // select:DBSelect
+        } finally {
+            try {
+                DBProvider.unlockTables();
+            } catch (DBException dbe) {
+                // ignore
+            }
+        }
+        ZoneIndex zi = new ZoneIndex(gz);
+
+        /* save (unless invalidated while loading) */
+        synchronized (ZoneIndexMap) {
+            if (gen == ZoneIndexGeneration) {
+                ZoneIndexMap.put(acctID, zi);
+            }
+        }
+        return zi;
+
+    }
+
+    /* Geozone table listener, used to invalidate the in-memory index */
+    private static class ZoneIndexListener
+        implements DBRecordListener<Geozone>
+    {
+        public void recordWillInsert(Geozone rcd) {
+            // no-op
+        }
+        public void recordDidInsert(Geozone rcd) {
+            Geozone.clearZoneIndex(rcd.getAccountID());
+        }
+        public void recordWillUpdate(Geozone rcd) {
+            // no-op
+        }
+        public void recordDidUpdate(Geozone rcd) {
+            Geozone.clearZoneIndex(rcd.getAccountID());
+        }
+        public void recordsDidDelete(DBRecordKey<Geozone> key) {
+            // may be a partial key (ie. Account deletion)
+            Geozone.clearZoneIndex(null);
+        }
+    }
+
+    /**
+    *** Returns the Geozones whose bounds contain the specified point (in priority/sortID order).
+    *** The in-memory index is used if enabled, otherwise the Geozone table is queried.
+    **/
+    private static Geozone[] _selectGeozones(
+        String acctID, String zoneID, 
+        GeoPoint gp, boolean reverseGeocodeOnly)
+        throws DBException
+    {
+
+        /* in-memory index */
+        ZoneIndex zi = Geozone._getZoneIndex(acctID);
+        if (zi != null) {
+            return zi.getCandidates(zoneID, gp, reverseGeocodeOnly);
+        }
+
+        /* where clause */
+        // DBSelect: [SELECT] WHERE <Where> ORDER BY geozoneID,sortID
+        DBSelect<Geozone> dsel = new DBSelect<Geozone>(Geozone.getFactory());
+        dsel.setWhere(Geozone.getWhereClause(
+            acctID,                     // accountID
+            zoneID,                     // geozoneID
+            -1,                         // sortID
+            null, gp,                   // (GeoBounds)/GeoPoint
+            false,                      // clientUpload
+            reverseGeocodeOnly          // reverseGeocode
+            ));
+        if (Geozone.supportsPriority()) {
+            dsel.setOrderByFields(FLD_priority, FLD_sortID);
+        } else {
+            dsel.setOrderByFields(FLD_sortID);
+        }
+
+        /* get Geozones */
+        try {
+            DBProvider.lockTables(new String[] { TABLE_NAME() }, null);
+            return DBRecord.select(dsel); // select:DBSelect
+        } finally {
+            try {
+                DBProvider.unlockTables();
+            } catch (DBException dbe) {
+                // ignore
+            }
+        }
+
+    }
+
     // ------------------------------------------------------------------------
     // return the Geozone in which the specified point resides
 
@@ -2441,37 +2948,13 @@ public class Geozone
             return null;
         }
 
-        /* where clause */
-        // DBSelect: [SELECT] WHERE <Where> ORDER BY geozoneID,sortID
-        DBSelect<Geozone> dsel = new DBSelect<Geozone>(Geozone.getFactory());
-        dsel.setWhere(Geozone.getWhereClause(
-            acctID,                     // accountID
-            zoneID,                     // geozoneID
-            -1,                         // sortID
-            null, gp,                   // (GeoBounds)/GeoPoint
-            false,                      // clientUpload
-            reverseGeocodeOnly          // reverseGeocode
-            ));
-        if (Geozone.supportsPriority()) {
-            dsel.setOrderByFields(FLD_priority, FLD_sortID);
-        } else {
-            dsel.setOrderByFields(FLD_sortID);
-        }
-
         /* get Geozones */
         Geozone gz[] = null;
         try {
-            DBProvider.lockTables(new String[] { TABLE_NAME() }, null);
-            gz = DBRecord.select(dsel); // select:DBSelect
+            gz = Geozone._selectGeozones(acctID, zoneID, gp, reverseGeocodeOnly);
         } catch (DBException dbe) {
             Print.logError("Geozone error: " + dbe);
             return null;
-        } finally {
-            try {
-                DBProvider.unlockTables();
-            } catch (DBException dbe) {
-                // ignore
-            }
         }
 
         /* no records? */
@@ -2534,38 +3017,14 @@ public class Geozone
             return null;
         }
 
-        /* where clause */
-        // DBSelect: [SELECT] WHERE <Where> ORDER BY geozoneID,sortID
-        DBSelect<Geozone> dsel = new DBSelect<Geozone>(Geozone.getFactory());
-        dsel.setWhere(Geozone.getWhereClause(
-            acctID,                     // accountID
-            null,                       // geozoneID
-            -1,                         // sortID
-            null, gp,                   // (GeoBounds)/GeoPoint
-            false,                      // clientUpload
-            false                       // reverseGeocode
-            ));
-        if (Geozone.supportsPriority()) {
-            dsel.setOrderByFields(FLD_priority, FLD_sortID);
-        } else {
-            dsel.setOrderByFields(FLD_sortID);
-        }
-
         /* get Geozones */
         Geozone gz[] = null;
         try {
-            DBProvider.lockTables(new String[] { TABLE_NAME() }, null);
-            gz = DBRecord.select(dsel); // select:DBSelect
+            gz = Geozone._selectGeozones(acctID, null, gp, false);
         } catch (DBException dbe) {
             Print.logError("Geozone error: " + dbe);
             //return null;
             throw dbe;
-        } finally {
-            try {
-                DBProvider.unlockTables();
-            } catch (DBException dbe) {
-                // ignore
-            }
         }
 
         /* no records? */
@@ -0,0 +1,462 @@
+// ----------------------------------------------------------------------------
+// Copyright 2007-2014, GeoTelematic Solutions, Inc.
+// All rights reserved
+// ----------------------------------------------------------------------------
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ----------------------------------------------------------------------------
+// Batched 'INSERT' handler.
+// Records inserted concurrently by multiple threads (ie. one per client session)
+// are queued, grouped by table/column-set, and written using a cached
+// PreparedStatement and JDBC batch execution.  Each calling thread blocks until
+// its own record has been written, and receives the same result (or SQLException)
+// that a direct "DBProvider.insertRecordIntoTable" would have produced.
+// ----------------------------------------------------------------------------
+package org.opengts.dbtools;
+
+import java.lang.*;
+import java.util.*;
+import java.io.*;
+import java.sql.*;
+
+import org.opengts.util.*;
+
+/**
+*** <code>DBBatchInsert</code> groups record insertions from multiple threads into
+*** JDBC batches.
+**/
+
+public class DBBatchInsert
+    implements Runnable
+{
+
+    // ------------------------------------------------------------------------
+
+    private static final int     DEFAULT_BATCH_SIZE     = 0;     // disabled
+    private static final long    DEFAULT_DELAY_MS       = 50L;
+    private static final long    MAXIMUM_DELAY_MS       = 5000L;
+
+    // ------------------------------------------------------------------------
+
+    private static DBBatchInsert batchInsert = null;
+
+    /**
+    *** Returns true if batched insertion has been enabled
+    *** ("db.batchInsert.size" greater than '1')
+    *** @return True if batched insertion has been enabled
+    **/
+    public static boolean IsEnabled()
+    {
+        return (RTConfig.getInt(RTKey.DB_BATCH_INSERT_SIZE,DEFAULT_BATCH_SIZE) > 1);
+    }
+
+    /**
+    *** Gets the global DBBatchInsert instance
+    *** @return The global DBBatchInsert instance
+    **/
+    public static DBBatchInsert getInstance()
+    {
+        if (batchInsert == null) {
+            synchronized (DBBatchInsert.class) {
+                if (batchInsert == null) {
+                    batchInsert = new DBBatchInsert();
+                }
+            }
+        }
+        return batchInsert;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Insert statement template for a specific DBFactory/column-set
+    **/
+    private static class InsertTemplate
+    {
+        private Map<String,DBField> existingColumns = null;
+        private String              sql             = null;
+        private DBField             fields[]        = null;
+        private boolean             batchable       = false;
+        public InsertTemplate(DBFactory<?> fact, DBField fld[], Map<String,DBField> existCols) {
+            this.existingColumns = existCols;
+            String xtableName = fact.getTranslatedTableName();
+            StringBuffer colSB = new StringBuffer();
+            StringBuffer valSB = new StringBuffer();
+            java.util.List<DBField> insFlds = new Vector<DBField>();
+            boolean autoIncr = false;
+            for (int i = 0; i < fld.length; i++) {
+                String fldName  = fld[i].getName();
+                String xFldName = DBProvider.translateColumnName(fldName);
+                if (fld[i].isAutoIncrement()) {
+                    // auto-increment values cannot be retrieved from a batch
+                    autoIncr = true;
+                    continue;
+                }
+                if ((existCols == null) || existCols.containsKey(xFldName)) {
+                    if (!insFlds.isEmpty()) {
+                        colSB.append(",");
+                        valSB.append(",");
+                    }
+                    colSB.append(DBProvider.getProvider().quoteColumnName(fldName));
+                    valSB.append("?");
+                    insFlds.add(fld[i]);
+                } else
+                if (fact.logMissingColumnWarning()) {
+                    Print.logWarn("Insert: Field does not exist: " + xtableName + "." + fldName + " [ignored]");
+                }
+            }
+            this.sql       = "INSERT INTO " + xtableName + " (" + colSB + ") VALUES (" + valSB + ")";
+            this.fields    = insFlds.toArray(new DBField[insFlds.size()]);
+            this.batchable = !autoIncr && !insFlds.isEmpty();
+        }
+    }
+
+    /**
+    *** Queued record insertion
+    **/
+    private static class Entry
+    {
+        private DBRecord<?>      record      = null;
+        private InsertTemplate   template    = null;
+        private long             queueTimeMS = 0L;
+        private boolean          done        = false;
+        private SQLException     sqlError    = null;
+        private DBException      dbError     = null;
+        public Entry(DBRecord<?> rec, InsertTemplate tmpl) {
+            this.record      = rec;
+            this.template    = tmpl;
+            this.queueTimeMS = DateTime.getCurrentTimeMillis();
+        }
+        public synchronized void setResult(SQLException sqe, DBException dbe) {
+            this.sqlError = sqe;
+            this.dbError  = dbe;
+            this.done     = true;
+            this.notifyAll();
+        }
+        public synchronized void waitForResult() throws SQLException, DBException {
+            while (!this.done) {
+                try { this.wait(); } catch (InterruptedException ie) { /* ignore */ }
+            }
+            if (this.sqlError != null) { throw this.sqlError; }
+            if (this.dbError  != null) { throw this.dbError;  }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    private Map<DBFactory<?>,InsertTemplate> templateMap    = new IdentityHashMap<DBFactory<?>,InsertTemplate>();
+
+    private Object                          queueLock       = new Object();
+    private java.util.List<Entry>           queue           = new Vector<Entry>();
+    private Thread                          flushThread     = null;
+
+    private DBConnection                    dbConnection    = null;
+    private Connection                      stmtConnection  = null;
+    private Map<String,PreparedStatement>   stmtCache       = new HashMap<String,PreparedStatement>();
+
+    private long                            batchCount      = 0L;
+    private long                            recordCount     = 0L;
+
+    /**
+    *** Constructor
+    **/
+    private DBBatchInsert()
+    {
+        super();
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Inserts the specified record.  The record is grouped with other queued records
+    *** for the same table and written as part of a JDBC batch.  This method blocks
+    *** until the record has been written.
+    *** @param rec  The record to insert
+    *** @throws SQLException  If an SQL error occurs (ie. duplicate key)
+    *** @throws DBException   If a database error occurs
+    **/
+    public void insertRecord(DBRecord<?> rec)
+        throws SQLException, DBException
+    {
+        InsertTemplate tmpl = this._getTemplate(rec);
+        if ((tmpl == null) || !tmpl.batchable || !DBBatchInsert.IsEnabled()) {
+            // not batchable, insert directly
+            DBProvider.insertRecordIntoTable(rec);
+            return;
+        }
+        Entry entry = new Entry(rec, tmpl);
+        synchronized (this.queueLock) {
+            if (this.flushThread == null) {
+                this.flushThread = new Thread(this, "DBBatchInsert");
+                this.flushThread.setDaemon(true);
+                this.flushThread.start();
+            }
+            this.queue.add(entry);
+            if (this.queue.size() >= this._getBatchSize()) {
+                this.queueLock.notifyAll();
+            } else
+            if (this.queue.size() == 1) {
+                this.queueLock.notifyAll(); // start delay timer
+            }
+        }
+        entry.waitForResult();
+    }
+
+    /**
+    *** Gets the number of executed batches
+    *** @return The number of executed batches
+    **/
+    public long getBatchCount()
+    {
+        return this.batchCount;
+    }
+
+    /**
+    *** Gets the number of records written
+    *** @return The number of records written
+    **/
+    public long getRecordCount()
+    {
+        return this.recordCount;
+    }
+
+    // ------------------------------------------------------------------------
+
+    private int _getBatchSize()
+    {
+        int size = RTConfig.getInt(RTKey.DB_BATCH_INSERT_SIZE,DEFAULT_BATCH_SIZE);
+        return (size > 1)? size : 1;
+    }
+
+    private long _getDelayMS()
+    {
+        long delayMS = RTConfig.getLong(RTKey.DB_BATCH_INSERT_DELAY_MS,DEFAULT_DELAY_MS);
+        if (delayMS < 0L) {
+            return 0L;
+        } else
+        if (delayMS > MAXIMUM_DELAY_MS) {
+            return MAXIMUM_DELAY_MS;
+        } else {
+            return delayMS;
+        }
+    }
+
+    private InsertTemplate _getTemplate(DBRecord<?> rec)
+        throws DBException
+    {
+        DBRecordKey<?> recKey = rec.getRecordKey();
+        DBFactory<?> fact = recKey.getFactory();
+        Map<String,DBField> existCols = fact.getExistingColumnMap(false);
+        synchronized (this.templateMap) {
+            InsertTemplate tmpl = this.templateMap.get(fact);
+            if ((tmpl == null) || (tmpl.existingColumns != existCols)) {
+                // new table, or existing columns have been reloaded
+                tmpl = new InsertTemplate(fact, recKey.getFields(), existCols);
+                this.templateMap.put(fact, tmpl);
+            }
+            return tmpl;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Flush thread
+    **/
+    public void run()
+    {
+        for (;;) {
+
+            /* wait for a full batch, or for the oldest entry to expire */
+            java.util.List<Entry> pending = null;
+            synchronized (this.queueLock) {
+                while (this.queue.isEmpty()) {
+                    try { this.queueLock.wait(); } catch (InterruptedException ie) { /* ignore */ }
+                }
+                long flushAtMS = this.queue.get(0).queueTimeMS + this._getDelayMS();
+                while (this.queue.size() < this._getBatchSize()) {
+                    long waitMS = flushAtMS - DateTime.getCurrentTimeMillis();
+                    if (waitMS <= 0L) { break; }
+                    try { this.queueLock.wait(waitMS); } catch (InterruptedException ie) { /* ignore */ }
+                }
+                pending = this.queue;
+                this.queue = new Vector<Entry>();
+            }
+
+            /* group by table/column-set */
+            Map<InsertTemplate,java.util.List<Entry>> groups = new LinkedHashMap<InsertTemplate,java.util.List<Entry>>();
+            for (Entry e : pending) {
+                java.util.List<Entry> g = groups.get(e.template);
+                if (g == null) {
+                    g = new Vector<Entry>();
+                    groups.put(e.template, g);
+                }
+                g.add(e);
+            }
+
+            /* write */
+            int batchSize = this._getBatchSize();
+            for (InsertTemplate tmpl : groups.keySet()) {
+                java.util.List<Entry> g = groups.get(tmpl);
+                for (int s = 0; s < g.size(); s += batchSize) {
+                    java.util.List<Entry> batch = g.subList(s, Math.min(s + batchSize, g.size()));
+                    try {
+                        this._writeBatch(tmpl, batch);
+                    } catch (Throwable th) {
+                        Print.logException("Batch insert error", th);
+                    } finally {
+                        // make sure no caller is left waiting
+                        for (Entry e : batch) {
+                            if (!e.done) {
+                                e.setResult(null, new DBException("Batch insert failed"));
+                            }
+                        }
+                    }
+                }
+            }
+
+        }
+    }
+
+    /**
+    *** Writes the specified entries using a single JDBC batch
+    **/
+    private void _writeBatch(InsertTemplate tmpl, java.util.List<Entry> batch)
+    {
+        int updCount[] = null;
+        try {
+            try {
+                updCount = this._executeBatch(tmpl, batch);
+            } catch (SQLException sqe) {
+                if (sqe instanceof BatchUpdateException) {
+                    throw sqe;
+                } else
+                if (DBConnection.parseCommunicationsException(sqe)) {
+                    // close/retry connection
+                    Print.logWarn("Batch insert close/retry: " + sqe);
+                    this._closeConnection();
+                    updCount = this._executeBatch(tmpl, batch);
+                } else {
+                    throw sqe;
+                }
+            }
+        } catch (BatchUpdateException bue) {
+            // some records may have been inserted
+            updCount = bue.getUpdateCounts();
+        } catch (SQLException sqe) {
+            // nothing inserted, retry records individually below
+            Print.logWarn("Batch insert failed: " + sqe);
+            updCount = null;
+        } catch (DBException dbe) {
+            for (Entry e : batch) {
+                e.setResult(null, dbe);
+            }
+            return;
+        }
+
+        /* per-record results */
+        this.batchCount++;
+        for (int i = 0; i < batch.size(); i++) {
+            Entry e = batch.get(i);
+            int cnt = ((updCount != null) && (i < updCount.length))? updCount[i] : Statement.EXECUTE_FAILED;
+            if (cnt != Statement.EXECUTE_FAILED) {
+                this.recordCount++;
+                e.setResult(null, null);
+            } else {
+                // retry individually to obtain the specific SQLException for this record
+                try {
+                    PreparedStatement ps = this._getPreparedStatement(tmpl.sql);
+                    this._bindValues(ps, tmpl, e.record);
+                    ps.executeUpdate();
+                    this.recordCount++;
+                    e.setResult(null, null);
+                } catch (SQLException sqe) {
+                    e.setResult(sqe, null);
+                } catch (DBException dbe) {
+                    e.setResult(null, dbe);
+                }
+            }
+        }
+
+    }
+
+    private int[] _executeBatch(InsertTemplate tmpl, java.util.List<Entry> batch)
+        throws SQLException, DBException
+    {
+        PreparedStatement ps = this._getPreparedStatement(tmpl.sql);
+        if (DBConnection.getShowExecutedSQL()) {
+            Print.logInfo("SQL(Batch:" + batch.size() + "): " + tmpl.sql);
+        }
+        ps.clearBatch();
+        for (Entry e : batch) {
+            this._bindValues(ps, tmpl, e.record);
+            ps.addBatch();
+        }
+        return ps.executeBatch();
+    }
+
+    private void _bindValues(PreparedStatement ps, InsertTemplate tmpl, DBRecord<?> rec)
+        throws SQLException
+    {
+        DBFieldValues fieldValues = rec.getRecordKey().getFieldValues();
+        for (int f = 0; f < tmpl.fields.length; f++) {
+            DBField fld = tmpl.fields[f];
+            Object fldVal = fieldValues.getFieldValue(fld.getName(),true);
+            fld.setPreparedStatementValue(ps, f + 1, fldVal);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    private PreparedStatement _getPreparedStatement(String sql)
+        throws SQLException, DBException
+    {
+        if (this.dbConnection == null) {
+            String uri = DBProvider.getDBUri(true);
+            String usr = DBProvider.getDBUsername();
+            String pwd = DBProvider.getDBPassword();
+            this.dbConnection = new DBConnection(uri, usr, pwd);
+        }
+        Connection conn = this.dbConnection.getConnection(); // may reconnect
+        if (conn != this.stmtConnection) {
+            // new connection, previously prepared statements are no longer valid
+            this._clearStatementCache();
+            this.stmtConnection = conn;
+        }
+        PreparedStatement ps = this.stmtCache.get(sql);
+        if (ps == null) {
+            ps = conn.prepareStatement(sql);
+            this.stmtCache.put(sql, ps);
+        }
+        return ps;
+    }
+
+    private void _clearStatementCache()
+    {
+        for (PreparedStatement ps : this.stmtCache.values()) {
+            try { ps.close(); } catch (Throwable th) { /* ignore */ }
+        }
+        this.stmtCache.clear();
+        this.stmtConnection = null;
+    }
+
+    private void _closeConnection()
+    {
+        this._clearStatementCache();
+        if (this.dbConnection != null) {
+            this.dbConnection.closeConnection();
+        }
+    }
+
+}
@@ -247,7 +247,7 @@ public class DBConnection
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
-    private static boolean parseCommunicationsException(SQLException sqe)
+    protected static boolean parseCommunicationsException(SQLException sqe)
     {
 
         /* no SQLExeption? */
@@ -291,7 +291,6 @@ public class DBConnection
     // ------------------------------------------------------------------------
 
     protected static Map<String,DBConnection>            dbConnectionMap  = null;
-    protected static Map<String,ArrayList<DBConnection>> dbConnectionPool = null;
     protected static Collection<DBConnection>            dbConnectionList = null;
 
     /**
@@ -303,25 +302,9 @@ public class DBConnection
         // "DBConnection.ConnectionPoolLock" lock required
         if (uri == null) {
             return null;
-        } else
-        if (DBCONNECTION_POOL) {
-            // Pooled Connections
-            if (dbConnectionPool != null) {
-                ArrayList<DBConnection> dbcArray = dbConnectionPool.get(uri);
-                if (dbcArray != null) {
-                    for (int d = 0; d < dbcArray.size(); d++) {
-                        DBConnection dbc = dbcArray.get(d);
-                        if (dbc._getLockCount() <= 0) {
-                            dbcArray.remove(d); // (0); -- (fixed 2012/05/08)
-                            dbcArray.add(dbc);
-                            return dbc;
-                        }
-                    }
-                }
-            }
-            return null;
         } else {
             // ThreadLocal connections
+            // (pooled connections are managed by DBConnectionPool)
             return (dbConnectionMap != null)? dbConnectionMap.get(uri) : null;
         }
     }
@@ -335,24 +318,11 @@ public class DBConnection
         // "DBConnection.ConnectionPoolLock" lock required
         if (dbc != null) {
             String uri = dbc.getUri();
-            if (DBCONNECTION_POOL) {
-                // Pooled Connections
-                if (dbConnectionPool == null) {
-                    dbConnectionPool = new HashMap<String,ArrayList<DBConnection>>();
-                }
-                ArrayList<DBConnection> dbcArray = dbConnectionPool.get(uri);
-                if (dbcArray == null) {
-                    dbcArray = new ArrayList<DBConnection>();
-                    dbConnectionPool.put(uri, dbcArray);
-                }
-                dbcArray.add(dbc);
-            } else {
-                // ThreadLocal connections
-                if (dbConnectionMap == null) {
-                    dbConnectionMap  = new ThreadLocalMap<String,DBConnection>();
-                }
-                dbConnectionMap.put(uri, dbc);
+            // ThreadLocal connections
+            if (dbConnectionMap == null) {
+                dbConnectionMap  = new ThreadLocalMap<String,DBConnection>();
             }
+            dbConnectionMap.put(uri, dbc);
             /* save list of DBConnections */
             if (dbConnectionList == null) {
                 dbConnectionList = new Vector<DBConnection>();
@@ -375,6 +345,7 @@ public class DBConnection
                 }
             }
         }
+        closed += DBConnectionPool.closeAllPools();
         if (closed > 0) {
             Print.logInfo("Closed all open DBConnections: " + closed);
         }
@@ -393,6 +364,10 @@ public class DBConnection
     **/
     public static DBConnection getDBConnection(String uri, String user, String pass)
     {
+        if ((uri != null) && DBCONNECTION_POOL) {
+            // Pooled Connections
+            return DBConnectionPool.getPool(uri, user, pass).borrowConnection();
+        } else
         if (uri != null) {
             DBConnection dbc = null;
             String dbConnMsg = null;
@@ -439,6 +414,9 @@ public class DBConnection
     
     public static boolean isLocked(DBConnection dbc)
     {
+        if ((dbc != null) && (dbc.pool != null)) {
+            return dbc.pool.isBorrowed(dbc);
+        } else
         if (dbc != null) {
             int LC = 0;
             synchronized (DBConnection.ConnectionPoolLock) {
@@ -456,6 +434,9 @@ public class DBConnection
     public static void release(DBConnection dbc)
     {
         //Print.logInfo("Releasing DBConnection ...");
+        if ((dbc != null) && (dbc.pool != null)) {
+            dbc.pool.returnConnection(dbc);
+        } else
         if (dbc != null) {
             boolean alreadyReleased = false;
             synchronized (DBConnection.ConnectionPoolLock) {
@@ -498,6 +479,9 @@ public class DBConnection
     private int         lockCount           = 0;
     private Throwable   lastLockTrace       = null;
 
+    private DBConnectionPool pool           = null;  // owning pool (if pooled)
+    private boolean     poolExhausted       = false; // pool borrow timed out
+
     /**
     *** Constructor
     *** @param uri  The connection URI
@@ -572,6 +556,77 @@ public class DBConnection
         }
     }
 
+    // ------------------------------------------------------------------------
+    // DBConnectionPool support (a pooled DBConnection is owned by a single borrower)
+
+    /* set owning pool */
+    /* package */ void _setPool(DBConnectionPool pool)
+    {
+        this.pool = pool;
+    }
+
+    /* this DBConnection was returned because the pool borrow timed out */
+    /* package */ void _setPoolExhausted()
+    {
+        this.poolExhausted = true;
+    }
+
+    /* set "In Use" by the borrowing thread */
+    /* package */ void _poolLock(String threadName)
+    {
+        this.threadName    = StringTools.trim(threadName);
+        this.lockCount     = 1;
+        this.lastLockTrace = new Throwable("First DBConnection Lock");
+        this.lastLockTrace.fillInStackTrace();
+    }
+
+    /* clear "In Use" */
+    /* package */ void _poolRelease()
+    {
+        this.lockCount     = 0;
+        this.lastLockTrace = null;
+    }
+
+    /* package */ Throwable _getLastLockTrace()
+    {
+        return this.lastLockTrace;
+    }
+
+    /* package */ String _getThreadName()
+    {
+        return this.threadName;
+    }
+
+    /* package */ long _getConnectTimeSec()
+    {
+        return this.connectTime;
+    }
+
+    /* package */ long _getLastUseTimeSec()
+    {
+        return this.lastUseTime;
+    }
+
+    /* returns true if the physical connection is open (no timeout check) */
+    /* package */ boolean _isOpen()
+    {
+        try {
+            return (this.dbConnection != null) && !this.dbConnection.isClosed();
+        } catch (SQLException sqe) {
+            return false;
+        }
+    }
+
+    /* returns true if the physical connection is still valid */
+    /* package */ boolean _isValid(int timeoutSec)
+    {
+        try {
+            return (this.dbConnection != null) && this.dbConnection.isValid(timeoutSec);
+        } catch (Throwable th) { // SQLException, AbstractMethodError (pre-JDBC4 driver)
+            return this._isOpen();
+        }
+    }
+
     // ------------------------------------------------------------------------
 
     /**
@@ -620,6 +675,9 @@ public class DBConnection
     public Connection getConnection()
         throws SQLException
     {
+        if (this.poolExhausted) {
+            throw new SQLException("DBConnection pool exhausted: " + this.getUri());
+        }
         if (this.isConnectionClosed()) {
 
             /* make sure connection is closed */
@@ -734,6 +792,10 @@ public class DBConnection
     **/
     public boolean isConnectionTimeout()
     {
+        if (this.pool != null) {
+            // idle/lifetime limits are managed by DBConnectionPool
+            return false;
+        }
         long nowTime = DateTime.getCurrentTimeSec();
         long connTimeout = RTConfig.getLong(RTKey.DB_INACTIVE_TIMEOUT, INACTIVE_TIMEOUT);
         return ((nowTime - this.lastUseTime) > connTimeout);
@@ -924,19 +986,41 @@ public class DBConnection
     **/
     public long executeUpdate(String sql, boolean rtnAutoIncrVal)
         throws SQLException, DBException
+    {
+        return this._executeUpdateRetry(sql, rtnAutoIncrVal, false);
+    }
+
+    /**
+    *** Execute the specified SQL update, and return the number of rows affected
+    *** @param sql  The String SQL statement to execute
+    *** @return The number of rows affected by the update
+    *** @throws SQLException  If an SQL error occurs
+    *** @throws DBException   If a database error occurs
+    **/
+    public long executeUpdateCount(String sql)
+        throws SQLException, DBException
+    {
+        return this._executeUpdateRetry(sql, false, true);
+    }
+
+    /**
+    *** Execute the specified SQL update, retrying once if the connection was lost
+    **/
+    private long _executeUpdateRetry(String sql, boolean rtnAutoIncrVal, boolean rtnUpdateCount)
+        throws SQLException, DBException
     {
         try {
             if (ShowExecutedSQL) { 
                 Print.logInfo("SQL: " + sql); 
             }
-            return this._executeUpdate(sql, rtnAutoIncrVal); // may throw DBException
+            return this._executeUpdate(sql, rtnAutoIncrVal, rtnUpdateCount); // may throw DBException
         } catch (IOException ioe) { // EOFException
             // close/retry connection
             String ioMsg = ioe.getMessage();
             Print.logWarn("SQL(IOException) close/retry: "+ioMsg);
             this.closeConnection();
             try {
-                return this._executeUpdate(sql, rtnAutoIncrVal); // may throw DBException
+                return this._executeUpdate(sql, rtnAutoIncrVal, rtnUpdateCount); // may throw DBException
             } catch (IOException ioe2) {
                 throw new DBException("JDBC IOException", ioe2);
             }
@@ -947,7 +1031,7 @@ public class DBConnection
                 // close/retry connection
                 this.closeConnection();
                 try {
-                    return this._executeUpdate(sql, rtnAutoIncrVal); // may throw SQLException, DBException
+                    return this._executeUpdate(sql, rtnAutoIncrVal, rtnUpdateCount); // may throw SQLException, DBException
                 } catch (IOException ioe2) {
                     throw new DBException("JDBC IOException", ioe2);
                 }
@@ -963,11 +1047,12 @@ public class DBConnection
     *** @param sql  The String SQL statement to execute
     *** @param rtnAutoIncrVal If auto-generated fields (ie. "auto_increment")
     ***        should be returned
-    *** @return The generated auto increment value or -1
+    *** @param rtnUpdateCount True to return the number of rows affected
+    *** @return The generated auto increment value, the number of rows affected, or -1
     *** @throws SQLException  If an SQL error occurs
     *** @throws DBException   If a database error occurs
     **/
-    private long _executeUpdate(String sql, boolean rtnAutoIncrVal)
+    private long _executeUpdate(String sql, boolean rtnAutoIncrVal, boolean rtnUpdateCount)
         throws SQLException, IOException, DBException
     {
         Statement stmt = null;
@@ -985,8 +1070,8 @@ public class DBConnection
                     return -1L;
                 }
             } else {
-                stmt.executeUpdate(sql); // known to throw IOException
-                return -1L;
+                int rowCount = stmt.executeUpdate(sql); // known to throw IOException
+                return rtnUpdateCount? (long)rowCount : -1L;
             }
         } catch (SQLException sqe) {
             throw sqe;
@@ -0,0 +1,394 @@
+// ----------------------------------------------------------------------------
+// Copyright 2007-2014, GeoTelematic Solutions, Inc.
+// All rights reserved
+// ----------------------------------------------------------------------------
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ----------------------------------------------------------------------------
+// Description:
+//  Bounded DBConnection pool (used when "db.dbConnectionPool" is true).
+//  The number of borrowed connections is bounded by a semaphore, and idle
+//  connections are kept in a non-blocking queue.  Connections are validated
+//  on borrow, physically closed when idle or older than their maximum lifetime,
+//  and connections held beyond the leak-detection interval are reported with
+//  the stack trace of the borrowing caller.
+// ----------------------------------------------------------------------------
+package org.opengts.dbtools;
+
+import java.lang.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.sql.*;
+
+import org.opengts.util.*;
+
+/**
+*** <code>DBConnectionPool</code> is a bounded pool of DBConnections for a specific URI
+**/
+
+public class DBConnectionPool
+{
+
+    // ------------------------------------------------------------------------
+
+    private static final long   HOUSEKEEPING_INTERVAL_MS    = 30000L;
+    private static final int    VALIDATION_TIMEOUT_SEC      = 5;
+
+    // ------------------------------------------------------------------------
+
+    private static ConcurrentHashMap<String,DBConnectionPool> poolMap =
+        new ConcurrentHashMap<String,DBConnectionPool>();
+
+    /**
+    *** Gets the DBConnectionPool for the specified URI/user
+    *** @param uri   The connection URI
+    *** @param user  The user name
+    *** @param pass  The password
+    *** @return The DBConnectionPool
+    **/
+    public static DBConnectionPool getPool(String uri, String user, String pass)
+    {
+        String key = uri + "|" + StringTools.trim(user);
+        DBConnectionPool pool = poolMap.get(key);
+        if (pool == null) {
+            DBConnectionPool newPool = new DBConnectionPool(uri, user, pass);
+            pool = poolMap.putIfAbsent(key, newPool);
+            if (pool == null) {
+                pool = newPool;
+                Print.logDebug("New DBConnectionPool: " + uri + " [max " + pool.getMaximumSize() + "]");
+            }
+        }
+        return pool;
+    }
+
+    /**
+    *** Closes all idle connections in all pools
+    *** @return The number of closed connections
+    **/
+    public static int closeAllPools()
+    {
+        int count = 0;
+        for (DBConnectionPool pool : poolMap.values()) {
+            count += pool.closeIdleConnections();
+        }
+        return count;
+    }
+
+    /**
+    *** Gets the statistics of all pools
+    *** @param sb  The StringBuffer to which the statistics are appended (may be null)
+    *** @return The StringBuffer
+    **/
+    public static StringBuffer GetPoolState(StringBuffer sb)
+    {
+        if (sb == null) { sb = new StringBuffer(); }
+        sb.append("DBConnectionPools:\n");
+        if (!poolMap.isEmpty()) {
+            for (DBConnectionPool pool : poolMap.values()) {
+                sb.append("  ").append(pool.toString()).append("\n");
+            }
+        } else {
+            sb.append("  None\n");
+        }
+        return sb;
+    }
+
+    // ------------------------------------------------------------------------
+
+    private String                                  dbUri           = null;
+    private String                                  userName        = null;
+    private String                                  password        = null;
+
+    private int                                     maxSize         = 0;
+    private Semaphore                               permits         = null;
+    private ConcurrentLinkedQueue<DBConnection>     idleQueue       = new ConcurrentLinkedQueue<DBConnection>();
+    private ConcurrentHashMap<DBConnection,Long>    borrowed        = new ConcurrentHashMap<DBConnection,Long>();
+    private Set<DBConnection>                       leakReported    = Collections.newSetFromMap(new ConcurrentHashMap<DBConnection,Boolean>());
+    private AtomicLong                              nextHousekeepMS = new AtomicLong(0L);
+
+    private AtomicLong                              createCount     = new AtomicLong(0L);
+    private AtomicLong                              borrowCount     = new AtomicLong(0L);
+    private AtomicLong                              timeoutCount    = new AtomicLong(0L);
+    private AtomicLong                              invalidCount    = new AtomicLong(0L);
+    private AtomicLong                              evictCount      = new AtomicLong(0L);
+    private AtomicLong                              leakCount       = new AtomicLong(0L);
+    private AtomicLong                              totalWaitMS     = new AtomicLong(0L);
+
+    /**
+    *** Constructor
+    *** @param uri   The connection URI
+    *** @param user  The user name
+    *** @param pass  The password
+    **/
+    private DBConnectionPool(String uri, String user, String pass)
+    {
+        super();
+        this.dbUri    = uri;
+        this.userName = user;
+        this.password = pass;
+        int max = RTConfig.getInt(RTKey.DB_POOL_MAX_SIZE, 100);
+        this.maxSize  = (max > 0)? max : 100;
+        this.permits  = new Semaphore(this.maxSize, true/*fair*/);
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Gets the maximum number of borrowed connections
+    **/
+    public int getMaximumSize()
+    {
+        return this.maxSize;
+    }
+
+    /**
+    *** Gets the number of currently borrowed connections
+    **/
+    public int getActiveCount()
+    {
+        return this.borrowed.size();
+    }
+
+    /**
+    *** Gets the number of idle connections
+    **/
+    public int getIdleCount()
+    {
+        return this.idleQueue.size();
+    }
+
+    /**
+    *** Gets the number of threads waiting to borrow a connection
+    **/
+    public int getWaitingCount()
+    {
+        return this.permits.getQueueLength();
+    }
+
+    /**
+    *** Returns true if the specified DBConnection is currently borrowed
+    **/
+    public boolean isBorrowed(DBConnection dbc)
+    {
+        return (dbc != null) && this.borrowed.containsKey(dbc);
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Borrows a DBConnection from this pool.<br>
+    *** If no connection becomes available within "db.dbConnectionPool.maxWaitMS", the
+    *** returned DBConnection will throw an SQLException when used.
+    *** @return The borrowed DBConnection
+    **/
+    public DBConnection borrowConnection()
+    {
+        this._housekeeping();
+
+        /* wait for an available connection */
+        long maxWaitMS = RTConfig.getLong(RTKey.DB_POOL_MAX_WAIT_MS, 10000L);
+        long startMS   = DateTime.getCurrentTimeMillis();
+        boolean acquired = false;
+        try {
+            acquired = this.permits.tryAcquire(((maxWaitMS > 0L)? maxWaitMS : 0L), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            acquired = false;
+        }
+        this.totalWaitMS.addAndGet(DateTime.getCurrentTimeMillis() - startMS);
+        if (!acquired) {
+            this.timeoutCount.incrementAndGet();
+            Print.logError("DBConnection pool exhausted: " + this);
+            this._reportLeaks(0L); // show who is holding connections
+            DBConnection dbc = new DBConnection(this.dbUri, this.userName, this.password);
+            dbc._setPoolExhausted();
+            return dbc;
+        }
+
+        /* idle connection, or new connection */
+        DBConnection dbc = null;
+        for (;;) {
+            dbc = this.idleQueue.poll();
+            if (dbc == null) {
+                dbc = new DBConnection(this.dbUri, this.userName, this.password);
+                dbc._setPool(this);
+                this.createCount.incrementAndGet();
+                break;
+            } else
+            if (this._validate(dbc)) {
+                break;
+            }
+        }
+
+        /* borrowed */
+        this.borrowCount.incrementAndGet();
+        this.borrowed.put(dbc, new Long(DateTime.getCurrentTimeMillis()));
+        dbc._poolLock(Thread.currentThread().getName());
+        return dbc;
+
+    }
+
+    /**
+    *** Returns the specified DBConnection to this pool
+    *** @param dbc  The borrowed DBConnection
+    *** @return False if the connection was returned, true if it was already released
+    **/
+    public boolean returnConnection(DBConnection dbc)
+    {
+        if ((dbc == null) || (this.borrowed.remove(dbc) == null)) {
+            // not borrowed (already released)
+            return true;
+        }
+        dbc._poolRelease();
+        this.leakReported.remove(dbc);
+        this.idleQueue.offer(dbc);
+        this.permits.release();
+        return false;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Validates an idle connection before it is borrowed.  Connections beyond their
+    *** maximum lifetime are closed (and will be reopened when used).
+    *** @return False if the connection should be discarded
+    **/
+    private boolean _validate(DBConnection dbc)
+    {
+        if (!dbc._isOpen()) {
+            // not yet connected, or already closed (will be [re]opened on use)
+            return true;
+        }
+        long nowSec = DateTime.getCurrentTimeSec();
+        long maxLifeSec = RTConfig.getLong(RTKey.DB_POOL_MAX_LIFETIME_SEC, 4L * 3600L);
+        if ((maxLifeSec > 0L) && ((nowSec - dbc._getConnectTimeSec()) > maxLifeSec)) {
+            dbc.closeConnection();
+            this.evictCount.incrementAndGet();
+            return true;
+        }
+        long validateSec = RTConfig.getLong(RTKey.DB_POOL_VALIDATE_IDLE_SEC, 30L);
+        if ((validateSec >= 0L) && ((nowSec - dbc._getLastUseTimeSec()) >= validateSec)) {
+            if (!dbc._isValid(VALIDATION_TIMEOUT_SEC)) {
+                this.invalidCount.incrementAndGet();
+                dbc.closeConnection();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+    *** Periodically closes idle/expired connections, and reports leaked connections
+    **/
+    private void _housekeeping()
+    {
+        long nowMS  = DateTime.getCurrentTimeMillis();
+        long nextMS = this.nextHousekeepMS.get();
+        if ((nowMS < nextMS) || !this.nextHousekeepMS.compareAndSet(nextMS, nowMS + HOUSEKEEPING_INTERVAL_MS)) {
+            return;
+        }
+
+        /* idle connections */
+        long nowSec     = nowMS / 1000L;
+        long maxIdleSec = RTConfig.getLong(RTKey.DB_POOL_MAX_IDLE_SEC    , 1800L);
+        long maxLifeSec = RTConfig.getLong(RTKey.DB_POOL_MAX_LIFETIME_SEC, 4L * 3600L);
+        for (int i = this.idleQueue.size(); i > 0; i--) {
+            DBConnection dbc = this.idleQueue.poll();
+            if (dbc == null) {
+                break;
+            }
+            if (dbc._isOpen()) {
+                boolean idle = (maxIdleSec > 0L) && ((nowSec - dbc._getLastUseTimeSec()) > maxIdleSec);
+                boolean old  = (maxLifeSec > 0L) && ((nowSec - dbc._getConnectTimeSec()) > maxLifeSec);
+                if (idle || old) {
+                    dbc.closeConnection();
+                    this.evictCount.incrementAndGet();
+                }
+            }
+            this.idleQueue.offer(dbc);
+        }
+
+        /* leaked connections */
+        long leakSec = RTConfig.getLong(RTKey.DB_POOL_LEAK_DETECTION_SEC, 300L);
+        if (leakSec > 0L) {
+            this._reportLeaks(leakSec * 1000L);
+        }
+
+    }
+
+    /**
+    *** Reports connections borrowed for longer than the specified time
+    **/
+    private void _reportLeaks(long minAgeMS)
+    {
+        long nowMS = DateTime.getCurrentTimeMillis();
+        for (Map.Entry<DBConnection,Long> me : this.borrowed.entrySet()) {
+            DBConnection dbc = me.getKey();
+            long ageMS = nowMS - me.getValue().longValue();
+            if ((ageMS >= minAgeMS) && this.leakReported.add(dbc)) {
+                if (minAgeMS > 0L) {
+                    this.leakCount.incrementAndGet();
+                }
+                Throwable trace = dbc._getLastLockTrace();
+                String msg = "DBConnection held for " + (ageMS / 1000L) + " sec [" + dbc._getThreadName() + "]";
+                if (trace != null) {
+                    Print.logException(msg, trace);
+                } else {
+                    Print.logWarn(msg);
+                }
+            }
+        }
+    }
+
+    /**
+    *** Closes all idle connections
+    *** @return The number of closed connections
+    **/
+    public int closeIdleConnections()
+    {
+        int count = 0;
+        for (DBConnection dbc : this.idleQueue) {
+            if (dbc._isOpen()) {
+                dbc.closeConnection();
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Returns a String representation of the pool statistics
+    **/
+    public String toString()
+    {
+        long borrows = this.borrowCount.get();
+        StringBuffer sb = new StringBuffer();
+        sb.append(this.dbUri);
+        sb.append(" max=").append(this.maxSize);
+        sb.append(", active=").append(this.getActiveCount());
+        sb.append(", idle=").append(this.getIdleCount());
+        sb.append(", waiting=").append(this.getWaitingCount());
+        sb.append(", created=").append(this.createCount.get());
+        sb.append(", borrowed=").append(borrows);
+        sb.append(", avgWaitMS=").append((borrows > 0L)? (this.totalWaitMS.get() / borrows) : 0L);
+        sb.append(", timeouts=").append(this.timeoutCount.get());
+        sb.append(", invalid=").append(this.invalidCount.get());
+        sb.append(", evicted=").append(this.evictCount.get());
+        sb.append(", leaks=").append(this.leakCount.get());
+        return sb.toString();
+    }
+
+}
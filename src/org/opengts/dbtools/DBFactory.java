@@ -349,6 +349,10 @@ public class DBFactory<gDBR extends DBRecord>
     private OrderedMap<String,DBField>              fieldMap            = null;
     private boolean                                 fieldArrayReady     = false;
     private DBField                                 fieldArray[]        = null;     // optimization
+    private volatile FieldAccessor                  fieldAccessors[]    = null;     // lazy init
+
+    private boolean                                 compactFieldValues  = false;
+    private volatile DBFieldValues.Schema           fieldValueSchema    = null;     // lazy init
 
     private boolean                                 editable            = true;
     private boolean                                 viewable            = true;
@@ -509,6 +513,7 @@ public class DBFactory<gDBR extends DBRecord>
             }
 
             // save
+            fld.setFieldIndex(this.fieldMap.size()); // index in "getFields()" array
             this.fieldMap.put(fn, fld);
 
             // primary key
@@ -539,6 +544,8 @@ public class DBFactory<gDBR extends DBRecord>
         this.fieldArray = null;
         this.fieldArrayReady = false;
         this.getFields();
+        this.fieldAccessors = null;
+        this.fieldValueSchema = null;
 
         /* set "logMissingColumns" default */
         String lmcKey = utableName + RTKey._DB_LOG_MISSING_COLUMNS;
@@ -1108,6 +1115,168 @@ public class DBFactory<gDBR extends DBRecord>
         return (n != null)? this.fieldMap.get(n) : null;
     }
 
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Field 'getter'/'setter' methods defined by the DBRecord class for a DBField.<br>
+    *** A null method indicates that the DBRecord class does not define the 'getter'/'setter',
+    *** and that the generic "getFieldValue"/"setFieldValue" method should be used.
+    **/
+    public static class FieldAccessor
+    {
+        private DBField  field  = null;
+        private Method   getter = null;
+        private Method   setter = null;
+        private Class<?> setterType = null; // boxed setter argument type
+        public FieldAccessor(Class<?> rcdClass, DBField fld) {
+            this.field  = fld;
+            this.getter = FieldAccessor._getMethod(rcdClass, MethodAction.getterMethodName(fld.getName()));
+            this.setter = FieldAccessor._getMethod(rcdClass, MethodAction.setterMethodName(fld.getName()), fld.getTypeClass());
+            if (this.setter != null) {
+                this.setterType = FieldAccessor._boxedClass(fld.getTypeClass());
+            }
+        }
+        private static Method _getMethod(Class<?> rcdClass, String methName, Class<?>... argClass) {
+            try {
+                Method m = rcdClass.getMethod(methName, argClass);
+                try { m.setAccessible(true); } catch (SecurityException se) { /* ignore */ }
+                return m;
+            } catch (NoSuchMethodException nsme) {
+                return null; // 'getter'/'setter' not defined
+            } catch (Throwable th) {
+                return null;
+            }
+        }
+        private static Class<?> _boxedClass(Class<?> c) {
+            if (!c.isPrimitive()     ) { return c;              } else
+            if (c == Integer.TYPE    ) { return Integer.class;   } else
+            if (c == Long.TYPE       ) { return Long.class;      } else
+            if (c == Double.TYPE     ) { return Double.class;    } else
+            if (c == Float.TYPE      ) { return Float.class;     } else
+            if (c == Boolean.TYPE    ) { return Boolean.class;   } else
+            if (c == Short.TYPE      ) { return Short.class;     } else
+            if (c == Byte.TYPE       ) { return Byte.class;      } else
+            if (c == Character.TYPE  ) { return Character.class; } else
+                                       { return c;              }
+        }
+        public DBField getField() {
+            return this.field;
+        }
+        public boolean hasGetter() {
+            return (this.getter != null);
+        }
+        public boolean hasSetter() {
+            return (this.setter != null);
+        }
+        /* returns true if the 'setter' can be called with the specified value */
+        public boolean canSetValue(Object value) {
+            if (this.setter == null) {
+                return false;
+            } else
+            if (value == null) {
+                return !this.field.getTypeClass().isPrimitive();
+            } else
+            if (this.setterType.isInstance(value)) {
+                return true;
+            } else {
+                // reflection also permits primitive widening conversions (ie. Integer to 'long')
+                Class<?> c = this.field.getTypeClass();
+                boolean isInt = (value instanceof Integer) || (value instanceof Short) || (value instanceof Byte) || (value instanceof Character);
+                if ((c == Long.TYPE) || (c == Float.TYPE) || (c == Double.TYPE)) {
+                    if (isInt || (value instanceof Long)) { return true; }
+                    if ((c == Double.TYPE) && (value instanceof Float)) { return true; }
+                } else
+                if (c == Integer.TYPE) {
+                    if (isInt) { return true; }
+                }
+                return false;
+            }
+        }
+        public Object getValue(DBRecord<?> rcd) throws Throwable {
+            try {
+                return this.getter.invoke(rcd);
+            } catch (java.lang.reflect.InvocationTargetException ite) {
+                throw (ite.getCause() != null)? ite.getCause() : ite;
+            }
+        }
+        public void setValue(DBRecord<?> rcd, Object value) throws Throwable {
+            try {
+                this.setter.invoke(rcd, value);
+            } catch (java.lang.reflect.InvocationTargetException ite) {
+                throw (ite.getCause() != null)? ite.getCause() : ite;
+            }
+        }
+    }
+
+    /**
+    *** Sets the compact field value storage state for records of this table.<br>
+    *** If true, DBRecord field values are held in primitive arrays indexed by a field layout 
+    *** shared by all records of this table, rather than in per-record maps.  This significantly
+    *** reduces the memory used by tables with many fields which are held in large numbers
+    *** (ie. EventData records in reports).  Records created before this state is changed
+    *** retain their current storage.
+    *** @param compact  True to enable compact field value storage
+    **/
+    public void setCompactFieldValues(boolean compact)
+    {
+        this.compactFieldValues = compact;
+    }
+
+    /**
+    *** Gets the compact field value storage state for records of this table
+    *** @return True if compact field value storage is enabled
+    **/
+    public boolean getCompactFieldValues()
+    {
+        return this.compactFieldValues;
+    }
+
+    /**
+    *** Gets the compact field value layout for this table
+    *** @return The compact field value layout, or null if compact storage is not enabled
+    **/
+    /* package */ DBFieldValues.Schema getFieldValueSchema()
+    {
+        if (!this.compactFieldValues) {
+            return null;
+        }
+        DBFieldValues.Schema fvs = this.fieldValueSchema;
+        if (fvs == null) {
+            // a concurrent duplicate initialization is harmless
+            fvs = new DBFieldValues.Schema(this);
+            this.fieldValueSchema = fvs;
+        }
+        return fvs;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Gets the cached 'getter'/'setter' methods for the specified field of this table.<br>
+    *** The field accessors are looked up once for all fields of this table (indexed by field index),
+    *** rather than on each call to "DBRecord.getValue"/"DBRecord.setValue".
+    *** @param fld  The DBField defined by this DBFactory
+    *** @return The field accessor, or null if the field is not defined by this DBFactory
+    **/
+    public FieldAccessor getFieldAccessor(DBField fld)
+    {
+        int ndx = (fld != null)? fld.getFieldIndex() : -1;
+        if ((ndx < 0) || (fld.getFactory() != this)) {
+            return null;
+        }
+        FieldAccessor fa[] = this.fieldAccessors;
+        if (fa == null) {
+            // create field accessors (a concurrent duplicate initialization is harmless)
+            DBField flds[] = this.getFields();
+            fa = new FieldAccessor[flds.length];
+            for (int i = 0; i < flds.length; i++) {
+                fa[i] = new FieldAccessor(this.getRecordClass(), flds[i]);
+            }
+            this.fieldAccessors = fa;
+        }
+        return (ndx < fa.length)? fa[ndx] : null;
+    }
+
     /**
     *** Gets the String length for the specified DBField
     *** @param name  The name of the field for which the String length is retrieved.
@@ -3636,6 +3805,17 @@ public class DBFactory<gDBR extends DBRecord>
         }
     }
 
+    /**
+    *** Callback after the record(s) matching the specified key have been deleted from the table
+    *** @param key  The (possibly partial) key of the deleted record(s)
+    **/
+    public void recordsDidDelete(DBRecordKey<gDBR> key)
+    {
+        if (this.recordListener != null) {
+            this.recordListener.recordsDidDelete(key);
+        }
+    }
+
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
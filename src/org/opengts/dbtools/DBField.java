@@ -305,6 +305,7 @@ public class DBField
     private Class<? extends Enum> maskClass = null;
 
     private DBFactory       factory         = null;
+    private int             fieldIndex      = -1;
 
     private Object          defaultValue    = null;
 
@@ -588,6 +589,26 @@ public class DBField
         return this.factory;
     }
 
+    /**
+    *** Sets the index of this field within the parent table DBFactory field array
+    *** @param ndx  The field index
+    **/
+    /* package */ void setFieldIndex(int ndx)
+    {
+        this.fieldIndex = ndx;
+    }
+
+    /**
+    *** Gets the index of this field within the parent table DBFactory field array
+    *** (see <code>DBFactory.getFields()</code>)
+    *** @return The field index, or -1 if this field is not defined by a DBFactory
+    ***         (ie. a column read from the existing table)
+    **/
+    public int getFieldIndex()
+    {
+        return this.fieldIndex;
+    }
+
     // ------------------------------------------------------------------------
 
     /**
@@ -1529,6 +1550,47 @@ public class DBField
         }
     }
 
+    /**
+    *** Binds the specified value to a PreparedStatement parameter.<br>
+    *** The bound value is equivalent to the literal returned by "getQValue".
+    *** @param ps   The PreparedStatement
+    *** @param ndx  The parameter index (1-based)
+    *** @param v    The value to bind
+    *** @throws SQLException  If an SQL error occurs
+    **/
+    public void setPreparedStatementValue(PreparedStatement ps, int ndx, Object v)
+        throws SQLException
+    {
+        if (v instanceof DBFieldType) {
+            v = ((DBFieldType)v).getObject();
+        }
+        if (this.isBLOB()) {
+            byte b[] = (v instanceof byte[])? (byte[])v : DBField.parseBlobString(DBFieldValues.toStringValue(v));
+            ps.setBytes(ndx, (b != null)? b : new byte[0]);
+        } else
+        if ((v instanceof Integer) || (v instanceof Long) || (v instanceof Short) || (v instanceof Byte)) {
+            ps.setLong(ndx, ((Number)v).longValue());
+        } else
+        if (v instanceof Boolean) {
+            ps.setInt(ndx, ((Boolean)v).booleanValue()? 1 : 0);
+        } else
+        if (((v instanceof Double) || (v instanceof Float)) && !this.quoteValue()) {
+            double d = ((Number)v).doubleValue();
+            if (Double.isNaN(d) || Double.isInfinite(d)) {
+                // let 'toStringValue' log/clip the invalid value
+                ps.setString(ndx, DBFieldValues.toStringValue(v));
+            } else
+            if (v instanceof Float) {
+                ps.setFloat(ndx, ((Float)v).floatValue());
+            } else {
+                ps.setDouble(ndx, d);
+            }
+        } else {
+            // String, DateTime (GMT "yyyy-MM-dd HH:mm:ss"), other
+            ps.setString(ndx, DBFieldValues.toStringValue(v));
+        }
+    }
+
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
@@ -53,7 +53,10 @@ import org.opengts.util.*;
 
 /**
 *** <code>DBFieldValues</code> is a container class for field/column values for
-*** a DBRecord.
+*** a DBRecord.<br>
+*** Field values are held either in per-record maps, or, if enabled for the table (see
+*** <code>DBFactory.setCompactFieldValues</code>), in compact primitive arrays indexed by 
+*** a field layout shared by all records of the table.
 **/
 
 public class DBFieldValues
@@ -76,13 +79,107 @@ public class DBFieldValues
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
+    /**
+    *** Compact field value layout, shared by all DBFieldValues instances of a table.<br>
+    *** Each field is assigned a slot in one of the value arrays, based on the field type:
+    *** Boolean/Byte/Short/Integer/Long values are held in a 'long' array, Float/Double
+    *** values in a 'double' array, and all other values (String, byte[], DateTime, etc) 
+    *** in an Object array.
+    **/
+    /* package */ static class Schema
+    {
+        private static final int TYPE_OBJECT    = 0;
+        private static final int TYPE_BOOLEAN   = 1;
+        private static final int TYPE_BYTE      = 2;
+        private static final int TYPE_SHORT     = 3;
+        private static final int TYPE_INTEGER   = 4;
+        private static final int TYPE_LONG      = 5;
+        private static final int TYPE_FLOAT     = 6;
+        private static final int TYPE_DOUBLE    = 7;
+        private DBField             fields[]    = null;  // by field index
+        private int                 type[]      = null;  // by field index
+        private int                 slot[]      = null;  // by field index
+        private int                 longCount   = 0;
+        private int                 dblCount    = 0;
+        private int                 objCount    = 0;
+        private Map<String,Integer> nameIndex   = null;  // field name ==> field index
+        private Set<String>         transNames  = null;  // translated field names
+        private Map<String,String>  caseMap     = null;  // lower-case ==> translated field name
+        public Schema(DBFactory<?> fact) {
+            this.fields     = fact.getFields();
+            this.type       = new int[this.fields.length];
+            this.slot       = new int[this.fields.length];
+            this.nameIndex  = new HashMap<String,Integer>();
+            this.transNames = new HashSet<String>();
+            this.caseMap    = new HashMap<String,String>();
+            for (int i = 0; i < this.fields.length; i++) {
+                DBField fld = this.fields[i];
+                Class<?> c = fld.getTypeClass();
+                if ((c == Boolean.class) || (c == Boolean.TYPE)) {
+                    this.type[i] = TYPE_BOOLEAN;
+                } else
+                if ((c == Byte.class   ) || (c == Byte.TYPE   )) {
+                    this.type[i] = TYPE_BYTE;
+                } else
+                if ((c == Short.class  ) || (c == Short.TYPE  )) {
+                    this.type[i] = TYPE_SHORT;
+                } else
+                if ((c == Integer.class) || (c == Integer.TYPE)) {
+                    this.type[i] = TYPE_INTEGER;
+                } else
+                if ((c == Long.class   ) || (c == Long.TYPE   )) {
+                    this.type[i] = TYPE_LONG;
+                } else
+                if ((c == Float.class  ) || (c == Float.TYPE  )) {
+                    this.type[i] = TYPE_FLOAT;
+                } else
+                if ((c == Double.class ) || (c == Double.TYPE )) {
+                    this.type[i] = TYPE_DOUBLE;
+                } else {
+                    this.type[i] = TYPE_OBJECT;
+                }
+                switch (this.type[i]) {
+                    case TYPE_OBJECT: this.slot[i] = this.objCount++;  break;
+                    case TYPE_FLOAT : 
+                    case TYPE_DOUBLE: this.slot[i] = this.dblCount++;  break;
+                    default         : this.slot[i] = this.longCount++; break;
+                }
+                String transName = DBProvider.translateColumnName(fld.getName());
+                this.nameIndex.put(fld.getName(), new Integer(i));
+                this.transNames.add(transName);
+                this.caseMap.put(transName.toLowerCase(), transName);
+            }
+        }
+        public int getFieldIndex(String fldName) {
+            Integer ndx = (fldName != null)? this.nameIndex.get(fldName) : null;
+            return (ndx != null)? ndx.intValue() : -1;
+        }
+        public int getFieldIndex(DBField fld) {
+            int ndx = fld.getFieldIndex();
+            if ((ndx >= 0) && (ndx < this.fields.length) && (this.fields[ndx] == fld)) {
+                return ndx;
+            } else {
+                return this.getFieldIndex(fld.getName());
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
     private String                      name            = "";
 
     private DBRecordKey                 recordKey       = null;
-    private OrderedMap<String,Object>   valueMap        = null;
-    private OrderedMap<String,DBField>  fieldMap        = null;
+    private OrderedMap<String,Object>   valueMap        = null; // map storage (also compact storage overflow)
+    private OrderedMap<String,DBField>  fieldMap        = null; // map storage only
     private Map<String,String>          caseMap         = null; // order is not important
 
+    private Schema                      schema          = null; // compact storage only
+    private long                        longValues[]    = null;
+    private double                      dblValues[]     = null;
+    private Object                      objValues[]     = null;
+    private BitSet                      definedSet      = null; // values which have been set (by field index)
+    private BitSet                      nullSet         = null; // 'long'/'double' values set to null
+
     private DBFieldValues               fieldDelegate   = null;
 
     private boolean                     mustExist       = true;
@@ -92,9 +189,7 @@ public class DBFieldValues
     **/
     private DBFieldValues()
     {
-        this.valueMap  = new OrderedMap<String,Object>();
-        this.fieldMap  = new OrderedMap<String,DBField>();
-        this.caseMap   = new HashMap<String,String>();
+        super();
     }
 
     /**
@@ -116,6 +211,23 @@ public class DBFieldValues
         this.recordKey = rcdKey;
         this.fieldDelegate = delegate; // may be null
 
+        /* compact storage (not used for key fields with a delegate) */
+        DBFactory<?> fact = (this.fieldDelegate == null)? rcdKey.getFactory() : null;
+        this.schema = (fact != null)? fact.getFieldValueSchema() : null;
+        if (this.schema != null) {
+            this.longValues = new long[this.schema.longCount];
+            this.dblValues  = new double[this.schema.dblCount];
+            this.objValues  = new Object[this.schema.objCount];
+            this.definedSet = new BitSet(this.schema.fields.length);
+            this.nullSet    = new BitSet(this.schema.fields.length);
+            return;
+        }
+
+        /* map storage */
+        this.valueMap = new OrderedMap<String,Object>();
+        this.fieldMap = new OrderedMap<String,DBField>();
+        this.caseMap  = new HashMap<String,String>();
+
         /* get fields (key fields only, if delegate is specified) */
         DBField fld[] = (this.fieldDelegate == null)? 
             rcdKey.getFields()    : // no field delegate
@@ -343,7 +455,7 @@ public class DBFieldValues
         /* store value */
         String fldName = fld.getName();
         Object oldVal = this._getFieldValue(fldName, true);
-        this.valueMap.put(fldName, newVal);
+        this._putValue(fld, newVal);
 
         /* also set delegate */
         if (this.fieldDelegate != null) {
@@ -364,6 +476,125 @@ public class DBFieldValues
 
     }
 
+    /**
+    *** Stores the specified (validated) value
+    **/
+    private void _putValue(DBField fld, Object val)
+    {
+
+        /* compact storage */
+        if (this.schema != null) {
+            int ndx = this.schema.getFieldIndex(fld);
+            if ((ndx >= 0) && this._putCompactValue(ndx, val)) {
+                if (this.valueMap != null) {
+                    this.valueMap.remove(fld.getName());
+                }
+                return;
+            }
+            // not a field of this table, or unexpected value type: store in overflow map
+            if (this.valueMap == null) {
+                this.valueMap = new OrderedMap<String,Object>();
+            }
+        }
+
+        /* map storage */
+        this.valueMap.put(fld.getName(), val);
+
+    }
+
+    /**
+    *** Stores the specified value in the compact value arrays
+    *** @return True if the value was stored, false if the value type is not supported by the field slot
+    **/
+    private boolean _putCompactValue(int ndx, Object val)
+    {
+        int slot = this.schema.slot[ndx];
+        switch (this.schema.type[ndx]) {
+            case Schema.TYPE_OBJECT:
+                this.objValues[slot] = val;
+                break;
+            case Schema.TYPE_FLOAT:
+            case Schema.TYPE_DOUBLE:
+                if (val == null) {
+                    this.dblValues[slot] = 0.0;
+                } else
+                if (val instanceof Number) {
+                    this.dblValues[slot] = ((Number)val).doubleValue();
+                } else {
+                    return false;
+                }
+                this.nullSet.set(ndx, (val == null));
+                break;
+            default: // TYPE_BOOLEAN, TYPE_BYTE, TYPE_SHORT, TYPE_INTEGER, TYPE_LONG
+                if (val == null) {
+                    this.longValues[slot] = 0L;
+                } else
+                if (val instanceof Boolean) {
+                    this.longValues[slot] = ((Boolean)val).booleanValue()? 1L : 0L;
+                } else
+                if ((val instanceof Number) && !(val instanceof Float) && !(val instanceof Double)) {
+                    this.longValues[slot] = ((Number)val).longValue();
+                } else {
+                    return false;
+                }
+                this.nullSet.set(ndx, (val == null));
+                break;
+        }
+        this.definedSet.set(ndx);
+        return true;
+    }
+
+    /**
+    *** Gets the value from the compact value arrays (value must be defined)
+    **/
+    private Object _getCompactValue(int ndx)
+    {
+        int slot = this.schema.slot[ndx];
+        switch (this.schema.type[ndx]) {
+            case Schema.TYPE_OBJECT : return this.objValues[slot];
+            case Schema.TYPE_BOOLEAN: return this.nullSet.get(ndx)? null : Boolean.valueOf(this.longValues[slot] != 0L);
+            case Schema.TYPE_BYTE   : return this.nullSet.get(ndx)? null : Byte.valueOf((byte)this.longValues[slot]);
+            case Schema.TYPE_SHORT  : return this.nullSet.get(ndx)? null : Short.valueOf((short)this.longValues[slot]);
+            case Schema.TYPE_INTEGER: return this.nullSet.get(ndx)? null : Integer.valueOf((int)this.longValues[slot]);
+            case Schema.TYPE_LONG   : return this.nullSet.get(ndx)? null : Long.valueOf(this.longValues[slot]);
+            case Schema.TYPE_FLOAT  : return this.nullSet.get(ndx)? null : Float.valueOf((float)this.dblValues[slot]);
+            case Schema.TYPE_DOUBLE : return this.nullSet.get(ndx)? null : Double.valueOf(this.dblValues[slot]);
+            default                 : return null;
+        }
+    }
+
+    /**
+    *** Returns true if a value has been stored for the specified field name
+    **/
+    private boolean _containsValue(String fldName)
+    {
+        if ((this.valueMap != null) && this.valueMap.containsKey(fldName)) {
+            return true;
+        } else
+        if (this.schema != null) {
+            int ndx = this.schema.getFieldIndex(fldName);
+            return (ndx >= 0) && this.definedSet.get(ndx);
+        } else {
+            return false;
+        }
+    }
+
+    /**
+    *** Gets the stored value for the specified field name
+    **/
+    private Object _getValue(String fldName)
+    {
+        if ((this.valueMap != null) && this.valueMap.containsKey(fldName)) {
+            return this.valueMap.get(fldName);
+        } else
+        if (this.schema != null) {
+            int ndx = this.schema.getFieldIndex(fldName);
+            return ((ndx >= 0) && this.definedSet.get(ndx))? this._getCompactValue(ndx) : null;
+        } else {
+            return null;
+        }
+    }
+
     /**
     *** Sets the value for the specified optional field name
     *** @param fldName   The field name to set
@@ -762,10 +993,13 @@ public class DBFieldValues
     **/
     public String getFieldName(String fldName)
     {
-        if (fldName != null) {
-            return this.caseMap.get(fldName.toLowerCase());
-        } else {
+        if (fldName == null) {
             return null;
+        } else
+        if (this.schema != null) {
+            return this.schema.caseMap.get(fldName.toLowerCase());
+        } else {
+            return this.caseMap.get(fldName.toLowerCase());
         }
     }
     
@@ -782,7 +1016,11 @@ public class DBFieldValues
             return false;
         } else {
             String fn = DBProvider.translateColumnName(fldName);
-            return this.fieldMap.containsKey(fn);
+            if (this.schema != null) {
+                return this.schema.transNames.contains(fn);
+            } else {
+                return this.fieldMap.containsKey(fn);
+            }
         }
     }
 
@@ -798,7 +1036,7 @@ public class DBFieldValues
             // no field name, no field value
             return false;
         } else
-        if (this.valueMap.containsKey(fldName)) {
+        if (this._containsValue(fldName)) {
             // found in this value map
             return true;
         } else
@@ -828,7 +1066,7 @@ public class DBFieldValues
         }
 
         /* get value, return if found */
-        Object val = this.valueMap.get(fldName);
+        Object val = this._getValue(fldName);
         if (val != null) {
             // field value found
             //Print.logInfo("("+this.getName() + ") " + fldName + " value: " + val);
@@ -966,10 +1204,19 @@ public class DBFieldValues
         String utableName = this.getUntranslatedTableName();
         sb.append(this.getName()).append(" ");
         sb.append("[").append(utableName).append("]");
-        for (String fld : this.valueMap.keySet()) {
-            Object val = this.valueMap.get(fld);
-            sb.append(" ");
-            sb.append(fld).append("=").append(StringTools.trim(val));
+        if (this.schema != null) {
+            for (int i = this.definedSet.nextSetBit(0); i >= 0; i = this.definedSet.nextSetBit(i + 1)) {
+                Object val = this._getCompactValue(i);
+                sb.append(" ");
+                sb.append(this.schema.fields[i].getName()).append("=").append(StringTools.trim(val));
+            }
+        }
+        if (this.valueMap != null) {
+            for (String fld : this.valueMap.keySet()) {
+                Object val = this.valueMap.get(fld);
+                sb.append(" ");
+                sb.append(fld).append("=").append(StringTools.trim(val));
+            }
         }
         return sb.toString();
     }
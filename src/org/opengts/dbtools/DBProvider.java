@@ -2256,6 +2256,106 @@ public class DBProvider
     public static boolean updateRecordInTable(DBRecord rec, Set<String> updFldSet)
         throws SQLException, DBException
     {
+
+        /* assemble */
+        String sql = DBProvider._getUpdateSQL(rec, updFldSet);
+
+        /* execute */
+        if (sql != null) {
+            DBConnection dbc = null;
+            try {
+                dbc = DBConnection.getDefaultConnection();
+                dbc.executeUpdate(sql);
+            } catch (SQLException sqle) {
+                Print.logError("SQL(ExecuteUpdate): " + sql);
+                throw sqle; // rethrow exception
+            } catch (DBException dbe) {
+                Print.logError("SQL(ExecuteUpdate): " + sql);
+                throw dbe; // rethrow exception
+            } finally {
+                DBConnection.release(dbc);
+            }
+            return true;
+        } else {
+            String xtableName = rec.getRecordKey().getTranslatedTableName();
+            Print.logInfo("No columns specified to update!!! [" + xtableName + "]");
+            return false;
+        }
+
+    }
+
+    /**
+    *** Assemble and execute, as a single JDBC batch, the update statements for the 
+    *** specified records and set of fields to update.  If the batch fails, the
+    *** records are updated individually.
+    *** @param recs The records to update
+    *** @param updFldSet The set of fields to update
+    *** @return The number of updated records
+    *** @throws SQLException  If an SQL error occurs
+    *** @throws DBException   If a database error occurs
+    **/
+    public static int updateRecordsInTable(java.util.List<? extends DBRecord<?>> recs, Set<String> updFldSet)
+        throws SQLException, DBException
+    {
+
+        /* assemble */
+        java.util.List<String> sqlList = new Vector<String>();
+        for (DBRecord<?> rec : recs) {
+            String sql = DBProvider._getUpdateSQL(rec, updFldSet);
+            if (sql != null) {
+                sqlList.add(sql);
+            }
+        }
+        if (sqlList.isEmpty()) {
+            return 0;
+        } else
+        if (sqlList.size() == 1) {
+            DBProvider.updateRecordInTable(recs.get(0), updFldSet);
+            return 1;
+        }
+
+        /* execute batch */
+        DBConnection dbc  = null;
+        Statement    stmt = null;
+        try {
+            dbc  = DBConnection.getDefaultConnection();
+            stmt = dbc.createStatement();
+            for (String sql : sqlList) {
+                if (DBConnection.getShowExecutedSQL()) {
+                    Print.logInfo("SQL(Batch): " + sql);
+                }
+                stmt.addBatch(sql);
+            }
+            stmt.executeBatch();
+            return sqlList.size();
+        } catch (SQLException sqle) {
+            // includes BatchUpdateException, retry individually below
+            Print.logWarn("Batch update failed: " + sqle);
+        } finally {
+            if (stmt != null) { try { stmt.close(); } catch (Throwable t) {} }
+            DBConnection.release(dbc);
+        }
+
+        /* update individually */
+        int count = 0;
+        for (DBRecord<?> rec : recs) {
+            if (DBProvider.updateRecordInTable(rec, updFldSet)) {
+                count++;
+            }
+        }
+        return count;
+
+    }
+
+    /**
+    *** Assemble the update statement for the specified record and set of fields
+    *** @param rec The record to update
+    *** @param updFldSet The set of fields to update
+    *** @return The update statement, or null if there are no columns to update
+    **/
+    private static String _getUpdateSQL(DBRecord rec, Set<String> updFldSet)
+        throws DBException
+    {
         DBRecordKey recKey = rec.getRecordKey();
         StringBuffer sb    = new StringBuffer();
         String xtableName  = recKey.getTranslatedTableName();
@@ -2343,27 +2443,9 @@ public class DBProvider
         sb.append(recKey.getWhereClause(DBWhere.KEY_FULL));
         //Print.logInfo("Update SQL: " + sb);
 
-        /* execute */
-        if (addedField) {
-            DBConnection dbc = null;
-            try {
-                dbc = DBConnection.getDefaultConnection();
-                dbc.executeUpdate(sb.toString());
-            } catch (SQLException sqle) {
-                Print.logError("SQL(ExecuteUpdate): " + sb);
-                throw sqle; // rethrow exception
-            } catch (DBException dbe) {
-                Print.logError("SQL(ExecuteUpdate): " + sb);
-                throw dbe; // rethrow exception
-            } finally {
-                DBConnection.release(dbc);
-            }
-            return true;
-        } else {
-            Print.logInfo("No columns specified to update!!! [" + xtableName + "]");
-            return false;
-        }
-        
+        /* return */
+        return addedField? sb.toString() : null;
+
     }
 
     // ------------------------------------------------------------------------
@@ -1380,6 +1380,65 @@ public abstract class DBRecord<gDBR extends DBRecord>
 
     // ------------------------------------------------------------------------
 
+    /** 
+    *** Saves this DBRecord using the batched insert queue (see "DBBatchInsert").<br>
+    *** This is intended for high-volume records which are normally new (ie. EventData).
+    *** The record is inserted without first checking for its existence.  If the record
+    *** already exists, it is updated instead (the same result as "save").  If batched
+    *** inserts are not enabled, this is equivalent to "save".
+    *** @throws DBException if a database error occurs.
+    **/
+    public void batchSave()
+        throws DBException
+    {
+
+        /* batched inserts enabled? */
+        if (!DBBatchInsert.IsEnabled()) {
+            this.save();
+            return;
+        }
+
+        /* save allowed? */
+        if (!this.isOkToSave()) {
+            throw new DBException("Update not allowed");
+        }
+
+        /* insert */
+        try {
+
+            /* creation time/user */
+            long nowTimeMS = DateTime.getCurrentTimeMillis();
+            long nowTime   = nowTimeMS / 1000L;
+            this.setCreationMillis(nowTimeMS);
+            this.setCreationTime(nowTime);
+
+            /* last update time */
+            this.setLastUpdateTime(nowTime);
+            this.setLastUpdateUser(DBRecord.GetCurrentUser(),true);
+
+            /* insert */
+            this.recordWillInsert();
+            DBBatchInsert.getInstance().insertRecord(this); // blocks until written
+            this.recordDidInsert();
+
+            /* clear changes */
+            this.clearChanged();
+
+        } catch (SQLException sqe) {
+            this.setLastCaughtSQLException(sqe); // batchSave()
+            if (this.isLastCaughtSQLExceptionErrorCode(DBFactory.SQLERR_DUPLICATE_KEY)) {
+                // record already exists
+                this.update();      // may throw DBException
+            } else {
+                DBRecordKey<gDBR> dbKey = this.getRecordKey();
+                throw new DBException("Unable to insert record  [" + dbKey.getUntranslatedTableName() + "] '" + dbKey + "'", sqe);
+            }
+        }
+
+    }
+
+    // ------------------------------------------------------------------------
+
     /**
     *** Updates all the fields in this DBRecord.
     *** @throws DBException if a database error occurs.
@@ -1447,6 +1506,54 @@ public abstract class DBRecord<gDBR extends DBRecord>
         }
     }
 
+    /**
+    *** Updates the specified fields in each of the specified DBRecords, using a single
+    *** JDBC batch (all records should be from the same table).
+    *** @param rcdList    The list of DBRecords to update
+    *** @param updFldSet  A Set of fields to update.
+    *** @return The number of updated records
+    *** @throws DBException if a database error occurs.
+    **/
+    public static int updateRecords(java.util.List<? extends DBRecord<?>> rcdList, Set<String> updFldSet)
+        throws DBException
+    {
+
+        /* nothing to update? */
+        if (ListTools.isEmpty(rcdList)) {
+            return 0;
+        }
+
+        /* update time/user */
+        String updUserID = DBRecord.GetCurrentUser();
+        long   updTime   = DateTime.getCurrentTimeSec();
+        Set<String> updFlds = (updFldSet != null)? new HashSet<String>(updFldSet) : null;
+        for (DBRecord<?> rcd : rcdList) {
+            if (!rcd.isOkToSave()) {
+                throw new DBException("Update not allowed");
+            }
+            boolean updT = rcd.setLastUpdateTime(updTime);
+            boolean updU = rcd.setLastUpdateUser(updUserID,false);
+            if (updFlds != null) {
+                if (updT) { updFlds.add(FLD_lastUpdateTime); }
+                if (updU) { updFlds.add(FLD_lastUpdateUser); }
+            }
+            rcd.recordWillUpdate();
+        }
+
+        /* update */
+        try {
+            int count = DBProvider.updateRecordsInTable(rcdList, updFlds);
+            for (DBRecord<?> rcd : rcdList) {
+                rcd.recordDidUpdate();
+                rcd.clearChanged();
+            }
+            return count;
+        } catch (SQLException sqe) {
+            throw new DBException("Update records [" + rcdList.size() + "]", sqe);
+        }
+
+    }
+
     // ------------------------------------------------------------------------
     
     /**
@@ -1921,6 +2028,21 @@ public abstract class DBRecord<gDBR extends DBRecord>
         return this.getRecordKey().getFieldValues().setFieldValue(fldName, value);
     }
 
+    /**
+    *** Gets the cached 'getter'/'setter' methods for the specified field.
+    *** Returns null if this record is a subclass of the DBFactory record class, in which
+    *** case the 'getter'/'setter' methods must be looked up on this record class.
+    **/
+    private DBFactory.FieldAccessor _getFieldAccessor(DBField fld)
+    {
+        DBFactory<gDBR> fact = this._getFactory();
+        if ((fact != null) && (fact.getRecordClass() == this.getClass())) {
+            return fact.getFieldAccessor(fld);
+        } else {
+            return null;
+        }
+    }
+
     /**
     *** Gets the value for the specified field.<br>
     *** @param fldName  The field name to retrieve
@@ -1932,10 +2054,22 @@ public abstract class DBRecord<gDBR extends DBRecord>
         if (fld != null) {
             String meth = MethodAction.getterMethodName(fldName);
             // try DBRecord 'getter'
-            try {
-                return (new MethodAction(this,meth,(Class[])null)).invoke();
-            } catch (Throwable th) {
-                // main record does not define a 'getter'
+            DBFactory.FieldAccessor fa = this._getFieldAccessor(fld);
+            if (fa != null) {
+                // cached 'getter'
+                if (fa.hasGetter()) {
+                    try {
+                        return fa.getValue(this);
+                    } catch (Throwable th) {
+                        // 'getter' failed
+                    }
+                }
+            } else {
+                try {
+                    return (new MethodAction(this,meth,(Class[])null)).invoke();
+                } catch (Throwable th) {
+                    // main record does not define a 'getter'
+                }
             }
             // try DBRecord extension
             /*
@@ -1971,12 +2105,25 @@ public abstract class DBRecord<gDBR extends DBRecord>
         if (fld != null) {
             String meth = MethodAction.setterMethodName(fldName);
             // try DBRecord 'setter'
-            try {
-                MethodAction m = new MethodAction(this,meth,fld.getTypeClass());
-                m.invoke(value);
-                return;
-            } catch (Throwable th) {
-                // main record does not define a 'setter'
+            DBFactory.FieldAccessor fa = this._getFieldAccessor(fld);
+            if (fa != null) {
+                // cached 'setter'
+                if (fa.canSetValue(value)) {
+                    try {
+                        fa.setValue(this, value);
+                        return;
+                    } catch (Throwable th) {
+                        // 'setter' failed
+                    }
+                }
+            } else {
+                try {
+                    MethodAction m = new MethodAction(this,meth,fld.getTypeClass());
+                    m.invoke(value);
+                    return;
+                } catch (Throwable th) {
+                    // main record does not define a 'setter'
+                }
             }
             // try DBRecord extension
             /*
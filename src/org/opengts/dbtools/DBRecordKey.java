@@ -654,6 +654,7 @@ public abstract class DBRecordKey<gDBR extends DBRecord>
         } finally {
             DBConnection.release(dbc);
         }
+        this.getFactory().recordsDidDelete(this);
     }
     
     protected void _deleteDependencies()
@@ -27,7 +27,7 @@ import java.util.*;
 import org.opengts.util.*;
 
 /**
-*** <code>DBRecordListener</code> callback listener for DBRecord update/insert
+*** <code>DBRecordListener</code> callback listener for DBRecord update/insert/delete
 **/
 
 public interface DBRecordListener<gDBR extends DBRecord>
@@ -57,4 +57,10 @@ public interface DBRecordListener<gDBR extends DBRecord>
     **/
     public void recordDidUpdate(gDBR rcd);
 
+    /**
+    *** Callback after the record(s) matching the specified key have been deleted from the table
+    *** @param key  The (possibly partial) key of the deleted record(s)
+    **/
+    public void recordsDidDelete(DBRecordKey<gDBR> key);
+
 }
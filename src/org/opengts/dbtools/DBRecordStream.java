@@ -0,0 +1,214 @@
+// ----------------------------------------------------------------------------
+// Copyright 2007-2014, GeoTelematic Solutions, Inc.
+// All rights reserved
+// ----------------------------------------------------------------------------
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ----------------------------------------------------------------------------
+// Description:
+//  Lazily iterates over the records of a DBSelect, reading the ResultSet
+//  row-by-row on a dedicated connection.
+// ----------------------------------------------------------------------------
+package org.opengts.dbtools;
+
+import java.lang.*;
+import java.util.*;
+import java.sql.*;
+
+import org.opengts.util.*;
+
+/**
+*** <code>DBRecordStream</code> lazily iterates over the records selected by a
+*** <code>DBSelect</code>.  Records are read from the ResultSet row-by-row as they are
+*** requested, so only the current record is held in memory.<br>
+*** The ResultSet is read on a dedicated connection owned by this iterator, leaving
+*** the thread default connection available for queries made while iterating.  The
+*** same iterator (and connection) may be reused for several selections by calling
+*** <code>select</code> again.  <code>close()</code> must be called when done.
+**/
+
+public class DBRecordStream<gDBR extends DBRecord>
+    implements Iterator<gDBR>
+{
+
+    // ------------------------------------------------------------------------
+
+    private DBConnection                dbConnection    = null;
+    private Statement                   statement       = null;
+    private ResultSet                   resultSet       = null;
+
+    private DBFactory<gDBR>             factory         = null;
+    private DBRecordHandler<gDBR>       rcdHandler      = null;
+
+    private gDBR                        nextRecord      = null;
+    private long                        rowCount        = 0L;
+    private DBException                 lastError       = null;
+
+    /**
+    *** Constructor
+    **/
+    public DBRecordStream()
+    {
+        super();
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Starts a new selection, closing any previous selection.<br>
+    *** If specified, the record handler is called for each row read, and may return
+    *** <code>DBRH_SAVE</code> to return the record from this iterator, <code>DBRH_SKIP</code>
+    *** to skip the record, or <code>DBRH_STOP</code> to end the selection.
+    *** @param dsel        The DBSelect selection criteria
+    *** @param rcdHandler  The optional DBRecordHandler
+    *** @throws DBException If a DB access error occurs
+    **/
+    public void select(DBSelect<gDBR> dsel, DBRecordHandler<gDBR> rcdHandler)
+        throws DBException
+    {
+        this._closeResultSet();
+        this.factory    = dsel.getFactory();
+        this.rcdHandler = rcdHandler;
+        this.rowCount   = 0L;
+        this.lastError  = null;
+        if (this.dbConnection == null) {
+            String uri = DBProvider.getDBUri(true);
+            String usr = DBProvider.getDBUsername();
+            String pwd = DBProvider.getDBPassword();
+            this.dbConnection = new DBConnection(uri, usr, pwd);
+        }
+        try {
+            this.statement = this.dbConnection.execute(dsel.toString(), true); // row by row
+            this.resultSet = this.statement.getResultSet();
+        } catch (SQLException sqe) {
+            this._closeResultSet();
+            throw new DBException("Record Selection", sqe);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Returns true if another record is available from the current selection
+    *** @return True if another record is available
+    **/
+    public boolean hasNext()
+    {
+        if (this.nextRecord != null) {
+            return true;
+        } else
+        if (this.resultSet == null) {
+            return false;
+        }
+        try {
+            while (this.resultSet.next()) {
+                this.rowCount++;
+                DBRecordKey<gDBR> rcdKey = this.factory.createKey(this.resultSet); // may throw DBException
+                if (rcdKey == null) {
+                    continue;
+                }
+                gDBR rcd = rcdKey.getDBRecord();
+                rcd.setAllFieldValues(this.resultSet);
+                int rcdStatus = (this.rcdHandler != null)?
+                    this.rcdHandler.handleDBRecord(rcd) : DBRecordHandler.DBRH_SAVE;
+                if (rcdStatus == DBRecordHandler.DBRH_STOP) {
+                    break;
+                } else
+                if (rcdStatus == DBRecordHandler.DBRH_SAVE) {
+                    this.nextRecord = rcd;
+                    return true;
+                } else {
+                    // skip this record and continue
+                }
+            }
+        } catch (SQLException sqe) {
+            this.lastError = new DBException("Record Selection (Record #"+this.rowCount+")", sqe);
+            Print.logException("Error reading selected records", this.lastError);
+        } catch (DBException dbe) {
+            this.lastError = dbe;
+            Print.logException("Error reading selected records", dbe);
+        }
+        // end of selection (or error/stop)
+        this._closeResultSet();
+        return false;
+    }
+
+    /**
+    *** Returns the next record from the current selection
+    *** @return The next record
+    *** @throws NoSuchElementException if no further records are available
+    **/
+    public gDBR next()
+    {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        gDBR rcd = this.nextRecord;
+        this.nextRecord = null;
+        return rcd;
+    }
+
+    /**
+    *** Unsupported operation
+    **/
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Gets the number of rows read from the current selection
+    *** @return The number of rows read
+    **/
+    public long getRowCount()
+    {
+        return this.rowCount;
+    }
+
+    /**
+    *** Gets the error which ended the current selection, or null if no error occurred
+    *** @return The last error
+    **/
+    public DBException getLastError()
+    {
+        return this.lastError;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /* close the current ResultSet/Statement */
+    private void _closeResultSet()
+    {
+        if (this.resultSet != null) { try { this.resultSet.close(); } catch (Throwable t) {} }
+        if (this.statement != null) { try { this.statement.close(); } catch (Throwable t) {} }
+        this.resultSet  = null;
+        this.statement  = null;
+        this.nextRecord = null;
+    }
+
+    /**
+    *** Closes the current selection and the dedicated connection
+    **/
+    public void close()
+    {
+        this._closeResultSet();
+        if (this.dbConnection != null) {
+            this.dbConnection.closeConnection();
+            this.dbConnection = null;
+        }
+    }
+
+}
@@ -6,9 +6,9 @@
 // Licensed under the Apache License, Version 2.0 (the "License");
 // you may not use this file except in compliance with the License.
 // You may obtain a copy of the License at
-// 
+//
 // http://www.apache.org/licenses/LICENSE-2.0
-// 
+//
 // Unless required by applicable law or agreed to in writing, software
 // distributed under the License is distributed on an "AS IS" BASIS,
 // WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -23,9 +23,20 @@
 package org.opengts.geocoder;
 
 import java.util.*;
+import java.util.concurrent.atomic.*;
 
 import org.opengts.util.*;
 
+/**
+*** <code>ReverseGeocodeCache</code> is a thread-safe, size bounded cache of ReverseGeocode
+*** results, keyed by the grid cell (approx 11 meters at the equator) containing the
+*** reverse-geocoded GeoPoint.<br>
+*** The cache is split into independently locked segments, each of which is maintained in
+*** least-recently-used order, so that concurrent lookups for different cells rarely contend,
+*** and an insert never fails.  Entries expire after the maximum age (measured from the time
+*** the entry was added).
+**/
+
 public class ReverseGeocodeCache
 {
 
@@ -33,22 +44,27 @@ public class ReverseGeocodeCache
 
     private static final long   DEFAULT_MAX_AGE_SEC     = DateTime.MinuteSeconds(60);
     private static final int    DEFAULT_MAX_SIZE        = 1000;
-    private static final String GEOPOINT_DECIMAL        = "4";
-    
+    private static final int    MINIMUM_MAX_SIZE        = 100;
+
+    private static final double CELLS_PER_DEGREE        = 10000.0; // 4 decimal places
+    private static final int    LONGITUDE_BITS          = 22;      // 360 * 10000 < 2^22
+
     private static  boolean     DEBUG                   = false;
 
     // ------------------------------------------------------------------------
-    
-    private static String formatGeoPoint(GeoPoint gp)
+
+    /**
+    *** Returns the grid cell key for the specified GeoPoint
+    *** @param gp  The GeoPoint
+    *** @return The grid cell key
+    **/
+    public static long getCellKey(GeoPoint gp)
     {
-        StringBuffer sb = new StringBuffer();
-        String fmt = GEOPOINT_DECIMAL;
-        sb.append(GeoPoint.formatLatitude( gp.getLatitude() , fmt, null));
-        sb.append(GeoPoint.PointSeparator);
-        sb.append(GeoPoint.formatLongitude(gp.getLongitude(), fmt, null));
-        return sb.toString();
+        long latCell = Math.round((gp.getLatitude()  +  90.0) * CELLS_PER_DEGREE);
+        long lonCell = Math.round((gp.getLongitude() + 180.0) * CELLS_PER_DEGREE);
+        return (latCell << LONGITUDE_BITS) | lonCell;
     }
-    
+
     private static long currentTimeSec()
     {
         if (DEBUG) {
@@ -78,16 +94,15 @@ public class ReverseGeocodeCache
             return this.revGeocode;
         }
     }
-    
+
     // ------------------------------------------------------------------------
-    
-    private Map<String,RGItem>  rgCacheMap       = new HashMap<String,RGItem>();
-    private int                 maxCacheSize     = DEFAULT_MAX_SIZE;
-    private long                maxAgeSec        = DEFAULT_MAX_AGE_SEC;
 
-    private Object              mapLock          = new Object();
-    private int                 readLockCount    = 0;
-    private int                 writeLockCount   = 0;
+    private SegmentedLRUMap<Long,RGItem> cacheMap    = null;
+    private volatile long                maxAgeSec   = DEFAULT_MAX_AGE_SEC;
+
+    private AtomicLong                   hitCount    = new AtomicLong(0L);
+    private AtomicLong                   missCount   = new AtomicLong(0L);
+    private AtomicLong                   expireCount = new AtomicLong(0L);
 
     public ReverseGeocodeCache()
     {
@@ -97,24 +112,30 @@ public class ReverseGeocodeCache
     public ReverseGeocodeCache(int maxSize, long maxAge)
     {
         super();
+        this.cacheMap = new SegmentedLRUMap<Long,RGItem>(DEFAULT_MAX_SIZE);
         this.setMaxSize(maxSize);
         this.setMaxAgeSec(maxAge);
     }
 
     // ------------------------------------------------------------------------
 
+    /**
+    *** Sets the maximum number of cached entries.<br>
+    *** (if reduced, the cache is trimmed on subsequent inserts)
+    *** @param maxSize  The maximum number of cached entries
+    **/
     public void setMaxSize(int maxSize)
     {
         if (maxSize <= 0) {
-            this.maxCacheSize = DEFAULT_MAX_SIZE;
+            this.cacheMap.setMaximumSize(DEFAULT_MAX_SIZE);
         } else {
-            this.maxCacheSize = (maxSize < 100)? 100 : maxSize;
+            this.cacheMap.setMaximumSize((maxSize < MINIMUM_MAX_SIZE)? MINIMUM_MAX_SIZE : maxSize);
         }
     }
-    
+
     public int getMaxSize()
     {
-        return this.maxCacheSize;
+        return this.cacheMap.getMaximumSize();
     }
 
     // ------------------------------------------------------------------------
@@ -123,7 +144,7 @@ public class ReverseGeocodeCache
     {
         this.maxAgeSec = (maxAge > 0L)? maxAge : DEFAULT_MAX_AGE_SEC;
     }
-    
+
     public long getMaxAgeSec()
     {
         return this.maxAgeSec;
@@ -132,131 +153,131 @@ public class ReverseGeocodeCache
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
-    private boolean getReadLock()
+    /**
+    *** Gets the cached ReverseGeocode for the specified GeoPoint
+    *** @param gp  The GeoPoint
+    *** @return The cached ReverseGeocode, or null if not cached, or expired
+    **/
+    public ReverseGeocode getReverseGeocode(GeoPoint gp)
     {
-        boolean rtn = false;
-        synchronized (this.mapLock) {
-            if (this.writeLockCount == 0) {
-                this.readLockCount++;
-                rtn = true;
+        if ((gp == null) || !gp.isValid()) {
+            return null;
+        }
+        Long   cellKey = new Long(getCellKey(gp));
+        long   minTime = currentTimeSec() - this.maxAgeSec;
+        RGItem rgi     = this.cacheMap.get(cellKey);
+        if (rgi == null) {
+            this.missCount.incrementAndGet();
+            return null;
+        } else
+        if (rgi.getTimestamp() <= minTime) {
+            if (this.cacheMap.remove(cellKey, rgi)) {
+                this.expireCount.incrementAndGet();
             }
+            this.missCount.incrementAndGet();
+            return null;
+        } else {
+            this.hitCount.incrementAndGet();
+            return rgi.getReverseGeocode();
         }
-        return rtn;
     }
 
-    private boolean releaseReadLock()
+    /**
+    *** Adds the ReverseGeocode for the specified GeoPoint to this cache.<br>
+    *** The least-recently-used entry of the segment is evicted if the segment is full.
+    *** @param gp  The GeoPoint
+    *** @param rg  The ReverseGeocode
+    *** @return True if the ReverseGeocode was added
+    **/
+    public boolean addReverseGeocode(GeoPoint gp, ReverseGeocode rg)
     {
-        boolean rtn = false;
-        synchronized (this.mapLock) {
-            if (this.readLockCount > 0) {
-                this.readLockCount--;
-                rtn = true;
-            } else {
-                Print.logStackTrace("Read lock released, with no active lock");
-            }
+        if ((gp == null) || !gp.isValid() || (rg == null)) {
+            return false;
         }
-        return rtn;
+        this.cacheMap.put(new Long(getCellKey(gp)), new RGItem(rg));
+        return true;
     }
 
-    public ReverseGeocode getReverseGeocode(GeoPoint gp)
+    /**
+    *** Removes all expired entries
+    *** @return The number of removed entries
+    **/
+    public int removeExpired()
     {
-        ReverseGeocode rg = null;
-
-        /* get ReverseGeocode */
-        if ((gp != null) && gp.isValid()) {
-            boolean readLocked = false;
-            try {
-                readLocked = this.getReadLock();
-                if (readLocked) {
-                    RGItem rgi = this.rgCacheMap.get(formatGeoPoint(gp));
-                    if (rgi != null) {
-                        rgi.updateTimestamp();
-                        rg = rgi.getReverseGeocode();
-                    }
-                }
-            } finally {
-                if (readLocked) {
-                    this.releaseReadLock();
-                }
+        final long minTime = currentTimeSec() - this.maxAgeSec;
+        int count = this.cacheMap.removeMatching(new CacheMap.Matcher<Long,RGItem>() {
+            public boolean matches(Long key, RGItem rgi) {
+                return (rgi.getTimestamp() <= minTime);
             }
-        }
+        });
+        this.expireCount.addAndGet(count);
+        return count;
+    }
 
-        /* return */
-        return rg;
+    /**
+    *** Removes all entries
+    **/
+    public void clear()
+    {
+        this.cacheMap.clear();
+    }
 
+    /**
+    *** Gets the number of cached entries (may include expired entries)
+    *** @return The number of cached entries
+    **/
+    public int size()
+    {
+        return this.cacheMap.size();
     }
 
-    // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
-    private boolean getWriteLock()
+    /**
+    *** Gets the number of cache hits
+    **/
+    public long getHitCount()
     {
-        boolean rtn = false;
-        synchronized (this.mapLock) {
-            if ((this.writeLockCount == 0) && (this.readLockCount == 0)) {
-                this.writeLockCount++;
-                rtn = true;
-            }
-        }
-        return rtn;
+        return this.hitCount.get();
     }
 
-    private boolean releaseWriteLock()
+    /**
+    *** Gets the number of cache misses (includes expired entries)
+    **/
+    public long getMissCount()
     {
-        boolean rtn = false;
-        synchronized (this.mapLock) {
-            if (this.writeLockCount > 0) {
-                this.writeLockCount--;
-                rtn = true;
-            } else {
-                Print.logStackTrace("Write lock released, with no active lock");
-            }
-        }
-        return rtn;
+        return this.missCount.get();
     }
 
-    public boolean addReverseGeocode(GeoPoint gp, ReverseGeocode rg)
+    /**
+    *** Gets the number of entries evicted due to the maximum size limit
+    **/
+    public long getEvictionCount()
     {
-        boolean rtn = false;
-        if ((gp != null) && gp.isValid() && (rg != null)) {
-            boolean writeLocked = false;
-            try {
-                writeLocked = this.getWriteLock();
-                if (writeLocked) {
-                    this.rgCacheMap.put(formatGeoPoint(gp), new RGItem(rg));
-                    rtn = true;
-                    int rgSize = this.rgCacheMap.size();
-                    if (rgSize > this.maxCacheSize) {
-                        if (DEBUG) { Print.logInfo("\n\nTrimming cache ..."); }
-                        long maxTime = currentTimeSec() - this.maxAgeSec;
-                        for (Iterator<String> i = this.rgCacheMap.keySet().iterator(); i.hasNext();) {
-                            String key = i.next();
-                            RGItem rgi = this.rgCacheMap.get(key);
-                            if (rgi.getTimestamp() <= maxTime) {
-                                i.remove();
-                            }
-                        }
-                        if (DEBUG) { Print.logInfo("Old size="+rgSize +" New size="+this.rgCacheMap.size()); }
-                        if (this.rgCacheMap.size() > this.maxCacheSize) {
-                            Print.logWarn("Unable to trim ReverseGeocodeCache entries: " + this.rgCacheMap.size());
-                            long minSec = DateTime.MinuteSeconds(15);
-                            if (this.maxAgeSec > (2L * minSec)) {
-                                this.maxAgeSec -= minSec;
-                            } else {
-                                this.maxAgeSec = this.maxAgeSec / 2L;
-                            }
-                        }
-                    }
-                } else {
-                    Print.logInfo("Unable to obtain write lock");
-                }
-            } finally {
-                if (writeLocked) {
-                    this.releaseWriteLock();
-                }
-            }
-        }
-        return rtn;
+        return this.cacheMap.getEvictionCount();
+    }
+
+    /**
+    *** Gets the number of entries removed due to expiration
+    **/
+    public long getExpiredCount()
+    {
+        return this.expireCount.get();
+    }
+
+    /**
+    *** Returns a String representation of the cache statistics
+    *** @return A String representation of the cache statistics
+    **/
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append("size=").append(this.size());
+        sb.append(", hits=").append(this.getHitCount());
+        sb.append(", misses=").append(this.getMissCount());
+        sb.append(", evicted=").append(this.getEvictionCount());
+        sb.append(", expired=").append(this.getExpiredCount());
+        return sb.toString();
     }
 
     // ------------------------------------------------------------------------
@@ -265,29 +286,31 @@ public class ReverseGeocodeCache
     public static void main(String argv[])
     {
         RTConfig.setCommandLineArgs(argv);
-        
+
         ReverseGeocodeCache rgc = new ReverseGeocodeCache();
         DEBUG = true;
-        
+
         double baseLat = 39.0000;
         double baseLon = -142.0000;
         Random rand = new Random();
-        
-        for (;;) {
+        int count = RTConfig.getInt("count", 1000000);
+
+        long startMS = System.currentTimeMillis();
+        for (int n = 0; n < count; n++) {
             double lat = baseLat + ((double)rand.nextInt(100) / 100.0);
             double lon = baseLon + ((double)rand.nextInt(100) / 100.0);
             GeoPoint gp = new GeoPoint(lat, lon);
-            
+
             ReverseGeocode rg = rgc.getReverseGeocode(gp);
-            if (rg != null) {
-                Print.sysPrintln("Found RG: " + gp);
-            } else {
+            if (rg == null) {
                 rgc.addReverseGeocode(gp, new ReverseGeocode());
-                //Print.sysPrintln("Added RG: " + gp);
             }
-            
+
         }
-        
+        long deltaMS = System.currentTimeMillis() - startMS;
+        Print.sysPrintln("Lookups: " + count + " in " + deltaMS + " ms");
+        Print.sysPrintln("Cache  : " + rgc);
+
     }
-    
+
 }
@@ -28,6 +28,8 @@
 // ----------------------------------------------------------------------------
 package org.opengts.geocoder;
 
+import java.util.*;
+
 import org.opengts.util.*;
 
 import org.opengts.dbtools.*;
@@ -45,12 +47,17 @@ public abstract class ReverseGeocodeProviderAdapter
 
     public static final String PROP_alwaysFast[]            = new String[] { "alwaysFast", "forceAlwaysFast" }; // Boolean: false
     public static final String PROP_maxFailoverSeconds[]    = new String[] { "maxFailoverSeconds" }; // Long: 
+    public static final String PROP_cacheMaximumSize[]      = new String[] { "cacheMaximumSize", "cacheMaxSize" }; // Integer: 5000 (0 to disable)
+    public static final String PROP_cacheMaximumAgeSec[]    = new String[] { "cacheMaximumAgeSec", "cacheMaxAgeSec" }; // Long: 86400
 
     // ------------------------------------------------------------------------
 
     public static       long   DEFAULT_MAX_FAILOVER_SECONDS = DateTime.HourSeconds(1);
     public static       long   MIN_FAILOVER_SECONDS         = DateTime.MinuteSeconds(10);
 
+    public static       int    DEFAULT_CACHE_MAXIMUM_SIZE   = 5000;
+    public static       long   DEFAULT_CACHE_MAXIMUM_AGE    = DateTime.DaySeconds(1);
+
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
@@ -65,6 +72,9 @@ public abstract class ReverseGeocodeProviderAdapter
     private long                    rgFailoverTime          = 0L; // Epoch time of failover
     private long                    rgFailoverTimeoutSec    = 0L; // failover timeout
 
+    private Map<String,ReverseGeocodeCache> rgCacheMap      = null; // keyed by locale
+    private Object                  rgCacheLock             = new Object();
+
     /**
     *** Constructor
     *** @param name  The name of this reverse-geocode provider
@@ -332,6 +342,131 @@ public abstract class ReverseGeocodeProviderAdapter
     /* get reverse-geocode */
     public abstract ReverseGeocode getReverseGeocode(GeoPoint gp, String localeStr, boolean cache);
 
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Gets the ReverseGeocodeCache for the specified locale
+    *** @param localeStr  The locale
+    *** @return The ReverseGeocodeCache, or null if caching is disabled for this provider
+    **/
+    public ReverseGeocodeCache getReverseGeocodeCache(String localeStr)
+    {
+        String locKey = StringTools.trim(localeStr);
+        synchronized (this.rgCacheLock) {
+            if (this.rgCacheMap == null) {
+                this.rgCacheMap = new HashMap<String,ReverseGeocodeCache>();
+            }
+            ReverseGeocodeCache rgc = this.rgCacheMap.get(locKey);
+            if ((rgc == null) && !this.rgCacheMap.containsKey(locKey)) {
+                RTProperties rtp = this.getProperties();
+                int  maxSize = rtp.getInt( PROP_cacheMaximumSize  , DEFAULT_CACHE_MAXIMUM_SIZE);
+                long maxAge  = rtp.getLong(PROP_cacheMaximumAgeSec, DEFAULT_CACHE_MAXIMUM_AGE);
+                rgc = (maxSize > 0)? new ReverseGeocodeCache(maxSize, maxAge) : null;
+                this.rgCacheMap.put(locKey, rgc); // null if disabled
+            }
+            return rgc;
+        }
+    }
+
+    /**
+    *** Returns the best address for the specified GeoPoint, from the ReverseGeocodeCache
+    *** if available, otherwise from "getReverseGeocode" (the result is then cached).
+    *** @param gp         The GeoPoint
+    *** @param localeStr  The locale
+    *** @param cache      Passed through to "getReverseGeocode"
+    *** @return The reverse-geocoded adress
+    **/
+    public ReverseGeocode getCachedReverseGeocode(GeoPoint gp, String localeStr, boolean cache)
+    {
+        try {
+            return this.getCachedReverseGeocode(gp, localeStr, cache, false);
+        } catch (SlowOperationException soe) {
+            // will not occur
+            return null;
+        }
+    }
+
+    /**
+    *** Returns the best address for the specified GeoPoint, from the ReverseGeocodeCache
+    *** if available, otherwise from "getReverseGeocode" (the result is then cached).
+    *** A cache hit is always returned, even if only 'fast' operations are requested.
+    *** @param gp         The GeoPoint
+    *** @param localeStr  The locale
+    *** @param cache      Passed through to "getReverseGeocode"
+    *** @param fastOnly   True if only 'fast' operations are allowed
+    *** @return The reverse-geocoded adress
+    *** @throws SlowOperationException if 'fastOnly' is true, the address was not cached,
+    ***     and this is a 'slow' ReverseGeocodeProvider.
+    **/
+    public ReverseGeocode getCachedReverseGeocode(GeoPoint gp, String localeStr, boolean cache, boolean fastOnly)
+        throws SlowOperationException
+    {
+        ReverseGeocodeCache rgc = this.getReverseGeocodeCache(localeStr);
+        ReverseGeocode rg = (rgc != null)? rgc.getReverseGeocode(gp) : null;
+        if (rg == null) {
+            if (fastOnly && !this.isFastOperation()) {
+                throw new SlowOperationException("'fast' requested, and this operation is 'slow'");
+            }
+            rg = this.getReverseGeocode(gp, localeStr, cache);
+            if ((rgc != null) && (rg != null) && rg.hasFullAddress()) {
+                rgc.addReverseGeocode(gp, rg);
+            }
+        }
+        return rg;
+    }
+
+    /**
+    *** Returns the best address for the specified GeoPoint, using the ReverseGeocodeCache
+    *** of the specified ReverseGeocodeProvider, if available.
+    *** @param rgp        The ReverseGeocodeProvider
+    *** @param gp         The GeoPoint
+    *** @param localeStr  The locale
+    *** @param cache      Passed through to "getReverseGeocode"
+    *** @return The reverse-geocoded adress
+    **/
+    public static ReverseGeocode getCachedReverseGeocode(ReverseGeocodeProvider rgp, 
+        GeoPoint gp, String localeStr, boolean cache)
+    {
+        if (rgp == null) {
+            return null;
+        } else
+        if (rgp instanceof ReverseGeocodeProviderAdapter) {
+            return ((ReverseGeocodeProviderAdapter)rgp).getCachedReverseGeocode(gp, localeStr, cache);
+        } else {
+            return rgp.getReverseGeocode(gp, localeStr, cache);
+        }
+    }
+
+    /**
+    *** Returns the best address for the specified GeoPoint, using the ReverseGeocodeCache
+    *** of the specified ReverseGeocodeProvider, if available.  A cache hit is always 
+    *** returned, even if only 'fast' operations are requested.
+    *** @param rgp        The ReverseGeocodeProvider
+    *** @param gp         The GeoPoint
+    *** @param localeStr  The locale
+    *** @param cache      Passed through to "getReverseGeocode"
+    *** @param fastOnly   True if only 'fast' operations are allowed
+    *** @return The reverse-geocoded adress
+    *** @throws SlowOperationException if 'fastOnly' is true, the address was not cached,
+    ***     and the ReverseGeocodeProvider is 'slow'.
+    **/
+    public static ReverseGeocode getCachedReverseGeocode(ReverseGeocodeProvider rgp, 
+        GeoPoint gp, String localeStr, boolean cache, boolean fastOnly)
+        throws SlowOperationException
+    {
+        if (rgp == null) {
+            return null;
+        } else
+        if (rgp instanceof ReverseGeocodeProviderAdapter) {
+            return ((ReverseGeocodeProviderAdapter)rgp).getCachedReverseGeocode(gp, localeStr, cache, fastOnly);
+        } else
+        if (fastOnly && !rgp.isFastOperation()) {
+            throw new SlowOperationException("'fast' requested, and this operation is 'slow'");
+        } else {
+            return rgp.getReverseGeocode(gp, localeStr, cache);
+        }
+    }
+
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
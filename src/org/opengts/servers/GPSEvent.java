@@ -129,7 +129,7 @@ public class GPSEvent
                     Print.logError("Account-ID not found: " + acctID);
                     return null;
                 } else {
-                    Device dev = Transport.loadDeviceByTransportID(account, devID);
+                    Device dev = DeviceLookupCache.loadDeviceByTransportID(account, devID);
                     return dev;
                 }
             } catch (DBException dbe) {
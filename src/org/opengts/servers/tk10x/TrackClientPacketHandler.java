@@ -579,10 +579,10 @@ public class TrackClientPacketHandler
         boolean  validGPS   = s.substring(G+ 6,G+ 7).equalsIgnoreCase("A");                        //  6, 7  [A/V]
         double   latitude   = this._parseLatitude( s.substring(G+ 7,G+16),s.substring(G+16,G+17)); //  7,16, 16:17
         double   longitude  = this._parseLongitude(s.substring(G+17,G+27),s.substring(G+27,G+28)); // 17,27, 27:28
-        double   speedKPH   = StringTools.parseDouble(s.substring(G+28,G+33),0.0);                 // 28,33
+        double   speedKPH   = StringTools.parseDecimalDouble(s,G+28,G+33,0.0);                      // 28,33
         String   timeStr    = s.substring(G+33,G+39);                                              // 33,39
         long     fixtime    = this._getUTCSeconds_YMD_HMS(dateStr, timeStr); // UTC
-        double   headingDeg = StringTools.parseDouble(s.substring(G+39,G+45),0.0);                 // 39,45
+        double   headingDeg = StringTools.parseDecimalDouble(s,G+39,G+45,0.0);                      // 39,45
         String   gpioStr    = s.substring(G+45,G+53);                                              // 45,53
         String   odomUnits  = s.substring(G+53,G+54);                                              // 53,54 "L"
         long     odomVal    = StringTools.parseHexLong(s.substring(G+54,G+62),0L);                 // 54,62 Miles?
@@ -261,6 +261,9 @@ public class TrackClientPacketHandler
     /* common GPSEvent instance */
     private GPSEvent        gpsEvent                    = null;
 
+    /* packet field tokenizer (reused for each packet) */
+    private FieldTokenizer  fieldTokenizer              = new FieldTokenizer();
+
     /* Device record */
     private Device          gpsDevice                   = null;
     private String          lastModemID                 = null;
@@ -564,20 +567,29 @@ public class TrackClientPacketHandler
         // response that the client may be expected in the form of a byte array.
         if ((pktBytes != null) && (pktBytes.length > 0)) {
             
+            /* remove leading/trailing spaces */
+            int pktStart = 0;
+            int pktEnd   = pktBytes.length;
+            while ((pktStart < pktEnd) && (pktBytes[pktStart] <= ' ')) { pktStart++; }
+            while ((pktEnd > pktStart) && (pktBytes[pktEnd - 1] <= ' ')) { pktEnd--; }
+
             /* (debug message) display received data packet */
-            Print.logInfo("Recv[HEX]: " + StringTools.toHexString(pktBytes));
-            String s = StringTools.toStringValue(pktBytes).trim(); // remove leading/trailing spaces
-            Print.logInfo("Recv[TXT]: " + s); // debug message
-            
+            if (Print.getLogLevel() >= Print.LOG_INFO) {
+                Print.logInfo("Recv[HEX]: " + StringTools.toHexString(pktBytes));
+                Print.logInfo("Recv[TXT]: " + StringTools.toStringValue(pktBytes,pktStart,pktEnd-pktStart)); // debug message
+            }
+
             /* parse/insert event */
+            // Formats #1, #11 and #12 are tokenized directly from the packet bytes, the remaining
+            // formats require the packet as a String (substring/key=value parsing)
             byte rtn[] = null;
             switch (DATA_FORMAT_OPTION) {
-                case  1 : rtn = this.parseInsertRecord_ASCII_01(s); break;
-                case  2 : rtn = this.parseInsertRecord_ASCII_02(s); break;
-                case  3 : rtn = this.parseInsertRecord_ASCII_03(s); break;
-                case  9 : rtn = this.parseInsertRecord_RTProps (s); break;
-                case 11 : rtn = this.parseInsertRecord_Device_1(s); break;
-                case 12 : rtn = this.parseInsertRecord_Xirgo(s); break;
+                case  1 : rtn = this.parseInsertRecord_ASCII_01(pktBytes, pktStart, pktEnd); break;
+                case  2 : rtn = this.parseInsertRecord_ASCII_02(StringTools.toStringValue(pktBytes,pktStart,pktEnd-pktStart)); break;
+                case  3 : rtn = this.parseInsertRecord_ASCII_03(StringTools.toStringValue(pktBytes,pktStart,pktEnd-pktStart)); break;
+                case  9 : rtn = this.parseInsertRecord_RTProps (StringTools.toStringValue(pktBytes,pktStart,pktEnd-pktStart)); break;
+                case 11 : rtn = this.parseInsertRecord_Device_1(pktBytes, pktStart, pktEnd); break;
+                case 12 : rtn = this.parseInsertRecord_Xirgo(pktBytes, pktStart, pktEnd); break;
                 default: Print.logError("Unspecified data format"); break;
             }
             // Note:
@@ -616,7 +628,7 @@ public class TrackClientPacketHandler
 
     }
 
-    private byte[] parseInsertRecord_Xirgo(String s) {
+    private byte[] parseInsertRecord_Xirgo(byte pkt[], int start, int end) {
         // Format:
         //   $$<UID>,<EV#>,<D>,<T>,<LT>,<LN>,<AL>,<SP>,<AC>,<DC>,<RP>,<HD>,<SV>,<HP>,<MI>,<MG>,<BV>,<CQ>,<GS>,<GT>,<FL>[,<SEQ>]##
         //
@@ -673,38 +685,40 @@ public class TrackClientPacketHandler
         //        successful UDP with Ack response from server. Field is always at end of string (prior to ##) for UDPwAck and is omitted
         //        for TCP and UDP (w/o Ack) modes.
         //
-        Print.logInfo("Parsing: " + s);
+        if (Print.getLogLevel() >= Print.LOG_INFO) {
+            Print.logInfo("Parsing: " + StringTools.toStringValue(pkt,start,end-start));
+        }
 
         /* pre-validate */
-        if (StringTools.isBlank(s)) {
-            Print.logError("Packet string is blank/null");
+        if ((pkt == null) || (start >= end)) {
+            Print.logError("Packet is blank/null");
             return null;
         } else
-        if (!s.startsWith("$")) {
-            Print.logError("Packet string does not start with '$'");
+        if (pkt[start] != '$') {
+            Print.logError("Packet does not start with '$'");
             return null;
         }
 
         /* separate into fields */
-        String fld[] = StringTools.parseStringArray(s.substring(1), ',');
-        if ((fld == null) || (fld.length < PACKET_FIELD_COUNT)) {
+        FieldTokenizer fld = this.fieldTokenizer.reset(pkt, start + 1, end, ',');
+        if (fld.getFieldCount() < PACKET_FIELD_COUNT) {
             Print.logWarn("Invalid number of fields");
             return null;
         }
 
         /* parse individual fields */
-        String   modemID    = fld[0].toLowerCase();
-        String   eventCode  = fld[1];
-        long     fixtime    = Nmea0183.parseFixtime  (fld[2], fld[3], true);
-        double   latitude   = StringTools.parseDouble(fld[4],0.0);
-        double   longitude  = StringTools.parseDouble(fld[5],0.0);
-        double   altitudeM  = StringTools.parseDouble(fld[5],0.0);
-        double   speedMile  = StringTools.parseDouble(fld[6], 0.0);
+        String   modemID    = fld.getString(0).toLowerCase();
+        String   eventCode  = fld.getString(1);
+        long     fixtime    = Nmea0183.parseFixtime  (fld.getString(2), fld.getString(3), true);
+        double   latitude   = fld.getDouble(4, 0.0);
+        double   longitude  = fld.getDouble(5, 0.0);
+        double   altitudeM  = fld.getDouble(5, 0.0);
+        double   speedMile  = fld.getDouble(6, 0.0);
         double   speedKPH   = speedMile * KILOMETERS_PER_MILE;
-        double   aceleration = StringTools.parseDouble(fld[7], 0.0);
-        double   deceleration = StringTools.parseDouble(fld[8], 0.0);
-        double   heading    = StringTools.parseDouble(fld[9], 0.0);
-        double   vehicleID  = StringTools.parseDouble(fld[23], 0.0);
+        double   aceleration = fld.getDouble(7, 0.0);
+        double   deceleration = fld.getDouble(8, 0.0);
+        double   heading    = fld.getDouble(9, 0.0);
+        double   vehicleID  = fld.getDouble(23, 0.0);
 
         /* status code */
         int      statusCode = StatusCodes.STATUS_LOCATION;
@@ -841,7 +855,7 @@ public class TrackClientPacketHandler
     // ------------------------------------------------------------------------
 
     /* parse and insert data record */
-    private byte[] parseInsertRecord_ASCII_01(String s)
+    private byte[] parseInsertRecord_ASCII_01(byte pkt[], int start, int end)
     {
         // This is an example showing how the server might parse one type of ASCII encoded data.
         // Since every Device utilizes a different data format, this will likely not match the
@@ -859,30 +873,32 @@ public class TrackClientPacketHandler
         //   |          |> Date [GMT]
         //   |> MobileID/IMEI
         //
-        Print.logInfo("Parsing: " + s);
+        if (Print.getLogLevel() >= Print.LOG_INFO) {
+            Print.logInfo("Parsing: " + StringTools.toStringValue(pkt,start,end-start));
+        }
 
         /* pre-validate */
-        if (s == null) {
-            Print.logError("String is null");
+        if (pkt == null) {
+            Print.logError("Packet is null");
             return null;
         }
 
         /* parse to fields */
-        String fld[] = StringTools.parseStringArray(s,',');
-        if ((fld == null) || (fld.length < 5)) {
+        FieldTokenizer fld = this.fieldTokenizer.reset(pkt, start, end, ',');
+        if (fld.getFieldCount() < 5) {
             Print.logWarn("Invalid number of fields");
             return null;
         }
 
         /* parse individual fields */
-        String   modemID    = fld[0].toLowerCase();
-        long     fixtime    = this._parseDate(fld[1],fld[2]);
+        String   modemID    = fld.getString(0).toLowerCase();
+        long     fixtime    = this._parseDate(fld.getString(1),fld.getString(2));
         int      statusCode = StatusCodes.STATUS_LOCATION;
-        double   latitude   = StringTools.parseDouble(fld[3],0.0);
-        double   longitude  = StringTools.parseDouble(fld[4],0.0);
-        double   speedKPH   = (fld.length > 5)? StringTools.parseDouble(fld[5],0.0) : 0.0;
-        double   heading    = (fld.length > 6)? StringTools.parseDouble(fld[6],0.0) : 0.0;
-        double   altitudeM  = (fld.length > 7)? StringTools.parseDouble(fld[7],0.0) : 0.0;
+        double   latitude   = fld.getDouble(3,0.0);
+        double   longitude  = fld.getDouble(4,0.0);
+        double   speedKPH   = fld.getDouble(5,0.0); // 0.0 if field does not exist
+        double   heading    = fld.getDouble(6,0.0);
+        double   altitudeM  = fld.getDouble(7,0.0);
 
         /* GPS Event */
         this.gpsEvent = this.createGPSEvent(modemID);
@@ -1087,12 +1103,13 @@ public class TrackClientPacketHandler
         int kvPos = s.indexOf(';');
         if (kvPos >= 0) {
             kv = s.substring(kvPos+1);
-            s  = s.substring(0,kvPos);
+        } else {
+            kvPos = s.length();
         }
 
         /* parse to fields */
-        String fld[] = StringTools.parseStringArray(s, ',');
-        if ((fld == null) || (fld.length < 10)) {
+        FieldTokenizer fld = this.fieldTokenizer.reset(s, 0, kvPos, ',');
+        if (fld.getFieldCount() < 10) {
             Print.logWarn("Invalid number of fields");
             return null;
         }
@@ -1102,19 +1119,19 @@ public class TrackClientPacketHandler
         //   1  ,123 ,12345678,11    ,20101222,110723,1       ,2.10, 37.1234,-142.1234,235    ,34.7 ,1820
         /* parse individual fields */
         int      statusCode = StatusCodes.STATUS_LOCATION;
-        int      sequence   = StringTools.parseInt(fld[0],0);
-        int      eventCode  = StringTools.parseInt(fld[1],0);
-        String   modemID    = fld[2].toLowerCase();
-        int      format     = StringTools.parseInt(fld[3],0);
-        long     yyyymmdd   = StringTools.parseLong(fld[4],0L);
-        long     hhmmss     = StringTools.parseLong(fld[5],0L);
+        int      sequence   = fld.getInt(0,0);
+        int      eventCode  = fld.getInt(1,0);
+        String   modemID    = fld.getString(2).toLowerCase();
+        int      format     = fld.getInt(3,0);
+        long     yyyymmdd   = fld.getLong(4,0L);
+        long     hhmmss     = fld.getLong(5,0L);
         long     fixtime    = this._parseDate(yyyymmdd,hhmmss);
-        boolean  validGPS   = fld[6].equals("1");
-        double   latitude   = validGPS? StringTools.parseDouble(fld[ 8],0.0) : 0.0;
-        double   longitude  = validGPS? StringTools.parseDouble(fld[ 9],0.0) : 0.0;
-        double   heading    = validGPS && (fld.length > 10)? StringTools.parseDouble(fld[10],0.0) : 0.0;
-        double   speedKPH   = validGPS && (fld.length > 11)? StringTools.parseDouble(fld[11],0.0) : 0.0;
-        double   altitudeM  = validGPS && (fld.length > 12)? StringTools.parseDouble(fld[12],0.0) : 0.0;
+        boolean  validGPS   = fld.fieldEquals(6,"1");
+        double   latitude   = validGPS? fld.getDouble( 8,0.0) : 0.0;
+        double   longitude  = validGPS? fld.getDouble( 9,0.0) : 0.0;
+        double   heading    = validGPS? fld.getDouble(10,0.0) : 0.0; // 0.0 if field does not exist
+        double   speedKPH   = validGPS? fld.getDouble(11,0.0) : 0.0;
+        double   altitudeM  = validGPS? fld.getDouble(12,0.0) : 0.0;
 
         /* GPS Event */
         this.gpsEvent = this.createGPSEvent(modemID);
@@ -1283,42 +1300,44 @@ public class TrackClientPacketHandler
 
     /* parse and insert data record */
     // this format supports some Bofan Devices
-    private byte[] parseInsertRecord_Device_1(String s)
+    private byte[] parseInsertRecord_Device_1(byte pkt[], int start, int end)
     {
         // Format:
         //   $<EventCode>,<MobileID>,<HHMMSS>,<GPSValid>,<NMEALat>,<N|S>,<NMEALon>,<E|W>,<SpeedKnots>,<Heading>,<DDMMYY>
         // Example:
         //   $POS,10000,102215.000,V,2233.8171,N,14205.6367,W,0.0,0.0,250411
         //   0--- 1---- 2--------- 3 4-------- 5 6--------- 7 8-- 9-- A-----
-        Print.logInfo("Parsing: " + s);
+        if (Print.getLogLevel() >= Print.LOG_INFO) {
+            Print.logInfo("Parsing: " + StringTools.toStringValue(pkt,start,end-start));
+        }
 
         /* pre-validate */
-        if (StringTools.isBlank(s)) {
-            Print.logError("Packet string is blank/null");
+        if ((pkt == null) || (start >= end)) {
+            Print.logError("Packet is blank/null");
             return null;
         } else 
-        if (!s.startsWith("$")) {
-            Print.logError("Packet string does not start with '$'");
+        if (pkt[start] != '$') {
+            Print.logError("Packet does not start with '$'");
             return null;
         }
 
         /* separate into fields */
-        String fld[] = StringTools.parseStringArray(s.substring(1), ',');
-        if ((fld == null) || (fld.length < 11)) {
+        FieldTokenizer fld = this.fieldTokenizer.reset(pkt, start + 1, end, ',');
+        if (fld.getFieldCount() < 11) {
             Print.logWarn("Invalid number of fields");
             return null;
         }
 
         /* parse individual fields */
-        String   eventCode  = fld[0];
-        String   modemID    = fld[1].toLowerCase();
-        long     fixtime    = Nmea0183.parseFixtime  (fld[10], fld[2], true);
-        boolean  validGPS   = fld[3].equalsIgnoreCase("A");
-        double   latitude   = validGPS? Nmea0183.ParseLatitude (fld[ 4], fld[5],  90.0) : 0.0;
-        double   longitude  = validGPS? Nmea0183.ParseLongitude(fld[ 6], fld[7], 180.0) : 0.0;
-        double   speedKnot  = validGPS? StringTools.parseDouble(fld[ 8], 0.0) : 0.0;
+        String   eventCode  = fld.getString(0);
+        String   modemID    = fld.getString(1).toLowerCase();
+        long     fixtime    = Nmea0183.parseFixtime  (fld.getString(10), fld.getString(2), true);
+        boolean  validGPS   = fld.fieldEquals(3, "A", true);
+        double   latitude   = validGPS? Nmea0183.ParseLatitude (fld.getString(4), fld.getString(5),  90.0) : 0.0;
+        double   longitude  = validGPS? Nmea0183.ParseLongitude(fld.getString(6), fld.getString(7), 180.0) : 0.0;
+        double   speedKnot  = validGPS? fld.getDouble(8, 0.0) : 0.0;
         double   speedKPH   = validGPS? (speedKnot * KILOMETERS_PER_KNOT) : 0.0;
-        double   heading    = validGPS? StringTools.parseDouble(fld[ 9], 0.0) : 0.0;
+        double   heading    = validGPS? fld.getDouble(9, 0.0) : 0.0;
         double   altitudeM  = 0.0;  // 
 
         /* status code */
@@ -0,0 +1,314 @@
+// ----------------------------------------------------------------------------
+// Copyright 2007-2014, GeoTelematic Solutions, Inc.
+// All rights reserved
+// ----------------------------------------------------------------------------
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ----------------------------------------------------------------------------
+// Description:
+//  Thread-safe, size bounded (least-recently-used), time-limited cache
+// ----------------------------------------------------------------------------
+package org.opengts.util;
+
+import java.util.*;
+
+/**
+*** A thread-safe cache map.  Entries are evicted in least-recently-used order
+*** when the maximum size has been reached, and expire after a specified
+*** time-to-live.  Hit/miss/eviction counts are maintained for diagnostics.
+**/
+
+public class CacheMap<K,V>
+{
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Entry filter, used by "removeMatching"
+    **/
+    public interface Matcher<K,V>
+    {
+        public boolean matches(K key, V value);
+    }
+
+    // ------------------------------------------------------------------------
+
+    private static class CacheEntry<V>
+    {
+        private V    value    = null;
+        private long expireMS = 0L;  // <=0 for no expiration
+        public CacheEntry(V value, long expireMS) {
+            this.value    = value;
+            this.expireMS = expireMS;
+        }
+        public boolean isExpired(long nowMS) {
+            return (this.expireMS > 0L) && (nowMS >= this.expireMS);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    private int                     maxSize     = 0;
+    private long                    ttlMS       = 0L;
+    private LinkedHashMap<K,CacheEntry<V>> cacheMap = null;
+
+    private long                    hitCount    = 0L;
+    private long                    missCount   = 0L;
+    private long                    evictCount  = 0L;
+    private long                    expireCount = 0L;
+
+    /**
+    *** Constructor
+    *** @param maxSize  The maximum number of entries (<=0 for unbounded)
+    *** @param ttlMS    The default entry time-to-live in milliseconds (<=0 for no expiration)
+    **/
+    public CacheMap(int maxSize, long ttlMS)
+    {
+        this.maxSize  = maxSize;
+        this.ttlMS    = ttlMS;
+        this.cacheMap = new LinkedHashMap<K,CacheEntry<V>>(16, 0.75F, true/*accessOrder*/) {
+            protected boolean removeEldestEntry(Map.Entry<K,CacheEntry<V>> eldest) {
+                if ((CacheMap.this.maxSize > 0) && (this.size() > CacheMap.this.maxSize)) {
+                    CacheMap.this.evictCount++;
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+        };
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Gets the maximum number of entries
+    *** @return The maximum number of entries
+    **/
+    public int getMaximumSize()
+    {
+        return this.maxSize;
+    }
+
+    /**
+    *** Gets the default time-to-live in milliseconds
+    *** @return The default time-to-live in milliseconds
+    **/
+    public long getTimeToLiveMS()
+    {
+        return this.ttlMS;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Gets the cached value for the specified key
+    *** @param key  The key
+    *** @return The cached value, or null if the key is not cached, or has expired
+    **/
+    public V get(K key)
+    {
+        synchronized (this.cacheMap) {
+            CacheEntry<V> e = this.cacheMap.get(key);
+            if (e == null) {
+                this.missCount++;
+                return null;
+            } else
+            if (e.isExpired(System.currentTimeMillis())) {
+                this.cacheMap.remove(key);
+                this.expireCount++;
+                this.missCount++;
+                return null;
+            } else {
+                this.hitCount++;
+                return e.value;
+            }
+        }
+    }
+
+    /**
+    *** Returns true if the specified key is cached, and has not expired
+    *** (does not affect the hit/miss counts or LRU order)
+    *** @param key  The key
+    *** @return True if the key is cached
+    **/
+    public boolean containsKey(K key)
+    {
+        synchronized (this.cacheMap) {
+            CacheEntry<V> e = this.cacheMap.get(key);
+            return (e != null) && !e.isExpired(System.currentTimeMillis());
+        }
+    }
+
+    /**
+    *** Caches the specified value, using the default time-to-live
+    *** @param key    The key
+    *** @param value  The value
+    **/
+    public void put(K key, V value)
+    {
+        this.put(key, value, this.ttlMS);
+    }
+
+    /**
+    *** Caches the specified value
+    *** @param key    The key
+    *** @param value  The value
+    *** @param ttlMS  The entry time-to-live in milliseconds (<=0 for no expiration)
+    **/
+    public void put(K key, V value, long ttlMS)
+    {
+        long expireMS = (ttlMS > 0L)? (System.currentTimeMillis() + ttlMS) : 0L;
+        synchronized (this.cacheMap) {
+            this.cacheMap.put(key, new CacheEntry<V>(value, expireMS));
+        }
+    }
+
+    /**
+    *** Removes the specified key from the cache
+    *** @param key  The key
+    *** @return The previously cached value, or null
+    **/
+    public V remove(K key)
+    {
+        synchronized (this.cacheMap) {
+            CacheEntry<V> e = this.cacheMap.remove(key);
+            return (e != null)? e.value : null;
+        }
+    }
+
+    /**
+    *** Removes all entries accepted by the specified matcher
+    *** @param matcher  The entry matcher
+    *** @return The number of removed entries
+    **/
+    public int removeMatching(Matcher<K,V> matcher)
+    {
+        int count = 0;
+        synchronized (this.cacheMap) {
+            for (Iterator<Map.Entry<K,CacheEntry<V>>> i = this.cacheMap.entrySet().iterator(); i.hasNext();) {
+                Map.Entry<K,CacheEntry<V>> me = i.next();
+                if (matcher.matches(me.getKey(), me.getValue().value)) {
+                    i.remove();
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+    *** Removes all expired entries
+    *** @return The number of removed entries
+    **/
+    public int removeExpired()
+    {
+        int count = 0;
+        long nowMS = System.currentTimeMillis();
+        synchronized (this.cacheMap) {
+            for (Iterator<CacheEntry<V>> i = this.cacheMap.values().iterator(); i.hasNext();) {
+                if (i.next().isExpired(nowMS)) {
+                    i.remove();
+                    count++;
+                }
+            }
+            this.expireCount += count;
+        }
+        return count;
+    }
+
+    /**
+    *** Removes all entries
+    **/
+    public void clear()
+    {
+        synchronized (this.cacheMap) {
+            this.cacheMap.clear();
+        }
+    }
+
+    /**
+    *** Gets the number of cached entries (may include expired entries)
+    *** @return The number of cached entries
+    **/
+    public int size()
+    {
+        synchronized (this.cacheMap) {
+            return this.cacheMap.size();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Gets the number of cache hits
+    *** @return The number of cache hits
+    **/
+    public long getHitCount()
+    {
+        synchronized (this.cacheMap) {
+            return this.hitCount;
+        }
+    }
+
+    /**
+    *** Gets the number of cache misses (includes expired entries)
+    *** @return The number of cache misses
+    **/
+    public long getMissCount()
+    {
+        synchronized (this.cacheMap) {
+            return this.missCount;
+        }
+    }
+
+    /**
+    *** Gets the number of entries evicted due to the maximum size limit
+    *** @return The number of evicted entries
+    **/
+    public long getEvictionCount()
+    {
+        synchronized (this.cacheMap) {
+            return this.evictCount;
+        }
+    }
+
+    /**
+    *** Gets the number of entries removed due to expiration
+    *** @return The number of expired entries
+    **/
+    public long getExpiredCount()
+    {
+        synchronized (this.cacheMap) {
+            return this.expireCount;
+        }
+    }
+
+    /**
+    *** Returns a String representation of the cache statistics
+    *** @return A String representation of the cache statistics
+    **/
+    public String toString()
+    {
+        synchronized (this.cacheMap) {
+            StringBuffer sb = new StringBuffer();
+            sb.append("size=").append(this.cacheMap.size());
+            sb.append(", hits=").append(this.hitCount);
+            sb.append(", misses=").append(this.missCount);
+            sb.append(", evicted=").append(this.evictCount);
+            sb.append(", expired=").append(this.expireCount);
+            return sb.toString();
+        }
+    }
+
+}
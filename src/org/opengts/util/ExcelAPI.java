@@ -78,4 +78,15 @@ public interface ExcelAPI
     
     // ------------------------------------------------------------------------
 
+    /**
+    *** Implemented by spreadsheets which write rows to the output stream as they are
+    *** added, rather than holding the entire workbook in memory until "write" is called.
+    **/
+    public interface Streaming
+    {
+        public void setOutputStream(OutputStream out);
+    }
+
+    // ------------------------------------------------------------------------
+
 }
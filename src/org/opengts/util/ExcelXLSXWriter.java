@@ -0,0 +1,717 @@
+// ----------------------------------------------------------------------------
+// Copyright 2007-2014, GeoTelematic Solutions, Inc.
+// All rights reserved
+// ----------------------------------------------------------------------------
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ----------------------------------------------------------------------------
+// Description:
+//  Built-in ExcelAPI implementation which writes an XLSX (SpreadsheetML)
+//  workbook row-by-row to the output stream.
+// ----------------------------------------------------------------------------
+package org.opengts.util;
+
+import java.util.*;
+import java.io.*;
+import java.util.zip.*;
+
+/**
+*** <code>ExcelXLSXWriter</code> is a built-in <code>ExcelAPI</code> implementation which
+*** writes a single-sheet XLSX workbook (zipped Office Open XML SpreadsheetML), without
+*** requiring any external Excel library.<br>
+*** Rows are written to the zipped worksheet as they are completed, so only the current
+*** row, the title/header rows added before the first body row (needed to write the column
+*** widths ahead of the sheet data), and a bounded shared-string table are held in memory.
+*** Strings which are too long, or which no longer fit in the shared-string table, are
+*** written as inline strings.<br>
+*** If the output stream is set (see <code>setOutputStream</code>) before the first body row
+*** is added, the workbook is written directly to that stream, otherwise it is spooled to a
+*** temporary file and copied to the stream specified to <code>write</code>.<br>
+*** Rows must be added in ascending row order.
+**/
+
+public class ExcelXLSXWriter
+    implements ExcelAPI, ExcelAPI.Streaming
+{
+
+    // ------------------------------------------------------------------------
+
+    private static final String XML_HEADER              = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+    private static final String NS_MAIN                 = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+    private static final String NS_DOC_REL              = "http://schemas.openxmlformats.org/officeDocument/2006/relationships";
+    private static final String NS_PKG_REL              = "http://schemas.openxmlformats.org/package/2006/relationships";
+    private static final String CT_PREFIX               = "application/vnd.openxmlformats-officedocument.spreadsheetml.";
+
+    private static final String ENTRY_SHEET             = "xl/worksheets/sheet1.xml";
+    private static final String ENTRY_SHARED_STRINGS    = "xl/sharedStrings.xml";
+
+    private static final int    MAX_SHARED_STRINGS      = 20000;
+    private static final int    MAX_SHARED_LENGTH       = 128;
+    private static final int    MAX_MERGED_CELLS        = 10000;
+    private static final int    MAX_COLUMN_WIDTH        = 255;
+    private static final int    MAX_SHEET_NAME_LENGTH   = 31;
+    private static final int    BUFFER_SIZE             = 16 * 1024;
+
+    /* cell styles (index into "cellXfs", see STYLES_XML) */
+    private static final int    STYLE_DEFAULT           = 0;
+    private static final int    STYLE_TITLE             = 1;
+    private static final int    STYLE_SUBTITLE          = 2;
+    private static final int    STYLE_HEADER            = 3;
+    private static final int    STYLE_BODY              = 4;
+    private static final int    STYLE_SUBTOTAL          = 5;
+    private static final int    STYLE_TOTAL             = 6;
+
+    private static final String STYLES_XML              =
+        XML_HEADER +
+        "<styleSheet xmlns=\"" + NS_MAIN + "\">\n" +
+        "<fonts count=\"4\">" +
+            "<font><sz val=\"10\"/><name val=\"Arial\"/></font>" +
+            "<font><b/><sz val=\"14\"/><name val=\"Arial\"/></font>" +
+            "<font><b/><sz val=\"12\"/><name val=\"Arial\"/></font>" +
+            "<font><b/><sz val=\"10\"/><name val=\"Arial\"/></font>" +
+        "</fonts>\n" +
+        "<fills count=\"3\">" +
+            "<fill><patternFill patternType=\"none\"/></fill>" +
+            "<fill><patternFill patternType=\"gray125\"/></fill>" +
+            "<fill><patternFill patternType=\"solid\"><fgColor rgb=\"FFD9D9D9\"/><bgColor indexed=\"64\"/></patternFill></fill>" +
+        "</fills>\n" +
+        "<borders count=\"3\">" +
+            "<border><left/><right/><top/><bottom/><diagonal/></border>" +
+            "<border><left style=\"thin\"/><right style=\"thin\"/><top style=\"thin\"/><bottom style=\"thin\"/><diagonal/></border>" +
+            "<border><left/><right/><top style=\"thick\"/><bottom/><diagonal/></border>" +
+        "</borders>\n" +
+        "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>\n" +
+        "<cellXfs count=\"7\">" +
+            "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>" +
+            "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\" applyAlignment=\"1\"><alignment horizontal=\"center\"/></xf>" +
+            "<xf numFmtId=\"0\" fontId=\"2\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\" applyAlignment=\"1\"><alignment horizontal=\"center\"/></xf>" +
+            "<xf numFmtId=\"0\" fontId=\"3\" fillId=\"2\" borderId=\"1\" xfId=\"0\" applyFont=\"1\" applyFill=\"1\" applyBorder=\"1\" applyAlignment=\"1\"><alignment horizontal=\"center\" vertical=\"center\" wrapText=\"1\"/></xf>" +
+            "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"1\" xfId=\"0\" applyBorder=\"1\"/>" +
+            "<xf numFmtId=\"0\" fontId=\"3\" fillId=\"2\" borderId=\"1\" xfId=\"0\" applyFont=\"1\" applyFill=\"1\" applyBorder=\"1\"/>" +
+            "<xf numFmtId=\"0\" fontId=\"3\" fillId=\"0\" borderId=\"2\" xfId=\"0\" applyFont=\"1\" applyBorder=\"1\"/>" +
+        "</cellXfs>\n" +
+        "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>\n" +
+        "</styleSheet>\n";
+
+    // ------------------------------------------------------------------------
+
+    private static final String COLUMN_NAME_CACHE[] = new String[256];
+    static {
+        for (int i = 0; i < COLUMN_NAME_CACHE.length; i++) {
+            COLUMN_NAME_CACHE[i] = ExcelXLSXWriter._columnName(i);
+        }
+    }
+
+    /* return the column letter(s) for the specified 0-based column index (0=A, 26=AA) */
+    private static String _columnName(int colIndex)
+    {
+        StringBuffer sb = new StringBuffer();
+        for (int c = colIndex + 1; c > 0; c = (c - 1) / 26) {
+            sb.insert(0, (char)('A' + ((c - 1) % 26)));
+        }
+        return sb.toString();
+    }
+
+    /**
+    *** Returns the column letter(s) for the specified 0-based column index
+    *** @param colIndex  The column index
+    *** @return The column letter(s) (ie. "A", "B", ..., "AA", ...)
+    **/
+    public static String getColumnName(int colIndex)
+    {
+        if (colIndex < 0) {
+            return "A";
+        } else
+        if (colIndex < COLUMN_NAME_CACHE.length) {
+            return COLUMN_NAME_CACHE[colIndex];
+        } else {
+            return ExcelXLSXWriter._columnName(colIndex);
+        }
+    }
+
+    /* append the XML escaped string (invalid XML characters are omitted) */
+    private static StringBuffer _appendXML(StringBuffer sb, String s)
+    {
+        for (int i = 0; i < s.length(); i++) {
+            char ch = s.charAt(i);
+            switch (ch) {
+                case '&' : sb.append("&amp;" ); break;
+                case '<' : sb.append("&lt;"  ); break;
+                case '>' : sb.append("&gt;"  ); break;
+                case '"' : sb.append("&quot;"); break;
+                default:
+                    if ((ch >= 0x20) || (ch == '\t') || (ch == '\n') || (ch == '\r')) {
+                        if ((ch < 0xFFFE) || (ch > 0xFFFF)) {
+                            sb.append(ch);
+                        }
+                    }
+                    break;
+            }
+        }
+        return sb;
+    }
+
+    /* append the "<t>" text element */
+    private static StringBuffer _appendText(StringBuffer sb, String s)
+    {
+        boolean preserve = (s.length() > 0) &&
+            (Character.isWhitespace(s.charAt(0)) || Character.isWhitespace(s.charAt(s.length() - 1)));
+        sb.append(preserve? "<t xml:space=\"preserve\">" : "<t>");
+        ExcelXLSXWriter._appendXML(sb, s);
+        sb.append("</t>");
+        return sb;
+    }
+
+    // ------------------------------------------------------------------------
+
+    private String                  sheetName       = "Sheet1";
+    private boolean                 xlsx            = true;
+
+    private OutputStream            targetStream    = null;
+    private File                    spoolFile       = null;
+    private ZipOutputStream         zipOut          = null;
+    private Writer                  sheetOut        = null;
+    private boolean                 sheetStarted    = false;
+    private boolean                 closed          = false;
+    private IOException             error           = null;
+
+    private StringBuffer            preamble        = new StringBuffer();
+    private StringBuffer            rowBuf          = new StringBuffer();
+    private int                     rowIndex        = -1;
+    private int                     lastRowIndex    = -1;
+    private int                     lastColIndex    = -1;
+    private long                    rowCount        = 0L;
+
+    private Map<Integer,Integer>    columnWidths    = new TreeMap<Integer,Integer>();
+    private java.util.List<String>  mergedCells     = new Vector<String>();
+
+    private Map<String,Integer>     sharedIndex     = new HashMap<String,Integer>();
+    private java.util.List<String>  sharedStrings   = new ArrayList<String>();
+    private long                    sharedRefCount  = 0L;
+
+    /**
+    *** Constructor
+    **/
+    public ExcelXLSXWriter()
+    {
+        super();
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Initializes this spreadsheet
+    *** @param xlsx  True for XLSX (only XLSX is supported by this implementation)
+    *** @param name  The sheet name
+    **/
+    public void init(boolean xlsx, String name)
+    {
+        this.xlsx = xlsx;
+        if (!xlsx) {
+            Print.logWarn("Only XLSX is supported, writing XLSX format");
+        }
+        String n = StringTools.trim(name);
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; (i < n.length()) && (sb.length() < MAX_SHEET_NAME_LENGTH); i++) {
+            char ch = n.charAt(i);
+            sb.append(("[]:*?/\\".indexOf(ch) >= 0)? '_' : ch);
+        }
+        this.sheetName = (sb.length() > 0)? sb.toString() : "Sheet1";
+    }
+
+    /**
+    *** Sets the OutputStream to which the workbook is written as rows are added.<br>
+    *** Must be called before the first body row is added.  The stream is not closed.
+    *** @param out  The OutputStream
+    **/
+    public void setOutputStream(OutputStream out)
+    {
+        if (this.zipOut != null) {
+            Print.logWarn("Spreadsheet output has already started");
+        } else {
+            this.targetStream = out;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Sets the title row, spanning the specified number of columns
+    **/
+    public void setTitle(int rowIndex, String title, int colSpan)
+    {
+        this._addCell(rowIndex, 0, colSpan, STYLE_TITLE, title);
+    }
+
+    /**
+    *** Sets the subtitle row, spanning the specified number of columns
+    **/
+    public void setSubtitle(int rowIndex, String title, int colSpan)
+    {
+        this._addCell(rowIndex, 0, colSpan, STYLE_SUBTITLE, title);
+    }
+
+    /**
+    *** Sets a blank row (blank rows are not written)
+    **/
+    public void setBlankRow(int rowIndex, int colSpan)
+    {
+        this._endRow();
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Adds a header column
+    **/
+    public void addHeaderColumn(int rowIndex, int colIndex, String colTitle, int charWidth)
+    {
+        this.addHeaderColumn(rowIndex, colIndex, 1, colTitle, charWidth);
+    }
+
+    /**
+    *** Adds a header column, spanning the specified number of columns
+    **/
+    public void addHeaderColumn(int rowIndex, int colIndex, int colSpan, String colTitle, int charWidth)
+    {
+        if (!this.sheetStarted && (charWidth > 0)) {
+            // column widths are written ahead of the sheet data
+            Integer col = new Integer(colIndex);
+            if (!this.columnWidths.containsKey(col)) {
+                this.columnWidths.put(col, new Integer(Math.min(charWidth,MAX_COLUMN_WIDTH)));
+            }
+        }
+        this._addCell(rowIndex, colIndex, colSpan, STYLE_HEADER, colTitle);
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Adds a body column value
+    **/
+    public void addBodyColumn(int rowIndex, int colIndex, Object value)
+    {
+        this._startSheet();
+        this._addCell(rowIndex, colIndex, 1, STYLE_BODY, value);
+    }
+
+    /**
+    *** Adds a subtotal column value
+    **/
+    public void addSubtotalColumn(int rowIndex, int colIndex, Object value)
+    {
+        this._startSheet();
+        this._addCell(rowIndex, colIndex, 1, STYLE_SUBTOTAL, value);
+    }
+
+    /**
+    *** Adds a total column value
+    **/
+    public void addTotalColumn(int rowIndex, int colIndex, Object value)
+    {
+        this._startSheet();
+        this._addCell(rowIndex, colIndex, 1, STYLE_TOTAL, value);
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Gets the number of rows written
+    *** @return The number of rows written
+    **/
+    public long getRowCount()
+    {
+        return this.rowCount;
+    }
+
+    /**
+    *** Gets the number of unique shared strings
+    *** @return The number of unique shared strings
+    **/
+    public int getSharedStringCount()
+    {
+        return this.sharedStrings.size();
+    }
+
+    // ------------------------------------------------------------------------
+
+    /* record an output error (further output is ignored) */
+    private void _setError(IOException ioe)
+    {
+        if (this.error == null) {
+            Print.logException("Error writing XLSX spreadsheet", ioe);
+            this.error = ioe;
+        }
+    }
+
+    /* add a cell to the current row */
+    private void _addCell(int rowIndex, int colIndex, int colSpan, int style, Object value)
+    {
+        if (this.closed || (this.error != null)) {
+            return;
+        }
+
+        /* new row */
+        if (rowIndex != this.rowIndex) {
+            this._endRow();
+            if (rowIndex <= this.lastRowIndex) {
+                Print.logWarn("Spreadsheet rows must be added in ascending order: " + rowIndex);
+                return;
+            }
+            this.rowIndex     = rowIndex;
+            this.lastColIndex = -1;
+            this.rowBuf.append("<row r=\"").append(rowIndex + 1).append("\">");
+        } else
+        if (colIndex <= this.lastColIndex) {
+            Print.logWarn("Spreadsheet columns must be added in ascending order: " + colIndex);
+            return;
+        }
+        this.lastColIndex = colIndex + Math.max(colSpan,1) - 1;
+
+        /* merged columns */
+        String cellRef = ExcelXLSXWriter.getColumnName(colIndex) + (rowIndex + 1);
+        if ((colSpan > 1) && (this.mergedCells.size() < MAX_MERGED_CELLS)) {
+            String lastRef = ExcelXLSXWriter.getColumnName(this.lastColIndex) + (rowIndex + 1);
+            this.mergedCells.add(cellRef + ":" + lastRef);
+        }
+
+        /* cell */
+        StringBuffer sb = this.rowBuf;
+        sb.append("<c r=\"").append(cellRef).append("\"");
+        if (style != STYLE_DEFAULT) {
+            sb.append(" s=\"").append(style).append("\"");
+        }
+        if (value == null) {
+            sb.append("/>");
+        } else
+        if ((value instanceof Number) &&
+            !((value instanceof Double) && (((Double)value).isNaN() || ((Double)value).isInfinite())) &&
+            !((value instanceof Float ) && (((Float )value).isNaN() || ((Float )value).isInfinite()))   ) {
+            sb.append("><v>").append(value.toString()).append("</v></c>");
+        } else
+        if (value instanceof Boolean) {
+            sb.append(" t=\"b\"><v>").append(((Boolean)value).booleanValue()? "1" : "0").append("</v></c>");
+        } else {
+            String s = value.toString();
+            int ssNdx = this._getSharedStringIndex(s);
+            if (ssNdx >= 0) {
+                sb.append(" t=\"s\"><v>").append(ssNdx).append("</v></c>");
+            } else {
+                sb.append(" t=\"inlineStr\"><is>");
+                ExcelXLSXWriter._appendText(sb, s);
+                sb.append("</is></c>");
+            }
+        }
+
+    }
+
+    /* return the shared string index, or -1 if the string should be written inline */
+    private int _getSharedStringIndex(String s)
+    {
+        if (s.length() > MAX_SHARED_LENGTH) {
+            return -1;
+        }
+        Integer ndx = this.sharedIndex.get(s);
+        if (ndx == null) {
+            if (this.sharedStrings.size() >= MAX_SHARED_STRINGS) {
+                return -1; // table full
+            }
+            ndx = new Integer(this.sharedStrings.size());
+            this.sharedIndex.put(s, ndx);
+            this.sharedStrings.add(s);
+        }
+        this.sharedRefCount++;
+        return ndx.intValue();
+    }
+
+    /* complete the current row */
+    private void _endRow()
+    {
+        if (this.rowIndex < 0) {
+            return;
+        } else
+        if (this.error != null) {
+            // output failed, discard row
+            this.rowBuf.setLength(0);
+            this.rowIndex = -1;
+            return;
+        }
+        this.rowBuf.append("</row>\n");
+        if (this.sheetStarted) {
+            try {
+                this.sheetOut.write(this.rowBuf.toString());
+            } catch (IOException ioe) {
+                this._setError(ioe);
+            }
+        } else {
+            this.preamble.append(this.rowBuf);
+        }
+        this.rowBuf.setLength(0);
+        this.lastRowIndex = this.rowIndex;
+        this.rowIndex     = -1;
+        this.rowCount++;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /* start a new zip entry */
+    private void _putEntry(String name)
+        throws IOException
+    {
+        this.zipOut.putNextEntry(new ZipEntry(name));
+    }
+
+    /* write a complete zip entry */
+    private void _writeEntry(String name, String content)
+        throws IOException
+    {
+        this._putEntry(name);
+        this.zipOut.write(content.getBytes("UTF-8"));
+        this.zipOut.closeEntry();
+    }
+
+    /* open the zipped workbook and start the worksheet */
+    private void _startSheet()
+    {
+        if (this.sheetStarted || this.closed || (this.error != null)) {
+            return;
+        }
+        this.sheetStarted = true;
+        try {
+
+            /* output */
+            OutputStream out = this.targetStream;
+            if (out == null) {
+                this.spoolFile = File.createTempFile("opengts_", ".xlsx");
+                this.spoolFile.deleteOnExit();
+                out = new FileOutputStream(this.spoolFile);
+            }
+            this.zipOut = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+
+            /* package parts */
+            this._writeEntry("[Content_Types].xml",
+                XML_HEADER +
+                "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">" +
+                "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>" +
+                "<Default Extension=\"xml\" ContentType=\"application/xml\"/>" +
+                "<Override PartName=\"/xl/workbook.xml\" ContentType=\"" + CT_PREFIX + "sheet.main+xml\"/>" +
+                "<Override PartName=\"/" + ENTRY_SHEET + "\" ContentType=\"" + CT_PREFIX + "worksheet+xml\"/>" +
+                "<Override PartName=\"/xl/styles.xml\" ContentType=\"" + CT_PREFIX + "styles+xml\"/>" +
+                "<Override PartName=\"/" + ENTRY_SHARED_STRINGS + "\" ContentType=\"" + CT_PREFIX + "sharedStrings+xml\"/>" +
+                "</Types>\n");
+            this._writeEntry("_rels/.rels",
+                XML_HEADER +
+                "<Relationships xmlns=\"" + NS_PKG_REL + "\">" +
+                "<Relationship Id=\"rId1\" Type=\"" + NS_DOC_REL + "/officeDocument\" Target=\"xl/workbook.xml\"/>" +
+                "</Relationships>\n");
+            StringBuffer wb = new StringBuffer();
+            wb.append(XML_HEADER);
+            wb.append("<workbook xmlns=\"").append(NS_MAIN).append("\" xmlns:r=\"").append(NS_DOC_REL).append("\">");
+            wb.append("<sheets><sheet name=\"");
+            ExcelXLSXWriter._appendXML(wb, this.sheetName);
+            wb.append("\" sheetId=\"1\" r:id=\"rId1\"/></sheets>");
+            wb.append("</workbook>\n");
+            this._writeEntry("xl/workbook.xml", wb.toString());
+            this._writeEntry("xl/_rels/workbook.xml.rels",
+                XML_HEADER +
+                "<Relationships xmlns=\"" + NS_PKG_REL + "\">" +
+                "<Relationship Id=\"rId1\" Type=\"" + NS_DOC_REL + "/worksheet\" Target=\"worksheets/sheet1.xml\"/>" +
+                "<Relationship Id=\"rId2\" Type=\"" + NS_DOC_REL + "/styles\" Target=\"styles.xml\"/>" +
+                "<Relationship Id=\"rId3\" Type=\"" + NS_DOC_REL + "/sharedStrings\" Target=\"sharedStrings.xml\"/>" +
+                "</Relationships>\n");
+            this._writeEntry("xl/styles.xml", STYLES_XML);
+
+            /* worksheet header, column widths, and rows added so far */
+            this._putEntry(ENTRY_SHEET);
+            this.sheetOut = new BufferedWriter(new OutputStreamWriter(this.zipOut, "UTF-8"), BUFFER_SIZE);
+            this.sheetOut.write(XML_HEADER);
+            this.sheetOut.write("<worksheet xmlns=\"" + NS_MAIN + "\" xmlns:r=\"" + NS_DOC_REL + "\">\n");
+            if (!this.columnWidths.isEmpty()) {
+                this.sheetOut.write("<cols>");
+                for (Integer col : this.columnWidths.keySet()) {
+                    int c = col.intValue() + 1;
+                    this.sheetOut.write("<col min=\"" + c + "\" max=\"" + c + "\" width=\"" +
+                        this.columnWidths.get(col) + "\" customWidth=\"1\"/>");
+                }
+                this.sheetOut.write("</cols>\n");
+            }
+            this.sheetOut.write("<sheetData>\n");
+            this.sheetOut.write(this.preamble.toString());
+            this.preamble = null;
+
+        } catch (IOException ioe) {
+            this._setError(ioe);
+        }
+    }
+
+    /* complete the worksheet, and write the shared strings */
+    private void _finishSheet()
+        throws IOException
+    {
+
+        /* end of worksheet */
+        this._endRow();
+        this._startSheet(); // in case no body rows were added
+        if (this.error != null) {
+            throw this.error;
+        }
+        this.sheetOut.write("</sheetData>\n");
+        if (!this.mergedCells.isEmpty()) {
+            this.sheetOut.write("<mergeCells count=\"" + this.mergedCells.size() + "\">");
+            for (String ref : this.mergedCells) {
+                this.sheetOut.write("<mergeCell ref=\"" + ref + "\"/>");
+            }
+            this.sheetOut.write("</mergeCells>\n");
+        }
+        this.sheetOut.write("</worksheet>\n");
+        this.sheetOut.flush(); // do not close (closes the zip stream)
+        this.zipOut.closeEntry();
+
+        /* shared strings */
+        this._putEntry(ENTRY_SHARED_STRINGS);
+        this.sheetOut.write(XML_HEADER);
+        this.sheetOut.write("<sst xmlns=\"" + NS_MAIN + "\" count=\"" + this.sharedRefCount +
+            "\" uniqueCount=\"" + this.sharedStrings.size() + "\">\n");
+        StringBuffer sb = new StringBuffer();
+        for (String s : this.sharedStrings) {
+            sb.setLength(0);
+            sb.append("<si>");
+            ExcelXLSXWriter._appendText(sb, s);
+            sb.append("</si>\n");
+            this.sheetOut.write(sb.toString());
+        }
+        this.sheetOut.write("</sst>\n");
+        this.sheetOut.flush();
+        this.zipOut.closeEntry();
+
+        /* done */
+        this.zipOut.finish();
+        this.zipOut.flush();
+        this.sharedIndex.clear();
+
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Writes the workbook to the file "[name].xlsx" in the specified directory
+    *** @param dir  The output directory
+    *** @return True if successful
+    **/
+    public boolean write(File dir)
+    {
+        if ((dir == null) || !dir.isDirectory()) {
+            Print.logError("Invalid output directory: " + dir);
+            return false;
+        }
+        File file = new File(dir, this.sheetName + ".xlsx");
+        FileOutputStream fos = null;
+        try {
+            fos = new FileOutputStream(file);
+            return this.write(fos);
+        } catch (IOException ioe) {
+            Print.logException("Unable to create file: " + file, ioe);
+            return false;
+        } finally {
+            if (fos != null) { try { fos.close(); } catch (Throwable th) {} }
+        }
+    }
+
+    /**
+    *** Completes the workbook and writes any remaining output to the specified stream.<br>
+    *** If the workbook was written directly to the stream set by <code>setOutputStream</code>,
+    *** the specified stream must be the same stream (or null).  The stream is not closed.
+    *** @param out  The OutputStream
+    *** @return True if successful
+    **/
+    public boolean write(OutputStream out)
+    {
+        if (this.closed) {
+            Print.logError("Spreadsheet has already been written");
+            return false;
+        }
+        if ((this.zipOut == null) && (this.targetStream == null)) {
+            // nothing written yet, write directly to the specified stream
+            this.targetStream = out;
+        } else
+        if ((this.targetStream != null) && (out != null) && (out != this.targetStream)) {
+            Print.logError("Spreadsheet is being written to a different output stream");
+            return false;
+        }
+        try {
+            this._finishSheet();
+            if (this.spoolFile != null) {
+                this.zipOut.close(); // closes spool file
+                if (out == null) {
+                    Print.logError("No output stream specified");
+                    return false;
+                }
+                FileInputStream fis = new FileInputStream(this.spoolFile);
+                try {
+                    FileTools.copyStreams(fis, out);
+                } finally {
+                    fis.close();
+                }
+                out.flush();
+            }
+            return true;
+        } catch (IOException ioe) {
+            this._setError(ioe);
+            return false;
+        } finally {
+            this.closed = true;
+            if (this.spoolFile != null) {
+                this.spoolFile.delete();
+                this.spoolFile = null;
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    public static void main(String argv[])
+    {
+        RTConfig.setCommandLineArgs(argv);
+        File dir   = new File(RTConfig.getString("dir","."));
+        int  count = RTConfig.getInt("count", 200000);
+
+        ExcelXLSXWriter xw = new ExcelXLSXWriter();
+        xw.init(true, "XLSXTest");
+        int row = 0;
+        xw.setTitle(row++, "XLSX Test", 5);
+        xw.setSubtitle(row++, count + " rows", 5);
+        xw.addHeaderColumn(row, 0, "Index"    , 10);
+        xw.addHeaderColumn(row, 1, "Device"   , 15);
+        xw.addHeaderColumn(row, 2, "Latitude" , 12);
+        xw.addHeaderColumn(row, 3, "Longitude", 12);
+        xw.addHeaderColumn(row, 4, "Address"  , 40);
+        row++;
+        long startMS = System.currentTimeMillis();
+        for (int i = 0; i < count; i++, row++) {
+            xw.addBodyColumn(row, 0, new Integer(i));
+            xw.addBodyColumn(row, 1, "device_" + (i % 50));
+            xw.addBodyColumn(row, 2, new Double(39.0 + (i % 1000) / 1000.0));
+            xw.addBodyColumn(row, 3, new Double(-142.0 - (i % 1000) / 1000.0));
+            xw.addBodyColumn(row, 4, "Address <" + i + "> & Street");
+        }
+        xw.addTotalColumn(row, 0, "Total");
+        xw.addTotalColumn(row, 1, new Long(count));
+        boolean ok = xw.write(dir);
+        long deltaMS = System.currentTimeMillis() - startMS;
+        Print.sysPrintln("Wrote " + xw.getRowCount() + " rows in " + deltaMS + " ms (shared strings: " +
+            xw.getSharedStringCount() + ") => " + ok);
+    }
+
+}
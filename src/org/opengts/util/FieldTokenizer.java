@@ -0,0 +1,466 @@
+// ----------------------------------------------------------------------------
+// Copyright 2007-2014, GeoTelematic Solutions, Inc.
+// All rights reserved
+// ----------------------------------------------------------------------------
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ----------------------------------------------------------------------------
+// Description:
+//  Reusable delimited-field tokenizer over raw packet bytes, or characters
+// ----------------------------------------------------------------------------
+package org.opengts.util;
+
+/**
+*** <code>FieldTokenizer</code> splits a character delimited packet into fields, in the
+*** same way as <code>StringTools.parseStringArray(String,char)</code> (ie. each field is
+*** trimmed, and a packet with N delimiters has N+1 fields), but records only the start/end
+*** position of each field within the packet, rather than creating a String for each field.
+*** Numeric fields are parsed directly from the packet with the allocation-free decimal
+*** parsers in <code>StringTools</code>.<br>
+*** A FieldTokenizer instance may be reset and reused for each packet, but is not
+*** thread-safe.
+**/
+
+public class FieldTokenizer
+{
+
+    // ------------------------------------------------------------------------
+
+    private static final int    INITIAL_FIELD_COUNT = 32;
+
+    // ------------------------------------------------------------------------
+
+    private byte            bytes[]     = null;
+    private CharSequence    chars       = null;
+
+    private int             fldCount    = 0;
+    private int             fldStart[]  = new int[INITIAL_FIELD_COUNT];
+    private int             fldEnd[]    = new int[INITIAL_FIELD_COUNT];
+
+    /**
+    *** Constructor
+    **/
+    public FieldTokenizer()
+    {
+        super();
+    }
+
+    /**
+    *** Constructor
+    *** @param data   The packet bytes
+    *** @param delim  The field delimiter
+    **/
+    public FieldTokenizer(byte data[], char delim)
+    {
+        this();
+        this.reset(data, delim);
+    }
+
+    /**
+    *** Constructor
+    *** @param data   The packet characters
+    *** @param delim  The field delimiter
+    **/
+    public FieldTokenizer(CharSequence data, char delim)
+    {
+        this();
+        this.reset(data, delim);
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Tokenizes the specified packet bytes
+    *** @param data   The packet bytes (ASCII characters)
+    *** @param delim  The field delimiter
+    *** @return This FieldTokenizer
+    **/
+    public FieldTokenizer reset(byte data[], char delim)
+    {
+        return this.reset(data, 0, ((data != null)? data.length : 0), delim);
+    }
+
+    /**
+    *** Tokenizes the specified range of the packet bytes
+    *** @param data   The packet bytes (ASCII characters)
+    *** @param start  The start index of the range
+    *** @param end    The end index (exclusive) of the range
+    *** @param delim  The field delimiter
+    *** @return This FieldTokenizer
+    **/
+    public FieldTokenizer reset(byte data[], int start, int end, char delim)
+    {
+        this.bytes = data;
+        this.chars = null;
+        this._tokenize(start, end, delim);
+        return this;
+    }
+
+    /**
+    *** Tokenizes the specified packet characters
+    *** @param data   The packet characters
+    *** @param delim  The field delimiter
+    *** @return This FieldTokenizer
+    **/
+    public FieldTokenizer reset(CharSequence data, char delim)
+    {
+        return this.reset(data, 0, ((data != null)? data.length() : 0), delim);
+    }
+
+    /**
+    *** Tokenizes the specified range of the packet characters
+    *** @param data   The packet characters
+    *** @param start  The start index of the range
+    *** @param end    The end index (exclusive) of the range
+    *** @param delim  The field delimiter
+    *** @return This FieldTokenizer
+    **/
+    public FieldTokenizer reset(CharSequence data, int start, int end, char delim)
+    {
+        this.bytes = null;
+        this.chars = data;
+        this._tokenize(start, end, delim);
+        return this;
+    }
+
+    /* return the character at the specified index */
+    private int _charAt(int ndx)
+    {
+        return (this.bytes != null)? ((int)this.bytes[ndx] & 0xFF) : (int)this.chars.charAt(ndx);
+    }
+
+    /* record the start/end position of each field */
+    private void _tokenize(int start, int end, char delim)
+    {
+        this.fldCount = 0;
+        if ((this.bytes == null) && (this.chars == null)) {
+            // no packet, no fields
+            return;
+        }
+        int s = start;
+        for (int p = start;; p++) {
+            if ((p >= end) || (this._charAt(p) == delim)) {
+                this._addField(s, p);
+                if (p >= end) { break; }
+                s = p + 1;
+            }
+        }
+    }
+
+    /* add field (trimmed) */
+    private void _addField(int s, int e)
+    {
+        while ((s < e) && (this._charAt(s    ) <= ' ')) { s++; }
+        while ((e > s) && (this._charAt(e - 1) <= ' ')) { e--; }
+        if (this.fldCount >= this.fldStart.length) {
+            int newLen = this.fldStart.length * 2;
+            int ns[] = new int[newLen], ne[] = new int[newLen];
+            System.arraycopy(this.fldStart, 0, ns, 0, this.fldCount);
+            System.arraycopy(this.fldEnd  , 0, ne, 0, this.fldCount);
+            this.fldStart = ns;
+            this.fldEnd   = ne;
+        }
+        this.fldStart[this.fldCount] = s;
+        this.fldEnd[this.fldCount]   = e;
+        this.fldCount++;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Gets the number of fields
+    *** @return The number of fields
+    **/
+    public int getFieldCount()
+    {
+        return this.fldCount;
+    }
+
+    /**
+    *** Returns true if the specified field exists
+    *** @param ndx  The field index
+    *** @return True if the specified field exists
+    **/
+    public boolean hasField(int ndx)
+    {
+        return (ndx >= 0) && (ndx < this.fldCount);
+    }
+
+    /**
+    *** Gets the start index of the specified (trimmed) field within the packet
+    *** @param ndx  The field index
+    *** @return The start index, or -1 if the field does not exist
+    **/
+    public int getFieldStart(int ndx)
+    {
+        return this.hasField(ndx)? this.fldStart[ndx] : -1;
+    }
+
+    /**
+    *** Gets the end index (exclusive) of the specified (trimmed) field within the packet
+    *** @param ndx  The field index
+    *** @return The end index, or -1 if the field does not exist
+    **/
+    public int getFieldEnd(int ndx)
+    {
+        return this.hasField(ndx)? this.fldEnd[ndx] : -1;
+    }
+
+    /**
+    *** Gets the length of the specified (trimmed) field
+    *** @param ndx  The field index
+    *** @return The field length, or 0 if the field does not exist
+    **/
+    public int getFieldLength(int ndx)
+    {
+        return this.hasField(ndx)? (this.fldEnd[ndx] - this.fldStart[ndx]) : 0;
+    }
+
+    /**
+    *** Returns true if the specified field is blank, or does not exist
+    *** @param ndx  The field index
+    *** @return True if the specified field is blank
+    **/
+    public boolean isBlank(int ndx)
+    {
+        return (this.getFieldLength(ndx) <= 0);
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Returns true if the specified field is equal to the specified String
+    *** @param ndx        The field index
+    *** @param val        The String to compare
+    *** @param ignoreCase True to ignore case
+    *** @return True if the specified field is equal to the specified String
+    **/
+    public boolean fieldEquals(int ndx, String val, boolean ignoreCase)
+    {
+        if (!this.hasField(ndx) || (val == null)) {
+            return false;
+        }
+        int s = this.fldStart[ndx], len = this.fldEnd[ndx] - s;
+        if (len != val.length()) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            char fc = (char)this._charAt(s + i), vc = val.charAt(i);
+            if (fc == vc) {
+                continue;
+            } else
+            if (ignoreCase && (Character.toLowerCase(fc) == Character.toLowerCase(vc))) {
+                continue;
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+    *** Returns true if the specified field is equal to the specified String
+    *** @param ndx  The field index
+    *** @param val  The String to compare
+    *** @return True if the specified field is equal to the specified String
+    **/
+    public boolean fieldEquals(int ndx, String val)
+    {
+        return this.fieldEquals(ndx, val, false);
+    }
+
+    /**
+    *** Gets the first character of the specified field
+    *** @param ndx  The field index
+    *** @param dft  The default character if the field is blank, or does not exist
+    *** @return The first character of the field
+    **/
+    public char getChar(int ndx, char dft)
+    {
+        return !this.isBlank(ndx)? (char)this._charAt(this.fldStart[ndx]) : dft;
+    }
+
+    /**
+    *** Gets the String value of the specified field (creates a new String)
+    *** @param ndx  The field index
+    *** @param dft  The default value if the field does not exist
+    *** @return The String value of the field
+    **/
+    public String getString(int ndx, String dft)
+    {
+        if (!this.hasField(ndx)) {
+            return dft;
+        }
+        int s = this.fldStart[ndx], e = this.fldEnd[ndx];
+        if (this.bytes != null) {
+            return StringTools.toStringValue(this.bytes, s, e - s);
+        } else {
+            return this.chars.subSequence(s, e).toString();
+        }
+    }
+
+    /**
+    *** Gets the String value of the specified field (creates a new String)
+    *** @param ndx  The field index
+    *** @return The String value of the field, or an empty String if the field does not exist
+    **/
+    public String getString(int ndx)
+    {
+        return this.getString(ndx, "");
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Parses the specified field as a decimal long value
+    *** @param ndx  The field index
+    *** @param dft  The default value if the field does not exist, or is not a number
+    *** @return The parsed long value
+    **/
+    public long getLong(int ndx, long dft)
+    {
+        if (!this.hasField(ndx)) {
+            return dft;
+        } else
+        if (this.bytes != null) {
+            return StringTools.parseDecimalLong(this.bytes, this.fldStart[ndx], this.fldEnd[ndx], dft);
+        } else {
+            return StringTools.parseDecimalLong(this.chars, this.fldStart[ndx], this.fldEnd[ndx], dft);
+        }
+    }
+
+    /**
+    *** Parses the specified field as a decimal int value
+    *** @param ndx  The field index
+    *** @param dft  The default value if the field does not exist, or is not a number
+    *** @return The parsed int value
+    **/
+    public int getInt(int ndx, int dft)
+    {
+        return (int)this.getLong(ndx, (long)dft);
+    }
+
+    /**
+    *** Parses the specified field as a decimal double value
+    *** @param ndx  The field index
+    *** @param dft  The default value if the field does not exist, or is not a number
+    *** @return The parsed double value
+    **/
+    public double getDouble(int ndx, double dft)
+    {
+        if (!this.hasField(ndx)) {
+            return dft;
+        } else
+        if (this.bytes != null) {
+            return StringTools.parseDecimalDouble(this.bytes, this.fldStart[ndx], this.fldEnd[ndx], dft);
+        } else {
+            return StringTools.parseDecimalDouble(this.chars, this.fldStart[ndx], this.fldEnd[ndx], dft);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Returns a String representation of the fields
+    **/
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        for (int i = 0; i < this.fldCount; i++) {
+            if (i > 0) { sb.append("|"); }
+            sb.append(this.getString(i));
+        }
+        return sb.toString();
+    }
+
+    // ------------------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    private static final String SAMPLE_PACKETS[] = {
+        // Seq,Code,MobileID,Format,YYYYMMDD,HHMMSS,GPSValid,HDOP,Latitude,Longitude,Heading,Speed,Altitude
+        "1,123,12345678,11,20101222,110723,1,2.10,37.1234,-142.1234,235,34.7,1820",
+        "2,123,12345678,11,20101222,110823,1,1.90,37.12411,-142.12502,241,41.2,1822",
+        // MobileID,YYYY/MM/DD,HH:MM:SS,Latitude,Longitude,Speed,Heading,AltitudeM
+        "123456789012345,2010/12/22,11:09:23,39.123456,-142.123456,88.4,180.0,1510.7",
+    };
+
+    /**
+    *** Compares the time required to parse sample packets with "StringTools.parseStringArray"
+    *** and "StringTools.FilterNumber", and with a reused FieldTokenizer.<br>
+    *** Options:
+    ***   -count=&lt;N&gt;     Number of iterations
+    ***   -packet=&lt;pkt&gt;  Packet to parse (defaults to sample packets)
+    **/
+    public static void main(String argv[])
+    {
+        RTConfig.setCommandLineArgs(argv);
+        int count = RTConfig.getInt("count", 1000000);
+        String pkts[] = RTConfig.hasProperty("packet")?
+            new String[] { RTConfig.getString("packet","") } : SAMPLE_PACKETS;
+        byte pktBytes[][] = new byte[pkts.length][];
+        for (int i = 0; i < pkts.length; i++) {
+            pktBytes[i] = StringTools.getBytes(pkts[i]);
+        }
+
+        /* verify results */
+        FieldTokenizer ft = new FieldTokenizer();
+        for (int i = 0; i < pkts.length; i++) {
+            String fld[] = StringTools.parseStringArray(pkts[i], ',');
+            ft.reset(pktBytes[i], ',');
+            if (fld.length != ft.getFieldCount()) {
+                Print.sysPrintln("Field count mismatch: " + fld.length + " != " + ft.getFieldCount());
+            }
+            for (int f = 0; f < fld.length; f++) {
+                double v1 = StringTools.parseDouble(new StringTools.FilterNumber(fld[f],Double.class), -1.0);
+                double v2 = ft.getDouble(f, -1.0);
+                if (!fld[f].equals(ft.getString(f)) || (Double.compare(v1,v2) != 0)) {
+                    Print.sysPrintln("Field mismatch: [" + fld[f] + "] " + v1 + " != [" + ft.getString(f) + "] " + v2);
+                }
+            }
+        }
+
+        /* repeat a few times (JIT warm-up) */
+        for (int r = 0; r < 3; r++) {
+
+            /* previous implementation */
+            double sum1 = 0.0;
+            long startMS = System.currentTimeMillis();
+            for (int n = 0; n < count; n++) {
+                String fld[] = StringTools.parseStringArray(pkts[n % pkts.length], ',');
+                for (int f = 0; f < fld.length; f++) {
+                    sum1 += StringTools.parseDouble(new StringTools.FilterNumber(fld[f],Double.class), 0.0);
+                }
+            }
+            long oldMS = System.currentTimeMillis() - startMS;
+
+            /* FieldTokenizer */
+            double sum2 = 0.0;
+            startMS = System.currentTimeMillis();
+            for (int n = 0; n < count; n++) {
+                ft.reset(pktBytes[n % pktBytes.length], ',');
+                for (int f = 0; f < ft.getFieldCount(); f++) {
+                    sum2 += ft.getDouble(f, 0.0);
+                }
+            }
+            long newMS = System.currentTimeMillis() - startMS;
+
+            Print.sysPrintln("Packets: " + count +
+                ", parseStringArray/FilterNumber: " + oldMS + " ms" +
+                ", FieldTokenizer: " + newMS + " ms" +
+                ((sum1 != sum2)? " [sum mismatch]" : ""));
+
+        }
+
+    }
+
+}
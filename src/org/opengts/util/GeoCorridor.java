@@ -0,0 +1,365 @@
+// ----------------------------------------------------------------------------
+// Copyright 2007-2014, GeoTelematic Solutions, Inc.
+// All rights reserved
+// ----------------------------------------------------------------------------
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ----------------------------------------------------------------------------
+// Description:
+//  A corridor ("swept point radius") is the set of points within a radius of
+//  a path of great-circle segments.  Distances are calculated on a sphere of
+//  radius GeoPoint.EARTH_MEAN_RADIUS_KM, using unit vectors for the segments.
+// ----------------------------------------------------------------------------
+package org.opengts.util;
+
+import java.util.*;
+
+/**
+*** A corridor composed of great-circle segments between consecutive GeoPoints, and a radius
+**/
+
+public class GeoCorridor
+{
+
+    // ------------------------------------------------------------------------
+
+    /* unit vector for the specified point */
+    private static double[] _toVector(GeoPoint gp)
+    {
+        double lat = gp.getLatitudeRadians();
+        double lon = gp.getLongitudeRadians();
+        double cosLat = Math.cos(lat);
+        return new double[] { cosLat * Math.cos(lon), cosLat * Math.sin(lon), Math.sin(lat) };
+    }
+
+    /* cross product */
+    private static double[] _cross(double a[], double b[])
+    {
+        return new double[] {
+            (a[1] * b[2]) - (a[2] * b[1]),
+            (a[2] * b[0]) - (a[0] * b[2]),
+            (a[0] * b[1]) - (a[1] * b[0])
+        };
+    }
+
+    /* dot product */
+    private static double _dot(double a[], double b[])
+    {
+        return (a[0] * b[0]) + (a[1] * b[1]) + (a[2] * b[2]);
+    }
+
+    /* squared distance between vectors (well conditioned for nearby points) */
+    private static double _chordSq(double a[], double b[])
+    {
+        double dx = a[0] - b[0], dy = a[1] - b[1], dz = a[2] - b[2];
+        return (dx * dx) + (dy * dy) + (dz * dz);
+    }
+
+    /* squared chord length of the specified angle (radians) */
+    private static double _chordSq(double rad)
+    {
+        if (rad >= Math.PI) {
+            return 4.0; // entire sphere
+        } else {
+            double c = 2.0 * Math.sin(rad / 2.0);
+            return c * c;
+        }
+    }
+
+    /* vector length */
+    private static double _length(double a[])
+    {
+        return Math.sqrt(GeoCorridor._dot(a, a));
+    }
+
+    /* angle between unit vectors (radians) */
+    private static double _angle(double a[], double b[])
+    {
+        return Math.atan2(GeoCorridor._length(GeoCorridor._cross(a, b)), GeoCorridor._dot(a, b));
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Returns the distance from the point <code>gp</code> to the great-circle segment between
+    *** <code>gp0</code> and <code>gp1</code>, in kilometers
+    *** @param gp   The point
+    *** @param gp0  The start of the segment
+    *** @param gp1  The end of the segment
+    *** @return The distance in kilometers
+    **/
+    public static double kilometersToSegment(GeoPoint gp, GeoPoint gp0, GeoPoint gp1)
+    {
+        GeoCorridor gc = new GeoCorridor(new GeoPoint[] { gp0, gp1 }, 0.0);
+        return gc.kilometersToPoint(gp);
+    }
+
+    // ------------------------------------------------------------------------
+
+    private static final double PREFILTER_MARGIN_RAD = 1.0E-8; // larger than GeoPoint.EPSILON
+
+    private GeoPoint    points[]    = null;
+    private double      radiusKM    = 0.0;
+
+    /* per point */
+    private double      vec[][]     = null; // unit vectors
+    private double      ptCapSq     = 0.0;  // squared chord of the radius, point prefilter
+
+    /* per segment (null if the segment is degenerate) */
+    private double      norm[][]    = null; // unit normal of the segment great-circle
+    private double      mid[][]     = null; // unit vector of the segment midpoint
+    private double      segCapSq[]  = null; // squared chord of (half-length + radius), segment prefilter
+
+    /**
+    *** Constructor
+    *** @param gp        The points of the corridor path
+    *** @param radiusKM  The corridor radius, in kilometers
+    **/
+    public GeoCorridor(GeoPoint gp[], double radiusKM)
+    {
+        this.points   = (gp != null)? gp : new GeoPoint[0];
+        this.radiusKM = radiusKM;
+        double radRad = Math.max(radiusKM, 0.0) / GeoPoint.EARTH_MEAN_RADIUS_KM;
+        int ptCnt  = this.points.length;
+        int segCnt = (ptCnt > 1)? (ptCnt - 1) : 0;
+        this.vec    = new double[ptCnt][];
+        this.norm   = new double[segCnt][];
+        this.mid    = new double[segCnt][];
+        this.segCapSq = new double[segCnt];
+        this.ptCapSq  = GeoCorridor._chordSq(radRad + PREFILTER_MARGIN_RAD);
+        for (int i = 0; i < ptCnt; i++) {
+            this.vec[i] = GeoCorridor._toVector(this.points[i]);
+        }
+        for (int s = 0; s < segCnt; s++) {
+            double a[] = this.vec[s], b[] = this.vec[s + 1];
+            double n[] = GeoCorridor._cross(a, b);
+            double nLen = GeoCorridor._length(n);
+            if (nLen < 1.0E-12) {
+                // coincident (or antipodal) endpoints, only the endpoints are tested
+                continue;
+            }
+            this.norm[s] = new double[] { n[0] / nLen, n[1] / nLen, n[2] / nLen };
+            double m[] = new double[] { a[0] + b[0], a[1] + b[1], a[2] + b[2] };
+            double mLen = GeoCorridor._length(m);
+            this.mid[s] = new double[] { m[0] / mLen, m[1] / mLen, m[2] / mLen };
+            // all points of the segment arc are within half its length of the midpoint
+            double cap = (GeoCorridor._angle(a, b) / 2.0) + radRad + PREFILTER_MARGIN_RAD;
+            this.segCapSq[s] = GeoCorridor._chordSq(cap);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Gets the corridor path points
+    **/
+    public GeoPoint[] getGeoPoints()
+    {
+        return this.points;
+    }
+
+    /**
+    *** Gets the corridor radius, in kilometers
+    **/
+    public double getRadiusKM()
+    {
+        return this.radiusKM;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /* distance from the point to the specified segment, in radians (NaN if unable to calculate) */
+    private double _radiansToSegment(int s, double p[])
+    {
+        double n[] = this.norm[s];
+        if (n == null) {
+            return Double.NaN;
+        }
+        double a[] = this.vec[s], b[] = this.vec[s + 1];
+        // projection of 'p' is between 'a' and 'b' if on the same side of both endpoint planes
+        double aSide = GeoCorridor._dot(GeoCorridor._cross(a, p), n);
+        double bSide = GeoCorridor._dot(GeoCorridor._cross(p, b), n);
+        if ((aSide >= 0.0) && (bSide >= 0.0)) {
+            return Math.asin(Math.min(Math.abs(GeoCorridor._dot(p, n)), 1.0)); // cross-track
+        } else {
+            return Double.NaN; // closest point is an endpoint
+        }
+    }
+
+    /**
+    *** Returns the distance from the specified point to the corridor path, in kilometers
+    *** @param gp  The point
+    *** @return The distance in kilometers, or NaN if the corridor has no points
+    **/
+    public double kilometersToPoint(GeoPoint gp)
+    {
+        if ((gp == null) || (this.points.length == 0)) {
+            return Double.NaN;
+        }
+        double p[] = GeoCorridor._toVector(gp);
+        double minKM = Double.NaN;
+        for (int i = 0; i < this.points.length; i++) {
+            double km = this.points[i].kilometersToPoint(gp);
+            if (Double.isNaN(minKM) || (km < minKM)) { minKM = km; }
+        }
+        for (int s = 0; s < this.norm.length; s++) {
+            double rad = this._radiansToSegment(s, p);
+            if (!Double.isNaN(rad)) {
+                double km = rad * GeoPoint.EARTH_MEAN_RADIUS_KM;
+                if (km < minKM) { minKM = km; }
+            }
+        }
+        return minKM;
+    }
+
+    /**
+    *** Returns true if the specified point is within the radius of the corridor path
+    *** @param gp  The point
+    *** @return True if the specified point is within the corridor
+    **/
+    public boolean containsPoint(GeoPoint gp)
+    {
+        if ((gp == null) || (this.points.length == 0)) {
+            return false;
+        }
+        double p[] = GeoCorridor._toVector(gp);
+        double radRad = this.radiusKM / GeoPoint.EARTH_MEAN_RADIUS_KM;
+        for (int s = 0; s < this.norm.length; s++) {
+            if ((this.norm[s] == null) || (GeoCorridor._chordSq(p, this.mid[s]) > this.segCapSq[s])) {
+                continue; // degenerate, or outside the spherical cap containing the swept segment
+            }
+            double rad = this._radiansToSegment(s, p);
+            if (!Double.isNaN(rad) && (rad <= radRad)) {
+                return true;
+            }
+        }
+        for (int i = 0; i < this.points.length; i++) {
+            // endpoint caps (same test as "GeoPoint.getGeozoneChecker()")
+            if (GeoCorridor._chordSq(p, this.vec[i]) > this.ptCapSq) {
+                continue; // farther than the radius
+            }
+            if (this.points[i].kilometersToPoint(gp) <= this.radiusKM) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Returns a list of bounding boxes which together cover this corridor.<br>
+    *** Each segment is divided into pieces no longer than <code>maxStepDeg</code>, and the
+    *** bounds of each piece are extended by the corridor radius (plus the length of the piece,
+    *** which covers the curvature of the great-circle arc within the piece).  This is intended
+    *** for indexing a corridor by the grid cells along its path.
+    *** @param maxStepDeg  The maximum length of a piece, in degrees
+    *** @return The list of bounding boxes, or null if the corridor passes too close to a pole,
+    ***         or crosses the +/-180 degree meridian
+    **/
+    public java.util.List<GeoBounds> getSegmentBounds(double maxStepDeg)
+    {
+        if ((this.points.length == 0) || (maxStepDeg <= 0.0)) {
+            return null;
+        }
+        double radDeg = (Math.max(this.radiusKM, 0.0) / GeoPoint.EARTH_MEAN_RADIUS_KM) / GeoPoint.RADIANS;
+        java.util.List<GeoBounds> list = new Vector<GeoBounds>();
+        for (int s = 0; s < this.points.length; s++) {
+            if ((s >= this.norm.length) || (this.norm[s] == null)) {
+                // single point, or degenerate segment (the endpoints are covered separately)
+                GeoBounds gb = GeoCorridor._pieceBounds(this.vec[s], this.vec[s], radDeg);
+                if (gb == null) { return null; }
+                list.add(gb);
+                continue;
+            }
+            double a[] = this.vec[s], b[] = this.vec[s + 1];
+            double theta = GeoCorridor._angle(a, b);
+            int    steps = Math.max(1, (int)Math.ceil((theta / GeoPoint.RADIANS) / maxStepDeg));
+            double step  = theta / (double)steps;
+            double v0[]  = a;
+            for (int k = 1; k <= steps; k++) {
+                double v1[] = (k == steps)? b : GeoCorridor._slerp(a, b, theta, step * (double)k);
+                GeoBounds gb = GeoCorridor._pieceBounds(v0, v1, radDeg + (step / GeoPoint.RADIANS));
+                if (gb == null) { return null; }
+                list.add(gb);
+                v0 = v1;
+            }
+        }
+        return list;
+    }
+
+    /* point at the specified angle along the great-circle arc from 'a' to 'b' */
+    private static double[] _slerp(double a[], double b[], double theta, double angle)
+    {
+        double sinTheta = Math.sin(theta);
+        double fa = Math.sin(theta - angle) / sinTheta;
+        double fb = Math.sin(angle) / sinTheta;
+        return new double[] { (fa * a[0]) + (fb * b[0]), (fa * a[1]) + (fb * b[1]), (fa * a[2]) + (fb * b[2]) };
+    }
+
+    /* bounds of the piece between 'v0' and 'v1', extended by the specified degrees */
+    private static GeoBounds _pieceBounds(double v0[], double v1[], double extDeg)
+    {
+        double lat0 = Math.asin(Math.max(-1.0, Math.min(1.0, v0[2]))) / GeoPoint.RADIANS;
+        double lat1 = Math.asin(Math.max(-1.0, Math.min(1.0, v1[2]))) / GeoPoint.RADIANS;
+        double lon0 = Math.atan2(v0[1], v0[0]) / GeoPoint.RADIANS;
+        double lon1 = Math.atan2(v1[1], v1[0]) / GeoPoint.RADIANS;
+        double extLat = extDeg + 1.0E-6;
+        double maxLat = Math.max(lat0, lat1) + extLat;
+        double minLat = Math.min(lat0, lat1) - extLat;
+        double maxAbsLat = Math.max(Math.abs(maxLat), Math.abs(minLat));
+        if (maxAbsLat >= 89.0) {
+            return null; // too close to a pole
+        }
+        double sinLon = Math.sin(extLat * GeoPoint.RADIANS) / Math.cos(maxAbsLat * GeoPoint.RADIANS);
+        if (sinLon >= 1.0) {
+            return null; // radius extends past a pole
+        }
+        double extLon = Math.asin(sinLon) / GeoPoint.RADIANS;
+        double maxLon = Math.max(lon0, lon1) + extLon;
+        double minLon = Math.min(lon0, lon1) - extLon;
+        if ((Math.abs(lon1 - lon0) > 180.0) || (maxLon > 180.0) || (minLon < -180.0)) {
+            return null; // crosses the +/-180 degree meridian
+        }
+        GeoBounds gb = new GeoBounds();
+        gb.setMaxLatitude( maxLat);
+        gb.setMinLatitude( minLat);
+        gb.setMaxLongitude(maxLon);
+        gb.setMinLongitude(minLon);
+        return gb;
+    }
+
+    // ------------------------------------------------------------------------
+
+    private static GeozoneChecker geozoneCheck = null;
+
+    /**
+    *** Gets a GeozoneChecker implementation for corridors ("swept point radius")
+    *** @return A GeozoneChecker implementation
+    **/
+    public static GeozoneChecker getGeozoneChecker()
+    {
+        if (geozoneCheck == null) {
+            geozoneCheck = new GeozoneChecker() {
+                public boolean containsPoint(GeoPoint gpTest, GeoPoint gpList[], double radiusKM) {
+                    return (new GeoCorridor(gpList, radiusKM)).containsPoint(gpTest);
+                }
+            };
+        }
+        return geozoneCheck;
+    }
+
+    // ------------------------------------------------------------------------
+
+}
@@ -737,6 +737,178 @@ public class GeoPolygon
         return val;
     }
 
+    // ------------------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    /**
+    *** <code>PreparedPolygon</code> is an immutable, pre-processed form of a list of polygon
+    *** GeoPoints, for repeated point inclusion tests against the same polygon.<br>
+    *** The polygon is closed, and its vertices copied into primitive latitude/longitude arrays
+    *** along with the bounding box of the vertices.  Polygons with at least
+    *** <code>EDGE_INDEX_MIN_EDGES</code> edges also include an index of the edges which
+    *** overlap each of a number of equal-height latitude bands, so that a test need only
+    *** consider the edges of the band containing the tested point.<br>
+    *** <code>containsPoint</code> returns the same result as <code>GeoPolygon.isPointInside</code>
+    *** for the same list of GeoPoints.
+    **/
+    public static class PreparedPolygon
+    {
+
+        public  static final int EDGE_INDEX_MIN_EDGES   = 32;
+        private static final int EDGES_PER_BAND         = 4;
+        private static final int MAX_BAND_COUNT         = 4096;
+
+        private int     edgeCount   = 0;
+        private double  lat[]       = null; // Y (closed, length is 'edgeCount + 1')
+        private double  lon[]       = null; // X
+        private double  minLat      = 0.0;
+        private double  maxLat      = 0.0;
+        private double  minLon      = 0.0;
+        private double  maxLon      = 0.0;
+
+        private double  bandHeight  = 0.0;
+        private int     bandEdges[][] = null; // null if not indexed
+
+        /**
+        *** Constructor
+        *** @param pp  The GeoPoints comprising the polygon
+        **/
+        public PreparedPolygon(GeoPoint... pp)
+        {
+            pp = GeoPolygon.closePolygon(pp);
+            int ptCnt = (pp != null)? pp.length : 0;
+            this.edgeCount = (ptCnt > 1)? (ptCnt - 1) : 0;
+            this.lat = new double[ptCnt];
+            this.lon = new double[ptCnt];
+            for (int i = 0; i < ptCnt; i++) {
+                this.lat[i] = pp[i].getY();
+                this.lon[i] = pp[i].getX();
+                if ((i == 0) || (this.lat[i] < this.minLat)) { this.minLat = this.lat[i]; }
+                if ((i == 0) || (this.lat[i] > this.maxLat)) { this.maxLat = this.lat[i]; }
+                if ((i == 0) || (this.lon[i] < this.minLon)) { this.minLon = this.lon[i]; }
+                if ((i == 0) || (this.lon[i] > this.maxLon)) { this.maxLon = this.lon[i]; }
+            }
+            if ((this.edgeCount >= EDGE_INDEX_MIN_EDGES) && (this.maxLat > this.minLat)) {
+                this._buildEdgeIndex();
+            }
+        }
+
+        /* build latitude band edge index */
+        private void _buildEdgeIndex()
+        {
+            int bandCnt = Math.min(Math.max(this.edgeCount / EDGES_PER_BAND, 1), MAX_BAND_COUNT);
+            this.bandHeight = (this.maxLat - this.minLat) / (double)bandCnt;
+            int count[] = new int[bandCnt];
+            for (int e = 0; e < this.edgeCount; e++) {
+                int b0 = this._band(Math.min(this.lat[e], this.lat[e+1]), bandCnt);
+                int b1 = this._band(Math.max(this.lat[e], this.lat[e+1]), bandCnt);
+                for (int b = b0; b <= b1; b++) { count[b]++; }
+            }
+            this.bandEdges = new int[bandCnt][];
+            for (int b = 0; b < bandCnt; b++) {
+                this.bandEdges[b] = new int[count[b]];
+                count[b] = 0;
+            }
+            for (int e = 0; e < this.edgeCount; e++) {
+                int b0 = this._band(Math.min(this.lat[e], this.lat[e+1]), bandCnt);
+                int b1 = this._band(Math.max(this.lat[e], this.lat[e+1]), bandCnt);
+                for (int b = b0; b <= b1; b++) { this.bandEdges[b][count[b]++] = e; }
+            }
+        }
+
+        /* return the latitude band containing the specified latitude */
+        private int _band(double lat, int bandCnt)
+        {
+            int b = (int)Math.floor((lat - this.minLat) / this.bandHeight);
+            return (b < 0)? 0 : (b >= bandCnt)? (bandCnt - 1) : b;
+        }
+
+        /**
+        *** Returns the number of polygon edges
+        **/
+        public int getEdgeCount()
+        {
+            return this.edgeCount;
+        }
+
+        /**
+        *** Returns true if this polygon includes a latitude band edge index
+        **/
+        public boolean hasEdgeIndex()
+        {
+            return (this.bandEdges != null);
+        }
+
+        /**
+        *** Returns true if the specified latitude/longitude is within the bounding box
+        *** of this polygon
+        **/
+        public boolean boundsContain(double lat, double lon)
+        {
+            return (this.edgeCount > 0) &&
+                (lat >= this.minLat) && (lat <= this.maxLat) &&
+                (lon >= this.minLon) && (lon <= this.maxLon);
+        }
+
+        /**
+        *** Returns true if the specified point is inside this polygon
+        *** @param gp  The point to test
+        *** @return True if the specified point is inside this polygon
+        **/
+        public boolean containsPoint(GeoPoint gp)
+        {
+            return (gp != null)? this.containsPoint(gp.getY(), gp.getX()) : false;
+        }
+
+        /**
+        *** Returns true if the specified latitude/longitude is inside this polygon
+        *** @param pLat  The latitude to test
+        *** @param pLon  The longitude to test
+        *** @return True if the specified latitude/longitude is inside this polygon
+        **/
+        public boolean containsPoint(double pLat, double pLon)
+        {
+            if (!this.boundsContain(pLat, pLon)) {
+                return false; // no edge crosses this latitude
+            }
+            int wn = 0; // winding number (see "GeoPolygon.isPointInside")
+            if (this.bandEdges != null) {
+                int edges[] = this.bandEdges[this._band(pLat, this.bandEdges.length)];
+                for (int i = 0; i < edges.length; i++) {
+                    wn += this._crossing(edges[i], pLat, pLon);
+                }
+            } else {
+                for (int e = 0; e < this.edgeCount; e++) {
+                    wn += this._crossing(e, pLat, pLon);
+                }
+            }
+            return (wn != 0);
+        }
+
+        /* return the winding number contribution of the specified edge */
+        private int _crossing(int e, double pLat, double pLon)
+        {
+            double y0 = this.lat[e], y1 = this.lat[e+1];
+            if (y0 <= pLat) {
+                if (y1 > pLat) { // an upward crossing
+                    double x0 = this.lon[e], x1 = this.lon[e+1];
+                    if (((x1 - x0) * (pLat - y0) - (pLon - x0) * (y1 - y0)) > 0.0) {
+                        return 1;  // point left of edge
+                    }
+                }
+            } else {
+                if (y1 <= pLat) { // a downward crossing
+                    double x0 = this.lon[e], x1 = this.lon[e+1];
+                    if (((x1 - x0) * (pLat - y0) - (pLon - x0) * (y1 - y0)) < 0.0) {
+                        return -1; // point right of edge
+                    }
+                }
+            }
+            return 0;
+        }
+
+    }
+
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
     // http://local.wasp.uwa.edu.au/~pbourke/geometry/clockwise/index.html
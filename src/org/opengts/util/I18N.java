@@ -48,6 +48,7 @@
 package org.opengts.util;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.text.*;
 import java.awt.*;
 
@@ -67,7 +68,8 @@ public class I18N
 
     // ------------------------------------------------------------------------
     
-    private static Map<Locale,Map<String,I18N>> localeMap = new HashMap<Locale,Map<String,I18N>>();
+    private static ConcurrentMap<Locale,ConcurrentMap<String,I18N>> localeMap = 
+        new ConcurrentHashMap<Locale,ConcurrentMap<String,I18N>>();
 
     /**
     *** Returns an I18N instance based on the specified package name and Locale
@@ -100,17 +102,24 @@ public class I18N
             loc = I18N.getLocale(loc);
 
             /* get package map for specific Locale */
-            Map<String,I18N> packageMap = localeMap.get(loc);
+            ConcurrentMap<String,I18N> packageMap = localeMap.get(loc);
             if (packageMap == null) {
-                packageMap = new HashMap<String,I18N>();
-                localeMap.put(loc, packageMap);
+                ConcurrentMap<String,I18N> newMap = new ConcurrentHashMap<String,I18N>();
+                packageMap = localeMap.putIfAbsent(loc, newMap);
+                if (packageMap == null) {
+                    packageMap = newMap;
+                }
             }
 
             /* get I18N instance for package */
             I18N i18n = packageMap.get(pkgName);
             if (i18n == null) {
-                i18n = new I18N(pkgName, loc);
-                packageMap.put(pkgName, i18n);
+                // concurrent callers may load the same bundle, only the first is kept
+                I18N newI18N = new I18N(pkgName, loc);
+                i18n = packageMap.putIfAbsent(pkgName, newI18N);
+                if (i18n == null) {
+                    i18n = newI18N;
+                }
             }
             return i18n;
 
@@ -125,6 +134,9 @@ public class I18N
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
+    private static final int                        MAX_CACHED_LOCALES  = 256;
+    private static ConcurrentMap<String,Locale>     localeNameMap       = new ConcurrentHashMap<String,Locale>();
+
     //public static Locale getLocale()
     //{
     //    return I18N.getLocale((String)null);
@@ -153,16 +165,25 @@ public class I18N
         if (StringTools.isBlank(locale)) {
             return dft;
         } else {
+            Locale cached = localeNameMap.get(locale);
+            if (cached != null) {
+                return cached;
+            }
             int p = locale.indexOf("_");
             try {
+                Locale newLoc;
                 if (p < 0) {
                     String language = locale;
-                    return new Locale(language);
+                    newLoc = new Locale(language);
                 } else {
                     String language = locale.substring(0,p);
                     String country  = locale.substring(p+1);
-                    return new Locale(language,country);
+                    newLoc = new Locale(language,country);
+                }
+                if (localeNameMap.size() < MAX_CACHED_LOCALES) {
+                    localeNameMap.put(locale, newLoc);
                 }
+                return newLoc;
             } catch (Throwable th) {
                 return dft;
             }
@@ -197,6 +218,26 @@ public class I18N
 
     private ResourceBundle resBundle = null;
     private Locale locale = null;
+
+    // Localized strings and compiled MessageFormats are cached for the lifetime of
+    // this instance.  The cached strings are discarded when the runtime configuration
+    // changes, since config-file properties may disable localization of specific keys.
+    private static final int                    MAX_CACHED_FORMATS  = 2048;
+    private static final String                 NOT_LOCALIZED       = new String("");
+    private volatile StringCache                stringCache         = null;
+    private ConcurrentMap<String,MessageFormat> formatCache         = new ConcurrentHashMap<String,MessageFormat>();
+
+    /**
+    *** Localized string cache for a specific RTConfig configuration version
+    **/
+    private static class StringCache
+    {
+        private long                         version = 0L;
+        private ConcurrentMap<String,String> strMap  = new ConcurrentHashMap<String,String>();
+        public StringCache(long version) {
+            this.version = version;
+        }
+    }
     
     /**
     *** Constructor
@@ -279,22 +320,69 @@ public class I18N
     public String getString(String key, String dft)
     {
         if (!StringTools.isBlank(key) && (this.resBundle != null)) {
-            RTProperties cfgProps = RTConfig.getConfigFileProperties();
-            if (!cfgProps.hasProperty(key) || cfgProps.getBoolean(key,true)) {
-                try {
-                    String s = this.resBundle.getString(key);
-                    if (s != null) {
-                        return I18N.decodeNewLine(s);
-                    }
-                } catch (Throwable th) {
-                    //Print.logException("",th);
-                    // MissingResourceException - if no object for the given key can be found 
-                    // ClassCastException - if the object found for the given key is not a string
-                }
+
+            /* check cache */
+            long cfgVersion = RTConfig.getConfigVersion();
+            StringCache cache = this.stringCache;
+            if ((cache == null) || (cache.version != cfgVersion)) {
+                cache = new StringCache(cfgVersion);
+                this.stringCache = cache;
+            }
+            String val = cache.strMap.get(key);
+            if (val == null) {
+                val = this._getBundleString(key);
+                cache.strMap.put(key, val);
             }
+
+            /* return localized string */
+            if (val != NOT_LOCALIZED) {
+                return val;
+            }
+
         }
         return I18N.decodeNewLine(dft);
     }
+
+    /**
+    *** Gets the decoded value for the specified key from the resource bundle
+    *** @param key  The LocalStrings key
+    *** @return The decoded value, or NOT_LOCALIZED if the key is not localized
+    **/
+    private String _getBundleString(String key)
+    {
+        RTProperties cfgProps = RTConfig.getConfigFileProperties();
+        if (!cfgProps.hasProperty(key) || cfgProps.getBoolean(key,true)) {
+            try {
+                String s = this.resBundle.getString(key);
+                if (s != null) {
+                    return I18N.decodeNewLine(s);
+                }
+            } catch (Throwable th) {
+                //Print.logException("",th);
+                // MissingResourceException - if no object for the given key can be found 
+                // ClassCastException - if the object found for the given key is not a string
+            }
+        }
+        return NOT_LOCALIZED;
+    }
+
+    /**
+    *** Gets the compiled MessageFormat for the specified pattern
+    *** @param pattern  The MessageFormat pattern
+    *** @return The MessageFormat (must be synchronized on while formatting)
+    **/
+    private MessageFormat _getMessageFormat(String pattern)
+    {
+        MessageFormat mf = this.formatCache.get(pattern);
+        if (mf == null) {
+            mf = new MessageFormat(pattern); // may throw IllegalArgumentException
+            mf.setLocale(this.locale);
+            if (this.formatCache.size() < MAX_CACHED_FORMATS) {
+                this.formatCache.put(pattern, mf);
+            }
+        }
+        return mf;
+    }
     
     /**
     *** Gets the Localized value for the specified key.  The default String text is return if
@@ -309,9 +397,11 @@ public class I18N
         String val = this.getString(key, dft);
         if ((args != null) && (args.length > 0) && (val != null)) {
             try {
-                MessageFormat mf = new MessageFormat(val);
-                mf.setLocale(this.locale);
-                StringBuffer sb = mf.format(args, new StringBuffer(), null);
+                MessageFormat mf = this._getMessageFormat(val);
+                StringBuffer sb = new StringBuffer();
+                synchronized (mf) { // MessageFormat is not thread-safe
+                    mf.format(args, sb, null);
+                }
                 return I18N.decodeNewLine(sb).toString();
             } catch (Throwable th) {
                 Print.logInfo("Exception: " + key + " ==> " + val);
@@ -397,6 +487,9 @@ public class I18N
     **/
     protected static String decodeNewLine(String s)
     {
+        if ((s == null) || (s.indexOf("\\n") < 0)) {
+            return s; // nothing to decode
+        }
         return StringTools.replace(s, "\\n", "\n");
     }
 
@@ -421,6 +514,21 @@ public class I18N
     protected static final String I18N_KEY_STARTC  = "[$I18N:";
     protected static final String I18N_KEY_END     = "]";
 
+    /**
+    *** Localized value of an I18N.Text instance for a specific Locale
+    **/
+    private static class LocalizedText
+    {
+        private Locale locale  = null;
+        private long   version = 0L;
+        private String text    = null;
+        public LocalizedText(Locale locale, long version, String text) {
+            this.locale  = locale;
+            this.version = version;
+            this.text    = text;
+        }
+    }
+
     /**
     *** Class used to provide lazy localization
     **/
@@ -429,6 +537,7 @@ public class I18N
         private String pkg      = null;
         private String key      = "";
         private String dft      = "";
+        private volatile LocalizedText lastText = null;
         public Text() {
             this((String)null,null,null);
         }
@@ -486,6 +595,17 @@ public class I18N
             }
         }
         public String toString(Locale loc) {
+            if ((loc != null) && (this.pkg != null)) {
+                // retain the last localized value, until the locale or configuration changes
+                long cfgVersion = RTConfig.getConfigVersion();
+                LocalizedText lt = this.lastText;
+                if ((lt != null) && (lt.version == cfgVersion) && lt.locale.equals(loc)) {
+                    return lt.text;
+                }
+                String text = this.toString(loc, this.dft);
+                this.lastText = new LocalizedText(loc, cfgVersion, text);
+                return text;
+            }
             return this.toString(loc, this.dft);
         }
         public String toString(Locale loc, String dftVal) {
@@ -55,6 +55,8 @@ import java.io.*;
 import java.net.*;
 import java.sql.*;
 import java.text.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
 *** Performs message logging
@@ -180,6 +182,10 @@ public class Print
     
     private static long         printRotateLogFileSize  = -1L;      // lazy init
     private static long         printRotateDelAgeSec    = -1L;      // lazy init
+    private static long         printRotateIntervalSec  = -1L;      // lazy init
+    private static long         printLogFileStartMS     = 0L;       // (synchronized on 'logLock')
+
+    private static int          printLogAsync           = -1;       // lazy init
 
     /**
     *** Resets all print logging settings. Does not change or reset the output
@@ -195,6 +201,8 @@ public class Print
         Print.printLogFile            = null;
         Print.printRotateLogFileSize  = -1L;
         Print.printRotateDelAgeSec    = -1L;
+        Print.printRotateIntervalSec  = -1L;
+        Print.printLogAsync           = -1;
     }
 
     /** 
@@ -233,6 +241,21 @@ public class Print
         }
         return (printLogIncludeDate > 0);
     }
+
+    /**
+    *** Returns true if log messages are to be written asynchronously by the log writer thread
+    *** @return True if log messages are to be written asynchronously
+    **/
+    protected static boolean _isAsyncLogging()
+    {
+        if (printLogAsync < 0) {
+            if (!RTConfig.isInitialized()) {
+                return false; // check again after RTConfig initialization
+            }
+            printLogAsync = RTConfig.getBoolean(RTKey.LOG_ASYNC,false)? 1 : 0;
+        }
+        return (printLogAsync > 0);
+    }
     
     /**
     *** Returns true if exceptions should be emailed to the recipient on file
@@ -991,13 +1014,22 @@ public class Print
 
         /* log stack trace */
         Print._log(level, nextFrame, msg);
-        try {
-            PrintStream out = Print.openPrintStream(); // does not return null
-            _printStackTrace(out, nextFrame, null, t);
-        } catch (Throwable loge) {
-            _printStackTrace(null, nextFrame, null, t);
-        } finally {
-            Print.closePrintStream();
+        if (Print._isAsyncLogging()) {
+            // render the stack trace here, so that it is written in order with other messages
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            PrintStream bosOut = new PrintStream(bos);
+            _printStackTrace(bosOut, nextFrame, null, t);
+            bosOut.close();
+            Print._writeLog(level, bos.toString());
+        } else {
+            try {
+                PrintStream out = Print.openPrintStream(); // does not return null
+                _printStackTrace(out, nextFrame, null, t);
+            } catch (Throwable loge) {
+                _printStackTrace(null, nextFrame, null, t);
+            } finally {
+                Print.closePrintStream();
+            }
         }
 
         /* email */
@@ -1173,6 +1205,7 @@ public class Print
         Print.closePrintStream();
         Print.printLogFile = file;
         Print.printLogFile_init = true; 
+        Print.printLogFileStartMS = 0L;
     }
 
     /**
@@ -1342,6 +1375,59 @@ public class Print
         return Print.printRotateDelAgeSec;
     }
 
+    /**
+    *** Sets the log file rotation interval (in seconds)
+    *** @param intervalSec  The log file rotation interval (in seconds), 0 to rotate by size only
+    **/
+    public static void setRotateIntervalSec(long intervalSec)
+    {
+        if (intervalSec < 0L) {
+            Print.printRotateIntervalSec = -1L;
+        } else
+        if (intervalSec == 0L) {
+            Print.printRotateIntervalSec = 0L;
+        } else
+        if (intervalSec < 60L) {
+            Print.printRotateIntervalSec = 60L;   // minimum interval
+        } else {
+            Print.printRotateIntervalSec = intervalSec;
+        }
+    }
+
+    /**
+    *** Gets the log file rotation interval (in seconds).<br>
+    *** The log file is rotated when it has been written for longer than this interval,
+    *** in addition to rotation based on the maximum log file size.
+    *** @return The log file rotation interval (in seconds), 0 if the log file is rotated by size only
+    **/
+    public static long getRotateIntervalSec()
+    {
+        if (Print.printRotateIntervalSec < 0L) {
+            String intvStr = RTConfig.getString(RTKey.LOG_FILE_ROTATE_INTERVAL);
+            long intvVal = StringTools.parseLong(intvStr,0L);
+            if (StringTools.isBlank(intvStr) || (intvVal <= 0L)) {
+                // no time based rotation
+                Print.setRotateIntervalSec(0L);
+            } else
+            if (intvStr.endsWith("s")) {
+                // seconds
+                Print.setRotateIntervalSec(intvVal);
+            } else
+            if (intvStr.endsWith("m")) {
+                // minutes
+                Print.setRotateIntervalSec(DateTime.MinuteSeconds(intvVal));
+            } else
+            if (intvStr.endsWith("d")) {
+                // days
+                Print.setRotateIntervalSec(DateTime.DaySeconds(intvVal));
+            } else {
+                // hours
+                Print.setRotateIntervalSec(DateTime.HourSeconds(intvVal));
+            }
+        }
+        return Print.printRotateIntervalSec;
+    }
+
     /**
     *** Opens the output log file
     *** (does not return null)
@@ -1431,10 +1517,16 @@ public class Print
                     }
 
                     /* is file (non directory): check rotate [was "logFile.exists()"] */
+                    final long nowMS  = DateTime.getCurrentTimeMillis();
                     long maxSize = Print.getRotateLogFileSize();
-                    if ((maxSize > 0L) && logFile.isFile() && (logFile.length() > maxSize)) {
+                    long rotSec  = Print.getRotateIntervalSec();
+                    if (Print.printLogFileStartMS <= 0L) {
+                        Print.printLogFileStartMS = nowMS;
+                    }
+                    boolean rotateSize = (maxSize > 0L) && logFile.isFile() && (logFile.length() > maxSize);
+                    boolean rotateTime = (rotSec  > 0L) && logFile.isFile() && ((nowMS - Print.printLogFileStartMS) >= (rotSec * 1000L));
+                    if (rotateSize || rotateTime) {
                         String rotExtnSep = "."; // must not be empty
-                        final long nowMS  = DateTime.getCurrentTimeMillis();
 
                         // backup existing file
                         String absPath = logFile.getAbsolutePath();
@@ -1452,6 +1544,7 @@ public class Print
                             if (didRename) {
                                 // update modified time (so this file isn't deleted below)
                                 bkuFile.setLastModified(nowMS);
+                                Print.printLogFileStartMS = nowMS;
                             }
                         } catch (Throwable th) {
                             // error renaming
@@ -1820,6 +1913,26 @@ public class Print
             return;
         }
 
+        /* asynchronous logging */
+        if (Print._isAsyncLogging() && !AsyncLogWriter.isWriterThread()) {
+            // the caller stack frame must be captured here, but the date and message are 
+            // formatted by the log writer thread.
+            boolean header = (level <= Print.getLogHeaderLevel());
+            long    timeMS = (header && Print._includeDate())? DateTime.getCurrentTimeMillis() : 0L;
+            String  sFrame = (header && Print._includeStackFrame() && (nextFrame >= 0))? _getStackFrame(nextFrame) : null;
+            if (!AsyncLogWriter.isImmutable(args)) {
+                // arguments may change before the writer thread formats them
+                StringBuffer sb = new StringBuffer();
+                Print._appendMessage(sb, msg, args);
+                msg  = sb.toString();
+                args = null;
+            }
+            if (AsyncLogWriter.enqueue(new LogRecord(level,header,timeMS,sFrame,msg,args))) {
+                return;
+            }
+            // else log writer is unavailable, write now
+        }
+
         /* message accumulator */
         StringBuffer logMsg = new StringBuffer();
 
@@ -1827,20 +1940,49 @@ public class Print
         if (level <= Print.getLogHeaderLevel()) {
             // Print this 'header' info for logged messages with a level < 'headerLevel'
             // ie. print header for errors/warnings, but not for info/debug
-            logMsg.append("[");
-            logMsg.append(Print.getLogLevelString(level));
-            if (Print._includeDate()) {
-                logMsg.append("|");
-                logMsg.append(Print.formatDate("MM/dd HH:mm:ss")); // "yyyy/MM/dd HH:mm:ss"
-            }
-            if (Print._includeStackFrame() && (nextFrame >= 0)) {
-                logMsg.append("|");
-                logMsg.append(_getStackFrame(nextFrame));
-            }
-            logMsg.append("] ");
+            String sDate  = Print._includeDate()? Print.formatDate("MM/dd HH:mm:ss") : null; // "yyyy/MM/dd HH:mm:ss"
+            String sFrame = (Print._includeStackFrame() && (nextFrame >= 0))? _getStackFrame(nextFrame) : null;
+            Print._appendHeader(logMsg, level, sDate, sFrame);
         }
 
         /* message */
+        Print._appendMessage(logMsg, msg, args);
+
+        /* print message */
+        Print._writeLog(level, logMsg.toString());
+
+    }
+
+    /**
+    *** Appends the log message header to the specified StringBuffer
+    *** @param logMsg The message accumulator
+    *** @param level  The log level
+    *** @param sDate  The formatted date, or null to omit the date
+    *** @param sFrame The stack frame, or null to omit the stack frame
+    **/
+    private static void _appendHeader(StringBuffer logMsg, int level, String sDate, String sFrame)
+    {
+        logMsg.append("[");
+        logMsg.append(Print.getLogLevelString(level));
+        if (sDate != null) {
+            logMsg.append("|");
+            logMsg.append(sDate);
+        }
+        if (sFrame != null) {
+            logMsg.append("|");
+            logMsg.append(sFrame);
+        }
+        logMsg.append("] ");
+    }
+
+    /**
+    *** Appends the formatted log message (terminated with a newline) to the specified StringBuffer
+    *** @param logMsg The message accumulator
+    *** @param msg    The message to log
+    *** @param args   Any arguments referenced by any format specifiers in <code>msg</code>
+    **/
+    private static void _appendMessage(StringBuffer logMsg, String msg, Object args[])
+    {
         if (msg != null) {
             if ((args != null) && (args.length > 0)) {
                 try {
@@ -1857,10 +1999,6 @@ public class Print
         } else {
             logMsg.append("\n");
         }
-
-        /* print message */
-        Print._writeLog(level, logMsg.toString());
-
     }
 
     /**
@@ -1871,6 +2009,14 @@ public class Print
     public static void _writeLog(int level, String logMsg)
     {
 
+        /* asynchronous logging */
+        if (Print._isAsyncLogging() && !AsyncLogWriter.isWriterThread()) {
+            if (AsyncLogWriter.enqueue(new LogRecord(level,logMsg))) {
+                return;
+            }
+            // else log writer is unavailable, write now
+        }
+
         /* get PrintStream */
         PrintStream out = Print.openPrintStream(); // does not return null
         if (out == null) {
@@ -1897,6 +2043,314 @@ public class Print
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
+    /**
+    *** Waits for all queued asynchronous log messages to be written
+    *** @param timeoutMS  The maximum time to wait (in milliseconds)
+    *** @return True if all queued log messages have been written
+    **/
+    public static boolean flushAsyncLog(long timeoutMS)
+    {
+        return AsyncLogWriter.flush(timeoutMS);
+    }
+
+    /**
+    *** Gets the number of asynchronous log messages dropped because the log buffer was full
+    *** @return The number of dropped log messages
+    **/
+    public static long getAsyncLogDroppedCount()
+    {
+        return AsyncLogWriter.getDroppedCount();
+    }
+
+    /**
+    *** Returns a String representation of the asynchronous log writer statistics
+    *** @return The asynchronous log writer statistics
+    **/
+    public static String getAsyncLogStatistics()
+    {
+        return AsyncLogWriter.getStatistics();
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Log message queued for the asynchronous log writer
+    **/
+    private static class LogRecord
+    {
+        private int      level   = LOG_INFO;
+        private boolean  header  = false;
+        private long     timeMS  = 0L;     // 0 to omit date
+        private String   frame   = null;   // null to omit stack frame
+        private String   message = null;
+        private Object   args[]  = null;
+        private String   logMsg  = null;   // preformatted message
+        public LogRecord(int level, String logMsg) {
+            this.level   = level;
+            this.logMsg  = logMsg;
+        }
+        public LogRecord(int level, boolean header, long timeMS, String frame, String msg, Object args[]) {
+            this.level   = level;
+            this.header  = header;
+            this.timeMS  = timeMS;
+            this.frame   = frame;
+            this.message = msg;
+            this.args    = args;
+        }
+        public void appendTo(StringBuffer sb) {
+            if (this.logMsg != null) {
+                sb.append(this.logMsg);
+            } else {
+                if (this.header) {
+                    String sDate = (this.timeMS > 0L)? 
+                        (new DateTime(this.timeMS / 1000L)).format("MM/dd HH:mm:ss",null) : null;
+                    Print._appendHeader(sb, this.level, sDate, this.frame);
+                }
+                Print._appendMessage(sb, this.message, this.args);
+            }
+        }
+    }
+
+    /**
+    *** Asynchronous log writer.<br>
+    *** Log messages are placed in a bounded buffer by the logging thread (without blocking), and
+    *** are written by a single writer thread in batches.  The log file is opened, checked for
+    *** rotation, and flushed once per batch, rather than once per message.  Messages are dropped
+    *** (and counted) if the buffer is full.
+    **/
+    private static class AsyncLogWriter
+        implements Runnable
+    {
+
+        private static final long   POLL_TIMEOUT_MS     = 1000L;
+
+        private static AsyncLogWriter writer            = null;
+        private static boolean        writerInit        = false;
+
+        /* return the log writer, starting the writer thread on first use (may return null) */
+        private static AsyncLogWriter _getWriter()
+        {
+            if (!AsyncLogWriter.writerInit) {
+                synchronized (AsyncLogWriter.class) {
+                    if (!AsyncLogWriter.writerInit) {
+                        try {
+                            int bufSize   = RTConfig.getInt(RTKey.LOG_ASYNC_BUFFER_SIZE, 8192);
+                            int batchSize = RTConfig.getInt(RTKey.LOG_ASYNC_BATCH_SIZE , 256);
+                            AsyncLogWriter w = new AsyncLogWriter(bufSize, batchSize);
+                            w.thread = new Thread(w, "AsyncLogWriter");
+                            w.thread.setDaemon(true);
+                            w.thread.start();
+                            Runtime.getRuntime().addShutdownHook(new Thread("AsyncLogWriterShutdown") {
+                                public void run() {
+                                    AsyncLogWriter.flush(2000L);
+                                }
+                            });
+                            AsyncLogWriter.writer = w;
+                        } catch (Throwable th) {
+                            Print.sysPrintln("ERROR: Unable to start asynchronous log writer: " + th);
+                            AsyncLogWriter.writer = null;
+                        }
+                        AsyncLogWriter.writerInit = true;
+                    }
+                }
+            }
+            return AsyncLogWriter.writer;
+        }
+
+        /**
+        *** Returns true if the current thread is the log writer thread
+        **/
+        public static boolean isWriterThread()
+        {
+            AsyncLogWriter w = AsyncLogWriter.writer;
+            return (w != null) && (Thread.currentThread() == w.thread);
+        }
+
+        /**
+        *** Returns true if the specified format arguments cannot change before they are formatted
+        *** by the writer thread (ie. the message may be formatted lazily)
+        **/
+        public static boolean isImmutable(Object args[])
+        {
+            if (args != null) {
+                for (int i = 0; i < args.length; i++) {
+                    Object a = args[i];
+                    if ((a == null) || (a instanceof String) || (a instanceof Boolean) || (a instanceof Character)) {
+                        continue;
+                    } else
+                    if ((a instanceof Number) && !(a instanceof AtomicInteger) && !(a instanceof AtomicLong)) {
+                        continue; // Integer, Long, Double, etc
+                    }
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+        *** Queues the specified log record for writing
+        *** @return True if the record was accepted (or dropped because the buffer is full),
+        ***     false if the log writer is unavailable
+        **/
+        public static boolean enqueue(LogRecord rcd)
+        {
+            AsyncLogWriter w = AsyncLogWriter._getWriter();
+            if (w == null) {
+                return false;
+            }
+            w.pendingCount.incrementAndGet(); // before 'offer', so the writer cannot decrement first
+            if (!w.buffer.offer(rcd)) {
+                w.pendingCount.decrementAndGet();
+                w.droppedCount.incrementAndGet();
+            }
+            return true;
+        }
+
+        /**
+        *** Waits for the queued log records (including those removed from the buffer, but
+        *** not yet written) to be written
+        **/
+        public static boolean flush(long timeoutMS)
+        {
+            AsyncLogWriter w = AsyncLogWriter.writer;
+            if ((w == null) || AsyncLogWriter.isWriterThread()) {
+                return true;
+            }
+            long endMS = System.currentTimeMillis() + timeoutMS;
+            synchronized (w.writeLock) {
+                while (w.pendingCount.get() > 0L) {
+                    long waitMS = endMS - System.currentTimeMillis();
+                    if (waitMS <= 0L) {
+                        return false;
+                    }
+                    try { w.writeLock.wait(waitMS); } catch (InterruptedException ie) { return false; }
+                }
+            }
+            return true;
+        }
+
+        public static long getDroppedCount()
+        {
+            AsyncLogWriter w = AsyncLogWriter.writer;
+            return (w != null)? w.droppedCount.get() : 0L;
+        }
+
+        public static String getStatistics()
+        {
+            AsyncLogWriter w = AsyncLogWriter.writer;
+            if (w == null) {
+                return "disabled";
+            }
+            StringBuffer sb = new StringBuffer();
+            sb.append("queued=").append(w.buffer.size());
+            sb.append(", written=").append(w.writtenCount.get());
+            sb.append(", batches=").append(w.batchCount.get());
+            sb.append(", dropped=").append(w.droppedCount.get());
+            return sb.toString();
+        }
+
+        // --------------------------------
+
+        private ArrayBlockingQueue<LogRecord> buffer        = null;
+        private int                           batchSize     = 256;
+        private Thread                        thread        = null;
+
+        private Object                        writeLock     = new Object();
+        private AtomicLong                    pendingCount  = new AtomicLong(0L); // queued, or being written
+
+        private AtomicLong                    droppedCount  = new AtomicLong(0L);
+        private AtomicLong                    writtenCount  = new AtomicLong(0L);
+        private AtomicLong                    batchCount    = new AtomicLong(0L);
+        private long                          droppedReport = 0L;     // (writer thread only)
+
+        private AsyncLogWriter(int bufSize, int batchSize)
+        {
+            this.buffer    = new ArrayBlockingQueue<LogRecord>((bufSize > 0)? bufSize : 8192);
+            this.batchSize = (batchSize > 0)? batchSize : 256;
+        }
+
+        public void run()
+        {
+            java.util.List<LogRecord> batch = new java.util.ArrayList<LogRecord>(this.batchSize);
+            for (;;) {
+                try {
+
+                    /* wait for next record */
+                    LogRecord rcd = this.buffer.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+                    if (rcd == null) {
+                        synchronized (this.writeLock) {
+                            this.writeLock.notifyAll();
+                        }
+                        continue;
+                    }
+
+                    /* collect batch */
+                    batch.add(rcd);
+                    this.buffer.drainTo(batch, this.batchSize - 1);
+
+                    /* write batch */
+                    this._writeBatch(batch);
+
+                } catch (InterruptedException ie) {
+                    // ignore
+                } catch (Throwable th) {
+                    // Do not make calls to "logXXXXXX" from within this thread
+                    Print.sysPrintln("[Print.AsyncLogWriter] Exception Occurred!!! " + th);
+                } finally {
+                    if (!batch.isEmpty()) {
+                        this.pendingCount.addAndGet(-batch.size());
+                        batch.clear();
+                        synchronized (this.writeLock) {
+                            this.writeLock.notifyAll();
+                        }
+                    }
+                }
+            }
+        }
+
+        /* format and write the specified records */
+        private void _writeBatch(java.util.List<LogRecord> batch)
+        {
+
+            /* format */
+            StringBuffer sb = new StringBuffer();
+            for (LogRecord rcd : batch) {
+                rcd.appendTo(sb);
+            }
+
+            /* report dropped messages */
+            long dropped = this.droppedCount.get();
+            if (dropped > this.droppedReport) {
+                Print._appendHeader(sb, LOG_WARN, Print.formatDate("MM/dd HH:mm:ss"), null);
+                sb.append("Log buffer full, dropped " + (dropped - this.droppedReport) + 
+                    " messages (total " + dropped + ")\n");
+                this.droppedReport = dropped;
+            }
+
+            /* write (log file is opened, checked for rotation, once per batch) */
+            String logMsg = sb.toString();
+            PrintStream out = Print.openPrintStream(); // does not return null
+            try {
+                byte d[] = StringTools.getBytes(logMsg);
+                out.write(d);  // [OUTPUT] must be "write(...)"
+                out.flush();
+            } catch (IOException ioe) {
+                Print.setLogFile(null);
+                Print.sysPrintln("ERROR: Unable to open/write log file: " + ioe);
+                Print._print(Print._getSysStderr(), 0, false, logMsg);
+            } finally {
+                Print.closePrintStream();
+            }
+            this.writtenCount.addAndGet(batch.size());
+            this.batchCount.incrementAndGet();
+
+        }
+
+    }
+
+    // ------------------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
     /**
     *** Abstract class to provide log print redirection
     **/
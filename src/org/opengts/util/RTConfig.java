@@ -436,7 +436,7 @@ public class RTConfig
         if (CFG_PROPERTIES[RUNTIME_CONSTANT] == null) {
             synchronized (CFG_PROPERTIES) {
                 if (CFG_PROPERTIES[RUNTIME_CONSTANT] == null) {
-                    CFG_PROPERTIES[RUNTIME_CONSTANT] = new RTProperties();
+                    RTConfig._setConfigProperties(RUNTIME_CONSTANT, new RTProperties());
                 }
             }
         }
@@ -519,6 +519,170 @@ public class RTConfig
     }
 
     // ------------------------------------------------------------------------
+    // ------------------------------------------------------------------------
+    // Compiled property lookup index
+    // Resolving a key previously walked every properties layer on each lookup.  The
+    // layer in which a key is found is now remembered in a per-version index which is
+    // discarded whenever any of the shared layers change.  The thread-temporary and
+    // thread-local properties are not indexed and are still checked first on every
+    // lookup, so the precedence of the original layer traversal is preserved.
+
+    private static final int        LOOKUP_NOT_FOUND    = ENVIRONMENT + 1;
+    private static final int        LOOKUP_MAX_KEYS     = 8192;
+
+    private static final java.util.concurrent.atomic.AtomicLong CFG_VERSION = 
+        new java.util.concurrent.atomic.AtomicLong(1L);
+
+    private static volatile LookupIndex CFG_LOOKUP_INDEX = null;
+    private static volatile boolean     CFG_SYSPROPS_LIVE = false;
+
+    private static final RTProperties.PropertyChangeListener CFG_CHANGE_LISTENER = 
+        new RTProperties.PropertyChangeListener() {
+            public void propertyChange(RTProperties.PropertyChangeEvent pce) {
+                RTConfig._configChanged();
+            }
+        };
+
+    /**
+    *** Key to properties-layer index, valid for a single configuration version
+    **/
+    private static class LookupIndex
+    {
+        private long                    version     = 0L;
+        private RTProperties            layers[]    = null;
+        private boolean                 sysPropLive = false;
+        private java.util.concurrent.ConcurrentHashMap<String,Integer> layerNdx = null;
+        public LookupIndex(long version, RTProperties layers[], boolean sysPropLive) {
+            this.version     = version;
+            this.layers      = layers;
+            this.sysPropLive = sysPropLive && (layers[SYSTEM_PROPS] != null);
+            this.layerNdx    = new java.util.concurrent.ConcurrentHashMap<String,Integer>();
+        }
+        public long getVersion() {
+            return this.version;
+        }
+        private int _findLayerIndex(String key) {
+            for (int i = RUNTIME_CONSTANT; i < this.layers.length; i++) {
+                if ((i == SYSTEM_PROPS) && this.sysPropLive) {
+                    continue; // live System properties are checked on each lookup
+                }
+                RTProperties rtProps = this.layers[i];
+                if ((rtProps != null) && rtProps.hasProperty(key)) {
+                    return i;
+                }
+            }
+            return LOOKUP_NOT_FOUND;
+        }
+        public RTProperties getPropertiesForKey(String key) {
+            Integer ndxObj = this.layerNdx.get(key);
+            int ndx;
+            if (ndxObj != null) {
+                ndx = ndxObj.intValue();
+            } else {
+                ndx = this._findLayerIndex(key);
+                if (this.layerNdx.size() < LOOKUP_MAX_KEYS) {
+                    this.layerNdx.put(key, Integer.valueOf(ndx));
+                }
+            }
+            if ((ndx > SYSTEM_PROPS) && this.sysPropLive && this.layers[SYSTEM_PROPS].hasProperty(key)) {
+                return this.layers[SYSTEM_PROPS];
+            }
+            return (ndx < LOOKUP_NOT_FOUND)? this.layers[ndx] : null;
+        }
+    }
+
+    /**
+    *** Gets the lookup index for the current configuration version, creating
+    *** a new index if the configuration has changed since the last lookup
+    *** @return The current lookup index
+    **/
+    private static LookupIndex _getLookupIndex()
+    {
+        long version = CFG_VERSION.get();
+        LookupIndex lookup = CFG_LOOKUP_INDEX;
+        if ((lookup == null) || (lookup.getVersion() != version)) {
+            RTProperties layers[] = new RTProperties[CFG_PROPERTIES.length];
+            System.arraycopy(CFG_PROPERTIES, 0, layers, 0, layers.length);
+            lookup = new LookupIndex(version, layers, CFG_SYSPROPS_LIVE);
+            CFG_LOOKUP_INDEX = lookup; // may be replaced by a concurrent rebuild
+        }
+        return lookup;
+    }
+
+    /**
+    *** Invalidates the current lookup index, and advances the configuration version
+    **/
+    protected static void _configChanged()
+    {
+        CFG_VERSION.incrementAndGet();
+    }
+
+    /**
+    *** Sets the <code>RTProperties</code> instance for the specified properties layer
+    *** @param ndx  The properties layer index
+    *** @param rtp  The <code>RTProperties</code> instance (may be null)
+    **/
+    private static void _setConfigProperties(int ndx, RTProperties rtp)
+    {
+        RTProperties oldProps = CFG_PROPERTIES[ndx];
+        if (oldProps != rtp) {
+            if (oldProps != null) {
+                oldProps.removeChangeListener(CFG_CHANGE_LISTENER);
+            }
+            if (rtp != null) {
+                rtp.addChangeListener(CFG_CHANGE_LISTENER);
+            }
+        }
+        CFG_PROPERTIES[ndx] = rtp;
+        RTConfig._configChanged();
+    }
+
+    /**
+    *** Gets the current configuration version.  The version is advanced whenever
+    *** a property is set or removed in any of the shared (non thread-local)
+    *** properties layers, or when the default properties change.
+    *** @return The current configuration version
+    **/
+    public static long getConfigVersion()
+    {
+        return CFG_VERSION.get();
+    }
+
+    /**
+    *** Returns true if the current thread has thread-temporary or thread-local
+    *** properties defined, which may override the shared properties layers
+    *** @return True if the current thread has overriding properties
+    **/
+    public static boolean hasThreadProperties()
+    {
+        if (RTConfig.getTemporaryPropertiesStackSize() > 0) {
+            return true;
+        }
+        RTProperties threadProps = CFG_PROPERTIES[THREAD_LOCAL];
+        return ((threadProps != null) && !threadProps.isEmpty());
+    }
+
+    /**
+    *** Returns true if the value of the specified key is covered by the 
+    *** configuration version (ie. will not change without the version also changing).
+    *** Values found in the live <code>System</code> properties, or in the 
+    *** thread-local properties, are not covered.
+    *** @param key    The key
+    *** @param dftOk  True to check defaults, if not found elsewhere
+    *** @return True if the value of the key is covered by the configuration version
+    **/
+    public static boolean isConfigVersionTracked(String key, boolean dftOk)
+    {
+        if (RTConfig.hasThreadProperties()) {
+            return false;
+        }
+        RTProperties rtp = RTConfig.getPropertiesForKey(key, dftOk);
+        if ((rtp != null) && CFG_SYSPROPS_LIVE && (rtp == CFG_PROPERTIES[SYSTEM_PROPS])) {
+            return false;
+        }
+        return true;
+    }
+
     // ------------------------------------------------------------------------
 
     /**
@@ -546,14 +710,18 @@ public class RTConfig
                 return tempProps;
             }
 
-            /* look for key in our property list stack */
+            /* next try the thread local properties */
+            RTProperties threadProps = CFG_PROPERTIES[THREAD_LOCAL];
+            if ((threadProps != null) && threadProps.hasProperty(key)) {
+                return threadProps;
+            }
+
+            /* look for key in our property list stack (via the lookup index) */
             //String testKey = RTKey.LOG_LEVEL_HEADER;
-            for (int i = 0; i < CFG_PROPERTIES.length; i++) {
-                RTProperties rtProps = CFG_PROPERTIES[i];
-                if ((rtProps != null) && rtProps.hasProperty(key)) {
-                    //if (key.equals(testKey)) System.out.println("RTConfig.getPropertiesForKey: Found "+testKey+" @ " + getConfigPropertiesIndexName(i));
-                    return rtProps; 
-                }
+            RTProperties rtProps = RTConfig._getLookupIndex().getPropertiesForKey(key);
+            if (rtProps != null) {
+                //if (key.equals(testKey)) System.out.println("RTConfig.getPropertiesForKey: Found "+testKey+" @ " + findPropertiesForKey(key));
+                return rtProps; 
             }
             
             /* still not found, try the default properties */
@@ -727,7 +895,7 @@ public class RTConfig
             //}
             if (CFG_PROPERTIES[COMMAND_LINE] == null) {
                 // first initialization
-                CFG_PROPERTIES[COMMAND_LINE] = cmdLineProps;     
+                RTConfig._setConfigProperties(COMMAND_LINE, cmdLineProps);
                 _startupInit(true); // initialize now to allow for overriding 'configFile'
             } else {
                 // subsequent re-initialization
@@ -793,7 +961,7 @@ public class RTConfig
     **/
     public static void _setServletContextProperties(RTProperties props)
     {
-        CFG_PROPERTIES[SERVLET_CONTEXT] = props;
+        RTConfig._setConfigProperties(SERVLET_CONTEXT, props);
     }
 
     /** 
@@ -1372,31 +1540,32 @@ public class RTConfig
                 }
             }
         }
-        CFG_PROPERTIES[SYSTEM_PROPS] = new RTProperties(propMap);
+        CFG_SYSPROPS_LIVE = _allowSysPropChange && (propMap != null);
+        RTConfig._setConfigProperties(SYSTEM_PROPS, new RTProperties(propMap));
 
         /* environment variables */
         if (RTConfig.getEnvironmentVariablesEnabled()) {
             try {
                 Map<String,String> envMap = System.getenv();
                 //for (String k:envMap.keySet()) {String v = envMap.get(k);Print.logInfo("Env: "+k+"==>"+v);}
-                CFG_PROPERTIES[ENVIRONMENT] = new RTProperties(envMap);
+                RTConfig._setConfigProperties(ENVIRONMENT, new RTProperties(envMap));
                 //CFG_PROPERTIES[ENVIRONMENT].setAllowBlankValues(false);
             } catch (Throwable th) {
                 // security error?
-                CFG_PROPERTIES[ENVIRONMENT] = null;
+                RTConfig._setConfigProperties(ENVIRONMENT, null);
             }
         }
 
         /* load config file/URL */
         if (_foundConfigURL != null) {
-            CFG_PROPERTIES[CONFIG_FILE] = new RTProperties(_foundConfigURL);
+            RTConfig._setConfigProperties(CONFIG_FILE, new RTProperties(_foundConfigURL));
             if (RTConfig.verbose) { 
                 Print.logInfo("Loaded config URL: " + _foundConfigURL); 
             }
         } else {
             //String cfgDir = RTConfig.getFile(RTKey.CONFIG_FILE_DIR);
             //String cfgFile = RTConfig.getFile(RTKey.CONFIG_FILE);
-            CFG_PROPERTIES[CONFIG_FILE] = new RTProperties(); // must be non-null
+            RTConfig._setConfigProperties(CONFIG_FILE, new RTProperties()); // must be non-null
             if (RTConfig.verbose) { 
                 Print.logWarn("No config file was found"); 
             }
@@ -137,6 +137,10 @@ public class RTKey
     public static final String LOG_FILE_ROTATE_SIZE         = "log.file.rotate.maxSize";
     public static final String LOG_FILE_ROTATE_EXTN         = "log.file.rotate.dateFormatExtn";
     public static final String LOG_FILE_ROTATE_DELETE_AGE   = "log.file.rotate.deleteAge";
+    public static final String LOG_FILE_ROTATE_INTERVAL     = "log.file.rotate.interval";
+    public static final String LOG_ASYNC                    = "log.async";
+    public static final String LOG_ASYNC_BUFFER_SIZE        = "log.async.bufferSize";
+    public static final String LOG_ASYNC_BATCH_SIZE         = "log.async.batchSize";
     public static final String LOG_INCL_DATE                = "log.include.date";
     public static final String LOG_INCL_STACKFRAME          = "log.include.frame";
     public static final String LOG_EMAIL_EXCEPTIONS         = "log.email.sendExceptions";
@@ -145,6 +149,12 @@ public class RTKey
     public static final String LOG_SENDMAIL_CLASS           = "log.email.sendmailClass";
     
     public static final String DB_DBCONNECTION_POOL         = "db.dbConnectionPool";                // Boolean
+    public static final String DB_POOL_MAX_SIZE             = "db.dbConnectionPool.maxSize";        // Integer
+    public static final String DB_POOL_MAX_WAIT_MS          = "db.dbConnectionPool.maxWaitMS";      // Long (millis)
+    public static final String DB_POOL_MAX_IDLE_SEC         = "db.dbConnectionPool.maxIdleSec";     // Long (sec)
+    public static final String DB_POOL_MAX_LIFETIME_SEC     = "db.dbConnectionPool.maxLifetimeSec"; // Long (sec)
+    public static final String DB_POOL_VALIDATE_IDLE_SEC    = "db.dbConnectionPool.validateIdleSec";// Long (sec)
+    public static final String DB_POOL_LEAK_DETECTION_SEC   = "db.dbConnectionPool.leakDetectionSec";// Long (sec)
     public static final String DB_DATASOURCE_CLASS          = "db.dataSource.class";                // String
     public static final String DB_DATASOURCE_MAX_ACTIVE     = "db.dataSource.maxActive";            // Integer
     public static final String DB_DATASOURCE_MAX_IDLE       = "db.dataSource.maxIdle";              // Integer
@@ -166,6 +176,8 @@ public class RTKey
     public static final String DB_ALLOW_UPDATE_KEY_FIELDS   = "db.allowUpdateKeyFields";            // Boolean
     public static final String DB_INACTIVE_TIMEOUT          = "db.inactiveTimeout";                 // Long (sec)
     public static final String DB_MYSQL_TBLEXIST_SEL_COUNT  = "db.mysql.tableExistsSelectCount";    // Boolean
+    public static final String DB_BATCH_INSERT_SIZE         = "db.batchInsert.size";                // Integer
+    public static final String DB_BATCH_INSERT_DELAY_MS     = "db.batchInsert.delayMS";             // Long (millis)
 
     public static final String DB_TYPESIZE_                 = "db.typeSize.";                       // Integer
     public static final String DB_TYPEINT_                  = "db.typeInt.";                        // String (INT8|UINT8|INT16|UINT16|...)
@@ -181,6 +193,7 @@ public class RTKey
     public static final String ThreadPool_SendMail_         = "SendMail.ThreadPool.";               // prefix
     public static final String ThreadPool_EventRuleAction_  = "Rule.ThreadPool.EventRuleAction.";   // prefix
     public static final String ThreadPool_DeviceEventUpdate_= "Device.ThreadPool.DeviceEventUpdate.";// prefix
+    public static final String ThreadPool_ReportEventData_  = "Report.ThreadPool.ReportEventData."; // prefix
 
     // ------------------------------------------------------------------------
 
@@ -269,6 +282,10 @@ public class RTKey
         new Entry(LOG_FILE_ROTATE_SIZE       , 200000L                          , "log file rotate max size"),                  // APP|WEB
         new Entry(LOG_FILE_ROTATE_EXTN       , "yyyyMMddHHmmss'.log'"           , "log file rotate date format extension"),     // APP|WEB
         new Entry(LOG_FILE_ROTATE_DELETE_AGE , "0"                              , "log file rotate delete age (default days)"), // APP|WEB
+        new Entry(LOG_FILE_ROTATE_INTERVAL   , "0"                              , "log file rotate interval (default hours)"),  // APP|WEB
+        new Entry(LOG_ASYNC                  , false                            , "asynchronous logging"),                      // APP|WEB
+        new Entry(LOG_ASYNC_BUFFER_SIZE      , 8192                             , "asynchronous log buffer size"),              // APP|WEB
+        new Entry(LOG_ASYNC_BATCH_SIZE       , 256                              , "asynchronous log write batch size"),         // APP|WEB
         new Entry(LOG_INCL_DATE              , false                            , "include date in logs"),                      // APP|WEB
         new Entry(LOG_INCL_STACKFRAME        , false                            , "include stackframe in logs"),                // APP|WEB
         new Entry(LOG_EMAIL_EXCEPTIONS       , false                            , "EMail exceptions"),                          // APP|WEB
@@ -278,6 +295,12 @@ public class RTKey
 
         new Entry("DB attributes"),
         new Entry(DB_DBCONNECTION_POOL       , false                            , "DBConnection Pooling"),                      // APP|WEB
+        new Entry(DB_POOL_MAX_SIZE           , 100                              , "DBConnection pool maximum size"),            // APP|WEB
+        new Entry(DB_POOL_MAX_WAIT_MS        , 10000L                           , "DBConnection pool maximum borrow wait"),     // APP|WEB
+        new Entry(DB_POOL_MAX_IDLE_SEC       , 1800L /*30min*/                  , "DBConnection pool maximum idle time"),       // APP|WEB
+        new Entry(DB_POOL_MAX_LIFETIME_SEC   , (4L*3600L) /*4hrs*/              , "DBConnection pool maximum lifetime"),        // APP|WEB
+        new Entry(DB_POOL_VALIDATE_IDLE_SEC  , 30L                              , "DBConnection pool validate-on-borrow idle"), // APP|WEB
+        new Entry(DB_POOL_LEAK_DETECTION_SEC , 300L                             , "DBConnection pool leak detection (0=off)"),  // APP|WEB
         new Entry(DB_DATASOURCE_CLASS        , ""                               , "DataSource class"),                          // APP|WEB
         new Entry(DB_DATASOURCE_MAX_ACTIVE   , 100                              , "DataSource maxActive"),                      // APP|WEB
         new Entry(DB_DATASOURCE_MAX_IDLE     , 30                               , "DataSource maxIdle"),                        // APP|WEB
@@ -299,6 +322,8 @@ public class RTKey
         new Entry(DB_ALLOW_UPDATE_KEY_FIELDS , false                            , "Allow updating key fields"),                 // APP|WEB
         new Entry(DB_INACTIVE_TIMEOUT        , (6L*3600L) /*6hrs*/              , "Inactive connection timeout"),               // APP|WEB
         new Entry(DB_MYSQL_TBLEXIST_SEL_COUNT, true                             , "MySQL tableExist use SELECT COUNT(*)"),      // APP|WEB
+        new Entry(DB_BATCH_INSERT_SIZE       , 0                                , "Maximum batched insert size (0=disabled)"),  // APP
+        new Entry(DB_BATCH_INSERT_DELAY_MS   , 50L                              , "Maximum batched insert delay"),              // APP
 
         new Entry("OSTools attributes"),
         new Entry(OSTOOLS_MEMORY_CHECK_ENABLE, false                            , "Enable memory checks"),                      // APP|WEB
@@ -354,6 +379,7 @@ public class RTKey
                 }
             }
             defaultProperties = null;
+            RTConfig._configChanged();
         }
     }
     
@@ -367,6 +393,7 @@ public class RTKey
             if (rtKey != null) {
                 RTKey.getRuntimeEntryMap().put(rtKey, dftEntry);
                 defaultProperties = null;
+                RTConfig._configChanged();
             }
         }
     }
@@ -418,6 +445,8 @@ public class RTKey
         Entry rtKey = RTKey.getRuntimeEntry(key);
         if (rtKey != null) {
             rtKey.setDefault(val);
+            defaultProperties = null;
+            RTConfig._configChanged();
         } else {
             RTKey.addRuntimeEntry(new Entry(key,val));
         }
@@ -820,6 +849,164 @@ public class RTKey
         return this.getName().hashCode();
     }
 
+    // ------------------------------------------------------------------------
+    // RTKey typed property values.
+    // The parsed value of the last lookup is retained until the RTConfig 
+    // configuration version changes, or until a different default is requested.
+
+    private static final int    TYPE_STRING         = 0;
+    private static final int    TYPE_BOOLEAN        = 1;
+    private static final int    TYPE_INT            = 2;
+    private static final int    TYPE_LONG           = 3;
+    private static final int    TYPE_DOUBLE         = 4;
+
+    /**
+    *** Cached parsed property value
+    **/
+    private static class CachedValue
+    {
+        private long   version  = 0L;
+        private String key      = null;
+        private int    type     = TYPE_STRING;
+        private long   dftBits  = 0L;
+        private String dftStr   = null;
+        private long   longVal  = 0L;
+        private double dblVal   = 0.0;
+        private String strVal   = null;
+        public CachedValue(long version, String key, int type, long dftBits, String dftStr) {
+            this.version = version;
+            this.key     = key;
+            this.type    = type;
+            this.dftBits = dftBits;
+            this.dftStr  = dftStr;
+        }
+        public boolean isValid(long version, String key, int type, long dftBits, String dftStr) {
+            if (this.version != version) {
+                return false;
+            } else
+            if ((this.key != key) || (this.type != type) || (this.dftBits != dftBits)) {
+                return false;
+            } else
+            if ((this.dftStr == null)? (dftStr != null) : !this.dftStr.equals(dftStr)) {
+                return false;
+            } else {
+                return true;
+            }
+        }
+    }
+
+    private volatile CachedValue cachedValue = null;
+
+    /**
+    *** Returns the cached value for the specified type/default, or null if the 
+    *** value is not cached, or the configuration has changed
+    **/
+    private CachedValue _getCachedValue(int type, long dftBits, String dftStr)
+    {
+        CachedValue cv = this.cachedValue;
+        if ((cv != null) && 
+            cv.isValid(RTConfig.getConfigVersion(),this.getName(),type,dftBits,dftStr) &&
+            !RTConfig.hasThreadProperties()) {
+            return cv;
+        }
+        return null;
+    }
+
+    /**
+    *** Saves the specified value, if the property value is covered by the 
+    *** configuration version specified
+    **/
+    private void _setCachedValue(CachedValue cv)
+    {
+        if (RTConfig.isConfigVersionTracked(cv.key,false)) {
+            this.cachedValue = cv;
+        } else {
+            this.cachedValue = null;
+        }
+    }
+
+    /**
+    *** Gets the String value of this property from <code>RTConfig</code>
+    *** @param dft  The default value return if the key is not found
+    *** @return The String value, or 'dft' if the key is not found
+    **/
+    public String getString(String dft)
+    {
+        CachedValue cv = this._getCachedValue(TYPE_STRING, 0L, dft);
+        if (cv == null) {
+            cv = new CachedValue(RTConfig.getConfigVersion(), this.getName(), TYPE_STRING, 0L, dft);
+            cv.strVal = RTConfig.getString(cv.key, dft);
+            this._setCachedValue(cv);
+        }
+        return cv.strVal;
+    }
+
+    /**
+    *** Gets the boolean value of this property from <code>RTConfig</code>
+    *** @param dft  The default value return if the key is not found
+    *** @return The boolean value, or 'dft' if the key is not found
+    **/
+    public boolean getBoolean(boolean dft)
+    {
+        long dftBits = dft? 1L : 0L;
+        CachedValue cv = this._getCachedValue(TYPE_BOOLEAN, dftBits, null);
+        if (cv == null) {
+            cv = new CachedValue(RTConfig.getConfigVersion(), this.getName(), TYPE_BOOLEAN, dftBits, null);
+            cv.longVal = RTConfig.getBoolean(cv.key, dft)? 1L : 0L;
+            this._setCachedValue(cv);
+        }
+        return (cv.longVal != 0L);
+    }
+
+    /**
+    *** Gets the int value of this property from <code>RTConfig</code>
+    *** @param dft  The default value return if the key is not found
+    *** @return The int value, or 'dft' if the key is not found
+    **/
+    public int getInt(int dft)
+    {
+        CachedValue cv = this._getCachedValue(TYPE_INT, (long)dft, null);
+        if (cv == null) {
+            cv = new CachedValue(RTConfig.getConfigVersion(), this.getName(), TYPE_INT, (long)dft, null);
+            cv.longVal = (long)RTConfig.getInt(cv.key, dft);
+            this._setCachedValue(cv);
+        }
+        return (int)cv.longVal;
+    }
+
+    /**
+    *** Gets the long value of this property from <code>RTConfig</code>
+    *** @param dft  The default value return if the key is not found
+    *** @return The long value, or 'dft' if the key is not found
+    **/
+    public long getLong(long dft)
+    {
+        CachedValue cv = this._getCachedValue(TYPE_LONG, dft, null);
+        if (cv == null) {
+            cv = new CachedValue(RTConfig.getConfigVersion(), this.getName(), TYPE_LONG, dft, null);
+            cv.longVal = RTConfig.getLong(cv.key, dft);
+            this._setCachedValue(cv);
+        }
+        return cv.longVal;
+    }
+
+    /**
+    *** Gets the double value of this property from <code>RTConfig</code>
+    *** @param dft  The default value return if the key is not found
+    *** @return The double value, or 'dft' if the key is not found
+    **/
+    public double getDouble(double dft)
+    {
+        long dftBits = Double.doubleToLongBits(dft);
+        CachedValue cv = this._getCachedValue(TYPE_DOUBLE, dftBits, null);
+        if (cv == null) {
+            cv = new CachedValue(RTConfig.getConfigVersion(), this.getName(), TYPE_DOUBLE, dftBits, null);
+            cv.dblVal = RTConfig.getDouble(cv.key, dft);
+            this._setCachedValue(cv);
+        }
+        return cv.dblVal;
+    }
+
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
@@ -515,6 +515,7 @@ public class RTProperties
         if (ignCase) {
             Print.logWarn("Backing map is not an 'OrderedMap', case insensitive keys not in effect");
         }
+        this.firePropertyChanged(null, null);
     }
 
     // ------------------------------------------------------------------------
@@ -538,6 +539,7 @@ public class RTProperties
         if (!allowBlank) {
             // TODO: remove existing blank values?
         }
+        this.firePropertyChanged(null, null);
     }
 
     // ------------------------------------------------------------------------
@@ -853,7 +855,7 @@ public class RTProperties
     protected void firePropertyChanged(Object key, Object oldVal)
     {
         if (this.changeListeners != null) {
-            Object newVal = this.getProperties().get(key);
+            Object newVal = (key != null)? this.getProperties().get(key) : null; // 'Hashtable' does not allow null keys
             RTProperties.PropertyChangeEvent pce = new RTProperties.PropertyChangeEvent(key,oldVal,newVal);
             for (Iterator i = this.changeListeners.iterator(); i.hasNext();) {
                 ((RTProperties.PropertyChangeListener)i.next()).propertyChange(pce);
@@ -871,6 +873,7 @@ public class RTProperties
     public void setBackingProperties(Map<?,?> map)
     {
         this.cfgProperties = (Map<Object,Object>)map;
+        this.firePropertyChanged(null, null);
         /*
         if (this.cfgProperties != null) {
             for (Object k : this.cfgProperties.keySet()) {
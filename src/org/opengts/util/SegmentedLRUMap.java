@@ -0,0 +1,304 @@
+// ----------------------------------------------------------------------------
+// Copyright 2007-2014, GeoTelematic Solutions, Inc.
+// All rights reserved
+// ----------------------------------------------------------------------------
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+// http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+//
+// ----------------------------------------------------------------------------
+// Description:
+//  Thread-safe, size bounded (least-recently-used) map, split into independently
+//  locked segments
+// ----------------------------------------------------------------------------
+package org.opengts.util;
+
+import java.util.*;
+import java.util.concurrent.atomic.*;
+
+/**
+*** A thread-safe, size bounded map.  The map is split into independently locked
+*** segments, each of which is maintained in least-recently-used order, so that
+*** concurrent access to different keys rarely contends, and a put never fails
+*** (the least-recently-used entry of the segment is evicted when the segment is full).<br>
+*** Unlike <code>CacheMap</code>, entries do not expire, expiration (if any) is
+*** determined by the caller from the stored values.
+**/
+
+public class SegmentedLRUMap<K,V>
+{
+
+    // ------------------------------------------------------------------------
+
+    public  static final int DEFAULT_SEGMENT_COUNT  = 16;
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Map segment, maintained in least-recently-used order
+    **/
+    private static class Segment<K,V>
+        extends LinkedHashMap<K,V>
+    {
+        private static final long serialVersionUID = 1L;
+        private transient SegmentedLRUMap<K,V> owner = null;
+        public Segment(SegmentedLRUMap<K,V> owner) {
+            super(16, 0.75F, true/*accessOrder*/);
+            this.owner = owner;
+        }
+        protected boolean removeEldestEntry(Map.Entry<K,V> eldest) {
+            if (this.size() > this.owner.maxSegmentSize) {
+                this.owner.evictCount.incrementAndGet();
+                return true;
+            } else {
+                return false;
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+
+    private Segment<K,V>        segments[]       = null;
+    private volatile int        maxSize          = 0;
+    private volatile int        maxSegmentSize   = 0;
+    private AtomicLong          evictCount       = new AtomicLong(0L);
+
+    /**
+    *** Constructor
+    *** @param maxSize  The maximum number of entries
+    **/
+    public SegmentedLRUMap(int maxSize)
+    {
+        this(DEFAULT_SEGMENT_COUNT, maxSize);
+    }
+
+    /**
+    *** Constructor
+    *** @param segCount The number of segments (rounded up to a power of 2)
+    *** @param maxSize  The maximum number of entries
+    **/
+    @SuppressWarnings("unchecked")
+    public SegmentedLRUMap(int segCount, int maxSize)
+    {
+        int count = 1;
+        while (count < segCount) {
+            count <<= 1;
+        }
+        this.segments = (Segment<K,V>[])new Segment<?,?>[count];
+        for (int i = 0; i < this.segments.length; i++) {
+            this.segments[i] = new Segment<K,V>(this);
+        }
+        this.setMaximumSize(maxSize);
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Sets the maximum number of entries.<br>
+    *** (if reduced, segments are trimmed on the next put)
+    *** @param maxSize  The maximum number of entries
+    **/
+    public void setMaximumSize(int maxSize)
+    {
+        int segCount = this.segments.length;
+        this.maxSize        = (maxSize > segCount)? maxSize : segCount;
+        this.maxSegmentSize = (this.maxSize + segCount - 1) / segCount;
+    }
+
+    /**
+    *** Gets the maximum number of entries
+    *** @return The maximum number of entries
+    **/
+    public int getMaximumSize()
+    {
+        return this.maxSize;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /* return the segment for the specified key */
+    private Segment<K,V> _getSegment(Object key)
+    {
+        int h = (key != null)? key.hashCode() : 0;
+        h ^= (h >>> 16) ^ (h >>> 8);
+        return this.segments[h & (this.segments.length - 1)];
+    }
+
+    /**
+    *** Gets the value for the specified key (and marks the entry as recently used)
+    *** @param key  The key
+    *** @return The value, or null if not present
+    **/
+    public V get(K key)
+    {
+        Segment<K,V> seg = this._getSegment(key);
+        synchronized (seg) {
+            return seg.get(key);
+        }
+    }
+
+    /**
+    *** Puts the value for the specified key.<br>
+    *** The least-recently-used entry of the segment is evicted if the segment is full.
+    *** @param key    The key
+    *** @param value  The value
+    **/
+    public void put(K key, V value)
+    {
+        Segment<K,V> seg = this._getSegment(key);
+        synchronized (seg) {
+            seg.put(key, value);
+            // trim any excess remaining after a reduction of the maximum size
+            if (seg.size() > this.maxSegmentSize) {
+                Iterator<K> i = seg.keySet().iterator();
+                while ((seg.size() > this.maxSegmentSize) && i.hasNext()) {
+                    i.next();
+                    i.remove();
+                    this.evictCount.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+    *** Removes the entry for the specified key
+    *** @param key  The key
+    *** @return The removed value, or null if not present
+    **/
+    public V remove(K key)
+    {
+        Segment<K,V> seg = this._getSegment(key);
+        synchronized (seg) {
+            return seg.remove(key);
+        }
+    }
+
+    /**
+    *** Removes the entry for the specified key, only if it is currently mapped
+    *** to the specified value (ie. has not since been replaced)
+    *** @param key    The key
+    *** @param value  The expected value
+    *** @return True if the entry was removed
+    **/
+    public boolean remove(K key, V value)
+    {
+        Segment<K,V> seg = this._getSegment(key);
+        synchronized (seg) {
+            if (seg.get(key) == value) {
+                seg.remove(key);
+                return true;
+            } else {
+                return false;
+            }
+        }
+    }
+
+    /**
+    *** Removes all entries accepted by the specified matcher
+    *** @param matcher  The entry matcher
+    *** @return The number of removed entries
+    **/
+    public int removeMatching(CacheMap.Matcher<K,V> matcher)
+    {
+        int count = 0;
+        for (int s = 0; s < this.segments.length; s++) {
+            Segment<K,V> seg = this.segments[s];
+            synchronized (seg) {
+                for (Iterator<Map.Entry<K,V>> i = seg.entrySet().iterator(); i.hasNext();) {
+                    Map.Entry<K,V> e = i.next();
+                    if (matcher.matches(e.getKey(), e.getValue())) {
+                        i.remove();
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+    *** Copies the entries accepted by the specified matcher into the specified map
+    *** (the relative order of entries is not retained)
+    *** @param map      The map into which the entries are copied
+    *** @param matcher  The entry matcher (null to copy all entries)
+    *** @return The number of copied entries
+    **/
+    public int copyEntries(Map<K,V> map, CacheMap.Matcher<K,V> matcher)
+    {
+        int count = 0;
+        for (int s = 0; s < this.segments.length; s++) {
+            Segment<K,V> seg = this.segments[s];
+            synchronized (seg) {
+                for (Map.Entry<K,V> e : seg.entrySet()) {
+                    if ((matcher == null) || matcher.matches(e.getKey(), e.getValue())) {
+                        map.put(e.getKey(), e.getValue());
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+    *** Removes all entries
+    **/
+    public void clear()
+    {
+        for (int s = 0; s < this.segments.length; s++) {
+            Segment<K,V> seg = this.segments[s];
+            synchronized (seg) {
+                seg.clear();
+            }
+        }
+    }
+
+    /**
+    *** Gets the number of entries
+    *** @return The number of entries
+    **/
+    public int size()
+    {
+        int size = 0;
+        for (int s = 0; s < this.segments.length; s++) {
+            Segment<K,V> seg = this.segments[s];
+            synchronized (seg) {
+                size += seg.size();
+            }
+        }
+        return size;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Gets the number of entries evicted due to the maximum size limit
+    **/
+    public long getEvictionCount()
+    {
+        return this.evictCount.get();
+    }
+
+    /**
+    *** Returns a String representation of this map
+    *** @return A String representation of this map
+    **/
+    public String toString()
+    {
+        StringBuffer sb = new StringBuffer();
+        sb.append("size=").append(this.size());
+        sb.append(", max=").append(this.getMaximumSize());
+        sb.append(", evicted=").append(this.getEvictionCount());
+        return sb.toString();
+    }
+
+}
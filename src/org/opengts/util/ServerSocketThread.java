@@ -85,8 +85,11 @@
 package org.opengts.util;
 
 import java.io.*;
+import java.nio.*;
 import java.nio.channels.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.net.*;
 import java.awt.event.*;
 import javax.net.*;
@@ -130,6 +133,14 @@ public class ServerSocketThread
 
     public static final boolean     ACK_FROM_LISTEN_PORT                = true;
 
+    /* NIO transport */
+    private static final String     NIO_HANDLER_POOL_NAME               = "TcpNioHandler";
+    private static final int        NIO_HANDLER_POOL_SIZE               = 50;
+    private static final long       NIO_SELECT_TIMEOUT_MS               = 500L;
+    private static final int        NIO_READ_BUFFER_SIZE                = 8192;
+    private static final int        NIO_MAX_INBOUND_BYTES               = 256 * 1024;
+    private static final int        NIO_MAX_OUTBOUND_BYTES              = 1024 * 1024;
+
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
@@ -195,6 +206,31 @@ public class ServerSocketThread
 
     // ------------------------------------------------------------------------
 
+    /* number of NIO selector threads (0 = use blocking thread-per-session transport) */
+    private static      int         DefaultNioSelectorCount             = 0;
+
+    /**
+    *** Sets the default number of NIO selector threads used for TCP sessions.  A value
+    *** greater than zero causes "createServerSocket" to create channel-backed ServerSockets,
+    *** and enables the NIO selector transport for TCP ServerSocketThreads created afterward.
+    *** @param count  The number of NIO selector threads (0 to disable)
+    **/
+    public static void setDefaultNioSelectorCount(int count)
+    {
+        DefaultNioSelectorCount = (count > 0)? count : 0;
+    }
+
+    /**
+    *** Gets the default number of NIO selector threads used for TCP sessions
+    *** @return The default number of NIO selector threads (0 if disabled)
+    **/
+    public static int getDefaultNioSelectorCount()
+    {
+        return DefaultNioSelectorCount;
+    }
+
+    // ------------------------------------------------------------------------
+
     /**
     *** Returns an array of all local network interface addresses (excluding loopback)
     *** @return An array of all local network interface addresses
@@ -279,7 +315,14 @@ public class ServerSocketThread
     {
         InetAddress bind = (bindAddr != null)? bindAddr : ServerSocketThread.getDefaultBindAddress();
         try {
-            return new ServerSocket(port, ListenBacklog, bind);
+            if (DefaultNioSelectorCount > 0) {
+                // channel-backed ServerSocket (required by the NIO transport)
+                ServerSocketChannel ssc = ServerSocketChannel.open();
+                ssc.socket().bind(new InetSocketAddress(bind,port), ListenBacklog);
+                return ssc.socket();
+            } else {
+                return new ServerSocket(port, ListenBacklog, bind);
+            }
         } catch (IllegalArgumentException iae) {
             // IE. "Port value out of range"
             throw new IOException(iae);
@@ -442,6 +485,11 @@ public class ServerSocketThread
 
     private boolean                             LogEnable               = true;
 
+    private int                                 nioSelectorCount        = 0;
+    private NioSelectorThread                   nioSelectors[]          = null;
+    private ThreadPool                          nioHandlerPool          = null;
+    private AtomicInteger                       nioSessionCount         = new AtomicInteger(0);
+
     // ------------------------------------------------------------------------
 
     /**
@@ -454,6 +502,7 @@ public class ServerSocketThread
         this.clientThreadPool  = new Vector<ServerSessionThread>();
         this.activeSessionList = new Vector<ClientPacketHandler>();
         this.actionListeners   = new Vector<ActionListener>();
+        this.nioSelectorCount  = ServerSocketThread.getDefaultNioSelectorCount();
         _AddSST(this);
     }
     
@@ -614,6 +663,38 @@ public class ServerSocketThread
 
     // ------------------------------------------------------------------------
 
+    /**
+    *** Sets the number of NIO selector threads used for TCP sessions on this server.
+    *** Must be called before this thread is started.  The NIO transport is only used if
+    *** the TCP ServerSocket is channel-backed (see "setDefaultNioSelectorCount").
+    *** @param count  The number of NIO selector threads (0 to use a thread per session)
+    **/
+    public void setNioSelectorCount(int count)
+    {
+        this.nioSelectorCount = (count > 0)? count : 0;
+    }
+
+    /**
+    *** Gets the number of NIO selector threads used for TCP sessions on this server
+    *** @return The number of NIO selector threads (0 if disabled)
+    **/
+    public int getNioSelectorCount()
+    {
+        return this.nioSelectorCount;
+    }
+
+    /**
+    *** Returns true if TCP sessions on this server are handled by the NIO selector transport
+    *** @return True if TCP sessions are handled by the NIO selector transport
+    **/
+    public boolean isNioTransport()
+    {
+        return (this.nioSelectorCount > 0) && 
+            (this.serverSocket != null) && (this.serverSocket.getChannel() != null);
+    }
+
+    // ------------------------------------------------------------------------
+
     /**
     *** Run a test session from the specified input data array
     *** @param data  The test input data array
@@ -703,6 +784,14 @@ public class ServerSocketThread
     **/
     public void run() 
     {
+
+        /* NIO selector transport (TCP only) */
+        if (this.isNioTransport()) {
+            this._runNio();
+            _RemoveSST(this);
+            return;
+        }
+
         while (true) {
             ClientSocket clientSocket = null;
 
@@ -788,6 +877,70 @@ public class ServerSocketThread
 
     } // run()
 
+    /**
+    *** Accepts incoming TCP connections and dispatches them to the NIO selector threads
+    **/
+    private void _runNio()
+    {
+        ServerSocketChannel ssc = this.serverSocket.getChannel();
+
+        /* TCP session handler pool */
+        this.nioHandlerPool = new ThreadPool(NIO_HANDLER_POOL_NAME, NIO_HANDLER_POOL_SIZE);
+
+        /* start selector threads */
+        int selCount = this.getNioSelectorCount();
+        NioSelectorThread nst[] = new NioSelectorThread[selCount];
+        for (int i = 0; i < selCount; i++) {
+            try {
+                nst[i] = new NioSelectorThread(this.getName() + "_Selector_" + i);
+            } catch (IOException ioe) {
+                Print.logException("Unable to open NIO Selector", ioe);
+                for (int s = 0; s < i; s++) { nst[s].closeSelector(); }
+                return;
+            }
+        }
+        this.nioSelectors = nst;
+        for (int i = 0; i < nst.length; i++) {
+            nst[i].start();
+        }
+        if (LogEnable) { Print.logInfo("NIO transport enabled [selectors=" + selCount + "]"); }
+
+        /* accept loop */
+        for (int n = 0;; n++) {
+            SocketChannel sc = null;
+            try {
+                sc = ssc.accept(); // block until connection
+            } catch (ClosedChannelException cce) {
+                // shutdown support (includes AsynchronousCloseException)
+                int port = this.getLocalPort();
+                String portStr = (port <= 0)? "?" : String.valueOf(port);
+                if (LogEnable) { Print.logInfo("Shutdown TCP server on port " + portStr); }
+                break; // exit thread
+            } catch (IOException ioe) {
+                Print.logError("Connection - " + ioe);
+                continue; // go back and wait again
+            }
+            if (sc == null) {
+                continue;
+            }
+            try {
+                sc.configureBlocking(false);
+            } catch (IOException ioe) {
+                Print.logError("Connection - " + ioe);
+                try { sc.close(); } catch (IOException ce) { /* ignore */ }
+                continue;
+            }
+            NioSelectorThread sel = nst[(n & 0x7FFFFFFF) % nst.length];
+            sel.addSession(new NioSession(sel, sc));
+        }
+
+        /* stop selector threads (sessions are closed by "shutdown") */
+        for (int i = 0; i < nst.length; i++) {
+            nst[i].signalShutdown();
+        }
+
+    }
+
     /**
     *** Shuts down the server 
     **/
@@ -807,6 +960,15 @@ public class ServerSocketThread
                 }
             }
 
+            /* shutdown all NIO sessions */
+            if (this.nioSelectors != null) {
+                for (int i = 0; i < this.nioSelectors.length; i++) {
+                    if (this.nioSelectors[i] != null) {
+                        this.nioSelectors[i].signalShutdown();
+                    }
+                }
+            }
+
             /* wait for client handler threads to stop */
             long startMS = DateTime.getCurrentTimeMillis();
             boolean didTimeout = false;
@@ -816,6 +978,7 @@ public class ServerSocketThread
                 synchronized (this.clientThreadPool) {
                     remainingThreads = this.clientThreadPool.size();
                 }
+                remainingThreads += this.nioSessionCount.get();
                 // all client threads stopped?
                 if (remainingThreads <= 0) {
                     // everything has stopped
@@ -3304,6 +3467,1106 @@ public class ServerSocketThread
         } // _readPacket(...)
 
     } // ServerSessionThread
+
+    // ------------------------------------------------------------------------
+    // ------------------------------------------------------------------------
+
+    private static long NioSession_counter = 0L;
+
+    /**
+    *** NioSelectorThread<br>
+    *** Performs all non-blocking reads/writes for the TCP sessions registered to it.
+    *** Packet framing and ClientPacketHandler callbacks are performed by the session
+    *** handler ThreadPool, one job at a time per session.
+    **/
+    private class NioSelectorThread
+        extends Thread
+    {
+
+        private Selector                            selector        = null;
+        private ByteBuffer                          readBuffer      = null;
+        private ConcurrentLinkedQueue<NioSession>   pendingAdd      = new ConcurrentLinkedQueue<NioSession>();
+        private ConcurrentLinkedQueue<NioSession>   pendingUpdate   = new ConcurrentLinkedQueue<NioSession>();
+        private java.util.List<NioSession>          sessions        = new ArrayList<NioSession>(); // selector thread only
+        private volatile boolean                    shutdown        = false;
+
+        public NioSelectorThread(String name) throws IOException {
+            super(name);
+            this.selector   = Selector.open();
+            this.readBuffer = ByteBuffer.allocateDirect(NIO_READ_BUFFER_SIZE);
+        }
+
+        // --------------------------------------------------------------------
+
+        /* add a newly accepted session */
+        public void addSession(NioSession ns) {
+            ServerSocketThread.this.nioSessionCount.incrementAndGet();
+            this.pendingAdd.add(ns);
+            this.selector.wakeup();
+        }
+
+        /* request that the session interest-ops be recalculated */
+        public void updateSession(NioSession ns) {
+            this.pendingUpdate.add(ns);
+            this.selector.wakeup();
+        }
+
+        /* signal all sessions to terminate, and stop this thread */
+        public void signalShutdown() {
+            this.shutdown = true;
+            this.selector.wakeup();
+        }
+
+        public void closeSelector() {
+            try { this.selector.close(); } catch (IOException ioe) { /* ignore */ }
+        }
+
+        // --------------------------------------------------------------------
+
+        public void run() {
+            boolean shutdownSent = false;
+            for (;;) {
+
+                /* register new sessions */
+                for (NioSession ns = this.pendingAdd.poll(); ns != null; ns = this.pendingAdd.poll()) {
+                    this.sessions.add(ns);
+                    try {
+                        ns.register(this.selector);
+                    } catch (IOException ioe) {
+                        Print.logError("NIO register error - " + ioe);
+                        ns.setEndOfStream(ioe);
+                    }
+                    ns.schedule(); // session start
+                }
+
+                /* update interest ops */
+                for (NioSession ns = this.pendingUpdate.poll(); ns != null; ns = this.pendingUpdate.poll()) {
+                    ns.updateInterestOps();
+                }
+
+                /* shutdown */
+                if (this.shutdown) {
+                    if (!shutdownSent) {
+                        for (NioSession ns : this.sessions) {
+                            ns.signalShutdown();
+                        }
+                        shutdownSent = true;
+                    }
+                    if (this.sessions.isEmpty() && this.pendingAdd.isEmpty()) {
+                        break;
+                    }
+                }
+
+                /* wait for socket activity */
+                try {
+                    this.selector.select(NIO_SELECT_TIMEOUT_MS);
+                } catch (ClosedSelectorException cse) {
+                    break;
+                } catch (IOException ioe) {
+                    Print.logError("NIO select error - " + ioe);
+                }
+
+                /* process ready channels */
+                Iterator<SelectionKey> ki = this.selector.selectedKeys().iterator();
+                while (ki.hasNext()) {
+                    SelectionKey key = ki.next();
+                    ki.remove();
+                    NioSession ns = (NioSession)key.attachment();
+                    try {
+                        if (key.isValid() && key.isReadable()) {
+                            ns.selectorRead(this.readBuffer);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            ns.selectorWrite();
+                        }
+                    } catch (CancelledKeyException cke) {
+                        ns.setEndOfStream(null);
+                    }
+                }
+
+                /* check timeouts, remove closed sessions */
+                long nowMS = DateTime.getCurrentTimeMillis();
+                for (Iterator<NioSession> si = this.sessions.iterator(); si.hasNext();) {
+                    NioSession ns = si.next();
+                    if (ns.isClosed()) {
+                        si.remove();
+                        ServerSocketThread.this.nioSessionCount.decrementAndGet();
+                    } else {
+                        ns.checkTimeouts(nowMS);
+                    }
+                }
+
+            }
+            this.closeSelector();
+        }
+
+    } // NioSelectorThread
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** NioSession<br>
+    *** A single non-blocking TCP client session.  Bytes read by the selector thread are
+    *** buffered here, then framed into packets (using the same rules as the blocking
+    *** "ServerSessionThread") and passed to the ClientPacketHandler by the handler pool.
+    **/
+    private class NioSession
+        implements SessionInfo, Runnable
+    {
+
+        private NioSelectorThread    selThread          = null;
+        private SocketChannel        channel            = null;
+        private SelectionKey         key                = null;
+        private ClientPacketHandler  clientHandler      = null;
+        private InetAddress          inetAddr           = null;
+        private int                  remotePort         = -1;
+
+        private Object               inLock             = new Object();
+        private byte                 inBuff[]           = new byte[1024];
+        private int                  inLen              = 0;
+        private boolean              readPaused         = false;
+        private boolean              eos                = false;
+        private IOException          readError          = null;
+        private boolean              timeoutPending     = false;
+        private boolean              interruptPending   = false;
+        private boolean              shutdownPending    = false;
+        private boolean              sessionTmoPending  = false;
+        private boolean              scheduled          = false;
+        private boolean              started            = false;
+        private volatile boolean     terminated         = false;
+
+        private Object               writeLock          = new Object();
+        private LinkedList<ByteBuffer> outQueue         = new LinkedList<ByteBuffer>();
+        private int                  outQueueBytes      = 0;
+        private boolean              closeAfterFlush    = false;
+        private long                 closeRequestMS     = 0L;
+
+        private long                 sessionStartTimeMS = 0L;
+        private long                 sessionStartTime   = 0L;
+        private volatile long        sessionReceiveTime = 0L;
+        private long                 sessionTimeoutAt   = -1L;
+        private volatile long        readStartMS        = 0L;  // start of wait for next packet
+        private volatile long        packetStartMS      = 0L;  // first byte of current packet (0 if none)
+        private long                 lastInterruptMS    = 0L;
+
+        private volatile long        readByteCount      = 0L;
+        private volatile long        writeByteCount     = 0L;
+        private int                  promptIndex        = 0;
+        private String               threadName         = null;
+
+        // packet framing state (handler pool only)
+        private byte                 packet[]           = null;
+        private int                  packetLen          = 0;
+        private int                  actualLen          = 0;
+        private int                  minLen             = 0;
+        private int                  maxLen             = 0;
+        private byte                 pktTerm[]          = null;
+        private int                  pktState           = 0;
+        private boolean              breakOnLineTerm    = false;
+        private boolean              incrementOnLineTerm= false;
+        private boolean              failOnEOS          = true;
+        private boolean              streamPacket       = false; // PACKET_LEN_END_OF_STREAM
+        private int                  chunkRemaining     = 0;
+
+        public NioSession(NioSelectorThread sel, SocketChannel sc) {
+            this.selThread          = sel;
+            this.channel            = sc;
+            this.threadName         = "NioSession_" + StringTools.format(NioSession_counter++,"000").trim();
+            this.sessionStartTimeMS = DateTime.getCurrentTimeMillis();
+            this.sessionStartTime   = DateTime.getCurrentTimeSec();
+            this.readStartMS        = this.sessionStartTimeMS;
+            this.sessionTimeoutAt   = ServerSocketThread.this.hasSessionTimeout()?
+                (this.sessionStartTimeMS + ServerSocketThread.this.getSessionTimeout()) : -1L;
+            Socket sock = sc.socket();
+            this.inetAddr           = sock.getInetAddress();
+            this.remotePort         = sock.getPort();
+        }
+
+        // --------------------------------------------------------------------
+        // SessionInfo interface
+
+        public Thread getSessionThread() {
+            return this.selThread;
+        }
+
+        public long getSessionStartTimeMS() {
+            return this.sessionStartTimeMS;
+        }
+
+        public long getSessionStartTime() {
+            return this.sessionStartTime;
+        }
+
+        public long getSessionReceiveTime() {
+            return this.sessionReceiveTime;
+        }
+
+        public int getLocalPort() {
+            return ServerSocketThread.this.getLocalPort();
+        }
+
+        public boolean isTCP() {
+            return true;
+        }
+
+        public boolean isUDP() {
+            return false;
+        }
+
+        public boolean isInputStream() {
+            return false;
+        }
+
+        public void forceCloseTCPSession() {
+            // closing the channel cancels the key, the session is then terminated as end-of-stream
+            this.closeChannel();
+            this.setEndOfStream(null);
+        }
+
+        public int getAvailableBytes() {
+            int avail = 0;
+            synchronized (this.inLock) {
+                avail = this.inLen;
+            }
+            return avail + this.chunkRemaining;
+        }
+
+        public InetAddress getInetAddress() {
+            return this.inetAddr;
+        }
+
+        public int getRemotePort() {
+            int rPort = ServerSocketThread.this.getRemotePort(); // likely always '0'
+            return (rPort > 0)? rPort : this.remotePort;
+        }
+
+        public boolean tcpWrite(byte data[]) {
+            // this is intended to be called by a external thread/handler
+            try {
+                return this._tcpWrite(data);
+            } catch (IOException ioe) {
+                return false;
+            }
+        }
+
+        public boolean udpWrite(byte data[]) {
+            if (LogEnable) { Print.logInfo("UDP] Ignoring TCP write: 0x%s", StringTools.toHexString(data)); }
+            return false;
+        }
+
+        public long getReadByteCount() {
+            return this.readByteCount;
+        }
+
+        public long getWriteByteCount() {
+            return this.writeByteCount;
+        }
+
+        // --------------------------------------------------------------------
+        // selector thread
+
+        public void register(Selector selector) throws IOException {
+            this.key = this.channel.register(selector, SelectionKey.OP_READ, this);
+        }
+
+        public void selectorRead(ByteBuffer rb) {
+            int n;
+            rb.clear();
+            try {
+                n = this.channel.read(rb);
+            } catch (IOException ioe) {
+                this.setEndOfStream(ioe);
+                return;
+            }
+            if (n < 0) {
+                this.setEndOfStream(null);
+                return;
+            } else
+            if (n == 0) {
+                return;
+            }
+            rb.flip();
+            boolean pause = false;
+            synchronized (this.inLock) {
+                if ((this.inLen + n) > this.inBuff.length) {
+                    int newSize = this.inBuff.length * 2;
+                    while (newSize < (this.inLen + n)) { newSize *= 2; }
+                    byte newBuff[] = new byte[newSize];
+                    System.arraycopy(this.inBuff, 0, newBuff, 0, this.inLen);
+                    this.inBuff = newBuff;
+                }
+                rb.get(this.inBuff, this.inLen, n);
+                this.inLen += n;
+                if (this.inLen >= NIO_MAX_INBOUND_BYTES) {
+                    // handler is not keeping up, stop reading until it does
+                    this.readPaused = true;
+                    pause = true;
+                }
+            }
+            if (pause && this.key.isValid()) {
+                this.key.interestOps(this.key.interestOps() & ~SelectionKey.OP_READ);
+            }
+            this.schedule();
+        }
+
+        public void selectorWrite() {
+            boolean empty = false;
+            boolean close = false;
+            synchronized (this.writeLock) {
+                try {
+                    while (!this.outQueue.isEmpty()) {
+                        ByteBuffer bb = this.outQueue.getFirst();
+                        this.outQueueBytes -= this.channel.write(bb);
+                        if (bb.hasRemaining()) {
+                            break; // socket buffer is full
+                        }
+                        this.outQueue.removeFirst();
+                    }
+                } catch (IOException ioe) {
+                    Print.logError("writeBytes error - " + ioe);
+                    this.outQueue.clear();
+                    this.outQueueBytes = 0;
+                    close = true;
+                }
+                empty = this.outQueue.isEmpty();
+                if (empty && this.closeAfterFlush) {
+                    close = true;
+                }
+            }
+            if (close) {
+                this.closeChannel();
+                this.setEndOfStream(null);
+            } else
+            if (empty && this.key.isValid()) {
+                this.key.interestOps(this.key.interestOps() & ~SelectionKey.OP_WRITE);
+            }
+        }
+
+        public void updateInterestOps() {
+            if ((this.key == null) || !this.key.isValid()) {
+                return;
+            }
+            int ops = 0;
+            synchronized (this.inLock) {
+                if (!this.readPaused && !this.eos && !this.terminated) {
+                    ops |= SelectionKey.OP_READ;
+                }
+            }
+            boolean close = false;
+            synchronized (this.writeLock) {
+                if (!this.outQueue.isEmpty()) {
+                    ops |= SelectionKey.OP_WRITE;
+                } else
+                if (this.closeAfterFlush) {
+                    close = true;
+                }
+            }
+            if (close) {
+                this.closeChannel();
+            } else {
+                this.key.interestOps(ops);
+            }
+        }
+
+        public void checkTimeouts(long nowMS) {
+
+            /* linger on close */
+            synchronized (this.writeLock) {
+                if (this.closeAfterFlush) {
+                    long lingerMS = (long)ServerSocketThread.this.getLingerTimeoutSec() * 1000L;
+                    if ((nowMS - this.closeRequestMS) >= lingerMS) {
+                        this.outQueue.clear();
+                        this.outQueueBytes = 0;
+                        this.closeChannel();
+                    }
+                    return;
+                }
+            }
+
+            /* ignore timeouts while the handler is processing */
+            synchronized (this.inLock) {
+                if (this.scheduled || this.terminated || this.eos) {
+                    return;
+                }
+            }
+
+            /* session timeout */
+            boolean schedule = false;
+            if ((this.sessionTimeoutAt > 0L) && (nowMS >= this.sessionTimeoutAt)) {
+                synchronized (this.inLock) { this.sessionTmoPending = true; }
+                schedule = true;
+            } else {
+                /* packet/idle timeout */
+                long idleTimeoutMS = ServerSocketThread.this.getIdleTimeout();
+                long pcktTimeoutMS = ServerSocketThread.this.getPacketTimeout();
+                long pktStartMS    = this.packetStartMS;
+                long timeoutAtMS   = (idleTimeoutMS > 0L)? (this.readStartMS + idleTimeoutMS) : -1L;
+                if ((pktStartMS > 0L) && (pcktTimeoutMS > 0L)) {
+                    timeoutAtMS = pktStartMS + pcktTimeoutMS;
+                }
+                if (timeoutAtMS > 0L) {
+                    if (nowMS >= timeoutAtMS) {
+                        synchronized (this.inLock) { this.timeoutPending = true; }
+                        schedule = true;
+                    } else
+                    if (MinimumTimeoutIntervalMS > 0) {
+                        long lastMS = Math.max(Math.max(this.readStartMS, pktStartMS), this.lastInterruptMS);
+                        if ((nowMS - lastMS) >= MinimumTimeoutIntervalMS) {
+                            this.lastInterruptMS = nowMS;
+                            synchronized (this.inLock) { this.interruptPending = true; }
+                            schedule = true;
+                        }
+                    }
+                }
+            }
+            if (schedule) {
+                this.schedule();
+            }
+
+        }
+
+        public boolean isClosed() {
+            return this.terminated && !this.channel.isOpen();
+        }
+
+        // --------------------------------------------------------------------
+        // any thread
+
+        public void setEndOfStream(IOException ioe) {
+            synchronized (this.inLock) {
+                this.eos = true;
+                if ((ioe != null) && (this.readError == null)) {
+                    this.readError = ioe;
+                }
+            }
+            if ((this.key != null) && this.key.isValid()) {
+                try {
+                    this.key.interestOps(this.key.interestOps() & ~SelectionKey.OP_READ);
+                } catch (CancelledKeyException cke) {
+                    // ignore
+                }
+            }
+            this.schedule();
+        }
+
+        public void signalShutdown() {
+            synchronized (this.inLock) {
+                this.shutdownPending = true;
+            }
+            this.schedule();
+        }
+
+        public void schedule() {
+            boolean submit = false;
+            synchronized (this.inLock) {
+                if (!this.scheduled && !this.terminated) {
+                    this.scheduled = true;
+                    submit = true;
+                }
+            }
+            if (submit) {
+                ThreadPool pool = ServerSocketThread.this.nioHandlerPool;
+                if ((pool == null) || !pool.run(this)) {
+                    // handler pool is stopping, run in-line
+                    this.run();
+                }
+            }
+        }
+
+        public void closeChannel() {
+            try {
+                this.channel.close(); // also cancels key
+            } catch (IOException ioe) {
+                // ignore
+            }
+        }
+
+        // --------------------------------------------------------------------
+        // handler pool
+
+        public void run() {
+            for (;;) {
+
+                /* get pending bytes/events */
+                byte    chunk[]   = null;
+                int     chunkLen  = 0;
+                boolean atEOS     = false;
+                boolean timeout   = false;
+                boolean interrupt = false;
+                boolean shutdown  = false;
+                boolean sessTmo   = false;
+                boolean resume    = false;
+                IOException readErr = null;
+                synchronized (this.inLock) {
+                    if (this.terminated) {
+                        this.scheduled = false;
+                        return;
+                    }
+                    if (this.started && (this.inLen <= 0) && !this.eos && !this.timeoutPending && 
+                        !this.interruptPending && !this.shutdownPending && !this.sessionTmoPending) {
+                        this.scheduled = false;
+                        return;
+                    }
+                    if (this.inLen > 0) {
+                        chunk    = this.inBuff;
+                        chunkLen = this.inLen;
+                        this.inBuff = new byte[Math.min(chunk.length, NIO_READ_BUFFER_SIZE)];
+                        this.inLen  = 0;
+                    }
+                    atEOS     = this.eos;
+                    readErr   = this.readError;
+                    timeout   = this.timeoutPending;    this.timeoutPending    = false;
+                    interrupt = this.interruptPending;  this.interruptPending  = false;
+                    shutdown  = this.shutdownPending;
+                    sessTmo   = this.sessionTmoPending;
+                    if (this.readPaused) {
+                        this.readPaused = false;
+                        resume = true;
+                    }
+                }
+                if (resume) {
+                    this.selThread.updateSession(this);
+                }
+
+                /* process */
+                boolean   terminate = false;
+                Throwable termError = null;
+                try {
+
+                    /* start session */
+                    if (!this.started) {
+                        this.started = true;
+                        if (!this._startSession()) {
+                            terminate = true;
+                        }
+                    }
+
+                    /* frame/handle packets */
+                    if (!terminate && (chunk != null)) {
+                        for (int i = 0; i < chunkLen; i++) {
+                            this.chunkRemaining = chunkLen - i - 1;
+                            this.readByteCount++;
+                            if (this._frameByte(chunk[i] & 0xFF)) {
+                                if (!this._handlePacket(this._getPacket())) {
+                                    terminate = true;
+                                    break;
+                                }
+                            } else
+                            if (this.streamPacket && (this.packetLen >= this.actualLen)) {
+                                // PACKET_LEN_END_OF_STREAM with no more available bytes
+                                if (!this._handlePacket(this._getPacket())) {
+                                    terminate = true;
+                                    break;
+                                }
+                            }
+                        }
+                        this.chunkRemaining = 0;
+                    }
+
+                    /* idle timeout interrupt */
+                    if (!terminate && interrupt && (this.clientHandler != null)) {
+                        this.clientHandler.idleTimeoutInterrupt();
+                        if (this.clientHandler.getTerminateSession()) {
+                            terminate = true;
+                        }
+                    }
+
+                    /* read timeout */
+                    if (!terminate && timeout) {
+                        terminate = !this._readTimeout();
+                    }
+
+                    /* end of stream */
+                    if (!terminate && atEOS) {
+                        terminate = true;
+                        if ((readErr != null) && ((this.clientHandler == null) || !this.clientHandler.getTerminateSession())) {
+                            Print.logError("Connection closed");
+                            termError = readErr;
+                        } else {
+                            termError = this._endOfStream();
+                        }
+                    }
+
+                    /* shutdown */
+                    if (!terminate && shutdown) {
+                        terminate = true;
+                    }
+
+                    /* session timeout */
+                    if (!terminate && sessTmo) {
+                        throw new SSSessionTimeoutException("Session timeout");
+                    }
+
+                } catch (SSSessionTimeoutException ste) {
+                    Print.logWarn(ste.getMessage());
+                    termError = ste;
+                    terminate = true;
+                } catch (SSReadTimeoutException rte) {
+                    if (rte.getByteIndex() <= 0) {
+                        // timeout at normal packet boundry
+                        Print.logInfo(rte.getMessage());
+                    } else {
+                        // timeout within expected packet
+                        Print.logWarn(rte.getMessage());
+                        termError = rte;
+                    }
+                    terminate = true;
+                } catch (Throwable t) {
+                    Print.logException("?", t);
+                    termError = t;
+                    terminate = true;
+                }
+
+                /* terminate */
+                if (terminate) {
+                    this._endSession(termError, shutdown);
+                    synchronized (this.inLock) {
+                        this.scheduled = false;
+                    }
+                    return;
+                }
+
+            }
+        }
+
+        // --------------------------------------------------------------------
+
+        private boolean _startSession() throws Exception {
+
+            /* remote client IP address/port */
+            if (LogEnable) { Print.logInfo("Remote client port: " + this.inetAddr + ":" + this.remotePort + "[" + this.getLocalPort() + "]"); }
+
+            /* client session handler (creates new instance if necessary) */
+            this.clientHandler = ServerSocketThread.this.getClientPacketHandler();
+            if (this.clientHandler != null) {
+                this.clientHandler.setSessionInfo(this);
+                synchronized (ServerSocketThread.this.activeSessionList) {
+                    ServerSocketThread.this.activeSessionList.add(this.clientHandler);
+                }
+                this.clientHandler.sessionStarted(this.inetAddr, true, ServerSocketThread.this.isTextPackets());
+                if (this.clientHandler.getTerminateSession()) {
+                    return false;
+                }
+            }
+
+            /* write initial packet from server */
+            if (this.clientHandler != null) {
+                byte initialPacket[] = this.clientHandler.getInitialPacket(); // may be null
+                if ((initialPacket != null) && (initialPacket.length > 0)) {
+                    this._tcpWrite(initialPacket);
+                }
+            }
+
+            /* ready for first packet */
+            this._resetPacket();
+            this._writePrompt();
+            return true;
+
+        }
+
+        private boolean _handlePacket(byte line[]) throws IOException {
+
+            /* check for requested terminate */
+            if ((this.clientHandler != null) && this.clientHandler.getTerminateSession()) {
+                return false;
+            }
+
+            /* set receive time */
+            this.sessionReceiveTime = DateTime.getCurrentTimeSec();
+
+            /* send packet to listeners */
+            if (ServerSocketThread.this.hasListeners()) {
+                try {
+                    ServerSocketThread.this.invokeListeners(line);
+                } catch (Throwable t) {
+                    // a listener can terminate this session
+                    Print.logWarn("Listener terminated: " + t);
+                    return false;
+                }
+            }
+
+            /* handle packet, and get response */
+            if (this.clientHandler != null) {
+                try {
+                    byte response[] = this.clientHandler.getHandlePacket(line);
+                    if ((response != null) && (response.length > 0)) {
+                        if (LogEnable) {
+                            if (!StringTools.isPrintableASCII(response)) {
+                            Print.logInfo("TCP Resp Hex: 0x%s", StringTools.toHexString(response)); 
+                            }
+                            Print.logInfo("TCP Resp Asc: %s"  , StringTools.toStringValue(response,'.')); 
+                        }
+                        this._tcpWrite(response);
+                    }
+                    if (this.clientHandler.getTerminateSession()) {
+                        return false;
+                    }
+                } catch (Throwable t) {
+                    // the ClientPacketHandler can terminate this session
+                    Print.logException("Unexpected exception: ", t);
+                    return false;
+                }
+            }
+
+            /* check for shutdown request */
+            synchronized (this.inLock) {
+                if (this.shutdownPending) {
+                    return false;
+                }
+            }
+
+            /* ready for next packet */
+            this._writePrompt();
+            return true;
+
+        }
+
+        private boolean _readTimeout() throws IOException {
+            // returns false if the session should be terminated
+            int len = this.packetLen;
+            if (ServerSocketThread.this.isTextPackets() || this.failOnEOS) {
+                if (len > 0) {
+                    if (ServerSocketThread.this.isTextPackets()) {
+                        Print.logWarn("Timeout: " + StringTools.toStringValue(this.packet, 0, len));
+                    } else {
+                        Print.logWarn("Timeout: 0x" + StringTools.toHexString(this.packet, 0, len));
+                    }
+                }
+                if (ServerSocketThread.this.getTerminateOnTimeout()) {
+                    if (len <= 0) {
+                        throw new SSReadTimeoutException("Read timeout [empty packet]", len);
+                    } else {
+                        throw new SSReadTimeoutException("Read timeout [@ " + len + "]", len);
+                    }
+                }
+            }
+            // return what we've read so far
+            if (len > 0) {
+                return this._handlePacket(this._getPacket());
+            } else {
+                this._resetPacket();
+                return true;
+            }
+        }
+
+        private Throwable _endOfStream() throws IOException {
+            // returns the termination error (null if normal end-of-stream)
+            int len = this.packetLen;
+            if ((this.clientHandler != null) && this.clientHandler.getTerminateSession()) {
+                // session should be terminated (quietly fall through)
+                return null;
+            } else
+            if (!ServerSocketThread.this.isTextPackets() && !this.failOnEOS) {
+                // EOS was expected, return what bytes we've already read
+                if (len > 0) {
+                    this._handlePacket(this._getPacket());
+                }
+                return null;
+            } else
+            if (len <= 0) {
+                // end of stream at packet boundry
+                Print.logInfo("End of stream [empty packet]");
+                return null;
+            } else {
+                // end of stream within expected packet
+                if (ServerSocketThread.this.isTextPackets()) {
+                    Print.logWarn("EOS: (ASCII) " + StringTools.toStringValue(this.packet, 0, len));
+                } else {
+                    Print.logWarn("EOS: 0x" + StringTools.toHexString(this.packet, 0, len));
+                }
+                SSEndOfStreamException eos = new SSEndOfStreamException("End of stream [@ " + len + "]", len);
+                Print.logWarn(eos.getMessage());
+                return eos;
+            }
+        }
+
+        private void _endSession(Throwable termError, boolean shutdown) {
+
+            /* display end-of-session logging */
+            if (LogEnable) { 
+                long deltaMS = DateTime.getCurrentTimeMillis() - this.sessionStartTimeMS;
+                if ((this.clientHandler != null) && this.clientHandler.getTerminateSession()) {
+                    Print.logInfo("End of TCP session [" + deltaMS + " ms] (terminated) ..."); 
+                } else
+                if (termError != null) {
+                    Print.logInfo("End of TCP session [" + deltaMS + " ms] (error/warning) ..."); 
+                } else 
+                if (shutdown) {
+                    Print.logInfo("End of TCP session [" + deltaMS + " ms] (shutdown) ..."); 
+                } else {
+                    Print.logInfo("End of TCP session [" + deltaMS + " ms] (normal) ..."); 
+                }
+            }
+
+            /* client session terminated */
+            if (this.clientHandler != null) {
+                try {
+                    byte finalPacket[] = this.clientHandler.getFinalPacket(termError != null);
+                    if ((finalPacket != null) && (finalPacket.length > 0)) {
+                        this._tcpWrite(finalPacket);
+                    }
+                } catch (Throwable t) {
+                    Print.logException("Final packet transmission", t);
+                }
+                this.clientHandler.sessionTerminated(termError, this.readByteCount, this.writeByteCount);
+                synchronized (ServerSocketThread.this.activeSessionList) {
+                    ServerSocketThread.this.activeSessionList.remove(this.clientHandler);
+                }
+                // clear the session so that it doesn't hold on to an instance of this class
+                this.clientHandler.setSessionInfo(null);
+            }
+
+            /* close after pending output has been written (linger) */
+            synchronized (this.inLock) {
+                this.terminated = true;
+            }
+            synchronized (this.writeLock) {
+                this.closeAfterFlush = true;
+                this.closeRequestMS  = DateTime.getCurrentTimeMillis();
+            }
+            this.selThread.updateSession(this);
+
+        }
+
+        // --------------------------------------------------------------------
+
+        private boolean _tcpWrite(byte data[]) throws IOException {
+            if ((data == null) || (data.length <= 0)) {
+                return false;
+            }
+            boolean wakeup = false;
+            synchronized (this.writeLock) {
+                if (this.closeAfterFlush || !this.channel.isOpen()) {
+                    return false;
+                }
+                if ((this.outQueueBytes + data.length) > NIO_MAX_OUTBOUND_BYTES) {
+                    Print.logError("writeBytes error - outbound queue full");
+                    return false;
+                }
+                ByteBuffer bb = ByteBuffer.wrap(data);
+                if (this.outQueue.isEmpty()) {
+                    try {
+                        this.channel.write(bb);
+                    } catch (IOException ioe) {
+                        Print.logError("writeBytes error - " + ioe);
+                        throw ioe;
+                    }
+                    wakeup = bb.hasRemaining();
+                }
+                if (bb.hasRemaining()) {
+                    this.outQueue.add(bb);
+                    this.outQueueBytes += bb.remaining();
+                }
+                this.writeByteCount += data.length;
+            }
+            if (wakeup) {
+                // remaining bytes are written when the socket becomes writable
+                this.selThread.updateSession(this);
+            }
+            return true;
+        }
+
+        private void _writePrompt() throws IOException {
+            if (!ServerSocketThread.this.getPromptEnabled()) {
+                return; // disabled by ServerSocketThread
+            } else
+            if ((this.clientHandler != null) && !this.clientHandler.getPromptEnabled()) {
+                return; // disabled by ClientPacketHandler
+            }
+            byte prompt[] = ServerSocketThread.this.getPrompt(this.promptIndex++);
+            if ((prompt != null) && (prompt.length > 0)) {
+                this._tcpWrite(prompt);
+            }
+        }
+
+        // --------------------------------------------------------------------
+        // packet framing (see "ServerSessionThread._readLine"/"_readPacket")
+
+        private void _resetPacket() {
+            ClientPacketHandler ch = this.clientHandler;
+            int chMax = (ch != null)? ch.getMaximumPacketLength() : 0;
+            int chMin = (ch != null)? ch.getMinimumPacketLength() : 0;
+            this.maxLen              = (chMax > 0)? chMax : ServerSocketThread.this.getMaximumPacketLength();
+            this.minLen              = (chMin > 0)? chMin : ServerSocketThread.this.getMinimumPacketLength();
+            this.pktTerm             = ServerSocketThread.this.getPacketTerminatorPattern();
+            this.pktState            = 0;
+            this.actualLen           = 0;
+            this.breakOnLineTerm     = false;
+            this.incrementOnLineTerm = false;
+            this.failOnEOS           = true;
+            this.streamPacket        = false;
+            if ((this.packet == null) || (this.packet.length != this.maxLen)) {
+                this.packet = new byte[this.maxLen];
+            }
+            this.packetLen           = 0;
+            this.packetStartMS       = 0L;
+            this.readStartMS         = DateTime.getCurrentTimeMillis();
+        }
+
+        private byte[] _getPacket() {
+            byte p[] = new byte[this.packetLen];
+            System.arraycopy(this.packet, 0, p, 0, this.packetLen);
+            this._resetPacket();
+            return p;
+        }
+
+        private void _saveByte(int b) {
+            if (this.packetLen >= this.packet.length) { // overflow?
+                byte newPacket[] = new byte[this.packet.length * 2 + 1];
+                System.arraycopy(this.packet, 0, newPacket, 0, this.packetLen);
+                this.packet = newPacket;
+            }
+            this.packet[this.packetLen++] = (byte)b;
+        }
+
+        /* returns true if a packet has been completed */
+        private boolean _frameByte(int ch) {
+
+            /* packet timeout starts at first byte */
+            if (this.packetStartMS <= 0L) {
+                this.packetStartMS = DateTime.getCurrentTimeMillis();
+            }
+
+            /* ASCII: read until packet EOL */
+            if (ServerSocketThread.this.isTextPackets()) {
+                if (ServerSocketThread.this.isLineTerminatorChar(ch)) {
+                    // end of line/packet
+                    if (ServerSocketThread.this.includePacketLineTerminator()) {
+                        this._saveByte(ch);
+                    }
+                    return true;
+                } else
+                if (ServerSocketThread.this.isIgnoreChar(ch)) {
+                    return false; // ignore this character (typically '\r')
+                } else
+                if (ServerSocketThread.this.isBackspaceChar(ch)) {
+                    if (this.packetLen > 0) {
+                        this.packetLen--;
+                    }
+                    return false;
+                } else
+                if ((ch < ' ') && (ch != '\t')) {
+                    return false; // ignore non-printable characters
+                }
+                this._saveByte(ch);
+                return ((this.maxLen > 0) && (this.packetLen >= this.maxLen));
+            }
+
+            /* Binary: look for line terminator? */
+            if (this.breakOnLineTerm) {
+                if (ServerSocketThread.this.isLineTerminatorChar(ch)) {
+                    if (ServerSocketThread.this.includePacketLineTerminator()) {
+                        this._saveByte(ch);
+                    }
+                    return true;
+                } else
+                if (ServerSocketThread.this.isIgnoreChar(ch)) {
+                    return false;
+                }
+            }
+            this._saveByte(ch);
+
+            /* already read maximum allowed bytes? */
+            if (this.packetLen >= this.maxLen) {
+                return true;
+            }
+
+            /* do we have a specified packet length? */
+            if (this.actualLen > 0) {
+                return (this.packetLen >= this.actualLen);
+            }
+
+            /* check pattern matching */
+            if (this.pktTerm != null) {
+                if (this.pktTerm[this.pktState] == (byte)ch) {
+                    this.pktState++;
+                    if (this.pktState >= this.pktTerm.length) {
+                        return true;
+                    }
+                } else {
+                    this.pktState = 0;
+                }
+            }
+
+            /* scan for incremental line-terminator? */
+            if (this.incrementOnLineTerm && ServerSocketThread.this.isLineTerminatorChar(ch)) {
+                this.incrementOnLineTerm = false;
+                this.minLen = this.packetLen;
+            }
+
+            /* have we met the minimum length? */
+            if ((this.packetLen < this.minLen) || (this.clientHandler == null)) {
+                return false;
+            }
+
+            /* get the actual/next expected packet length */
+            int     newPktLen  = this.clientHandler.getActualPacketLength(this.packet, this.packetLen);
+            boolean haveActual = ((newPktLen >= 0) && (newPktLen < PACKET_LEN_INCREMENTAL_MASK));
+            int     nextLen    = (newPktLen < 0)? newPktLen : (newPktLen & PACKET_LEN_INCREMENTAL_MASK);
+            if (this.clientHandler.getTerminateSession()) {
+                return true;
+            }
+
+            /* actual packet length specified? */
+            if (haveActual) {
+                if (nextLen == this.packetLen) {
+                    this.actualLen = this.packetLen;
+                    return true;
+                } else
+                if (nextLen < this.packetLen) {
+                    Print.logError("Actual length ["+nextLen+"] < Packet length ["+this.packetLen+"]");
+                    this.actualLen = this.packetLen;
+                    return true;
+                } else
+                if (nextLen > this.maxLen) {
+                    Print.logError("Actual length ["+nextLen+"] > Maximum length ["+this.maxLen+"]");
+                    this.actualLen = this.maxLen;
+                    return false;
+                } else {
+                    this.actualLen = nextLen;
+                    return false;
+                }
+            }
+
+            /* special case packet termination */
+            if (nextLen == PACKET_LEN_LINE_TERMINATOR) { // "-1"
+                if (ServerSocketThread.this.isLineTerminatorChar(ch)) {
+                    // last byte was already a line terminator
+                    if (!ServerSocketThread.this.includePacketLineTerminator()) {
+                        this.packetLen--; // remove terminator
+                    }
+                    this.actualLen = this.packetLen;
+                    return true;
+                } else {
+                    this.breakOnLineTerm = true;
+                    this.actualLen = this.maxLen; // continue until line-term
+                    return false;
+                }
+            } else
+            if (nextLen <= PACKET_LEN_END_OF_STREAM) { // "-2" (and default)
+                // read only what is currently available in the stream
+                this.actualLen = Math.min(this.packetLen + this.getAvailableBytes(), this.maxLen);
+                this.failOnEOS = false;
+                this.streamPacket = true;
+                return (this.packetLen >= this.actualLen);
+            }
+
+            /* INCREMENTAL read */
+            if (nextLen == PACKET_LEN_INCREMENTAL_MASK) {
+                this.incrementOnLineTerm = true;
+                this.minLen = this.maxLen;
+            } else
+            if (nextLen > this.maxLen) {
+                Print.logWarn("Incremental length ["+nextLen+"] > Maximum length ["+this.maxLen+"]");
+                this.minLen = this.maxLen;
+            } else {
+                this.minLen = (nextLen > this.packetLen)? nextLen : (this.packetLen + 1);
+            }
+            return false;
+
+        }
+
+    } // NioSession
     
     // ------------------------------------------------------------------------
     
@@ -1808,7 +1808,11 @@ public class StringTools
     **/
     public static double parseDouble(String data, double dft)
     {
-        return StringTools.parseDouble(new FilterNumber(data, Double.class), dft);
+        if (StringTools._isPlainDecimal(data)) {
+            return StringTools._parseDecimalDouble(null, data, 0, data.length(), dft);
+        } else {
+            return StringTools.parseDouble(new FilterNumber(data, Double.class), dft);
+        }
     }
 
     /**
@@ -2040,7 +2044,11 @@ public class StringTools
     **/
     public static long parseLong(String data, long dft)
     {
-        return StringTools.parseLong(new FilterNumber(data, Long.class), dft);
+        if (StringTools._isPlainDecimal(data)) {
+            return StringTools._parseDecimalLong(null, data, 0, data.length(), dft);
+        } else {
+            return StringTools.parseLong(new FilterNumber(data, Long.class), dft);
+        }
     }
 
     /**
@@ -2197,7 +2205,11 @@ public class StringTools
     **/
     public static int parseInt(String data, int dft)
     {
-        return StringTools.parseInt(new FilterNumber(data, Integer.class), dft);
+        if (StringTools._isPlainDecimal(data)) {
+            return (int)StringTools._parseDecimalLong(null, data, 0, data.length(), (long)dft);
+        } else {
+            return StringTools.parseInt(new FilterNumber(data, Integer.class), dft);
+        }
     }
 
     /**
@@ -2483,6 +2495,215 @@ public class StringTools
         }
     }
 
+    // ------------------------------------------------------------------------
+    // Allocation-free decimal parsing
+    //  These methods parse the same decimal formats as "parseDouble(String,double)",
+    //  "parseLong(String,long)", and "parseInt(String,int)" (leading whitespace, optional
+    //  '+' and/or '-' sign, decimal digits, and for double values an optional decimal
+    //  point followed by fraction digits, ignoring any trailing characters), directly
+    //  from a range of a CharSequence or byte array, without creating intermediate 
+    //  objects.  Hex ("0x...") values are not supported by these methods.
+
+    private static final double POW10[] = {
+        1e0 , 1e1 , 1e2 , 1e3 , 1e4 , 1e5 , 1e6 , 1e7 , 1e8 , 1e9 , 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    /* return the character at the specified index of the byte array, or CharSequence */
+    private static int _charAt(byte b[], CharSequence cs, int ndx)
+    {
+        return (b != null)? ((int)b[ndx] & 0xFF) : (int)cs.charAt(ndx);
+    }
+
+    /* parse decimal long from the byte array, or CharSequence */
+    private static long _parseDecimalLong(byte b[], CharSequence cs, int start, int end, long dft)
+    {
+        int p = start;
+        while ((p < end) && Character.isWhitespace(_charAt(b,cs,p))) { p++; }
+        if ((p < end) && (_charAt(b,cs,p) == '+')) { p++; }
+        boolean neg = (p < end) && (_charAt(b,cs,p) == '-');
+        if (neg) { p++; }
+        int  ds  = p;
+        long val = 0L;
+        for (; p < end; p++) {
+            int ch = _charAt(b,cs,p);
+            if ((ch < '0') || (ch > '9')) { break; }
+            val = (val * 10L) + (long)(ch - '0'); // retains low order bits on overflow
+        }
+        if (p == ds) {
+            // no digits
+            return dft;
+        }
+        return neg? -val : val;
+    }
+
+    /* parse decimal double from the byte array, or CharSequence */
+    private static double _parseDecimalDouble(byte b[], CharSequence cs, int start, int end, double dft)
+    {
+        int p = start;
+        while ((p < end) && Character.isWhitespace(_charAt(b,cs,p))) { p++; }
+        if ((p < end) && (_charAt(b,cs,p) == '+')) { p++; }
+        int  ns = p; // start of number (including sign)
+        boolean neg = (p < end) && (_charAt(b,cs,p) == '-');
+        if (neg) { p++; }
+        long    mant      = 0L;
+        int     sigDigits = 0;
+        int     fracDigits= 0;
+        boolean digits    = false;
+        boolean decPoint  = false;
+        for (; p < end; p++) {
+            int ch = _charAt(b,cs,p);
+            if ((ch >= '0') && (ch <= '9')) {
+                digits = true;
+                if ((sigDigits > 0) || (ch != '0')) { sigDigits++; }
+                if (sigDigits <= 18) { mant = (mant * 10L) + (long)(ch - '0'); }
+                if (decPoint) { fracDigits++; }
+            } else
+            if ((ch == '.') && !decPoint) {
+                decPoint = true;
+            } else {
+                break;
+            }
+        }
+        if (!digits) {
+            // no digits
+            return dft;
+        } else
+        if ((sigDigits <= 15) && (fracDigits < POW10.length)) {
+            // mantissa and power-of-ten are exact, the quotient is correctly rounded
+            double val = (double)mant / POW10[fracDigits];
+            return neg? -val : val;
+        } else {
+            // too many digits for an exact result, defer to Double.parseDouble
+            try {
+                String num = (b != null)? 
+                    StringTools.toStringValue(b, ns, p - ns) : 
+                    cs.subSequence(ns, p).toString();
+                return Double.parseDouble(num);
+            } catch (NumberFormatException nfe) {
+                return dft;
+            }
+        }
+    }
+
+    /**
+    *** Parse the decimal value within the specified range of a CharSequence into a long value
+    *** @param data  The CharSequence to parse
+    *** @param start The start index of the range
+    *** @param end   The end index (exclusive) of the range
+    *** @param dft   The default long value if unable to parse the specified range
+    *** @return The parsed long value
+    **/
+    public static long parseDecimalLong(CharSequence data, int start, int end, long dft)
+    {
+        if ((data == null) || (start < 0) || (end > data.length()) || (start >= end)) {
+            return dft;
+        } else {
+            return StringTools._parseDecimalLong(null, data, start, end, dft);
+        }
+    }
+
+    /**
+    *** Parse the decimal value within the specified range of a byte array into a long value
+    *** @param data  The byte array (ASCII characters) to parse
+    *** @param start The start index of the range
+    *** @param end   The end index (exclusive) of the range
+    *** @param dft   The default long value if unable to parse the specified range
+    *** @return The parsed long value
+    **/
+    public static long parseDecimalLong(byte data[], int start, int end, long dft)
+    {
+        if ((data == null) || (start < 0) || (end > data.length) || (start >= end)) {
+            return dft;
+        } else {
+            return StringTools._parseDecimalLong(data, null, start, end, dft);
+        }
+    }
+
+    /**
+    *** Parse the decimal value within the specified range of a CharSequence into an int value
+    *** @param data  The CharSequence to parse
+    *** @param start The start index of the range
+    *** @param end   The end index (exclusive) of the range
+    *** @param dft   The default int value if unable to parse the specified range
+    *** @return The parsed int value
+    **/
+    public static int parseDecimalInt(CharSequence data, int start, int end, int dft)
+    {
+        return (int)StringTools.parseDecimalLong(data, start, end, (long)dft);
+    }
+
+    /**
+    *** Parse the decimal value within the specified range of a byte array into an int value
+    *** @param data  The byte array (ASCII characters) to parse
+    *** @param start The start index of the range
+    *** @param end   The end index (exclusive) of the range
+    *** @param dft   The default int value if unable to parse the specified range
+    *** @return The parsed int value
+    **/
+    public static int parseDecimalInt(byte data[], int start, int end, int dft)
+    {
+        return (int)StringTools.parseDecimalLong(data, start, end, (long)dft);
+    }
+
+    /**
+    *** Parse the decimal value within the specified range of a CharSequence into a double value
+    *** @param data  The CharSequence to parse
+    *** @param start The start index of the range
+    *** @param end   The end index (exclusive) of the range
+    *** @param dft   The default double value if unable to parse the specified range
+    *** @return The parsed double value
+    **/
+    public static double parseDecimalDouble(CharSequence data, int start, int end, double dft)
+    {
+        if ((data == null) || (start < 0) || (end > data.length()) || (start >= end)) {
+            return dft;
+        } else {
+            return StringTools._parseDecimalDouble(null, data, start, end, dft);
+        }
+    }
+
+    /**
+    *** Parse the decimal value within the specified range of a byte array into a double value
+    *** @param data  The byte array (ASCII characters) to parse
+    *** @param start The start index of the range
+    *** @param end   The end index (exclusive) of the range
+    *** @param dft   The default double value if unable to parse the specified range
+    *** @return The parsed double value
+    **/
+    public static double parseDecimalDouble(byte data[], int start, int end, double dft)
+    {
+        if ((data == null) || (start < 0) || (end > data.length) || (start >= end)) {
+            return dft;
+        } else {
+            return StringTools._parseDecimalDouble(data, null, start, end, dft);
+        }
+    }
+
+    /**
+    *** Returns true if the specified String can be parsed by the allocation-free decimal
+    *** parsers (ie. it is not a hex value, and contains only ASCII characters)
+    **/
+    private static boolean _isPlainDecimal(String data)
+    {
+        if (data == null) {
+            return false;
+        }
+        int len = data.length(), p = 0;
+        while ((p < len) && Character.isWhitespace(data.charAt(p))) { p++; }
+        if (((p + 1) < len) && (data.charAt(p) == '0') && ((data.charAt(p + 1) == 'x') || (data.charAt(p + 1) == 'X'))) {
+            // hex value
+            return false;
+        }
+        for (; p < len; p++) {
+            if (data.charAt(p) >= 0x80) {
+                // may contain non-ASCII digits
+                return false;
+            }
+        }
+        return true;
+    }
+
     // ------------------------------------------------------------------------
 
     /**
@@ -39,9 +39,14 @@
 package org.opengts.util;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
-*** Thread pool manager
+*** Thread pool manager.<br>
+*** Jobs are executed by a <code>java.util.concurrent.ThreadPoolExecutor</code>.  When a
+*** maximum queue size has been specified, the action taken when the queue is full is
+*** determined by the <code>RejectionPolicy</code> (property "rejectionPolicy").
 **/
 
 public class ThreadPool
@@ -60,6 +65,26 @@ public class ThreadPool
 
     // ------------------------------------------------------------------------
 
+    /**
+    *** Action taken when a job is submitted and the queue is full
+    **/
+    public enum RejectionPolicy {
+        REJECT,         // "run" returns false (default)
+        BLOCK,          // caller waits until space is available in the queue
+        CALLER_RUNS,    // job is run in the calling thread
+        DROP_OLDEST;    // oldest queued job is discarded
+        public static RejectionPolicy parse(String v, RejectionPolicy dft) {
+            String p = StringTools.trim(v).replace("_","");
+            if (p.equalsIgnoreCase("reject")     ) { return REJECT;      }
+            if (p.equalsIgnoreCase("block")      ) { return BLOCK;       }
+            if (p.equalsIgnoreCase("callerRuns") ) { return CALLER_RUNS; }
+            if (p.equalsIgnoreCase("dropOldest") ) { return DROP_OLDEST; }
+            return dft;
+        }
+    };
+
+    // ------------------------------------------------------------------------
+
     private static boolean                globalStopThreadsNow = false;
     private static Map<ThreadPool,String> threadPoolList       = new WeakHashMap<ThreadPool,String>();
 
@@ -157,6 +182,11 @@ public class ThreadPool
                     sb.append("Active="      ).append(active  ).append("  ");
                     sb.append("MaxQueueSize=").append(maxQSize).append("  ");
                     sb.append("QueueSize="   ).append(qSize   ).append("  ");
+                    sb.append("Completed="   ).append(tp.getCompletedCount()   ).append("  ");
+                    sb.append("Rejected="    ).append(tp.getRejectedCount()    ).append("  ");
+                    sb.append("AvgWaitMS="   ).append(tp.getAverageWaitMS()    ).append("  ");
+                    sb.append("MaxWaitMS="   ).append(tp.getMaximumWaitMS()    ).append("  ");
+                    sb.append("AvgRunMS="    ).append(tp.getAverageRunMS()     ).append("  ");
                     sb.append("\n");
                 }
             } else {
@@ -179,23 +209,28 @@ public class ThreadPool
     /* the maximum allowed idle time of a thread before it is removed from the pool */
     private long                        maxIdleAgeMS    = DFT_MAX_IDLE_AGE_MS;
 
-    /* the list of threads in this pool */
-    private java.util.List<ThreadJob>   jobThreadPool   = null;
-
-    /* the sequence id used for naming individual threads */
-    private int                         threadId        = 1;
+    /* the maximum number of waiting jobs (fixed once the executor has been started) */
+    private int                         maxQueueSize    = DFT_MAX_QUEUE_SIZE;
 
-    /* the list of yet-to-be-processed jobs */
-    private java.util.List<Runnable>    jobQueue        = null;
+    /* action taken when the queue is full */
+    private RejectionPolicy             rejectPolicy    = RejectionPolicy.REJECT;
 
-    /* the maximum number of waiting jobs (ie. in "jobQueue") */
-    private int                         maxQueueSize    = DFT_MAX_QUEUE_SIZE;
+    /* the sequence id used for naming individual threads */
+    private AtomicInteger               threadId        = new AtomicInteger(1);
 
-    /* semiphore used to indicate waiting for job */
-    private int                         waitingCount    = 0;
+    /* the job executor (created on first job) */
+    private volatile ThreadPoolExecutor executor        = null;
 
     /* true to gracefully stop/remove threads from this pool */
-    private int                         stopThreads     = STOP_NEVER;
+    private volatile int                stopThreads     = STOP_NEVER;
+
+    /* counters */
+    private AtomicLong                  submitCount     = new AtomicLong(0L);
+    private AtomicLong                  completeCount   = new AtomicLong(0L);
+    private AtomicLong                  rejectCount     = new AtomicLong(0L);
+    private AtomicLong                  totalWaitMS     = new AtomicLong(0L);
+    private AtomicLong                  maxWaitMS       = new AtomicLong(0L);
+    private AtomicLong                  totalRunMS      = new AtomicLong(0L);
 
     /**
     *** Constuctor
@@ -254,8 +289,6 @@ public class ThreadPool
         /* init vars */
         String groupName   = !StringTools.isBlank(name)? name.trim() : "ThreadPool";
         this.poolGroup     = new ThreadGroup(groupName);
-        this.jobThreadPool = new Vector<ThreadJob>();
-        this.jobQueue      = new Vector<Runnable>();
         this.stopThreads   = ThreadPool.globalStopThreadsNow? STOP_NOW : STOP_NEVER;
 
         /* set maxPoolSize/maxIdleSec */
@@ -264,9 +297,11 @@ public class ThreadPool
             //  ThreadPool.PoolName.maximumPoolSize=50
             //  ThreadPool.PoolName.maximumIdleSeconds=0
             //  ThreadPool.PoolName.maximumQueueSize=0
+            //  ThreadPool.PoolName.rejectionPolicy=reject|block|callerRuns|dropOldest
             this.setMaxPoolSize( propPfx_.rtSuffix("maximumPoolSize"   ), maxPoolSize );
             this.setMaxIdleSec(  propPfx_.rtSuffix("maximumIdleSeconds"), maxIdleSec  );
             this.setMaxQueueSize(propPfx_.rtSuffix("maximumQueueSize"  ), maxQueueSize);
+            this.setRejectionPolicy(propPfx_.rtSuffix("rejectionPolicy"), RejectionPolicy.REJECT);
         } else {
             this.setMaxPoolSize( maxPoolSize );
             this.setMaxIdleSec(  maxIdleSec  );
@@ -327,29 +362,18 @@ public class ThreadPool
     **/
     public int getActiveCount()
     {
-        int cnt = 0;
-        synchronized (this.jobThreadPool) {
-            for (ThreadJob tj : this.jobThreadPool) {
-                if (tj.isRunning()) {
-                    cnt++;
-                }
-            }
-        }
-        return cnt;
+        ThreadPoolExecutor tpe = this.executor;
+        return (tpe != null)? tpe.getActiveCount() : 0;
     }
 
-
     /**
     *** Gets the current size of this thread pool
     *** @return The number of thread jobs in this thread pool
     **/
     public int getPoolSize()
     {
-        int size = 0;
-        synchronized (this.jobThreadPool) {
-            size = this.jobThreadPool.size();
-        }
-        return size;
+        ThreadPoolExecutor tpe = this.executor;
+        return (tpe != null)? tpe.getPoolSize() : 0;
     }
 
     // ------------------------------------------------------------------------
@@ -361,6 +385,7 @@ public class ThreadPool
     public void setMaxPoolSize(int maxSize)
     {
         this.maxPoolSize = (maxSize > 0)? maxSize : DFT_POOL_SIZE;
+        this._updateExecutor();
     }
 
     /**
@@ -380,6 +405,7 @@ public class ThreadPool
         } else {
             this.maxPoolSize = DFT_POOL_SIZE;
         }
+        this._updateExecutor();
         Print.logDebug("["+this.getName()+"] ThreadPool 'maximumPoolSize': " + this.maxPoolSize);
     }
 
@@ -433,6 +459,7 @@ public class ThreadPool
     public void setMaxIdleMS(long maxIdleMS)
     {
         this.maxIdleAgeMS = (maxIdleMS >= 0L)? maxIdleMS : DFT_MAX_IDLE_AGE_MS;
+        this._updateExecutor();
     }
 
     /**
@@ -448,7 +475,8 @@ public class ThreadPool
     // ------------------------------------------------------------------------
 
     /**
-    *** Sets the maximum allowed number of waiting jobs (in "jobQueue")
+    *** Sets the maximum allowed number of waiting jobs.<br>
+    *** (has no effect once the first job has been submitted)
     *** @param maxQSize The maximum allowed number of waiting jobs
     **/
     public void setMaxQueueSize(int maxQSize)
@@ -457,7 +485,8 @@ public class ThreadPool
     }
 
     /**
-    *** Sets the maximum allowed number of waiting jobs (in "jobQueue")
+    *** Sets the maximum allowed number of waiting jobs.<br>
+    *** (has no effect once the first job has been submitted)
     *** @param propKey     The property key name to use for looking up the overriding 
     ***                    value in the runtime configuration properties.
     *** @param dftMaxQSize The maximum allowed number of waiting jobs
@@ -477,8 +506,8 @@ public class ThreadPool
     }
 
     /**
-    *** Gets the maximum allowed number of waiting jobs (in "jobQueue")
-    *** @return The maximum allowed number of waiting jobs (in "jobQueue")
+    *** Gets the maximum allowed number of waiting jobs
+    *** @return The maximum allowed number of waiting jobs
     **/
     public int getMaxQueueSize()
     {
@@ -487,9 +516,133 @@ public class ThreadPool
 
     // ------------------------------------------------------------------------
 
+    /**
+    *** Sets the action taken when a job is submitted and the queue is full
+    *** @param policy The RejectionPolicy
+    **/
+    public void setRejectionPolicy(RejectionPolicy policy)
+    {
+        this.rejectPolicy = (policy != null)? policy : RejectionPolicy.REJECT;
+    }
+
+    /**
+    *** Sets the action taken when a job is submitted and the queue is full
+    *** @param propKey    The property key name to use for looking up the overriding 
+    ***                   value in the runtime configuration properties.
+    *** @param dftPolicy  The default RejectionPolicy
+    **/
+    public void setRejectionPolicy(RTKey propKey, RejectionPolicy dftPolicy)
+    {
+        String propRp = (propKey != null)? RTConfig.getString(propKey.toString(),null) : null;
+        this.setRejectionPolicy(RejectionPolicy.parse(propRp, dftPolicy));
+        Print.logDebug("["+this.getName()+"] ThreadPool 'rejectionPolicy': " + this.rejectPolicy);
+    }
+
+    /**
+    *** Gets the action taken when a job is submitted and the queue is full
+    *** @return The RejectionPolicy
+    **/
+    public RejectionPolicy getRejectionPolicy()
+    {
+        return this.rejectPolicy;
+    }
+
+    // ------------------------------------------------------------------------
+
+    /**
+    *** Queued job wrapper, used to maintain the wait/run time counters
+    **/
+    private class ThreadJob
+        implements Runnable
+    {
+        private Runnable job       = null;
+        private long     queueTime = 0L;
+        public ThreadJob(Runnable job) {
+            this.job       = job;
+            this.queueTime = DateTime.getCurrentTimeMillis();
+        }
+        public void run() {
+            long startTime = DateTime.getCurrentTimeMillis();
+            long waitMS    = startTime - this.queueTime;
+            ThreadPool.this.totalWaitMS.addAndGet(waitMS);
+            for (;;) {
+                long max = ThreadPool.this.maxWaitMS.get();
+                if ((waitMS <= max) || ThreadPool.this.maxWaitMS.compareAndSet(max,waitMS)) { break; }
+            }
+            try {
+                this.job.run();
+            } catch (Throwable th) {
+                Print.logException("["+ThreadPool.this.getName()+"] ThreadPool job error", th);
+            } finally {
+                ThreadPool.this.totalRunMS.addAndGet(DateTime.getCurrentTimeMillis() - startTime);
+                ThreadPool.this.completeCount.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+    *** Gets (creating if necessary) the executor for this pool
+    **/
+    private ThreadPoolExecutor _getExecutor()
+    {
+        if (this.executor == null) {
+            synchronized (this) {
+                if (this.executor == null) {
+                    int maxQSize = this.getMaxQueueSize();
+                    BlockingQueue<Runnable> queue = (maxQSize > 0)?
+                        new LinkedBlockingQueue<Runnable>(maxQSize) :
+                        new LinkedBlockingQueue<Runnable>();
+                    ThreadFactory factory = new ThreadFactory() {
+                        public Thread newThread(Runnable r) {
+                            String tn = StringTools.format(ThreadPool.this.threadId.getAndIncrement(),"000").trim();
+                            Thread t  = new Thread(ThreadPool.this.getThreadGroup(), r, (ThreadPool.this.getName() + "_" + tn));
+                            Print.logDebug("New Thread: " + t.getName() + " [" + ThreadPool.this.getMaxPoolSize() + "]");
+                            return t;
+                        }
+                    };
+                    long keepAliveMS = (this.maxIdleAgeMS > 0L)? this.maxIdleAgeMS : Long.MAX_VALUE;
+                    ThreadPoolExecutor tpe = new ThreadPoolExecutor(
+                        this.maxPoolSize, this.maxPoolSize, 
+                        keepAliveMS, TimeUnit.MILLISECONDS, 
+                        queue, factory, new ThreadPoolExecutor.AbortPolicy());
+                    tpe.allowCoreThreadTimeOut(this.maxIdleAgeMS > 0L);
+                    this.executor = tpe;
+                }
+            }
+        }
+        return this.executor;
+    }
+
+    /**
+    *** Applies changed pool size/idle time to a running executor
+    **/
+    private void _updateExecutor()
+    {
+        ThreadPoolExecutor tpe = this.executor;
+        if (tpe != null) {
+            synchronized (this) {
+                if (this.maxPoolSize > tpe.getMaximumPoolSize()) {
+                    tpe.setMaximumPoolSize(this.maxPoolSize);
+                    tpe.setCorePoolSize(this.maxPoolSize);
+                } else {
+                    tpe.setCorePoolSize(this.maxPoolSize);
+                    tpe.setMaximumPoolSize(this.maxPoolSize);
+                }
+                if (this.maxIdleAgeMS > 0L) {
+                    tpe.setKeepAliveTime(this.maxIdleAgeMS, TimeUnit.MILLISECONDS);
+                    tpe.allowCoreThreadTimeOut(true);
+                } else {
+                    tpe.allowCoreThreadTimeOut(false);
+                }
+            }
+        }
+    }
+
     /**
     *** Adds a new job to the thread pool's queue
     *** @param job The job to add to the queue
+    *** @return True if the job was queued (or run, per RejectionPolicy CALLER_RUNS), 
+    ***         false if the job was rejected
     **/
     public boolean run(Runnable job)
     {
@@ -497,32 +650,49 @@ public class ThreadPool
             // ignore null jobs
             return false;
         } else
-        if (this.stopThreads == STOP_NOW) {
-            // ignore job if this ThreadPool is in the process of stopping now.
+        if (this.stopThreads != STOP_NEVER) {
+            // ignore job if this ThreadPool is in the process of stopping.
+            this.rejectCount.incrementAndGet();
             return false;
-        } else {
-            int maxQueueSize = this.getMaxQueueSize();
-            boolean addedJob = false;
-            synchronized (this.jobThreadPool) { // <-- modification of threadPool is likely
-                synchronized (this.jobQueue) { // <-- modification of job queue mandatory
-                    if ((maxQueueSize <= 0) || (this.jobQueue.size() < maxQueueSize)) {
-                        // It's possible that we may end up adding more threads than we need if this
-                        // section executes multiple times before the newly added thread has a chance 
-                        // to pull a job off the queue.
-                        this.jobQueue.add(job);
-                        if ((this.waitingCount == 0) && (this.jobThreadPool.size() < this.maxPoolSize)) {
-                            String    tn = StringTools.format(this.threadId++,"000").trim();
-                            ThreadJob tj = new ThreadJob(this, (this.getName() + "_" + tn));
-                            this.jobThreadPool.add(tj);
-                            Print.logDebug("New Thread: " + tj.getName() + " [" + this.getMaxPoolSize() + "]");
+        }
+        ThreadPoolExecutor tpe = this._getExecutor();
+        ThreadJob tj = new ThreadJob(job);
+        this.submitCount.incrementAndGet();
+        try {
+            tpe.execute(tj);
+            return true;
+        } catch (RejectedExecutionException ree) {
+            // queue is full (or executor was shut down)
+        }
+        if (!tpe.isShutdown()) {
+            switch (this.getRejectionPolicy()) {
+                case BLOCK:
+                    try {
+                        tpe.getQueue().put(tj);
+                        return true;
+                    } catch (InterruptedException ie) {
+                        break;
+                    }
+                case CALLER_RUNS:
+                    tj.run();
+                    return true;
+                case DROP_OLDEST:
+                    for (int i = 0; i < 3; i++) {
+                        if (tpe.getQueue().poll() != null) {
+                            this.rejectCount.incrementAndGet();
+                        }
+                        if (tpe.getQueue().offer(tj)) {
+                            return true;
                         }
-                        this.jobQueue.notify(); // notify a waiting thread
-                        addedJob = true;
                     }
-                }
+                    break;
+                default:
+                    break;
             }
-            return addedJob;
         }
+        this.rejectCount.incrementAndGet();
+        Print.logWarn("["+this.getName()+"] ThreadPool job rejected (queue size " + this.getQueueSize() + ")");
+        return false;
     }
 
     /**
@@ -530,144 +700,92 @@ public class ThreadPool
     **/
     public int getQueueSize()
     {
-        int qsize = 0;
-        synchronized (this.jobQueue) {
-            qsize = this.jobQueue.size();
-        }
-        return qsize;
+        ThreadPoolExecutor tpe = this.executor;
+        return (tpe != null)? tpe.getQueue().size() : 0;
     }
 
     // ------------------------------------------------------------------------
 
     /**
-    *** Stops all threads in this pool once queued jobs are complete
+    *** Gets the number of submitted jobs
     **/
-    public void stopThreads()
+    public long getSubmittedCount()
     {
-        this.stopThreads(false); // stop when jobs are done
+        return this.submitCount.get();
     }
 
     /**
-    *** Stops all threads in this pool once queued jobs are complete
-    *** @param stopNow  True to stop threads, even if jobs are still queued.  False
-    ***                 to stop only after all jobs have been processed. (note that 
-    ***                 jobs currently being processed will continue until they are
-    ***                 done).
+    *** Gets the number of completed jobs
     **/
-    public void stopThreads(boolean stopNow)
+    public long getCompletedCount()
     {
-        synchronized (this.jobQueue) {
-            this.stopThreads = stopNow? STOP_NOW : STOP_WAITING;
-            this.jobQueue.notifyAll();
-        }
+        return this.completeCount.get();
     }
-    
+
     /**
-    *** Removes the specified worker thread from the pool
-    *** @param thread The thread to remove from the pool
+    *** Gets the number of rejected (or dropped) jobs
     **/
-    protected void _removeThreadJob(ThreadJob thread)
+    public long getRejectedCount()
     {
-        if (thread != null) {
-            synchronized (this.jobThreadPool) {
-                //Print.logDebug("Removing thread: " + thread.getName());
-                this.jobThreadPool.remove(thread);
-            }
-        }
+        return this.rejectCount.get();
     }
 
-    // ------------------------------------------------------------------------
-
-    private static class ThreadJob
-        extends Thread
+    /**
+    *** Gets the average time (in milliseconds) that a job waited in the queue
+    **/
+    public long getAverageWaitMS()
     {
+        long cnt = this.completeCount.get();
+        return (cnt > 0L)? (this.totalWaitMS.get() / cnt) : 0L;
+    }
 
-        /* ThreadPool to which this thread belongs */
-        private ThreadPool  threadPool = null;
-
-        /* the current job being executed */
-        private Runnable    job = null;
-
-        /* timestamps */
-        private long        creationTimeMS = 0L;
-        private long        lastUsedTimeMS = 0L;
-
-        public ThreadJob(ThreadPool pool, String name) {
-            super(pool.getThreadGroup(), name);
-            this.threadPool = pool;
-            this.creationTimeMS = DateTime.getCurrentTimeMillis();
-            this.lastUsedTimeMS = this.creationTimeMS;
-            this.start(); // auto start thread
-        }
-
-        public void run() {
-
-            /* loop forever (or until stopped) */
-            while (true) {
-
-                /* get next job */
-                // 'this.job' is always null here
-                boolean stop = false;
-                synchronized (this.threadPool.jobQueue) {
-                    //Print.logDebug("Thread checking for jobs: " + this.getName());
-                    while (this.job == null) {
-                        if (this.threadPool.stopThreads == STOP_NOW) {
-                            // stop now, no more jobs
-                            stop = true;
-                            break;
-                        } else
-                        if (this.threadPool.jobQueue.size() > 0) { // this.jobQueue
-                            // run next job
-                            this.job = this.threadPool.jobQueue.remove(0); // Runnable
-                        } else
-                        if (this.threadPool.stopThreads == STOP_WAITING) {
-                            // stop after all jobs have completed
-                            stop = true;
-                            break;
-                        } else
-                        if ((this.threadPool.maxIdleAgeMS > 0L) &&
-                            ((DateTime.getCurrentTimeMillis() - this.lastUsedTimeMS) > this.threadPool.maxIdleAgeMS)) {
-                            // stop due to excess idle time
-                            stop = true;
-                            break;
-                        } else {
-                            // wait for next job notification
-                            int tmoMS = 20000; // maximum wait (should probably be higher)
-                            // TODO: adjust 'tmpMS' to coincide with remaining 'maxIdleAgeMS'
-                            this.threadPool.waitingCount++;
-                            try { this.threadPool.jobQueue.wait(tmoMS); } catch (InterruptedException ie) {}
-                            this.threadPool.waitingCount--;
-                            // continue next loop
-                        }
-                    } // while (this.job == null)
-                }
-                if (stop) { break; }
-
-                /* run job */
-                //Print.logDebug("Thread running: " + this.getName());
-                this.job.run();
-                synchronized (this.threadPool.jobQueue) {
-                    this.job = null;
-                }
-                this.lastUsedTimeMS = DateTime.getCurrentTimeMillis();
+    /**
+    *** Gets the maximum time (in milliseconds) that a job waited in the queue
+    **/
+    public long getMaximumWaitMS()
+    {
+        return this.maxWaitMS.get();
+    }
 
-            } // while (true)
+    /**
+    *** Gets the average job run time (in milliseconds)
+    **/
+    public long getAverageRunMS()
+    {
+        long cnt = this.completeCount.get();
+        return (cnt > 0L)? (this.totalRunMS.get() / cnt) : 0L;
+    }
 
-            /* remove thread from pool */
-            this.threadPool._removeThreadJob(this);
+    // ------------------------------------------------------------------------
 
-        }
+    /**
+    *** Stops all threads in this pool once queued jobs are complete
+    **/
+    public void stopThreads()
+    {
+        this.stopThreads(false); // stop when jobs are done
+    }
 
-        public boolean isRunning() {
-            boolean rtn = false;
-            synchronized (this.threadPool.jobQueue) {
-                rtn = (this.job != null)? true : false;
+    /**
+    *** Stops all threads in this pool once queued jobs are complete
+    *** @param stopNow  True to stop threads, even if jobs are still queued.  False
+    ***                 to stop only after all jobs have been processed. (note that 
+    ***                 jobs currently being processed will continue until they are
+    ***                 done).
+    **/
+    public void stopThreads(boolean stopNow)
+    {
+        this.stopThreads = stopNow? STOP_NOW : STOP_WAITING;
+        ThreadPoolExecutor tpe = this.executor;
+        if (tpe != null) {
+            if (stopNow) {
+                // discard queued jobs, without interrupting running jobs
+                tpe.getQueue().clear();
             }
-            return rtn;
+            tpe.shutdown();
         }
+    }
 
-    } // class ThreadJob
-    
     // ------------------------------------------------------------------------
 
     /**
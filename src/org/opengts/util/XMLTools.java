@@ -129,12 +129,26 @@ public class XMLTools
         }
     }
 
+    private static final String PREFIX_CACHE[] = new String[16];
+    static {
+        for (int i = 0; i < PREFIX_CACHE.length; i++) {
+            PREFIX_CACHE[i] = StringTools.replicateString(" ",i);
+        }
+    }
+
     /**
     *** Create prefix spaces
     */
     public static String PREFIX(boolean isSoapReq, int indent)
     {
-        return isSoapReq? "" : StringTools.replicateString(" ",indent);
+        if (isSoapReq || (indent <= 0)) {
+            return "";
+        } else
+        if (indent < PREFIX_CACHE.length) {
+            return PREFIX_CACHE[indent];
+        } else {
+            return StringTools.replicateString(" ",indent);
+        }
     }
 
     /**
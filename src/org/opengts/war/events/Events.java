@@ -24,6 +24,8 @@
 //  http://localhost:8080/events/dev.xml?a=demo&u=demo&p=&g=all&l=1&at=true
 //  http://localhost:8080/events/dev.json?a=demo&u=demo&p=&g=all&l=1&at=true
 //  http://example.com/events/dev.csv?a=demo&u=demo&p=demo&d=device
+//  http://localhost:8080/events/dev.csv?a=demo&u=demo&p=&d=demo&rf=2014/01&stream=true&resumetime=1388563200&resumecode=61472
+//  http://localhost:8080/events/dev.csv?a=demo&u=demo&p=&g=all&rf=2014/01&stream=true&resumedevice=demo2&resumeindex=123456
 // ----------------------------------------------------------------------------
 // Change History:
 //  2006/03/26  Martin D. Flynn
@@ -72,6 +74,7 @@ import java.util.*;
 import java.io.*;
 import java.net.*;
 import java.sql.*;
+import java.util.zip.*;
 
 import javax.servlet.*;
 import javax.servlet.http.*;
@@ -114,10 +117,19 @@ public class Events
     private static final String  PARM_OLD_XML[]     = new String[] { "oldxml"     , "old" , "ox" };
     private static final String  PARM_EXPIRE[]      = new String[] { "expire"     , "exp" , "ex" };
 
+    /* streaming options */
+    private static final String  PARM_STREAM[]      = new String[] { "stream"     ,         "st" };
+    private static final String  PARM_RESUME_DEV[]  = new String[] { "resumedevice",        "rd" };
+    private static final String  PARM_RESUME_TIME[] = new String[] { "resumetime" ,         "rs" };
+    private static final String  PARM_RESUME_CODE[] = new String[] { "resumecode" ,         "rc" };
+    private static final String  PARM_RESUME_NDX[]  = new String[] { "resumeindex",         "ri" };
+
     /* Properties */
     private static final String  PROP_Events_useOldXMLFormat    = "Events.useOldXMLFormat";
     private static final String  PROP_Events_defaultLimit       = "Events.defaultLimit";
     private static final String  PROP_Events_maximumLimit       = "Events.maximumLimit";
+    private static final String  PROP_Events_streamBufferSize   = "Events.streamBufferSize";
+    private static final String  PROP_Events_streamGzip         = "Events.streamGzip";
 
     /* old XML format */
     private static       boolean OLD_XML_FORMAT                 = false;
@@ -126,6 +138,10 @@ public class Events
     public  static       long    DFT_LIMIT                      = 100L;
     public  static       long    MAX_LIMIT                      = 1000L;
 
+    /* streaming output */
+    private static       int     STREAM_BUFFER_SIZE             = 16 * 1024;
+    private static       boolean STREAM_GZIP                    = true;
+
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
@@ -140,6 +156,8 @@ public class Events
         OLD_XML_FORMAT = RTConfig.getBoolean(PROP_Events_useOldXMLFormat,OLD_XML_FORMAT);
         DFT_LIMIT      = Math.max(RTConfig.getLong(PROP_Events_defaultLimit,DFT_LIMIT),1L);
         MAX_LIMIT      = Math.max(RTConfig.getLong(PROP_Events_maximumLimit,MAX_LIMIT),DFT_LIMIT);
+        STREAM_BUFFER_SIZE = Math.max(RTConfig.getInt(PROP_Events_streamBufferSize,STREAM_BUFFER_SIZE),1024);
+        STREAM_GZIP    = RTConfig.getBoolean(PROP_Events_streamGzip,STREAM_GZIP);
 
     };
 
@@ -226,11 +244,21 @@ public class Events
         String  tzStr      = Events.getRequestString (request, PARM_TIMEZONE , "");
         String  rangeFr    = Events.getRequestString (request, PARM_RANGE_FR , "");
         String  rangeTo    = Events.getRequestString (request, PARM_RANGE_TO , "");
-        long    limit      = Events.getRequestLong   (request, PARM_LIMIT    , DFT_LIMIT);
+        boolean stream     = Events.getRequestBoolean(request, PARM_STREAM   , false);
+        long    limit      = Events.getRequestLong   (request, PARM_LIMIT    , (stream? -1L : DFT_LIMIT));
         boolean validGPS   = Events.getRequestBoolean(request, PARM_VALID_GPS, true);
         boolean allTags    = Events.getRequestBoolean(request, PARM_ALL_TAGS , false);
         boolean oldXMLFmt  = Events.getRequestBoolean(request, PARM_OLD_XML  , OLD_XML_FORMAT);
         String  expireStr  = Events.getRequestString (request, PARM_EXPIRE   , "");
+        String  resumeDev  = Events.getRequestString (request, PARM_RESUME_DEV , "");
+        long    resumeTime = Events.getRequestLong   (request, PARM_RESUME_TIME, -1L);
+        int     resumeCode = (int)Events.getRequestLong(request, PARM_RESUME_CODE, -1L);
+        long    resumeNdx  = Events.getRequestLong   (request, PARM_RESUME_NDX , -1L);
+
+        /* KML output is written from the events saved in each Device */
+        if (outFmt == EventUtil.FORMAT_KML) {
+            stream = false;
+        }
 
         /* default to 'admin' user */
         if (StringTools.isBlank(userID)) {
@@ -321,6 +349,10 @@ public class Events
         long endTime = (dateTo != null)? dateTo.getTimeSec() : -1L;
 
         /* limit */
+        if (stream) {
+            // streamed events are not held in memory (no limit unless specified)
+            limit = (limit > 0L)? limit : -1L;
+        } else
         if (limit < 0L) {
             limit = 0L;
         } else
@@ -328,6 +360,13 @@ public class Events
             //limit = MAX_LIMIT;
         }
 
+        /* resume index requires the EventData 'autoIndex' field */
+        if (stream && (resumeNdx >= 0L) && !EventData.getFactory().hasField(EventData.FLD_autoIndex)) {
+            Print.logError("EventData 'autoIndex' field not defined, unable to resume by index");
+            this.errorResponse(response, outFmt, "Resume index not supported");
+            return;
+        }
+
         /* get account */
         Account account = null;
         try {
@@ -464,9 +503,55 @@ public class Events
             }
         }
 
+        /* streamed events */
+        if (stream) {
+            // a resume cursor for a multi-device export must specify the resume device
+            boolean hasCursor = (resumeTime > 0L) || (resumeNdx >= 0L);
+            if (StringTools.isBlank(resumeDev)) {
+                if (hasCursor && (deviceIDSet.size() > 1)) {
+                    Print.logError("Resume device required for multiple device export");
+                    this.errorResponse(response, outFmt, "Resume device not specified");
+                    return;
+                }
+            } else
+            if (!deviceIDSet.contains(resumeDev)) {
+                Print.logError("Resume device not in export: " + resumeDev);
+                this.errorResponse(response, outFmt, "Invalid resume device");
+                return;
+            }
+            Collection<Device> devList = new Vector<Device>();
+            try {
+                for (String devID : deviceIDSet) {
+                    Device dev = Device.getDevice(account, devID);
+                    if (dev != null) {
+                        devList.add(dev);
+                    } else {
+                        Print.logWarn("Device not found: " + devID);
+                    }
+                }
+            } catch (DBException dbe) {
+                dbe.printException();
+                this.errorResponse(response, outFmt, "Internal error (events)");
+                return;
+            }
+            EventUtil.RangeEventStream evStream = new EventUtil.RangeEventStream(startTime, endTime, validGPS, limit);
+            evStream.setResumeDevice(resumeDev);
+            evStream.setResumeTime(resumeTime, resumeCode);
+            evStream.setResumeIndex(resumeNdx);
+            this.setContentMimeType(response, outFmt);
+            if ((outFmt == EventUtil.FORMAT_XML) && oldXMLFmt) {
+                outFmt = EventUtil.FORMAT_XMLOLD;
+            }
+            this.writeStreamedEvents(request, response,
+                account, devList, evStream,
+                outFmt, allTags, dispTmz,
+                privLabel);
+            return;
+        }
+
         /* extract records */
-        // NOT CURRENTLY SCALABLE!
         // this version assumes that the number of returned records is reasonable and fits in memory
+        // (see "stream=true" for large exports)
         Collection<Device> devList = new Vector<Device>();
         //java.util.List<EventData> evList = new Vector<EventData>();
         try {
@@ -523,6 +608,116 @@ public class Events
 
     // ------------------------------------------------------------------------
 
+    /**
+    *** Writer which rejects all output once the EventData selection of the stream has failed,
+    *** so that the closing tokens of the output format are not written following a partial
+    *** export (writes rejected here are otherwise ignored by the enclosing PrintWriter)
+    **/
+    private static class StreamGuardWriter
+        extends FilterWriter
+    {
+        private EventUtil.RangeEventStream evStream = null;
+        public StreamGuardWriter(Writer out, EventUtil.RangeEventStream evStream) {
+            super(out);
+            this.evStream = evStream;
+        }
+        private void _checkError() throws IOException {
+            if (this.evStream.getLastError() != null) {
+                throw new IOException("EventData selection failed");
+            }
+        }
+        public void write(int c) throws IOException {
+            this._checkError();
+            super.write(c);
+        }
+        public void write(char cbuf[], int off, int len) throws IOException {
+            this._checkError();
+            super.write(cbuf, off, len);
+        }
+        public void write(String str, int off, int len) throws IOException {
+            this._checkError();
+            super.write(str, off, len);
+        }
+    }
+
+    /* write the events read from the specified stream, gzip compressed if accepted by the client */
+    private void writeStreamedEvents(
+        HttpServletRequest request, HttpServletResponse response,
+        Account account, Collection<Device> devList, EventUtil.RangeEventStream evStream,
+        int outFmt, boolean allTags, TimeZone dispTmz,
+        BasicPrivateLabel privLabel)
+        throws ServletException, IOException
+    {
+
+        /* gzip encoding */
+        String acceptEnc = StringTools.trim(request.getHeader("Accept-Encoding")).toLowerCase();
+        boolean gzip = STREAM_GZIP && (acceptEnc.indexOf("gzip") >= 0);
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+            response.setHeader("Vary", "Accept-Encoding");
+        }
+
+        /* output writer */
+        // no content-length is set, the container sends the response in chunks as the
+        // bounded output buffers fill.
+        String charSet = StringTools.blankDefault(response.getCharacterEncoding(), StringTools.getCharacterEncoding());
+        GZIPOutputStream gzout = null;
+        PrintWriter out = null;
+        try {
+            OutputStream os = response.getOutputStream();
+            if (gzip) {
+                gzout = new GZIPOutputStream(os, STREAM_BUFFER_SIZE);
+                os = gzout;
+            }
+            Writer bw = new BufferedWriter(new OutputStreamWriter(os, charSet), STREAM_BUFFER_SIZE);
+            out = new PrintWriter(new StreamGuardWriter(bw, evStream));
+        } catch (IOException ioe) {
+            Print.logException("Error getting output stream", ioe);
+            evStream.close();
+            this.errorResponse(response, outFmt, "Internal error (output)");
+            return;
+        }
+
+        /* write formatted events */
+        // The response has been committed once output has started.  If the EventData selection
+        // fails, the output is abandoned without the format closing tokens, or gzip trailer, and
+        // the request is aborted, so that the client sees a truncated response.
+        long startMS = System.currentTimeMillis();
+        try {
+            EventUtil.getInstance().writeEvents(out, 
+                account, devList, evStream,
+                outFmt, allTags, dispTmz,
+                privLabel);
+        } catch (IOException ioe) {
+            if (evStream.getLastError() == null) {
+                Print.logException("Error writing streamed events", ioe);
+            }
+        } finally {
+            evStream.close();
+        }
+        if (evStream.getLastError() != null) {
+            Print.logError("Streamed events incomplete: " + evStream.getLastError());
+            throw new IOException("Streamed events aborted: " + evStream.getLastError().getMessage());
+        }
+        out.flush();
+        if (gzout != null) {
+            try {
+                gzout.finish();
+            } catch (IOException ioe) {
+                // client disconnected
+            }
+        }
+        out.close();
+        if (out.checkError()) {
+            Print.logWarn("Streamed events incomplete (client disconnected?)");
+        }
+        Print.logInfo("Streamed " + evStream.getEventCount() + " events [" + account.getAccountID() + "] in " + 
+            (System.currentTimeMillis() - startMS) + " ms" + (gzip? " (gzip)" : ""));
+
+    }
+
+    // ------------------------------------------------------------------------
+
     private void setContentMimeType(HttpServletResponse response, int outFmt)
     {
         switch (outFmt) {
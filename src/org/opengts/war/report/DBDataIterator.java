@@ -35,6 +35,9 @@ public interface DBDataIterator
     /* return the next data record */
     public DBDataRow next();
 
+    /* release any resources held by this iterator (ie. an open DB selection) */
+    public void close();
+
     // ------------------------------------------------------------------------
 
 }
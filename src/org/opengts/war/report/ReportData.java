@@ -63,11 +63,36 @@ public abstract class ReportData
 
     //public static final long RECORD_LIMIT           = 800L;
 
+    // ------------------------------------------------------------------------
+    // ThreadPool: per-device EventData selection (for "parallelEventData" reports)
+    // The maximum pool size is the number of concurrent EventData queries (and thus
+    // DB connections) used for all reports.
+    //  Report.ThreadPool.ReportEventData.maximumPoolSize=4
+    //  Report.ThreadPool.ReportEventData.maximumIdleSeconds=0
+    //  Report.ThreadPool.ReportEventData.maximumQueueSize=0
+
+    private static final RTKey PROP_ThreadPool_ReportEventData_     = RTKey.valueOf(RTKey.ThreadPool_ReportEventData_);
+    private static final int   ThreadPool_ReportEventData_Size      = 4;
+    private static final int   ThreadPool_ReportEventData_IdleSec   = 0;
+    private static final int   ThreadPool_ReportEventData_QueSize   = 0;
+    private static ThreadPool  ThreadPool_ReportEventData           = new ThreadPool(
+        "ReportEventData",
+        PROP_ThreadPool_ReportEventData_, // property allowing default override
+        ThreadPool_ReportEventData_Size, 
+        ThreadPool_ReportEventData_IdleSec, 
+        ThreadPool_ReportEventData_QueSize);
+
     // ------------------------------------------------------------------------
 
     private static final boolean REPORT_DATA_FIELDS_ENABLED        = false;
     private static final String  PROP_reportDataFieldEnabled       = "reportDataFieldEnabled";
 
+    private static final boolean STREAM_EVENT_DATA                 = false;
+    private static final String  PROP_streamEventData              = "streamEventData";
+
+    private static final boolean PARALLEL_EVENT_DATA               = false;
+    private static final String  PROP_parallelEventData            = "parallelEventData";
+
     private static final String  PROP_gpsAgeColorRange             = "gpsAgeColorRange";
     private static final String  PROP_gpsAgeColorRange_array       = "gpsAgeColorRange.array";
 
@@ -694,6 +719,34 @@ public abstract class ReportData
         return this.getProperties().getBoolean(PROP_reportDataFieldEnabled,REPORT_DATA_FIELDS_ENABLED);
     }
 
+    // ------------------------------------------------------------------------
+    // Streamed EventData
+
+    /** 
+    *** Return true if the EventData records for this report should be streamed.<br>
+    *** When streamed, EventData records are read from the database row-by-row, one
+    *** device at a time, as the report body is written, rather than being selected
+    *** into an array before the report is written.
+    *** @return True if EventData records should be streamed
+    **/
+    public boolean getStreamEventDataEnabled()
+    {
+        return this.getProperties().getBoolean(PROP_streamEventData,STREAM_EVENT_DATA);
+    }
+
+    /** 
+    *** Return true if the EventData records for the devices in this report should be
+    *** selected concurrently.<br>
+    *** When enabled, the per-device EventData selections are run on a bounded thread pool,
+    *** and the results are merged in device order (applies only to reports which do not
+    *** specify a per-record DBRecordHandler).
+    *** @return True if the EventData records should be selected concurrently
+    **/
+    public boolean getParallelEventDataEnabled()
+    {
+        return this.getProperties().getBoolean(PROP_parallelEventData,PARALLEL_EVENT_DATA);
+    }
+
     // ------------------------------------------------------------------------
     // GPS AgeColorRange
 
@@ -979,8 +1032,12 @@ public abstract class ReportData
     **/
     public DBDataIterator getEventDataIterator()
     {
-        EventData ed[] = this.getEventData(null);
-        return new ArrayDataIterator(ed); // 'EventDataLayout' expects EventData[]
+        if (this.getStreamEventDataEnabled()) {
+            return new EventDataStreamIterator();
+        } else {
+            EventData ed[] = this.getEventData(null);
+            return new ArrayDataIterator(ed); // 'EventDataLayout' expects EventData[]
+        }
     }
 
     /**
@@ -995,6 +1052,13 @@ public abstract class ReportData
         long rptLimit = this.getReportLimit(); // report record limit
         //Print.logInfo("ReportLimit: " + rptLimit);
         ReportDeviceList devList = this.getReportDeviceList();
+
+        /* concurrent selection */
+        if ((rcdHandler == null) && (devList.size() > 1) && this.getParallelEventDataEnabled()) {
+            return this._getEventDataParallel(devList, rptLimit);
+        }
+
+        /* sequential selection */
         java.util.List<EventData> edList = new Vector<EventData>();
         this.maxEventDataCount = 0;
         for (Iterator i = devList.iterator(); i.hasNext();) {
@@ -1037,6 +1101,126 @@ public abstract class ReportData
         return edList.toArray(new EventData[edList.size()]);
     }
 
+    /**
+    *** Per-device EventData selection job
+    **/
+    private class EventDataJob
+        implements Runnable
+    {
+        private Device          device      = null;
+        private LastEventData   devState    = new LastEventData();
+        private EventData       result[]    = null;
+        private boolean         done        = false;
+        private volatile boolean cancelled  = false;
+        public EventDataJob(Device device) {
+            this.device = device;
+        }
+        public void run() {
+            EventData ed[] = null;
+            try {
+                if (!this.cancelled) {
+                    ed = ReportData.this._selectEventData(this.device, null, this.devState, this);
+                }
+            } catch (Throwable th) {
+                Print.logException("EventData selection error: " + this.device.getDeviceID(), th);
+            } finally {
+                synchronized (this) {
+                    this.result = (ed != null)? ed : EventData.EMPTY_ARRAY;
+                    this.done   = true;
+                    this.notifyAll();
+                }
+            }
+        }
+        public void cancel() {
+            this.cancelled = true;
+        }
+        public boolean isCancelled() {
+            return this.cancelled;
+        }
+        public synchronized EventData[] waitForResult() {
+            while (!this.done) {
+                try { this.wait(); } catch (InterruptedException ie) { /* ignore */ }
+            }
+            return this.result;
+        }
+        public int getEventDataCount() {
+            return this.devState.getCount();
+        }
+    }
+
+    /**
+    *** Returns an array EventData records for the devices in the specified ReportDeviceList.
+    *** The per-device selections are run on the "ReportEventData" ThreadPool, no more than
+    *** a small window ahead of the device currently being merged, and the results are
+    *** merged in device order with the same report limit handling as the sequential selection.
+    **/
+    private EventData[] _getEventDataParallel(ReportDeviceList devList, long rptLimit)
+    {
+        java.util.List<EventData> edList = new Vector<EventData>();
+        this.maxEventDataCount = 0;
+
+        /* create jobs (Devices are loaded here, ReportDeviceList is not thread-safe) */
+        java.util.List<EventDataJob> jobList = new Vector<EventDataJob>();
+        for (Iterator i = devList.iterator(); i.hasNext();) {
+            String devID = (String)i.next();
+            try {
+                Device device = devList.getDevice(devID);
+                if (device != null) {
+                    jobList.add(new EventDataJob(device));
+                }
+            } catch (DBException dbe) {
+                Print.logError("Error retrieving EventData for Device: " + devID);
+            }
+        }
+
+        /* run jobs/merge results in device order */
+        int window = Math.max(ThreadPool_ReportEventData.getMaxPoolSize(), 1) * 2;
+        int queued = 0;
+        for (int j = 0; j < jobList.size(); j++) {
+
+            /* have we reached our limit? */
+            if ((rptLimit >= 0L) && (edList.size() >= rptLimit)) {
+                for (int c = j; c < queued; c++) {
+                    jobList.get(c).cancel(); // already queued, no longer needed
+                }
+                break;
+            }
+
+            /* queue jobs up to the window ahead of this device */
+            for (; (queued < jobList.size()) && (queued < (j + window)); queued++) {
+                EventDataJob job = jobList.get(queued);
+                if (!ThreadPool_ReportEventData.run(job)) {
+                    job.run(); // unable to queue, run in this thread
+                }
+            }
+
+            /* merge device records */
+            EventDataJob job = jobList.get(j);
+            EventData ed[] = job.waitForResult();
+            if (rptLimit < 0L) {
+                // no limit: add all of new EventData records to list
+                ListTools.toList(ed, edList);
+            } else {
+                int maxRcds = (int)rptLimit - edList.size(); // > 0
+                if (ed.length <= maxRcds) {
+                    // under limit: add all of new EventData records to list
+                    ListTools.toList(ed, edList);
+                } else {
+                    // clip to limit
+                    ListTools.toList(ed, 0, maxRcds, edList);
+                }
+            }
+
+            /* maximum selected EventData records */
+            this.eventDataCount = job.getEventDataCount();
+            if (this.eventDataCount > this.maxEventDataCount) {
+                this.maxEventDataCount = this.eventDataCount;
+            }
+
+        }
+        return edList.toArray(new EventData[edList.size()]);
+    }
+
     /**
     *** Returns an array EventData records for the specified Device
     *** @param deviceDB     The Device for which EventData records will be selected
@@ -1070,30 +1254,26 @@ public abstract class ReportData
     private static class LastEventData
     {
         private EventData event = null;
+        private int       count = 0;
         public void setEvent(EventData ev) { this.event = ev; }
         public EventData getEvent() { return this.event; }
+        public void incrementCount() { this.count++; }
+        public int getCount() { return this.count; }
     }
 
     /**
-    *** Returns an array EventData records for the specified Device
+    *** Creates the DBRecordHandler used to chain, calculate, and match the EventData
+    *** records selected for the specified Device
     *** @param deviceDB     The Device for which EventData records will be selected
-    *** @param rcdHandler   The callback DBRecordHandler.  If specified, the returned EventData
-    ***                     array may be null.
-    *** @return An array of EventData records for the device (may be null if a callback
-    ***         DBRecordHandler has been specified).
+    *** @param rcdHandler   The optional callback DBRecordHandler
+    *** @param lastEDR      The per-device selection state (last EventData, and selected count)
+    *** @param job          The concurrent selection job, or null if not selected concurrently
+    *** @return The EventData record handler
     **/
-    protected EventData[] _getEventData(final Device deviceDB, final DBRecordHandler<EventData> rcdHandler)
+    private DBRecordHandler<EventData> _createEventDataHandler(final Device deviceDB, final DBRecordHandler<EventData> rcdHandler,
+        final LastEventData lastEDR, final EventDataJob job)
     {
 
-        /* Device */
-        if (deviceDB == null) {
-            return EventData.EMPTY_ARRAY;
-        }
-
-        /* Account */
-        String accountID = this.getAccountID();
-         //Print.logInfo("Getting EventData for " + accountID + "/" + deviceID);
-
         /* EventData rule selector (RuleFactory support required) */
         final String ruleSelector = this.getRuleSelector();
         final RuleFactory ruleFact;
@@ -1107,10 +1287,12 @@ public abstract class ReportData
         }
 
         /* create record handler */
-        final LastEventData lastEDR = new LastEventData(); 
         DBRecordHandler<EventData> evRcdHandler = new DBRecordHandler<EventData>() {
             public int handleDBRecord(EventData rcd) throws DBException {
-                ReportData.this.eventDataCount++;
+                if ((job != null) && job.isCancelled()) {
+                    return DBRH_STOP; // no longer needed
+                }
+                lastEDR.incrementCount();
                 EventData ev = rcd;
                 ev.setDevice(deviceDB);
                 // chain events together
@@ -1147,6 +1329,45 @@ public abstract class ReportData
                 }
             }
         };
+        return evRcdHandler;
+
+    }
+
+    /**
+    *** Returns an array EventData records for the specified Device
+    *** @param deviceDB     The Device for which EventData records will be selected
+    *** @param rcdHandler   The callback DBRecordHandler.  If specified, the returned EventData
+    ***                     array may be null.
+    *** @return An array of EventData records for the device (may be null if a callback
+    ***         DBRecordHandler has been specified).
+    **/
+    protected EventData[] _getEventData(final Device deviceDB, final DBRecordHandler<EventData> rcdHandler)
+    {
+        LastEventData devState = new LastEventData();
+        EventData ed[] = this._selectEventData(deviceDB, rcdHandler, devState, null);
+        this.eventDataCount = devState.getCount();
+        return ed;
+    }
+
+    /**
+    *** Returns an array EventData records for the specified Device (does not modify the
+    *** EventData counts of this report, may be called concurrently)
+    **/
+    private EventData[] _selectEventData(Device deviceDB, DBRecordHandler<EventData> rcdHandler,
+        LastEventData devState, EventDataJob job)
+    {
+
+        /* Device */
+        if (deviceDB == null) {
+            return EventData.EMPTY_ARRAY;
+        }
+
+        /* Account */
+        String accountID = this.getAccountID();
+         //Print.logInfo("Getting EventData for " + accountID + "/" + deviceID);
+
+        /* create record handler */
+        DBRecordHandler<EventData> evRcdHandler = this._createEventDataHandler(deviceDB, rcdHandler, devState, job);
 
         /* get events */
         EventData ed[] = null;
@@ -1618,9 +1839,138 @@ public abstract class ReportData
                 return null;
             }
         }
+
+        public void close() {
+            // no resources held
+        }
         
     }
 
+    /**
+    *** This is an implementation of DBDataIterator that lazily reads the EventData records
+    *** for each device in the ReportDeviceList, one device at a time, as the rows are
+    *** requested.  Only the current (and previous) EventData records are retained.
+    **/
+    protected class EventDataStreamIterator
+        implements DBDataIterator
+    {
+        private Iterator                    devIter   = null;
+        private DBRecordStream<EventData>   rcdIter   = null;
+        private Iterator<EventData>         evIter    = null;
+        private LastEventData               devState  = null;
+        private long                        rptLimit  = -1L;
+        private long                        rowCount  = 0L;
+        private EventData                   dataObj   = null;
+        private DBDataRow                   dataRow   = null;
+
+        public EventDataStreamIterator() {
+            ReportData.this.maxEventDataCount = 0;
+            this.devIter  = ReportData.this.getReportDeviceList().iterator();
+            this.rcdIter  = new DBRecordStream<EventData>();
+            this.rptLimit = ReportData.this.getReportLimit(); // report record limit
+            this.dataRow  = new DBDataRowAdapter(ReportData.this) {
+                public Object getRowObject() {
+                    return EventDataStreamIterator.this.dataObj;
+                }
+                public Object getDBValue(String name, int rowNdx, ReportColumn rptCol) {
+                    Object obj = EventDataStreamIterator.this.dataObj;
+                    if (obj != null) {
+                        DataRowTemplate drt = ReportData.this.getDataRowTemplate();
+                        return drt.getFieldValue(name, rowNdx, ReportData.this, rptCol, obj); // DataRowTemplate.getFieldValue
+                    } else {
+                        return "";
+                    }
+                }
+            };
+        }
+
+        /* select the EventData records for the next device (returns false if no more devices) */
+        private boolean _nextDevice() {
+            ReportDeviceList devList = ReportData.this.getReportDeviceList();
+            while (this.devIter.hasNext()) {
+                String devID = (String)this.devIter.next();
+                this.devState = null;
+                try {
+                    Device device = devList.getDevice(devID);
+                    if (device == null) {
+                        continue;
+                    }
+                    this.devState = new LastEventData();
+                    DBRecordHandler<EventData> evRcdHandler = ReportData.this._createEventDataHandler(device, null, this.devState, null);
+                    boolean streamed = EventData.selectRangeEvents(this.rcdIter,
+                        ReportData.this.getAccountID(), device.getDeviceID(),
+                        ReportData.this.getTimeStart(), ReportData.this.getTimeEnd(),
+                        ReportData.this.getStatusCodes(),
+                        ReportData.this.getValidGPSRequired(),
+                        ReportData.this.getSelectionLimitType(), ReportData.this.getSelectionLimit(), ReportData.this.getOrderAscending(),
+                        ReportData.this.getWhereSelector(),
+                        evRcdHandler);
+                    if (streamed) {
+                        this.evIter = this.rcdIter;
+                    } else {
+                        // reordered selection (bounded by the selection limit)
+                        this.devState = new LastEventData();
+                        EventData ed[] = ReportData.this._selectEventData(device, null, this.devState, null);
+                        this.evIter = ListTools.toIterator(ed);
+                    }
+                    return true;
+                } catch (DBException dbe) {
+                    Print.logError("Error retrieving EventData for Device: " + devID);
+                }
+            }
+            return false;
+        }
+
+        /* update the maximum selected EventData count for the current device */
+        private void _updateMaximumCount() {
+            ReportData.this.eventDataCount = (this.devState != null)? this.devState.getCount() : 0;
+            if (ReportData.this.eventDataCount > ReportData.this.maxEventDataCount) {
+                ReportData.this.maxEventDataCount = ReportData.this.eventDataCount;
+            }
+        }
+
+        public boolean hasNext() {
+            if ((this.rptLimit >= 0L) && (this.rowCount >= this.rptLimit)) {
+                this._updateMaximumCount();
+                this.rcdIter.close();
+                return false;
+            }
+            while ((this.evIter == null) || !this.evIter.hasNext()) {
+                if (this.evIter != null) {
+                    this._updateMaximumCount();
+                }
+                if (!this._nextDevice()) {
+                    this.evIter = null;
+                    this.rcdIter.close();
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public DBDataRow next() {
+            if (this.hasNext()) {
+                if (this.dataObj != null) {
+                    // the previous row has been written, its chained EventData is no longer needed
+                    this.dataObj.clearPreviousEventData();
+                }
+                this.dataObj = this.evIter.next();
+                this.rowCount++;
+                return this.dataRow;
+            } else {
+                this.dataObj = null;
+                return null;
+            }
+        }
+
+        /* close the EventData selection (must be called, even if the report is not completed) */
+        public void close() {
+            this.evIter = null;
+            this.rcdIter.close();
+        }
+
+    }
+
     /**
     *** This is an implementation of DBDataIterator that iterates through an array of row objects 
     **/
@@ -1663,6 +2013,10 @@ public abstract class ReportData
             }
         }
 
+        public void close() {
+            // no resources held
+        }
+
     }
 
     // ------------------------------------------------------------------------
@@ -43,6 +43,9 @@ public class ReportSpreadsheet // FORMAT_XLS
     /* set to "true" to attempt to convert numeric column value strings to Double/Long */
     private static boolean  CONVERT_VALUES_TO_NUMERIC = false;
 
+    /* set to "true" to use the built-in streaming XLSX writer (see ExcelXLSXWriter) for XLSX reports */
+    private static boolean  USE_BUILTIN_XLSX_WRITER   = true;
+
     // ------------------------------------------------------------------------
 
     private static boolean  initExcelSpreadsheetClass   = false;
@@ -69,22 +72,37 @@ public class ReportSpreadsheet // FORMAT_XLS
     {
         return (GetExcelSpreadsheetClass() != null);
     }
+
+    public static boolean IsExcelXLSXSupported()
+    {
+        return USE_BUILTIN_XLSX_WRITER || IsExcelSpreadsheetSupported();
+    }
     
     // ------------------------------------------------------------------------
     // ------------------------------------------------------------------------
 
-    private ReportData  rptData = null;
-    private ExcelAPI    excel = null;
-    private boolean     xlsx = false;
+    private ReportData      rptData = null;
+    private ExcelAPI        excel = null;
+    private boolean         xlsx = false;
+
+    private OutputProvider  outProvider = null;
     
-    private int         currentRow = 0;
-    private int         currentCol = 0;
+    private int             currentRow = 0;
+    private int             currentCol = 0;
 
     public ReportSpreadsheet(boolean xlsx, ReportData rd)
     {
         this.xlsx = xlsx;
         this.rptData = rd;
 
+        /* built-in XLSX writer */
+        if (this.xlsx && USE_BUILTIN_XLSX_WRITER) {
+            Print.logInfo("Creating streaming XLSX spreadsheet report instance ...");
+            this.excel = new ExcelXLSXWriter();
+            this.excel.init(this.xlsx, this.rptData.getReportName());
+            return;
+        }
+
         /* create interface instance */
         Class ssClass = GetExcelSpreadsheetClass();
         if (ssClass == null) {
@@ -107,6 +125,34 @@ public class ReportSpreadsheet // FORMAT_XLS
     {
         return (this.excel != null);
     }
+
+    /**
+    *** Sets the OutputProvider to which a streaming spreadsheet writes its rows as they are 
+    *** added.  The OutputStream is obtained when the first body row is added.
+    *** @param out  The OutputProvider
+    **/
+    public void setOutputProvider(OutputProvider out)
+    {
+        this.outProvider = out;
+    }
+
+    /* provide the OutputStream to a streaming spreadsheet, before the first body row */
+    private void _startStreamingOutput()
+    {
+        if ((this.outProvider != null) && (this.excel instanceof ExcelAPI.Streaming)) {
+            OutputProvider out = this.outProvider;
+            this.outProvider = null; // set once
+            try {
+                OutputStream os = out.getOutputStream();
+                if (os != null) {
+                    ((ExcelAPI.Streaming)this.excel).setOutputStream(os);
+                }
+            } catch (Throwable th) {
+                // IOException, IllegalStateException (the spreadsheet is spooled until "write")
+                Print.logWarn("Spreadsheet OutputStream not available: " + th);
+            }
+        }
+    }
     
     // ------------------------------------------------------------------------
 
@@ -288,6 +334,7 @@ public class ReportSpreadsheet // FORMAT_XLS
     {
         if (this.excel != null) {
             try {
+                this._startStreamingOutput();
                 int rowIndex = this.getCurrentRowIndex();
                 int colIndex = this.getCurrentColumnIndex();
                 if (CONVERT_VALUES_TO_NUMERIC) {
@@ -312,6 +359,7 @@ public class ReportSpreadsheet // FORMAT_XLS
     {
         if (this.excel != null) {
             try {
+                this._startStreamingOutput();
                 int rowIndex = this.getCurrentRowIndex();
                 int colIndex = this.getCurrentColumnIndex();
                 if (CONVERT_VALUES_TO_NUMERIC) {
@@ -336,6 +384,7 @@ public class ReportSpreadsheet // FORMAT_XLS
     {
         if (this.excel != null) {
             try {
+                this._startStreamingOutput();
                 int rowIndex = this.getCurrentRowIndex();
                 int colIndex = this.getCurrentColumnIndex();
                 if (CONVERT_VALUES_TO_NUMERIC) {
@@ -149,26 +149,34 @@ public class ReportBody
 
         /* report body */
         DBDataIterator data = report.getBodyDataIterator();
-        if ((data != null) && data.hasNext()) {
-            int RC = 0;
-            for (RC = 0; data.hasNext(); RC++) {
-                DBDataRow dr = data.next();
-                if (dr != null) {
-                    this.bodyRow.writeHTML(out, level+1, RC, false/*totals*/, dr);
+        try {
+            if ((data != null) && data.hasNext()) {
+                int RC = 0;
+                for (RC = 0; data.hasNext(); RC++) {
+                    DBDataRow dr = data.next();
+                    if (dr != null) {
+                        this.bodyRow.writeHTML(out, level+1, RC, false/*totals*/, dr);
+                    }
                 }
+                this._setRecordCount(report, RC);
             }
-            this._setRecordCount(report, RC);
+        } finally {
+            if (data != null) { data.close(); }
         }
 
         /* report totals */
         DBDataIterator totals = report.getTotalsDataIterator();
-        if ((totals != null) && totals.hasNext()) {
-            for (int r = 0; totals.hasNext(); r++) {
-                DBDataRow dr = totals.next();
-                if (dr != null) {
-                    this.bodyRow.writeHTML(out, level+1, r, true/*totals*/, dr);
+        try {
+            if ((totals != null) && totals.hasNext()) {
+                for (int r = 0; totals.hasNext(); r++) {
+                    DBDataRow dr = totals.next();
+                    if (dr != null) {
+                        this.bodyRow.writeHTML(out, level+1, r, true/*totals*/, dr);
+                    }
                 }
             }
+        } finally {
+            if (totals != null) { totals.close(); }
         }
 
         /* HTML table body end */
@@ -194,26 +202,34 @@ public class ReportBody
 
         /* report body */
         DBDataIterator data = report.getBodyDataIterator();
-        if ((data != null) && data.hasNext()) {
-            int RC = 0;
-            for (RC = 0; data.hasNext(); RC++) {
-                DBDataRow dr = data.next();
-                if (dr != null) {
-                    this.bodyRow.writeXML(out, level+1, RC, false/*totals*/, dr);
+        try {
+            if ((data != null) && data.hasNext()) {
+                int RC = 0;
+                for (RC = 0; data.hasNext(); RC++) {
+                    DBDataRow dr = data.next();
+                    if (dr != null) {
+                        this.bodyRow.writeXML(out, level+1, RC, false/*totals*/, dr);
+                    }
                 }
+                this._setRecordCount(report, RC);
             }
-            this._setRecordCount(report, RC);
+        } finally {
+            if (data != null) { data.close(); }
         }
 
         /* report totals */
         DBDataIterator totals = report.getTotalsDataIterator();
-        if ((totals != null) && totals.hasNext()) {
-            for (int r = 0; totals.hasNext(); r++) {
-                DBDataRow dr = totals.next();
-                if (dr != null) {
-                    this.bodyRow.writeXML(out, level+1, r, true/*totals*/, dr);
+        try {
+            if ((totals != null) && totals.hasNext()) {
+                for (int r = 0; totals.hasNext(); r++) {
+                    DBDataRow dr = totals.next();
+                    if (dr != null) {
+                        this.bodyRow.writeXML(out, level+1, r, true/*totals*/, dr);
+                    }
                 }
             }
+        } finally {
+            if (totals != null) { totals.close(); }
         }
 
         /* HTML table body end */
@@ -236,27 +252,35 @@ public class ReportBody
 
         /* report body */
         DBDataIterator data = report.getBodyDataIterator();
-        if ((data != null) && data.hasNext()) {
-            int RC = 0;
-            for (RC = 0; data.hasNext(); RC++) {
-                DBDataRow dr = data.next();
-                if (dr != null) {
-                    this.bodyRow.writeCSV(out, level+1, RC, false/*totals*/, dr);
+        try {
+            if ((data != null) && data.hasNext()) {
+                int RC = 0;
+                for (RC = 0; data.hasNext(); RC++) {
+                    DBDataRow dr = data.next();
+                    if (dr != null) {
+                        this.bodyRow.writeCSV(out, level+1, RC, false/*totals*/, dr);
+                    }
                 }
+                this._setRecordCount(report, RC);
             }
-            this._setRecordCount(report, RC);
+        } finally {
+            if (data != null) { data.close(); }
         }
 
         /* report totals */
         if (INCLUDE_CSV_TOTALS) {
             DBDataIterator totals = report.getTotalsDataIterator();
-            if (totals != null) {
-                for (int r = 0; totals.hasNext(); r++) {
-                    DBDataRow dr = totals.next();
-                    if (dr != null) {
-                        this.bodyRow.writeCSV(out, level+1, r, true/*totals*/, dr);
+            try {
+                if (totals != null) {
+                    for (int r = 0; totals.hasNext(); r++) {
+                        DBDataRow dr = totals.next();
+                        if (dr != null) {
+                            this.bodyRow.writeCSV(out, level+1, r, true/*totals*/, dr);
+                        }
                     }
                 }
+            } finally {
+                if (totals != null) { totals.close(); }
             }
         }
 
@@ -274,28 +298,36 @@ public class ReportBody
 
         /* report body */
         DBDataIterator data = report.getBodyDataIterator();
-        if ((data != null) && data.hasNext()) {
-            int RC = 0;
-            for (RC = 0; data.hasNext(); RC++) {
-                DBDataRow dr = data.next();
-                if (dr != null) {
-                    if (this.debugXLS) Print.logInfo("XLS: Writing Report Body Row #" + RC);
-                    this.bodyRow.writeXLS(rptSS, level+1, RC, dr);
+        try {
+            if ((data != null) && data.hasNext()) {
+                int RC = 0;
+                for (RC = 0; data.hasNext(); RC++) {
+                    DBDataRow dr = data.next();
+                    if (dr != null) {
+                        if (this.debugXLS) Print.logInfo("XLS: Writing Report Body Row #" + RC);
+                        this.bodyRow.writeXLS(rptSS, level+1, RC, dr);
+                    }
                 }
+                this._setRecordCount(report, RC);
             }
-            this._setRecordCount(report, RC);
+        } finally {
+            if (data != null) { data.close(); }
         }
 
         /* report totals */
         DBDataIterator totals = report.getTotalsDataIterator();
-        if ((totals != null) && totals.hasNext()) {
-            for (int r = 0; totals.hasNext(); r++) {
-                DBDataRow dr = totals.next();
-                if (dr != null) {
-                    if (this.debugXLS) Print.logInfo("XLS: Writing Report Total Row #" + r);
-                    this.bodyRow.writeXLS(rptSS, level+1, r, dr);
+        try {
+            if ((totals != null) && totals.hasNext()) {
+                for (int r = 0; totals.hasNext(); r++) {
+                    DBDataRow dr = totals.next();
+                    if (dr != null) {
+                        if (this.debugXLS) Print.logInfo("XLS: Writing Report Total Row #" + r);
+                        this.bodyRow.writeXLS(rptSS, level+1, r, dr);
+                    }
                 }
             }
+        } finally {
+            if (totals != null) { totals.close(); }
         }
 
     }
@@ -321,15 +353,23 @@ public class ReportBody
 
         /* report body */
         DBDataIterator data = rd.getBodyDataIterator();
-        if ((data != null) && data.hasNext()) {
-            int RC = rptCB.reportBody(out, level+1, data);
-            this._setRecordCount(rd, RC);
+        try {
+            if ((data != null) && data.hasNext()) {
+                int RC = rptCB.reportBody(out, level+1, data);
+                this._setRecordCount(rd, RC);
+            }
+        } finally {
+            if (data != null) { data.close(); }
         }
 
         /* report totals */
         DBDataIterator totals = rd.getTotalsDataIterator();
-        if ((totals != null) && totals.hasNext()) {
-            rptCB.reportTotals(out, level+1, totals);
+        try {
+            if ((totals != null) && totals.hasNext()) {
+                rptCB.reportTotals(out, level+1, totals);
+            }
+        } finally {
+            if (totals != null) { totals.close(); }
         }
 
     }
@@ -837,6 +837,7 @@ public class ReportTable
 
         /* ReportSpreadsheet */
         ReportSpreadsheet rptSS = new ReportSpreadsheet(xlsx, rd);
+        rptSS.setOutputProvider(out); // streaming spreadsheets write rows as they are added
 
         /* create XLS report */
         int rcdCount = 0;
@@ -1319,6 +1319,75 @@ public class RequestProperties
     
     // ------------------------------------------------------------------------
     
+    /* return the authorized Devices for the specified device-ids (single selection) */
+    private Map<String,Device> _getAuthorizedDevices(Account account, User user, OrderedSet<String> devIDList)
+        throws DBException
+    {
+        java.util.List<String> authIDList = new Vector<String>();
+        for (int i = 0; i < devIDList.size(); i++) {
+            String deviceID = devIDList.get(i);
+            // omit unauthorized devices
+            if ((user != null) && !user.isAuthorizedDevice(deviceID)) {
+                continue;
+            }
+            authIDList.add(deviceID);
+        }
+        return Device.getDevices(account, authIDList);
+    }
+
+    /* return the fleet map events for the specified Device (may return null) */
+    private EventData[] _getFleetDeviceEvents(Device device, 
+        boolean notifyEventsOnly, long startTime, long endTime,
+        int statusCodes[], EventData.LimitType limitType, long perDevLimit)
+        throws DBException
+    {
+
+        /* last notify event */
+        if (notifyEventsOnly) {
+            EventData E = device.getLastNotifyEvent();
+            if (E != null) {
+                long ts = E.getTimestamp();
+                if ((startTime > 0L) && (ts < startTime)) {
+                    // skip this event
+                } else
+                if ((endTime > 0L) && (ts > endTime)) {
+                    // skip this event
+                } else {
+                    return new EventData[] { E };
+                }
+            }
+            return null;
+        }
+
+        /* last event (from snapshot) */
+        if ((perDevLimit == 1L) && ListTools.isEmpty(statusCodes) &&
+            ((limitType == null) || EventData.LimitType.LAST.equals(limitType))) {
+            EventData E = LastEventSnapshot.getLastEvent(device); // 'E' already points to 'device'
+            if (E == null) {
+                return null; // no valid-GPS events
+            }
+            long ts = E.getTimestamp();
+            if ((startTime > 0L) && (ts < startTime)) {
+                return null; // no events in range
+            } else
+            if ((endTime <= 0L) || (ts <= endTime)) {
+                return new EventData[] { E };
+            }
+            // last event is after the end of the range, select below
+        }
+
+        /* select events */
+        return device.getRangeEvents(
+            startTime,                  // startTime
+            endTime,                    // endTime
+            statusCodes,                // status codes
+            true,                       // validGPS (or cell lat/lon?)
+            limitType,                  // limitType (LAST)
+            perDevLimit);               // max points
+            // 'ev' already points to 'device'
+
+    }
+
     /* return array of events based on requested parameters */
     public EventData[] getMapEvents()
         throws DBException
@@ -1369,50 +1438,20 @@ public class RequestProperties
                 return EventData.EMPTY_ARRAY;
             }
 
+            // get authorized Devices
+            Map<String,Device> devMap = this._getAuthorizedDevices(account, user, devIDList);
+
             // not every device may have an event
             java.util.List<EventData> evList = new Vector<EventData>();
-            for (int i = 0; i < devIDList.size(); i++) { // apply limit?
-                String deviceID = devIDList.get(i);
-
-                // omit unauthorized devices
-                if ((user != null) && !user.isAuthorizedDevice(deviceID)) {
-                    continue;
-                }
-
-                // get Device
-                Device device = Device.getDevice(account, deviceID);
-                if (device == null) {
-                    // skip this deviceID
-                    continue;
-                }
+            for (Device device : devMap.values()) { // apply limit?
 
                 // get last event(s) for Device
-                if (notifyEventsOnly) {
-                    EventData E = device.getLastNotifyEvent();
-                    if (E != null) {
-                        long ts = E.getTimestamp();
-                        if ((startTime > 0L) && (ts < startTime)) {
-                            // skip this event
-                        } else
-                        if ((endTime > 0L) && (ts > endTime)) {
-                            // skip this event
-                        } else {
-                            evList.add(E);
-                        }
-                    }
-                } else {
-                    EventData ev[] = device.getRangeEvents(
-                        startTime,                  // startTime
-                        endTime,                    // endTime
-                        statusCodes,                // status codes
-                        true,                       // validGPS (or cell lat/lon?)
-                        limitType,                  // limitType (LAST)
-                        perDevLimit);               // max points
-                        // 'ev' already points to 'device'
-                    if (ev != null) {
-                        for (int e = 0; e < ev.length; e++) {
-                            evList.add(ev[e]);
-                        }
+                EventData ev[] = this._getFleetDeviceEvents(device, 
+                    notifyEventsOnly, startTime, endTime,
+                    statusCodes, limitType, perDevLimit);
+                if (ev != null) {
+                    for (int e = 0; e < ev.length; e++) {
+                        evList.add(ev[e]);
                     }
                 }
 
@@ -1527,48 +1566,17 @@ public class RequestProperties
                 return null;
             }
 
+            // get authorized Devices
+            Map<String,Device> devMap = this._getAuthorizedDevices(account, user, devIDList);
+
             // not every device may have an event
             int evCount = 0;
-            for (int i = 0; i < devIDList.size(); i++) { // apply limit?
-                String deviceID = devIDList.get(i);
-
-                // omit unauthorized devices
-                if ((user != null) && !user.isAuthorizedDevice(deviceID)) {
-                    continue;
-                }
-
-                // get Device
-                Device device = Device.getDevice(account, deviceID);
-                if (device == null) {
-                    // skip this deviceID
-                    continue;
-                }
+            for (Device device : devMap.values()) { // apply limit?
 
                 // get last event(s) for Device
-                EventData ev[] = null;
-                if (notifyEventsOnly) {
-                    EventData E = device.getLastNotifyEvent();
-                    if (E != null) {
-                        long ts = E.getTimestamp();
-                        if ((startTime > 0L) && (ts < startTime)) {
-                            // skip this event
-                        } else
-                        if ((endTime > 0L) && (ts > endTime)) {
-                            // skip this event
-                        } else {
-                            ev = new EventData[] { E };
-                        }
-                    }
-                } else {
-                    ev = device.getRangeEvents(
-                        startTime,                  // startTime
-                        endTime,                    // endTime
-                        statusCodes,                // status codes
-                        true,                       // validGPS
-                        limitType,                  // limitType (LAST)
-                        perDevLimit);               // max points
-                        // 'ev' already points to 'device'
-                }
+                EventData ev[] = this._getFleetDeviceEvents(device, 
+                    notifyEventsOnly, startTime, endTime,
+                    statusCodes, limitType, perDevLimit);
                 if (!ListTools.isEmpty(ev)) {
                     device.setSavedRangeEvents(ev);
                     devList.add(device);
@@ -64,6 +64,7 @@ import org.opengts.dbtools.DBException;
 import org.opengts.geocoder.GeocodeProvider;
 import org.opengts.geocoder.ReverseGeocode;
 import org.opengts.geocoder.ReverseGeocodeProvider;
+import org.opengts.geocoder.ReverseGeocodeProviderAdapter;
 import org.opengts.util.*;
 import org.opengts.war.tools.*;
 import org.opengts.war.track.page.AccountLogin;
@@ -1388,7 +1389,7 @@ public class Track
                 boolean cache = AttributeTools.getRequestBoolean(request, "cache", false); // from query only
                 String gpStr = AttributeTools.getRequestString(request, "gp", "0/0"); // from query only
                 GeoPoint gp = new GeoPoint(gpStr);
-                ReverseGeocode rg = rgp.getReverseGeocode(gp, localeStr, cache);
+                ReverseGeocode rg = ReverseGeocodeProviderAdapter.getCachedReverseGeocode(rgp, gp, localeStr, cache);
                 String charSet = StringTools.getCharacterEncoding();
                 Print.logInfo("ReverseGeocode: ["+charSet+"]\n"+rg);
                 rgCache = new String[] { gp.toString(), rg.getFullAddress() };
@@ -219,18 +219,23 @@ public class ReportDisplay
             pw.write("\"<"+EventUtil.TAG_MapData+">\\n\" +\n");
             pw.write("\"<"+EventUtil.TAG_DataSet+" type=\\\""+type+"\\\" route=\\\""+!isFleet+"\\\">\\n\" +\n");
             int evNdx = 0;
-            for (DBDataIterator dbi = report.getBodyDataIterator(); dbi.hasNext();) {
-                Object ev = dbi.next().getRowObject();
-                if (ev instanceof EventDataProvider) {
-                    EventDataProvider edp = (EventDataProvider)ev;
-                    edp.setEventIndex(evNdx++);
-                    if (!dbi.hasNext()) { edp.setIsLastEvent(true); }
-                    String rcd = StringTools.replace(this._formatMapEvent(edp,reqState,report),"\"","\\\"");
-                    pw.write("\"<"+EventUtil.TAG_Point+"><![CDATA[" + rcd + "]]></"+EventUtil.TAG_Point+">\\n\" +\n");
-                    //pw.write("\"" + rcd + "\\n\" +\n");
-                } else {
-                    Print.logWarn("Not an EventDataProvider: " + StringTools.className(ev));
+            DBDataIterator dbi = report.getBodyDataIterator();
+            try {
+                for (;dbi.hasNext();) {
+                    Object ev = dbi.next().getRowObject();
+                    if (ev instanceof EventDataProvider) {
+                        EventDataProvider edp = (EventDataProvider)ev;
+                        edp.setEventIndex(evNdx++);
+                        if (!dbi.hasNext()) { edp.setIsLastEvent(true); }
+                        String rcd = StringTools.replace(this._formatMapEvent(edp,reqState,report),"\"","\\\"");
+                        pw.write("\"<"+EventUtil.TAG_Point+"><![CDATA[" + rcd + "]]></"+EventUtil.TAG_Point+">\\n\" +\n");
+                        //pw.write("\"" + rcd + "\\n\" +\n");
+                    } else {
+                        Print.logWarn("Not an EventDataProvider: " + StringTools.className(ev));
+                    }
                 }
+            } finally {
+                dbi.close();
             }
             pw.write("\"</"+EventUtil.TAG_DataSet+">\\n\" +\n");
             if (showPPBox > 0) {
@@ -255,17 +260,22 @@ public class ReportDisplay
             JSON._Array pointArray = new JSON._Array();
             dataSetObj.addKeyValue(EventUtil.JSON_Points,pointArray);
             int evNdx = 0;
-            for (DBDataIterator dbi = report.getBodyDataIterator(); dbi.hasNext();) {
-                Object ev = dbi.next().getRowObject();
-                if (ev instanceof EventDataProvider) {
-                    EventDataProvider edp = (EventDataProvider)ev;
-                    edp.setEventIndex(evNdx++);
-                    if (!dbi.hasNext()) { edp.setIsLastEvent(true); }
-                    String rcd = this._formatMapEvent(edp,reqState,report);
-                    pointArray.addValue(rcd);
-                } else {
-                    Print.logWarn("Not an EventDataProvider: " + StringTools.className(ev));
+            DBDataIterator dbi = report.getBodyDataIterator();
+            try {
+                for (;dbi.hasNext();) {
+                    Object ev = dbi.next().getRowObject();
+                    if (ev instanceof EventDataProvider) {
+                        EventDataProvider edp = (EventDataProvider)ev;
+                        edp.setEventIndex(evNdx++);
+                        if (!dbi.hasNext()) { edp.setIsLastEvent(true); }
+                        String rcd = this._formatMapEvent(edp,reqState,report);
+                        pointArray.addValue(rcd);
+                    } else {
+                        Print.logWarn("Not an EventDataProvider: " + StringTools.className(ev));
+                    }
                 }
+            } finally {
+                dbi.close();
             }
             if ((showPPBox > 0) || (zoomPP > 0)) {
                 JSON._Array Actions = new JSON._Array();
@@ -325,24 +335,29 @@ public class ReportDisplay
 
         /* events */
         OrderedMap<Device,java.util.List<EventData>> devMap = new OrderedMap<Device,java.util.List<EventData>>();
-        for (DBDataIterator dbi = report.getBodyDataIterator(); dbi.hasNext();) {
+        DBDataIterator dbi = report.getBodyDataIterator();
+        try {
+            for (;dbi.hasNext();) {
 
-            Object ev = dbi.next().getRowObject();
-            if (!(ev instanceof EventData)) {
-                Print.logWarn("Not an EventData: " + StringTools.className(ev));
-                continue;
-            }
-            EventData ed = (EventData)ev;
+                Object ev = dbi.next().getRowObject();
+                if (!(ev instanceof EventData)) {
+                    Print.logWarn("Not an EventData: " + StringTools.className(ev));
+                    continue;
+                }
+                EventData ed = (EventData)ev;
+
+                /* add to Device */
+                Device dev = ed.getDevice();
+                java.util.List<EventData> edList = devMap.get(dev);
+                if (edList == null) {
+                    edList = new Vector<EventData>();
+                    devMap.put(dev,edList);
+                }
+                edList.add(ed);
 
-            /* add to Device */
-            Device dev = ed.getDevice();
-            java.util.List<EventData> edList = devMap.get(dev);
-            if (edList == null) {
-                edList = new Vector<EventData>();
-                devMap.put(dev,edList);
             }
-            edList.add(ed);
-
+        } finally {
+            dbi.close();
         }
 
         /* iterate through captured devices */
@@ -610,7 +610,8 @@ public class ReportMenu
         final boolean hasPDFSupport = false; // TODO
 
         /* has XLS/XLSX support */
-        final boolean hasXLSSupport = ReportSpreadsheet.IsExcelSpreadsheetSupported();
+        final boolean hasXLSSupport  = ReportSpreadsheet.IsExcelSpreadsheetSupported();
+        final boolean hasXLSXSupport = ReportSpreadsheet.IsExcelXLSXSupported();
 
         /* has notification email address */
         final String toEmailAddress = StringTools.trim(Account.getReportEmailAddress(account,user));
@@ -949,6 +950,9 @@ public class ReportMenu
                 if (hasXLSSupport) {
                     out.write("      <option value='"+ReportURL.FORMAT_XLS +"'>XLS</option>\n");
                 }
+                if (hasXLSXSupport) {
+                    out.write("      <option value='"+ReportURL.FORMAT_XLSX+"'>XLSX</option>\n");
+                }
                 if (hasToEmail) {
                     out.write("      <option value='"+ReportURL.FORMAT_EHTML+"'>EMail</option>\n");
                 }
@@ -100,4 +100,45 @@ public class StateTest {
         Assert.assertEquals("VA", stateInfo.stateAbbreviation);
 
     }
+
+    @Test
+    public void TestMultiPartStates() throws Exception {
+        StateInfo stateInfo;
+
+        // Upper Peninsula
+        stateInfo = state.getStateInfoForPoint(-87.4, 46.5);
+        Assert.assertEquals("MI", stateInfo.stateAbbreviation);
+
+        // Martha's Vineyard
+        stateInfo = state.getStateInfoForPoint(-70.6, 41.4);
+        Assert.assertEquals("MA", stateInfo.stateAbbreviation);
+
+        // Maui
+        stateInfo = state.getStateInfoForPoint(-156.3, 20.8);
+        Assert.assertEquals("HI", stateInfo.stateAbbreviation);
+    }
+
+    @Test
+    public void TestPointOutsideOfStates() throws Exception {
+        StateInfo stateInfo = state.getStateInfoForPoint(-30.0, 30.0);
+        Assert.assertTrue(stateInfo.isUnknown());
+        Assert.assertEquals(StateInfo.UNKNOWN_INFO_STR, stateInfo.stateName);
+    }
+
+    @Test
+    public void TestBatchLookup() throws Exception {
+        double[] x = { -88.9910706846, -95.3609792547, -30.0, -77.0115034503, -88.9, -155.490085919 };
+        double[] y = {  40.4054969251,  37.7586399394,  30.0,  38.9049939726,  40.4,   19.6262039082 };
+
+        StateInfo[] stateInfos = state.getStateInfoForPoints(x, y);
+        Assert.assertEquals(x.length, stateInfos.length);
+        for (int i = 0; i < x.length; i++) {
+            Assert.assertSame(state.getStateInfoForPoint(x[i], y[i]), stateInfos[i]);
+        }
+        Assert.assertEquals("KS", stateInfos[1].stateAbbreviation);
+        Assert.assertTrue(stateInfos[2].isUnknown());
+
+        // state info is shared per state
+        Assert.assertSame(stateInfos[0], stateInfos[4]);
+    }
 }